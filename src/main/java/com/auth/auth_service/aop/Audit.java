@@ -6,7 +6,8 @@ import java.lang.annotation.*;
  * Annotation to mark methods for audit logging.
  * resourceType: optional human-readable resource type (e.g., "MedicalRecord").
  * action: optional action name (e.g., "read", "update").
- * useFirstArgAsResourceId: if true, the aspect will use the first method argument's toString() as resourceId.
+ * useFirstArgAsResourceId: if true and the first argument is a @PathVariable (or an unannotated simple value),
+ *   the aspect uses its toString() (max 100 chars) as resourceId instead of the request URI.
  */
 @Target({ElementType.METHOD, ElementType.TYPE})
 @Retention(RetentionPolicy.RUNTIME)
@@ -1,8 +1,8 @@
 // language: java
 package com.auth.auth_service.aop;
 
+import com.auth.auth_service.audit.AuditRecorder;
 import com.auth.auth_service.entity.AuditLog;
-import com.auth.auth_service.repository.AuditLogRepository;
 import com.auth.auth_service.security.UserPrincipal;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
@@ -21,7 +21,6 @@ import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.context.request.ServletRequestAttributes;
 import org.springframework.web.server.ResponseStatusException;
 
-import java.lang.reflect.Method;
 import java.time.LocalDateTime;
 
 @Aspect
@@ -30,26 +29,14 @@ import java.time.LocalDateTime;
 @Slf4j
 public class AuditAspect {
 
-    private final AuditLogRepository auditLogRepository;
+    private final AuditRecorder auditRecorder;
+    private final AuditMetadataRegistry metadataRegistry;
 
     @Around("@annotation(Audit)")
     public Object aroundAudit(ProceedingJoinPoint pjp) throws Throwable {
         MethodSignature signature = (MethodSignature) pjp.getSignature();
-        Method method = signature.getMethod();
-        Audit audit = method.getAnnotation(Audit.class);
-        if (audit == null && pjp.getTarget() != null) {
-            // try on class
-            audit = pjp.getTarget().getClass().getAnnotation(Audit.class);
-        }
-
-        // Start with annotation-provided values (if any)
-        String resourceType = null;
-        String action = null;
-
-        if (audit != null) {
-            if (!audit.resourceType().isEmpty()) resourceType = audit.resourceType();
-            if (!audit.action().isEmpty()) action = audit.action();
-        }
+        AuditMetadata metadata = metadataRegistry.get(signature.getMethod(),
+                pjp.getTarget() != null ? pjp.getTarget().getClass() : null);
 
         // Prepare request context
         ServletRequestAttributes attrs = (ServletRequestAttributes) RequestContextHolder.getRequestAttributes();
@@ -60,9 +47,6 @@ public class AuditAspect {
         if (req != null) {
             uri = req.getRequestURI();
         }
-        // Final fallbacks
-        if (resourceType == null) resourceType = method.getDeclaringClass().getSimpleName();
-        if (action == null) action = method.getName();
 
         // prepare audit metadata
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
@@ -100,20 +84,11 @@ public class AuditAspect {
                     statusCode = resp.getStatus();
                 } catch (Exception ignored) {
                 }
-            } else {
+            } else if (metadata.declaredStatus() != 0) {
                 // Fallback to @ResponseStatus on method or class
-                ResponseStatus rs = method.getAnnotation(ResponseStatus.class);
-                if (rs == null && pjp.getTarget() != null) {
-                    rs = pjp.getTarget().getClass().getAnnotation(ResponseStatus.class);
-                }
-                if (rs != null) {
-                    try {
-                        statusCode = rs.value().value();
-                    } catch (Exception ignored) {
-                    }
-                }
+                statusCode = metadata.declaredStatus();
             }
-            denyReasons = "HTTP_" + statusCode;
+            denyReasons = AuditMetadataRegistry.statusReason(statusCode);
             return resultObj;
         } catch (Throwable ex) {
             allowed = false;
@@ -141,71 +116,54 @@ public class AuditAspect {
             denyReasons = ex.getMessage();
             throw ex;
         } finally {
-            // build policy id using helper
-            policyId = generatePolicyId(resourceType, action, allowed, statusCode);
+            policyId = metadata.policyId(allowed, statusCode);
             try {
                 AuditLog logEntry = AuditLog.builder()
                     .userId(userId)
-                    .resourceType(resourceType)
-                    .resourceId(uri == null ? "N/A" : uri)
-                    .action(action)
+                    .resourceType(metadata.resourceType())
+                    .resourceId(resourceId(metadata, pjp.getArgs(), uri))
+                    .action(metadata.action())
                     .allowed(allowed)
                     .policyId(policyId)
                     .denyReasons(denyReasons)
-                    .riskScore(calculateRiskScore(req))
+                    .riskScore(calculateRiskScore(metadata, req, now))
                     .timestamp(now)
                     .ipAddress(ip)
                     .userAgent(userAgent)
                     .build();
 
-                auditLogRepository.save(logEntry);
+                auditRecorder.record(logEntry, req != null && "GET".equals(req.getMethod()));
             } catch (Exception e) {
                 log.error("Failed to write audit log", e);
             }
         }
     }
 
-    private String generatePolicyId(String resourceType, String method, boolean success, int statusCode) {
-        if (success) {
-            return "ALLOW_" + resourceType + "_" + method;
-        } else if (statusCode == 401) {
-            return "DENY_UNAUTHENTICATED";
-        } else if (statusCode == 403) {
-            return "DENY_UNAUTHORIZED";
-        } else if (statusCode == 404) {
-            return "DENY_NOT_FOUND";
-        } else {
-            return "DENY_HTTP_" + statusCode;
+    private String resourceId(AuditMetadata metadata, Object[] args, String uri) {
+        int index = metadata.resourceIdArgIndex();
+        if (index >= 0 && index < args.length && args[index] != null) {
+            String value = String.valueOf(args[index]);
+            return value.length() > AuditMetadataRegistry.MAX_RESOURCE_ID_LENGTH
+                    ? value.substring(0, AuditMetadataRegistry.MAX_RESOURCE_ID_LENGTH) : value;
         }
+        return uri == null ? "N/A" : uri;
     }
 
-    private int calculateRiskScore(HttpServletRequest request) {
+    private int calculateRiskScore(AuditMetadata metadata, HttpServletRequest request, LocalDateTime now) {
         int score = 0;
 
         // Off-hours access (before 8 AM or after 6 PM)
-        int hour = LocalDateTime.now().getHour();
+        int hour = now.getHour();
         if (hour < 8 || hour > 18) {
             score += 2;
         }
 
-        // High-risk HTTP methods
-        String method = request.getMethod();
-        if ("DELETE".equals(method)) {
-            score += 3;
-        } else if ("PUT".equals(method) || "PATCH".equals(method)) {
-            score += 1;
-        }
-
-        // High-risk endpoints
-        String uri = request.getRequestURI();
-        if (uri.contains("export")) {
-            score += 3;
-        }
-        if (uri.contains("/system/") || uri.contains("/policies/")) {
-            score += 2;
-        }
-        if (uri.contains("/ai/recommend/anomaly")) {
-            score += 1; // Sensitive security operation
+        // HTTP method + endpoint risk, resolved once per handler when the mapping allows it
+        if (metadata.staticRiskScore() != AuditMetadata.DYNAMIC_RISK) {
+            score += metadata.staticRiskScore();
+        } else if (request != null) {
+            score += AuditMetadataRegistry.httpMethodRisk(request.getMethod());
+            score += AuditMetadataRegistry.uriRisk(request.getRequestURI());
         }
 
         return score;
@@ -0,0 +1,35 @@
+package com.auth.auth_service.aop;
+
+/**
+ * Metadata audit đã resolve sẵn cho một method có {@link Audit} (xem {@link AuditMetadataRegistry}).
+ *
+ * @param resourceIdArgIndex vị trí tham số dùng làm resourceId, -1 nếu dùng request URI
+ * @param declaredStatus     status từ {@code @ResponseStatus} trên method/class, 0 nếu không có
+ * @param staticRiskScore    điểm rủi ro theo HTTP method + URI pattern của mapping (path variable vẫn
+ *                           tính tĩnh, giá trị của nó không ảnh hưởng điểm); {@link #DYNAMIC_RISK} nếu
+ *                           phải tính theo URI thực tế: mapping không có hoặc có nhiều HTTP method, có
+ *                           wildcard, hoặc các pattern cho ra điểm khác nhau
+ */
+record AuditMetadata(String resourceType,
+                     String action,
+                     String allowPolicyId,
+                     int resourceIdArgIndex,
+                     int declaredStatus,
+                     int staticRiskScore) {
+
+    static final int DYNAMIC_RISK = -1;
+
+    private static final String DENY_PREFIX = "DENY_HTTP_";
+
+    String policyId(boolean allowed, int statusCode) {
+        if (allowed) {
+            return allowPolicyId;
+        }
+        return switch (statusCode) {
+            case 401 -> "DENY_UNAUTHENTICATED";
+            case 403 -> "DENY_UNAUTHORIZED";
+            case 404 -> "DENY_NOT_FOUND";
+            default -> DENY_PREFIX + statusCode;
+        };
+    }
+}
@@ -0,0 +1,166 @@
+package com.auth.auth_service.aop;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeanUtils;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.MethodClassKey;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Resolve metadata audit một lần cho mỗi cặp (target class, {@link Method}): resourceType, action, policy id, tham số
+ * làm resourceId, {@code @ResponseStatus} và điểm rủi ro theo mapping. Các handler có {@link Audit}
+ * được nạp sẵn khi ứng dụng khởi động; method khác được resolve ở lần gọi đầu tiên. Key gồm cả
+ * target class vì method kế thừa từ class cha dùng {@code @Audit} / mapping của class con đang gọi.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class AuditMetadataRegistry {
+
+    static final int MAX_RESOURCE_ID_LENGTH = 100;
+
+    private static final Pattern PATH_VARIABLE = Pattern.compile("\\{[^}]*}");
+    private static final String[] STATUS_REASONS = new String[600];
+
+    static {
+        for (int code = 0; code < STATUS_REASONS.length; code++) {
+            STATUS_REASONS[code] = "HTTP_" + code;
+        }
+    }
+
+    private final ApplicationContext applicationContext;
+    private final Map<MethodClassKey, AuditMetadata> metadata = new ConcurrentHashMap<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void preload() {
+        for (RequestMappingHandlerMapping mapping : applicationContext.getBeansOfType(RequestMappingHandlerMapping.class).values()) {
+            for (HandlerMethod handler : mapping.getHandlerMethods().values()) {
+                if (handler.hasMethodAnnotation(Audit.class)) {
+                    get(handler.getMethod(), handler.getBeanType());
+                }
+            }
+        }
+        log.info("Resolved audit metadata for {} handler methods", metadata.size());
+    }
+
+    AuditMetadata get(Method method, Class<?> targetClass) {
+        Class<?> userClass = targetClass != null ? ClassUtils.getUserClass(targetClass) : null;
+        MethodClassKey key = new MethodClassKey(method, userClass);
+        AuditMetadata resolved = metadata.get(key);
+        if (resolved == null) {
+            resolved = metadata.computeIfAbsent(key, k -> resolve(method, userClass));
+        }
+        return resolved;
+    }
+
+    static String statusReason(int statusCode) {
+        return statusCode >= 0 && statusCode < STATUS_REASONS.length ? STATUS_REASONS[statusCode] : "HTTP_" + statusCode;
+    }
+
+    static int httpMethodRisk(String method) {
+        if ("DELETE".equals(method)) {
+            return 3;
+        }
+        return "PUT".equals(method) || "PATCH".equals(method) ? 1 : 0;
+    }
+
+    static int uriRisk(String uri) {
+        int score = 0;
+        if (uri.contains("export")) {
+            score += 3;
+        }
+        if (uri.contains("/system/") || uri.contains("/policies/")) {
+            score += 2;
+        }
+        if (uri.contains("/ai/recommend/anomaly")) {
+            score += 1; // Sensitive security operation
+        }
+        return score;
+    }
+
+    private static AuditMetadata resolve(Method method, Class<?> targetClass) {
+        Audit audit = AnnotatedElementUtils.findMergedAnnotation(method, Audit.class);
+        if (audit == null && targetClass != null) {
+            audit = AnnotatedElementUtils.findMergedAnnotation(targetClass, Audit.class);
+        }
+        String resourceType = audit != null && !audit.resourceType().isEmpty()
+                ? audit.resourceType() : method.getDeclaringClass().getSimpleName();
+        String action = audit != null && !audit.action().isEmpty() ? audit.action() : method.getName();
+
+        int resourceIdArgIndex = -1;
+        if (audit != null && audit.useFirstArgAsResourceId() && method.getParameterCount() > 0
+                && isResourceIdParameter(method.getParameters()[0])) {
+            resourceIdArgIndex = 0;
+        }
+
+        ResponseStatus responseStatus = AnnotatedElementUtils.findMergedAnnotation(method, ResponseStatus.class);
+        if (responseStatus == null && targetClass != null) {
+            responseStatus = AnnotatedElementUtils.findMergedAnnotation(targetClass, ResponseStatus.class);
+        }
+        int declaredStatus = responseStatus != null ? responseStatus.code().value() : 0;
+
+        return new AuditMetadata(resourceType, action, "ALLOW_" + resourceType + "_" + action,
+                resourceIdArgIndex, declaredStatus, staticRisk(method, targetClass));
+    }
+
+    /**
+     * Chỉ dùng tham số đầu làm resourceId khi nó là path variable hoặc giá trị đơn giản không bind
+     * từ request (không phải filter {@code @RequestParam}, body hay principal).
+     */
+    private static boolean isResourceIdParameter(Parameter parameter) {
+        if (parameter.isAnnotationPresent(PathVariable.class)) {
+            return true;
+        }
+        return parameter.getAnnotations().length == 0 && BeanUtils.isSimpleValueType(parameter.getType());
+    }
+
+    /**
+     * Điểm rủi ro theo HTTP method + URI pattern của mapping (giá trị path variable không tính).
+     * Trả về {@link AuditMetadata#DYNAMIC_RISK} khi mapping không xác định được một method/pattern.
+     */
+    private static int staticRisk(Method method, Class<?> targetClass) {
+        RequestMapping methodMapping = AnnotatedElementUtils.findMergedAnnotation(method, RequestMapping.class);
+        if (methodMapping == null || methodMapping.method().length != 1) {
+            return AuditMetadata.DYNAMIC_RISK;
+        }
+        RequestMapping classMapping = targetClass != null
+                ? AnnotatedElementUtils.findMergedAnnotation(targetClass, RequestMapping.class) : null;
+        String[] prefixes = classMapping != null && classMapping.path().length > 0 ? classMapping.path() : new String[]{""};
+        String[] paths = methodMapping.path().length > 0 ? methodMapping.path() : new String[]{""};
+
+        Set<Integer> scores = new HashSet<>();
+        for (String prefix : prefixes) {
+            for (String path : paths) {
+                String pattern = PATH_VARIABLE.matcher(prefix + path).replaceAll("{}");
+                if (pattern.indexOf('*') >= 0) {
+                    return AuditMetadata.DYNAMIC_RISK;
+                }
+                scores.add(uriRisk(pattern));
+            }
+        }
+        if (scores.size() != 1) {
+            return AuditMetadata.DYNAMIC_RISK;
+        }
+        RequestMethod httpMethod = methodMapping.method()[0];
+        return httpMethodRisk(httpMethod.name()) + scores.iterator().next();
+    }
+}
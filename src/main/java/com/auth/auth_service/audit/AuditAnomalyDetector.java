@@ -0,0 +1,322 @@
+package com.auth.auth_service.audit;
+
+import com.auth.auth_service.dto.mock.IncidentCaseDto;
+import com.auth.auth_service.entity.AuditLog;
+import com.auth.auth_service.service.IncidentService;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Phát hiện bất thường theo luồng, chạy ngay trong JVM trên từng audit event (xem {@link AuditRecorder}).
+ * <p>
+ * Mỗi user có baseline cập nhật theo giờ hoạt động: EWMA (mean/variance) của số request mỗi giờ và
+ * số resource phân biệt mỗi giờ (HyperLogLog), EWMA của tỷ lệ bị từ chối và tỷ lệ giờ hoạt động
+ * ngoài giờ hành chính. Giờ hiện tại được so với baseline ở mỗi event, nên incident được tạo trong
+ * vài giây mà không cần quét bảng audit_logs hay gọi AI service.
+ * Request ẩn danh được tách theo IP ({@code anonymous@<ip>}).
+ * <p>
+ * Thread của request chỉ đưa phát hiện vào hàng đợi giới hạn ({@code audit.anomaly.max-pending-incidents});
+ * incident được tạo bởi job {@link #raisePendingIncidents()}.
+ */
+@Component
+@Slf4j
+public class AuditAnomalyDetector implements AuditEventListener {
+
+    static final String SIGNAL_VOLUME = "VOLUME_SPIKE";
+    static final String SIGNAL_RESOURCES = "RESOURCE_FANOUT";
+    static final String SIGNAL_DENY_RATE = "DENY_RATE";
+    static final String SIGNAL_OFF_HOURS = "OFF_HOURS";
+
+    private final IncidentService incidentService;
+    private final double alpha;
+    private final int warmupHours;
+    private final int minEvents;
+    private final double zThreshold;
+    private final int minDistinctResources;
+    private final int minDenied;
+    private final double denyRateDelta;
+    private final double offHoursMaxShare;
+    private final int workStartHour;
+    private final int workEndHour;
+    private final long cooldownMinutes;
+    private final long idleHours;
+    private final int maxSubjects;
+    private final int hllPrecision;
+
+    private final Map<String, Baseline> baselines = new ConcurrentHashMap<>();
+    private final BlockingQueue<PendingIncident> pendingIncidents;
+
+    public AuditAnomalyDetector(
+            IncidentService incidentService,
+            @Value("${audit.anomaly.ewma-alpha:0.1}") double alpha,
+            @Value("${audit.anomaly.warmup-hours:8}") int warmupHours,
+            @Value("${audit.anomaly.min-events:20}") int minEvents,
+            @Value("${audit.anomaly.z-threshold:4.0}") double zThreshold,
+            @Value("${audit.anomaly.min-distinct-resources:15}") int minDistinctResources,
+            @Value("${audit.anomaly.min-denied:5}") int minDenied,
+            @Value("${audit.anomaly.deny-rate-delta:0.3}") double denyRateDelta,
+            @Value("${audit.anomaly.off-hours-max-share:0.05}") double offHoursMaxShare,
+            @Value("${audit.anomaly.work-start-hour:8}") int workStartHour,
+            @Value("${audit.anomaly.work-end-hour:19}") int workEndHour,
+            @Value("${audit.anomaly.cooldown-minutes:60}") long cooldownMinutes,
+            @Value("${audit.anomaly.idle-days:30}") long idleDays,
+            @Value("${audit.anomaly.max-subjects:50000}") int maxSubjects,
+            @Value("${audit.anomaly.hll-precision:9}") int hllPrecision,
+            @Value("${audit.anomaly.max-pending-incidents:1000}") int maxPendingIncidents) {
+        this.incidentService = incidentService;
+        this.alpha = alpha;
+        this.warmupHours = warmupHours;
+        this.minEvents = minEvents;
+        this.zThreshold = zThreshold;
+        this.minDistinctResources = minDistinctResources;
+        this.minDenied = minDenied;
+        this.denyRateDelta = denyRateDelta;
+        this.offHoursMaxShare = offHoursMaxShare;
+        this.workStartHour = workStartHour;
+        this.workEndHour = workEndHour;
+        this.cooldownMinutes = cooldownMinutes;
+        this.idleHours = idleDays * 24;
+        this.maxSubjects = maxSubjects;
+        this.hllPrecision = hllPrecision;
+        this.pendingIncidents = new ArrayBlockingQueue<>(Math.max(1, maxPendingIncidents));
+    }
+
+    @Override
+    public void onAuditEvent(AuditLog event) {
+        if (event.getTimestamp() == null || event.getUserId() == null) {
+            return;
+        }
+        String subject = subject(event);
+        Baseline baseline = baselines.get(subject);
+        if (baseline == null) {
+            if (baselines.size() >= maxSubjects) {
+                return;
+            }
+            baseline = baselines.computeIfAbsent(subject, k -> new Baseline(hllPrecision));
+        }
+
+        List<Finding> findings;
+        synchronized (baseline) {
+            baseline.observe(event);
+            findings = evaluate(baseline);
+            if (findings.isEmpty() || !baseline.cooledDown(event.getTimestamp(), cooldownMinutes)) {
+                return;
+            }
+            baseline.lastIncidentAt = event.getTimestamp();
+        }
+        if (!pendingIncidents.offer(new PendingIncident(subject, event.getUserId(), event.getTimestamp(), findings))) {
+            log.warn("Anomaly incident queue full, dropping incident for {} ({} findings)", subject, findings.size());
+        }
+    }
+
+    /**
+     * Tạo các incident đang chờ, ngoài thread của request.
+     */
+    @Scheduled(fixedDelayString = "${audit.anomaly.incident-interval-ms:1000}")
+    @PreDestroy
+    public void raisePendingIncidents() {
+        PendingIncident pending;
+        while ((pending = pendingIncidents.poll()) != null) {
+            try {
+                raiseIncident(pending);
+            } catch (RuntimeException e) {
+                log.error("Failed to raise anomaly incident for {}: {}", pending.subject(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Bỏ baseline của user không hoạt động quá {@code audit.anomaly.idle-days}.
+     */
+    @Scheduled(cron = "${audit.anomaly.eviction-cron:0 5 * * * *}")
+    public void evictIdle() {
+        long cutoff = epochHour(LocalDateTime.now()) - idleHours;
+        int before = baselines.size();
+        baselines.values().removeIf(baseline -> baseline.idleBefore(cutoff));
+        if (baselines.size() < before) {
+            log.info("Evicted {} idle anomaly baselines ({} tracked)", before - baselines.size(), baselines.size());
+        }
+    }
+
+    int trackedSubjects() {
+        return baselines.size();
+    }
+
+    private List<Finding> evaluate(Baseline b) {
+        List<Finding> findings = new ArrayList<>(4);
+        boolean warm = b.activeHours >= warmupHours;
+        if (b.count < minEvents) {
+            return findings;
+        }
+        if (warm) {
+            double volumeZ = (b.count - b.volumeMean) / Math.sqrt(b.volumeVariance + 1);
+            if (volumeZ >= zThreshold) {
+                findings.add(new Finding(SIGNAL_VOLUME, volumeZ / zThreshold, String.format(
+                        "%d requests this hour vs baseline %.1f (z=%.1f)", b.count, b.volumeMean, volumeZ)));
+            }
+            long distinct = b.resources.estimate();
+            double distinctZ = (distinct - b.distinctMean) / Math.sqrt(b.distinctVariance + 1);
+            if (distinct >= minDistinctResources && distinctZ >= zThreshold) {
+                findings.add(new Finding(SIGNAL_RESOURCES, distinctZ / zThreshold, String.format(
+                        "~%d distinct resources this hour vs baseline %.1f (z=%.1f)", distinct, b.distinctMean, distinctZ)));
+            }
+            if (b.offHours && b.offHoursShare <= offHoursMaxShare) {
+                findings.add(new Finding(SIGNAL_OFF_HOURS, 1, String.format(
+                        "%d requests outside working hours; off-hours share of active hours is %.0f%%",
+                        b.count, b.offHoursShare * 100)));
+            }
+        }
+        // Không cần warm-up: user mới bị từ chối liên tục cũng là dấu hiệu đáng ngờ
+        double denyRate = (double) b.denied / b.count;
+        double baselineDenyRate = warm ? b.denyRate : 0;
+        if (b.denied >= minDenied && denyRate - baselineDenyRate >= denyRateDelta) {
+            findings.add(new Finding(SIGNAL_DENY_RATE, (denyRate - baselineDenyRate) / denyRateDelta, String.format(
+                    "%d of %d requests denied this hour (%.0f%%) vs baseline %.0f%%",
+                    b.denied, b.count, denyRate * 100, baselineDenyRate * 100)));
+        }
+        return findings;
+    }
+
+    private void raiseIncident(PendingIncident pending) {
+        String subject = pending.subject();
+        List<Finding> findings = pending.findings();
+        String severity = severity(findings);
+        String signals = findings.stream().map(Finding::signal).collect(Collectors.joining(", "));
+        IncidentCaseDto incident = incidentService.create(IncidentCaseDto.builder()
+                .title("Anomalous activity detected for " + subject + " (" + signals + ")")
+                .description(findings.stream().map(Finding::detail).collect(Collectors.joining("; ")))
+                .severity(severity)
+                .category("Security")
+                .status("Open")
+                .reportedBy("ANOMALY_DETECTOR")
+                .affectedSystems(List.of("Authentication Service"))
+                .affectedUsers(List.of(pending.userId()))
+                .incidentDate(pending.detectedAt())
+                .reportedAt(LocalDateTime.now())
+                .build());
+        log.warn("Anomaly incident {} [{}] for {}: {}", incident.getCaseId(), severity, subject, signals);
+    }
+
+    private static String severity(List<Finding> findings) {
+        if (findings.size() >= 3) {
+            return "Critical";
+        }
+        double maxScore = findings.stream().mapToDouble(Finding::score).max().orElse(0);
+        return findings.size() == 2 || maxScore >= 2 ? "High" : "Medium";
+    }
+
+    private String subject(AuditLog event) {
+        if ("anonymous".equals(event.getUserId()) && event.getIpAddress() != null) {
+            return "anonymous@" + event.getIpAddress();
+        }
+        return event.getUserId();
+    }
+
+    private boolean isOffHours(LocalDateTime time) {
+        int hour = time.getHour();
+        return hour < workStartHour || hour >= workEndHour;
+    }
+
+    private static boolean isDenied(AuditLog event) {
+        // AuditAspect ghi allowed=true khi controller tự trả 401/403 qua ResponseEntity
+        return !event.isAllowed() || "HTTP_401".equals(event.getDenyReasons()) || "HTTP_403".equals(event.getDenyReasons());
+    }
+
+    private static long epochHour(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) / 3600;
+    }
+
+    private record Finding(String signal, double score, String detail) {
+    }
+
+    private record PendingIncident(String subject, String userId, LocalDateTime detectedAt, List<Finding> findings) {
+    }
+
+    /**
+     * Baseline của một user + bộ đếm của giờ hiện tại. Truy cập khi giữ monitor của chính nó.
+     */
+    private final class Baseline {
+        // Giờ hiện tại
+        long hour = Long.MIN_VALUE;
+        int count;
+        int denied;
+        boolean offHours;
+        final HyperLogLog resources;
+
+        // Baseline theo các giờ có hoạt động
+        int activeHours;
+        double volumeMean;
+        double volumeVariance;
+        double distinctMean;
+        double distinctVariance;
+        double denyRate;
+        double offHoursShare;
+        LocalDateTime lastIncidentAt;
+
+        Baseline(int precision) {
+            this.resources = new HyperLogLog(precision);
+        }
+
+        void observe(AuditLog event) {
+            long eventHour = epochHour(event.getTimestamp());
+            if (eventHour > hour) {
+                closeHour();
+                hour = eventHour;
+                offHours = isOffHours(event.getTimestamp());
+            }
+            count++;
+            if (isDenied(event)) {
+                denied++;
+            }
+            resources.add(event.getResourceType() + ':' + event.getResourceId());
+        }
+
+        /** Gộp giờ vừa kết thúc vào baseline EWMA rồi reset bộ đếm. */
+        private void closeHour() {
+            if (count > 0) {
+                long distinct = resources.estimate();
+                double denyRatio = (double) denied / count;
+                if (activeHours == 0) {
+                    volumeMean = count;
+                    distinctMean = distinct;
+                    denyRate = denyRatio;
+                    offHoursShare = offHours ? 1 : 0;
+                } else {
+                    double volumeDiff = count - volumeMean;
+                    volumeMean += alpha * volumeDiff;
+                    volumeVariance = (1 - alpha) * (volumeVariance + alpha * volumeDiff * volumeDiff);
+                    double distinctDiff = distinct - distinctMean;
+                    distinctMean += alpha * distinctDiff;
+                    distinctVariance = (1 - alpha) * (distinctVariance + alpha * distinctDiff * distinctDiff);
+                    denyRate += alpha * (denyRatio - denyRate);
+                    offHoursShare += alpha * ((offHours ? 1 : 0) - offHoursShare);
+                }
+                activeHours++;
+            }
+            count = 0;
+            denied = 0;
+            resources.clear();
+        }
+
+        boolean cooledDown(LocalDateTime now, long minutes) {
+            return lastIncidentAt == null || !now.isBefore(lastIncidentAt.plusMinutes(minutes));
+        }
+
+        synchronized boolean idleBefore(long cutoffHour) {
+            return hour < cutoffHour;
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.auth.auth_service.audit;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.BitSet;
+
+/**
+ * Định dạng file archive dạng cột cho audit log cũ ({@code *.aca}).
+ * <pre>
+ * file   := MAGIC(int) VERSION(byte) block* footer footerOffset(long) MAGIC(int)
+ * block  := deflate( rowCount(varint) column[COLUMN_COUNT] ), column := length(varint) bytes
+ * footer := dictionary[DICTIONARY_COUNT] blockCount(varint) blockStats*
+ * </pre>
+ * Rows are sorted by (userId, timestamp, id), so the user column is run-length encoded and
+ * per-block user ranges are tight. userId, resourceType, action, policyId and userAgent are
+ * dictionary-encoded; ids and timestamps (epoch micros) are zigzag delta varints.
+ * Each block's min/max timestamp, user, risk score, allowed count and the set of
+ * resource types/actions it contains are kept in the footer for block skipping.
+ */
+final class AuditArchiveFormat {
+
+    static final int MAGIC = 0x41434131; // "ACA1"
+    static final byte VERSION = 1;
+    static final String FILE_SUFFIX = ".aca";
+
+    // Column order inside a block
+    static final int COL_ID = 0;
+    static final int COL_TIMESTAMP = 1;
+    static final int COL_USER = 2;
+    static final int COL_RESOURCE_TYPE = 3;
+    static final int COL_RESOURCE_ID = 4;
+    static final int COL_ACTION = 5;
+    static final int COL_ALLOWED = 6;
+    static final int COL_POLICY = 7;
+    static final int COL_DENY_REASONS = 8;
+    static final int COL_RISK = 9;
+    static final int COL_IP = 10;
+    static final int COL_USER_AGENT = 11;
+    static final int COLUMN_COUNT = 12;
+
+    // Dictionary order inside the footer
+    static final int DICT_USER = 0;
+    static final int DICT_RESOURCE_TYPE = 1;
+    static final int DICT_ACTION = 2;
+    static final int DICT_POLICY = 3;
+    static final int DICT_USER_AGENT = 4;
+    static final int DICTIONARY_COUNT = 5;
+
+    private AuditArchiveFormat() {
+    }
+
+    static long toMicros(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + time.getNano() / 1_000;
+    }
+
+    static LocalDateTime fromMicros(long micros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L),
+                (int) Math.floorMod(micros, 1_000_000L) * 1_000, ZoneOffset.UTC);
+    }
+
+    static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    static long readVarLong(ByteBuffer in) {
+        long result = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.get();
+            result |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return result;
+    }
+
+    static int readVarInt(ByteBuffer in) {
+        return (int) readVarLong(in);
+    }
+
+    static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /** Chuỗi nullable: varint(length + 1), 0 = null. */
+    static void writeString(ByteArrayOutputStream out, String value) {
+        if (value == null) {
+            writeVarLong(out, 0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, bytes.length + 1L);
+        out.writeBytes(bytes);
+    }
+
+    static String readString(ByteBuffer in) {
+        int length = readVarInt(in) - 1;
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static void writeBytes(ByteArrayOutputStream out, byte[] bytes) {
+        writeVarLong(out, bytes.length);
+        out.writeBytes(bytes);
+    }
+
+    static byte[] readBytes(ByteBuffer in) {
+        byte[] bytes = new byte[readVarInt(in)];
+        in.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Thống kê của một block trong footer, dùng để bỏ qua block không khớp filter.
+     */
+    record BlockStats(long offset, int length, int rawLength, int rowCount,
+                      long minTimestamp, long maxTimestamp,
+                      int minUser, int maxUser,
+                      boolean hasRisk, int minRisk, int maxRisk,
+                      int allowedCount,
+                      BitSet resourceTypes, BitSet actions) {
+
+        void writeTo(ByteArrayOutputStream out) {
+            writeVarLong(out, offset);
+            writeVarLong(out, length);
+            writeVarLong(out, rawLength);
+            writeVarLong(out, rowCount);
+            writeVarLong(out, zigzag(minTimestamp));
+            writeVarLong(out, maxTimestamp - minTimestamp);
+            writeVarLong(out, minUser);
+            writeVarLong(out, maxUser - minUser);
+            out.write(hasRisk ? 1 : 0);
+            writeVarLong(out, zigzag(minRisk));
+            writeVarLong(out, zigzag(maxRisk));
+            writeVarLong(out, allowedCount);
+            writeBytes(out, resourceTypes.toByteArray());
+            writeBytes(out, actions.toByteArray());
+        }
+
+        static BlockStats readFrom(ByteBuffer in) {
+            long offset = readVarLong(in);
+            int length = readVarInt(in);
+            int rawLength = readVarInt(in);
+            int rowCount = readVarInt(in);
+            long minTimestamp = unzigzag(readVarLong(in));
+            long maxTimestamp = minTimestamp + readVarLong(in);
+            int minUser = readVarInt(in);
+            int maxUser = minUser + readVarInt(in);
+            boolean hasRisk = in.get() == 1;
+            int minRisk = (int) unzigzag(readVarLong(in));
+            int maxRisk = (int) unzigzag(readVarLong(in));
+            int allowedCount = readVarInt(in);
+            BitSet resourceTypes = BitSet.valueOf(readBytes(in));
+            BitSet actions = BitSet.valueOf(readBytes(in));
+            return new BlockStats(offset, length, rawLength, rowCount, minTimestamp, maxTimestamp, minUser, maxUser,
+                    hasRisk, minRisk, maxRisk, allowedCount, resourceTypes, actions);
+        }
+    }
+}
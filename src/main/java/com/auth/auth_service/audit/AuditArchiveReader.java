@@ -0,0 +1,288 @@
+package com.auth.auth_service.audit;
+
+import com.auth.auth_service.dto.AuditLogFilter;
+import com.auth.auth_service.entity.AuditLog;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import static com.auth.auth_service.audit.AuditArchiveFormat.*;
+
+/**
+ * Đọc file archive dạng cột bằng memory-mapped I/O.
+ * <p>
+ * {@link #scan} áp dụng cùng bộ filter với API truy vấn audit: block bị loại dựa trên thống kê
+ * trong footer (khoảng timestamp, khoảng user, resourceType/action có trong block, risk, allowed)
+ * mà không cần giải nén; chỉ block còn lại mới được inflate và lọc từng dòng.
+ */
+final class AuditArchiveReader implements Closeable {
+
+    private final Path path;
+    private final FileChannel channel;
+    private final List<List<String>> dictionaries;
+    private final List<Map<String, Integer>> reverseDictionaries;
+    private final List<BlockStats> blocks;
+
+    private AuditArchiveReader(Path path, FileChannel channel, List<List<String>> dictionaries, List<BlockStats> blocks) {
+        this.path = path;
+        this.channel = channel;
+        this.dictionaries = dictionaries;
+        this.blocks = blocks;
+        this.reverseDictionaries = new ArrayList<>(dictionaries.size());
+        for (List<String> dictionary : dictionaries) {
+            Map<String, Integer> ids = new HashMap<>(dictionary.size() * 2);
+            for (int i = 0; i < dictionary.size(); i++) {
+                ids.put(dictionary.get(i), i);
+            }
+            reverseDictionaries.add(ids);
+        }
+    }
+
+    static AuditArchiveReader open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, 5);
+            MappedByteBuffer trailer = channel.map(FileChannel.MapMode.READ_ONLY, size - 12, 12);
+            if (header.getInt() != MAGIC || header.get() != VERSION || trailer.getInt(8) != MAGIC) {
+                throw new IOException("Not an audit archive file: " + path);
+            }
+            long footerOffset = trailer.getLong(0);
+            MappedByteBuffer footer = channel.map(FileChannel.MapMode.READ_ONLY, footerOffset, size - 12 - footerOffset);
+
+            List<List<String>> dictionaries = new ArrayList<>(DICTIONARY_COUNT);
+            for (int d = 0; d < DICTIONARY_COUNT; d++) {
+                int count = readVarInt(footer);
+                List<String> values = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    values.add(readString(footer));
+                }
+                dictionaries.add(values);
+            }
+            int blockCount = readVarInt(footer);
+            List<BlockStats> blocks = new ArrayList<>(blockCount);
+            for (int i = 0; i < blockCount; i++) {
+                blocks.add(BlockStats.readFrom(footer));
+            }
+            return new AuditArchiveReader(path, channel, dictionaries, blocks);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    long rowCount() {
+        return blocks.stream().mapToLong(BlockStats::rowCount).sum();
+    }
+
+    int blockCount() {
+        return blocks.size();
+    }
+
+    /**
+     * Gửi mọi dòng khớp filter tới {@code sink}.
+     */
+    ScanStats scan(AuditLogFilter filter, Consumer<AuditLog> sink) throws IOException {
+        int user = lookup(DICT_USER, filter.getUserId());
+        int resourceType = lookup(DICT_RESOURCE_TYPE, filter.getResourceType());
+        int action = lookup(DICT_ACTION, filter.getAction());
+        if (user == MISSING || resourceType == MISSING || action == MISSING) {
+            // Giá trị không có trong dictionary: file chắc chắn không có dòng khớp
+            return new ScanStats(0, blocks.size(), 0);
+        }
+        Long from = filter.getFrom() != null ? toMicros(filter.getFrom()) : null;
+        Long to = filter.getTo() != null ? toMicros(filter.getTo()) : null;
+
+        int scanned = 0, skipped = 0;
+        long matched = 0;
+        Inflater inflater = new Inflater();
+        try {
+            for (BlockStats block : blocks) {
+                if (!mayMatch(block, filter, user, resourceType, action, from, to)) {
+                    skipped++;
+                    continue;
+                }
+                scanned++;
+                matched += scanBlock(block, inflater, filter, user, resourceType, action, from, to, sink);
+            }
+        } finally {
+            inflater.end();
+        }
+        return new ScanStats(scanned, skipped, matched);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    @Override
+    public String toString() {
+        return path.getFileName().toString();
+    }
+
+    private static final int ANY = -1;
+    private static final int MISSING = -2;
+
+    private int lookup(int dictionary, String value) {
+        if (value == null) {
+            return ANY;
+        }
+        return reverseDictionaries.get(dictionary).getOrDefault(value, MISSING);
+    }
+
+    private static boolean mayMatch(BlockStats block, AuditLogFilter filter, int user, int resourceType, int action,
+                                    Long from, Long to) {
+        if (from != null && block.maxTimestamp() < from) return false;
+        if (to != null && block.minTimestamp() >= to) return false;
+        if (user != ANY && (user < block.minUser() || user > block.maxUser())) return false;
+        if (resourceType != ANY && !block.resourceTypes().get(resourceType)) return false;
+        if (action != ANY && !block.actions().get(action)) return false;
+        if (filter.getAllowed() != null) {
+            if (filter.getAllowed() && block.allowedCount() == 0) return false;
+            if (!filter.getAllowed() && block.allowedCount() == block.rowCount()) return false;
+        }
+        if (filter.getMinRiskScore() != null && (!block.hasRisk() || block.maxRisk() < filter.getMinRiskScore())) {
+            return false;
+        }
+        return filter.getMaxRiskScore() == null || (block.hasRisk() && block.minRisk() <= filter.getMaxRiskScore());
+    }
+
+    private long scanBlock(BlockStats block, Inflater inflater, AuditLogFilter filter,
+                           int user, int resourceType, int action, Long from, Long to,
+                           Consumer<AuditLog> sink) throws IOException {
+        ByteBuffer raw = inflate(block, inflater);
+        int rows = readVarInt(raw);
+        ByteBuffer[] columns = new ByteBuffer[COLUMN_COUNT];
+        for (int c = 0; c < COLUMN_COUNT; c++) {
+            int length = readVarInt(raw);
+            columns[c] = raw.slice(raw.position(), length);
+            raw.position(raw.position() + length);
+        }
+
+        // Decode predicate columns first
+        long[] timestamps = new long[rows];
+        long previous = 0;
+        for (int i = 0; i < rows; i++) {
+            previous += unzigzag(readVarLong(columns[COL_TIMESTAMP]));
+            timestamps[i] = previous;
+        }
+        int[] users = new int[rows];
+        for (int i = 0; i < rows; ) {
+            int id = readVarInt(columns[COL_USER]);
+            int run = readVarInt(columns[COL_USER]);
+            Arrays.fill(users, i, i + run, id);
+            i += run;
+        }
+        int[] resourceTypes = readDictionaryRefs(columns[COL_RESOURCE_TYPE], rows);
+        int[] actions = readDictionaryRefs(columns[COL_ACTION], rows);
+        BitSet allowed = BitSet.valueOf(readBytes(columns[COL_ALLOWED]));
+        Integer[] risks = new Integer[rows];
+        for (int i = 0; i < rows; i++) {
+            long value = readVarLong(columns[COL_RISK]);
+            risks[i] = value == 0 ? null : (int) unzigzag(value - 1);
+        }
+        String[] resourceIds = filter.getResourceId() != null ? readStrings(columns[COL_RESOURCE_ID], rows) : null;
+        String[] ips = filter.getIpAddress() != null ? readStrings(columns[COL_IP], rows) : null;
+
+        BitSet selected = new BitSet(rows);
+        for (int i = 0; i < rows; i++) {
+            if (from != null && timestamps[i] < from) continue;
+            if (to != null && timestamps[i] >= to) continue;
+            if (user != ANY && users[i] != user) continue;
+            if (resourceType != ANY && resourceTypes[i] != resourceType) continue;
+            if (action != ANY && actions[i] != action) continue;
+            if (filter.getAllowed() != null && allowed.get(i) != filter.getAllowed()) continue;
+            if (filter.getMinRiskScore() != null && (risks[i] == null || risks[i] < filter.getMinRiskScore())) continue;
+            if (filter.getMaxRiskScore() != null && (risks[i] == null || risks[i] > filter.getMaxRiskScore())) continue;
+            if (resourceIds != null && !filter.getResourceId().equals(resourceIds[i])) continue;
+            if (ips != null && !filter.getIpAddress().equals(ips[i])) continue;
+            selected.set(i);
+        }
+        if (selected.isEmpty()) {
+            return 0;
+        }
+
+        // Materialize the remaining columns only for blocks that have matches
+        long[] ids = new long[rows];
+        long previousId = 0;
+        for (int i = 0; i < rows; i++) {
+            previousId += unzigzag(readVarLong(columns[COL_ID]));
+            ids[i] = previousId;
+        }
+        if (resourceIds == null) resourceIds = readStrings(columns[COL_RESOURCE_ID], rows);
+        if (ips == null) ips = readStrings(columns[COL_IP], rows);
+        int[] policies = readDictionaryRefs(columns[COL_POLICY], rows);
+        String[] denyReasons = readStrings(columns[COL_DENY_REASONS], rows);
+        int[] userAgents = readDictionaryRefs(columns[COL_USER_AGENT], rows);
+
+        for (int i = selected.nextSetBit(0); i >= 0; i = selected.nextSetBit(i + 1)) {
+            sink.accept(AuditLog.builder()
+                    .id(ids[i])
+                    .timestamp(fromMicros(timestamps[i]))
+                    .userId(dictionaryValue(DICT_USER, users[i]))
+                    .resourceType(dictionaryValue(DICT_RESOURCE_TYPE, resourceTypes[i]))
+                    .resourceId(resourceIds[i])
+                    .action(dictionaryValue(DICT_ACTION, actions[i]))
+                    .allowed(allowed.get(i))
+                    .policyId(dictionaryValue(DICT_POLICY, policies[i]))
+                    .denyReasons(denyReasons[i])
+                    .riskScore(risks[i])
+                    .ipAddress(ips[i])
+                    .userAgent(dictionaryValue(DICT_USER_AGENT, userAgents[i]))
+                    .build());
+        }
+        return selected.cardinality();
+    }
+
+    private ByteBuffer inflate(BlockStats block, Inflater inflater) throws IOException {
+        MappedByteBuffer compressed = channel.map(FileChannel.MapMode.READ_ONLY, block.offset(), block.length());
+        byte[] raw = new byte[block.rawLength()];
+        inflater.reset();
+        inflater.setInput(compressed);
+        try {
+            int n = 0;
+            while (n < raw.length && !inflater.finished()) {
+                n += inflater.inflate(raw, n, raw.length - n);
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt block at offset " + block.offset() + " in " + path, e);
+        }
+        return ByteBuffer.wrap(raw);
+    }
+
+    private String dictionaryValue(int dictionary, int id) {
+        return id < 0 ? null : dictionaries.get(dictionary).get(id);
+    }
+
+    private static int[] readDictionaryRefs(ByteBuffer column, int rows) {
+        int[] ids = new int[rows];
+        for (int i = 0; i < rows; i++) {
+            ids[i] = readVarInt(column) - 1;
+        }
+        return ids;
+    }
+
+    private static String[] readStrings(ByteBuffer column, int rows) {
+        String[] values = new String[rows];
+        for (int i = 0; i < rows; i++) {
+            values[i] = readString(column);
+        }
+        return values;
+    }
+
+    /**
+     * Số block đã giải nén / bỏ qua và số dòng khớp trong một lần scan.
+     */
+    record ScanStats(int blocksScanned, int blocksSkipped, long rowsMatched) {
+    }
+}
@@ -0,0 +1,275 @@
+package com.auth.auth_service.audit;
+
+import com.auth.auth_service.dto.AuditLogFilter;
+import com.auth.auth_service.entity.AuditLog;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.*;
+import java.time.YearMonth;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Archive audit log lạnh: các partition đã detach ({@code audit_logs_detached_yYYYYmMM}, xem
+ * {@link AuditPartitionMaintenance}) được ghi ra file dạng cột {@code audit_logs_yYYYYmMM.aca}
+ * rồi xóa khỏi PostgreSQL. {@link #search} vẫn trả lời được cùng bộ filter với API audit.
+ */
+@Component
+@Slf4j
+public class AuditArchiveService {
+
+    private static final Pattern DETACHED_TABLE = Pattern.compile(
+            Pattern.quote(AuditPartitionMaintenance.DETACHED_PREFIX) + "y(\\d{4})m(\\d{2})");
+    private static final Pattern ARCHIVE_FILE = Pattern.compile("audit_logs_y(\\d{4})m(\\d{2})\\.aca");
+    private static final Comparator<AuditLog> NEWEST_FIRST = Comparator
+            .comparing(AuditLog::getTimestamp).thenComparing(AuditLog::getId).reversed();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JdbcTemplate cursorJdbcTemplate;
+    private final TransactionTemplate archiveTransaction;
+    private final Path directory;
+    private final int blockRows;
+
+    public AuditArchiveService(
+            DataSource dataSource,
+            PlatformTransactionManager transactionManager,
+            @Value("${audit.archive.dir:./data/audit-archive}") String directory,
+            @Value("${audit.archive.block-rows:4096}") int blockRows,
+            @Value("${audit.archive.fetch-size:5000}") int fetchSize) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.cursorJdbcTemplate = new JdbcTemplate(dataSource);
+        this.cursorJdbcTemplate.setFetchSize(fetchSize);
+        this.archiveTransaction = new TransactionTemplate(transactionManager);
+        this.directory = Path.of(directory);
+        this.blockRows = blockRows;
+    }
+
+    /**
+     * Archive mọi partition đã detach. Chạy sau job bảo trì partition; partition lỗi không chặn các
+     * partition còn lại.
+     *
+     * @return tên các file archive đã tạo
+     */
+    @Scheduled(cron = "${audit.archive.cron:0 45 2 * * *}")
+    public List<String> archiveDetachedPartitions() {
+        List<String> archived = new ArrayList<>();
+        List<String> tables;
+        try {
+            tables = jdbcTemplate.queryForList("""
+                    SELECT tablename FROM pg_tables
+                    WHERE schemaname = current_schema() AND tablename LIKE 'audit\\_logs\\_detached\\_%'
+                    ORDER BY tablename
+                    """, String.class);
+        } catch (DataAccessException e) {
+            log.error("Audit archival failed: {}", e.getMessage());
+            return archived;
+        }
+        for (String table : tables) {
+            if (!DETACHED_TABLE.matcher(table).matches()) {
+                continue;
+            }
+            try {
+                String fileName = archivePartition(table);
+                if (fileName != null) {
+                    archived.add(fileName);
+                }
+            } catch (DataAccessException | IOException e) {
+                log.error("Audit archival of {} failed: {}", table, e.getMessage());
+            }
+        }
+        return archived;
+    }
+
+    /**
+     * Ghi một bảng partition đã detach ra file archive, kiểm tra số dòng rồi drop bảng.
+     * <p>
+     * Cả quá trình chạy trong một transaction giữ advisory lock theo tên bảng, nên job định kỳ,
+     * {@code POST /api/audit/archive/run} và các instance khác không archive cùng một bảng song song.
+     * File archive đã tồn tại không bao giờ bị ghi đè.
+     *
+     * @return tên file archive, hoặc null nếu bảng đang được archive ở nơi khác hoặc đã bị drop
+     * @throws FileAlreadyExistsException nếu file archive của tháng đó đã có
+     */
+    public String archivePartition(String table) throws IOException {
+        Matcher m = DETACHED_TABLE.matcher(table);
+        if (!m.matches()) {
+            throw new IllegalArgumentException("Not a detached audit partition: " + table);
+        }
+        Files.createDirectories(directory);
+        String fileName = "audit_logs_y" + m.group(1) + "m" + m.group(2) + AuditArchiveFormat.FILE_SUFFIX;
+        Path target = directory.resolve(fileName);
+        Path temp = directory.resolve(fileName + ".tmp");
+
+        try {
+            return archiveTransaction.execute(status -> {
+                Boolean locked = jdbcTemplate.queryForObject(
+                        "SELECT pg_try_advisory_xact_lock(hashtext(?))", Boolean.class, table);
+                if (!Boolean.TRUE.equals(locked)) {
+                    log.info("Skipping {}: archival already in progress elsewhere", table);
+                    return null;
+                }
+                if (jdbcTemplate.queryForObject("SELECT to_regclass(?) IS NULL", Boolean.class, table)) {
+                    return null;
+                }
+                try {
+                    if (Files.exists(target)) {
+                        throw new FileAlreadyExistsException(target.toString(), null,
+                                "archive already exists; refusing to overwrite it with " + table);
+                    }
+                    writeArchive(table, temp, target);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                // DROP TABLE hoặc commit lỗi: bảng còn nguyên, bỏ file để lần chạy sau archive lại
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCompletion(int completion) {
+                        if (completion != STATUS_COMMITTED) {
+                            try {
+                                Files.deleteIfExists(target);
+                            } catch (IOException e) {
+                                log.error("Failed to remove {} after rollback: {}", target, e.getMessage());
+                            }
+                        }
+                    }
+                });
+                jdbcTemplate.execute("DROP TABLE " + table);
+                return fileName;
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Stream bảng ra file tạm rồi đổi tên thành {@code target} (không thay thế file đã có).
+     */
+    private void writeArchive(String table, Path temp, Path target) throws IOException {
+        long expectedRows = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table, Long.class);
+        long tableBytes = jdbcTemplate.queryForObject("SELECT pg_total_relation_size(?::regclass)", Long.class, table);
+
+        long fileBytes;
+        try (AuditArchiveWriter writer = AuditArchiveWriter.create(temp, blockRows)) {
+            cursorJdbcTemplate.query(
+                    "SELECT * FROM " + table + " ORDER BY user_id, timestamp, id",
+                    (RowCallbackHandler) rs -> {
+                        try {
+                            writer.append(AuditLog.builder()
+                                    .id(rs.getLong("id"))
+                                    .userId(rs.getString("user_id"))
+                                    .resourceType(rs.getString("resource_type"))
+                                    .resourceId(rs.getString("resource_id"))
+                                    .action(rs.getString("action"))
+                                    .allowed(rs.getBoolean("allowed"))
+                                    .policyId(rs.getString("policy_id"))
+                                    .denyReasons(rs.getString("deny_reasons"))
+                                    .riskScore((Integer) rs.getObject("risk_score"))
+                                    .timestamp(rs.getTimestamp("timestamp").toLocalDateTime())
+                                    .ipAddress(rs.getString("ip_address"))
+                                    .userAgent(rs.getString("user_agent"))
+                                    .build());
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+            if (writer.rowCount() != expectedRows) {
+                throw new IOException("Archived " + writer.rowCount() + " rows from " + table
+                        + " but the table has " + expectedRows);
+            }
+            fileBytes = writer.finish();
+        } catch (UncheckedIOException e) {
+            Files.deleteIfExists(temp);
+            throw e.getCause();
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+
+        try {
+            // Không REPLACE_EXISTING: nếu target xuất hiện trong lúc ghi thì move thất bại thay vì ghi đè
+            Files.move(temp, target);
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        log.info("Archived {} ({} rows) to {}: {} KB in Postgres -> {} KB archived",
+                table, expectedRows, target, tableBytes / 1024, fileBytes / 1024);
+    }
+
+    /**
+     * Tìm trong archive với cùng filter như {@link com.auth.auth_service.service.AuditQueryService};
+     * trả về tối đa {@code limit} dòng mới nhất.
+     */
+    public ArchiveSearchResult search(AuditLogFilter filter, int limit) throws IOException {
+        PriorityQueue<AuditLog> newest = new PriorityQueue<>(NEWEST_FIRST.reversed());
+        int files = 0, blocksScanned = 0, blocksSkipped = 0;
+        long matched = 0;
+
+        for (Path file : listArchives()) {
+            if (!monthOverlaps(file, filter)) {
+                continue;
+            }
+            files++;
+            try (AuditArchiveReader reader = AuditArchiveReader.open(file)) {
+                AuditArchiveReader.ScanStats stats = reader.scan(filter, row -> {
+                    newest.add(row);
+                    if (newest.size() > limit) {
+                        newest.poll();
+                    }
+                });
+                blocksScanned += stats.blocksScanned();
+                blocksSkipped += stats.blocksSkipped();
+                matched += stats.rowsMatched();
+            }
+        }
+
+        List<AuditLog> items = new ArrayList<>(newest);
+        items.sort(NEWEST_FIRST);
+        return new ArchiveSearchResult(items, matched, files, blocksScanned, blocksSkipped);
+    }
+
+    private List<Path> listArchives() throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(p -> ARCHIVE_FILE.matcher(p.getFileName().toString()).matches())
+                    .sorted(Comparator.reverseOrder())
+                    .toList();
+        }
+    }
+
+    private static boolean monthOverlaps(Path file, AuditLogFilter filter) {
+        Matcher m = ARCHIVE_FILE.matcher(file.getFileName().toString());
+        if (!m.matches()) {
+            return false;
+        }
+        YearMonth month = YearMonth.of(Integer.parseInt(m.group(1)), Integer.parseInt(m.group(2)));
+        if (filter.getFrom() != null && !month.plusMonths(1).atDay(1).atStartOfDay().isAfter(filter.getFrom())) {
+            return false;
+        }
+        return filter.getTo() == null || month.atDay(1).atStartOfDay().isBefore(filter.getTo());
+    }
+
+    /**
+     * Kết quả tìm kiếm archive kèm số liệu block skipping.
+     */
+    public record ArchiveSearchResult(List<AuditLog> items, long totalMatched,
+                                      int filesScanned, int blocksScanned, int blocksSkipped) {
+    }
+}
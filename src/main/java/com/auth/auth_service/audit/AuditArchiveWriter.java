@@ -0,0 +1,234 @@
+package com.auth.auth_service.audit;
+
+import com.auth.auth_service.entity.AuditLog;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.zip.Deflater;
+
+import static com.auth.auth_service.audit.AuditArchiveFormat.*;
+
+/**
+ * Ghi audit log vào một file archive dạng cột (xem {@link AuditArchiveFormat}).
+ * Rows nên được đưa vào theo thứ tự (userId, timestamp, id) để RLE và thống kê block hiệu quả.
+ */
+final class AuditArchiveWriter implements Closeable {
+
+    private final FileChannel channel;
+    private final int blockRows;
+    private final List<Map<String, Integer>> dictionaries = new ArrayList<>(DICTIONARY_COUNT);
+    private final List<BlockStats> blocks = new ArrayList<>();
+    private final List<AuditLog> pending;
+    private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+
+    private long position;
+    private long rowCount;
+    private boolean finished;
+
+    private AuditArchiveWriter(FileChannel channel, int blockRows) {
+        this.channel = channel;
+        this.blockRows = blockRows;
+        this.pending = new ArrayList<>(blockRows);
+        for (int i = 0; i < DICTIONARY_COUNT; i++) {
+            dictionaries.add(new HashMap<>());
+        }
+    }
+
+    static AuditArchiveWriter create(Path path, int blockRows) throws IOException {
+        FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        AuditArchiveWriter writer = new AuditArchiveWriter(channel, blockRows);
+        ByteBuffer header = ByteBuffer.allocate(5).putInt(MAGIC).put(VERSION).flip();
+        writer.writeFully(header);
+        return writer;
+    }
+
+    void append(AuditLog row) throws IOException {
+        pending.add(row);
+        rowCount++;
+        if (pending.size() == blockRows) {
+            flushBlock();
+        }
+    }
+
+    long rowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Ghi block cuối, dictionary và footer rồi fsync.
+     *
+     * @return kích thước file (bytes)
+     */
+    long finish() throws IOException {
+        if (!pending.isEmpty()) {
+            flushBlock();
+        }
+        ByteArrayOutputStream footer = new ByteArrayOutputStream();
+        for (Map<String, Integer> dictionary : dictionaries) {
+            String[] values = new String[dictionary.size()];
+            dictionary.forEach((value, id) -> values[id] = value);
+            writeVarLong(footer, values.length);
+            for (String value : values) {
+                writeString(footer, value);
+            }
+        }
+        writeVarLong(footer, blocks.size());
+        for (BlockStats block : blocks) {
+            block.writeTo(footer);
+        }
+
+        long footerOffset = position;
+        writeFully(ByteBuffer.wrap(footer.toByteArray()));
+        writeFully(ByteBuffer.allocate(12).putLong(footerOffset).putInt(MAGIC).flip());
+        channel.force(true);
+        finished = true;
+        return position;
+    }
+
+    @Override
+    public void close() throws IOException {
+        deflater.end();
+        channel.close();
+    }
+
+    boolean isFinished() {
+        return finished;
+    }
+
+    private void flushBlock() throws IOException {
+        int rows = pending.size();
+        ByteArrayOutputStream[] columns = new ByteArrayOutputStream[COLUMN_COUNT];
+        for (int c = 0; c < COLUMN_COUNT; c++) {
+            columns[c] = new ByteArrayOutputStream();
+        }
+
+        long minTs = Long.MAX_VALUE, maxTs = Long.MIN_VALUE;
+        int minUser = Integer.MAX_VALUE, maxUser = Integer.MIN_VALUE;
+        int minRisk = Integer.MAX_VALUE, maxRisk = Integer.MIN_VALUE;
+        boolean hasRisk = false;
+        int allowedCount = 0;
+        BitSet resourceTypes = new BitSet();
+        BitSet actions = new BitSet();
+        BitSet allowed = new BitSet(rows);
+
+        long previousId = 0, previousTs = 0;
+        int runUser = -1, runLength = 0;
+
+        for (int i = 0; i < rows; i++) {
+            AuditLog row = pending.get(i);
+
+            long id = row.getId() != null ? row.getId() : 0;
+            writeVarLong(columns[COL_ID], zigzag(id - previousId));
+            previousId = id;
+
+            long ts = toMicros(row.getTimestamp());
+            writeVarLong(columns[COL_TIMESTAMP], zigzag(ts - previousTs));
+            previousTs = ts;
+            minTs = Math.min(minTs, ts);
+            maxTs = Math.max(maxTs, ts);
+
+            int user = dictionaryId(DICT_USER, row.getUserId());
+            minUser = Math.min(minUser, user);
+            maxUser = Math.max(maxUser, user);
+            if (user == runUser) {
+                runLength++;
+            } else {
+                if (runLength > 0) {
+                    writeVarLong(columns[COL_USER], runUser);
+                    writeVarLong(columns[COL_USER], runLength);
+                }
+                runUser = user;
+                runLength = 1;
+            }
+
+            int resourceType = dictionaryId(DICT_RESOURCE_TYPE, row.getResourceType());
+            writeDictionaryRef(columns[COL_RESOURCE_TYPE], resourceType);
+            if (resourceType >= 0) {
+                resourceTypes.set(resourceType);
+            }
+            writeString(columns[COL_RESOURCE_ID], row.getResourceId());
+
+            int action = dictionaryId(DICT_ACTION, row.getAction());
+            writeDictionaryRef(columns[COL_ACTION], action);
+            if (action >= 0) {
+                actions.set(action);
+            }
+
+            if (row.isAllowed()) {
+                allowed.set(i);
+                allowedCount++;
+            }
+            writeDictionaryRef(columns[COL_POLICY], dictionaryId(DICT_POLICY, row.getPolicyId()));
+            writeString(columns[COL_DENY_REASONS], row.getDenyReasons());
+
+            Integer risk = row.getRiskScore();
+            if (risk == null) {
+                writeVarLong(columns[COL_RISK], 0);
+            } else {
+                writeVarLong(columns[COL_RISK], zigzag(risk) + 1);
+                hasRisk = true;
+                minRisk = Math.min(minRisk, risk);
+                maxRisk = Math.max(maxRisk, risk);
+            }
+
+            writeString(columns[COL_IP], row.getIpAddress());
+            writeDictionaryRef(columns[COL_USER_AGENT], dictionaryId(DICT_USER_AGENT, row.getUserAgent()));
+        }
+        writeVarLong(columns[COL_USER], runUser);
+        writeVarLong(columns[COL_USER], runLength);
+        writeBytes(columns[COL_ALLOWED], allowed.toByteArray());
+
+        ByteArrayOutputStream raw = new ByteArrayOutputStream();
+        writeVarLong(raw, rows);
+        for (ByteArrayOutputStream column : columns) {
+            writeBytes(raw, column.toByteArray());
+        }
+        byte[] compressed = deflate(raw.toByteArray());
+
+        blocks.add(new BlockStats(position, compressed.length, raw.size(), rows,
+                minTs, maxTs, minUser, maxUser,
+                hasRisk, hasRisk ? minRisk : 0, hasRisk ? maxRisk : 0,
+                allowedCount, resourceTypes, actions));
+        writeFully(ByteBuffer.wrap(compressed));
+        pending.clear();
+    }
+
+    private int dictionaryId(int dictionary, String value) {
+        if (value == null) {
+            return -1;
+        }
+        Map<String, Integer> ids = dictionaries.get(dictionary);
+        return ids.computeIfAbsent(value, v -> ids.size());
+    }
+
+    /** Tham chiếu dictionary: varint(id + 1), 0 = null. */
+    private static void writeDictionaryRef(ByteArrayOutputStream out, int id) {
+        writeVarLong(out, id + 1L);
+    }
+
+    private byte[] deflate(byte[] input) {
+        deflater.reset();
+        deflater.setInput(input);
+        deflater.finish();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, input.length / 4));
+        byte[] chunk = new byte[16 * 1024];
+        while (!deflater.finished()) {
+            int n = deflater.deflate(chunk);
+            out.write(chunk, 0, n);
+        }
+        return out.toByteArray();
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer);
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.auth.auth_service.audit;
+
+import com.auth.auth_service.entity.AuditLog;
+
+/**
+ * Nhận audit event ngay khi được ghi (xem {@link AuditRecorder}).
+ * Được gọi đồng bộ trên thread của request, nên implementation không được block.
+ */
+public interface AuditEventListener {
+
+    /**
+     * Audit event đã được append vào journal.
+     */
+    void onAuditEvent(AuditLog event);
+
+    /**
+     * Quyết định authorization từ AuthorizationService (không được lưu vào audit_logs).
+     */
+    default void onDecision(AuditLog decision) {
+    }
+}
@@ -0,0 +1,330 @@
+package com.auth.auth_service.audit;
+
+import com.auth.auth_service.entity.AuditLog;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only, memory-mapped audit journal.
+ * <p>
+ * Audit events are appended sequentially to fixed-size segment files
+ * ({@code segment-<n>.log}); each record is {@code [int length][int crc32c][payload]}.
+ * Appends never touch the database, so request latency does not depend on Postgres health.
+ * {@link AuditJournalReplayer} ships records to {@code audit_logs} and persists its
+ * checkpoint here; any other reader can tail the journal via {@link #read(JournalPosition, int)}.
+ */
+@Component
+@Slf4j
+public class AuditJournal {
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String CHECKPOINT_FILE = "checkpoint";
+    private static final int HEADER_BYTES = 8;
+
+    private final Path directory;
+    private final int segmentSize;
+    private final int fsyncBatchSize;
+
+    private FileChannel activeChannel;
+    private MappedByteBuffer activeBuffer;
+    private long activeSegment;
+    private int unsyncedRecords;
+
+    /** Last fully written position; readers never go past it. */
+    private volatile JournalPosition writePosition = JournalPosition.START;
+
+    public AuditJournal(
+            @Value("${audit.journal.dir:./data/audit-journal}") String directory,
+            @Value("${audit.journal.segment-size-bytes:16777216}") int segmentSize,
+            @Value("${audit.journal.fsync-batch-size:64}") int fsyncBatchSize) {
+        this.directory = Path.of(directory);
+        this.segmentSize = segmentSize;
+        this.fsyncBatchSize = Math.max(1, fsyncBatchSize);
+    }
+
+    @PostConstruct
+    public synchronized void open() throws IOException {
+        Files.createDirectories(directory);
+        List<Long> segments = listSegments();
+        long last = segments.isEmpty() ? 0 : segments.get(segments.size() - 1);
+        mapActiveSegment(last);
+        int end = recoverEnd(activeBuffer);
+        writePosition = new JournalPosition(last, end);
+        log.info("Audit journal opened at {} (segment {}, offset {})", directory.toAbsolutePath(), last, end);
+    }
+
+    /**
+     * Append một audit event. Chỉ ghi vào vùng nhớ mmap; fsync theo lô
+     * ({@code audit.journal.fsync-batch-size}) hoặc theo chu kỳ {@link #flush()}.
+     */
+    public synchronized JournalPosition append(AuditLog entry) {
+        byte[] payload = AuditRecordCodec.encode(entry);
+        int recordSize = HEADER_BYTES + payload.length;
+        if (recordSize > segmentSize) {
+            throw new IllegalArgumentException("Audit record of " + recordSize + " bytes exceeds journal segment size");
+        }
+
+        int offset = writePosition.offset();
+        if (offset + recordSize > segmentSize) {
+            rollSegment();
+            offset = 0;
+        }
+
+        CRC32C crc = new CRC32C();
+        crc.update(payload);
+        activeBuffer.put(offset + HEADER_BYTES, payload);
+        activeBuffer.putInt(offset + 4, (int) crc.getValue());
+        activeBuffer.putInt(offset, payload.length);
+
+        JournalPosition next = new JournalPosition(activeSegment, offset + recordSize);
+        writePosition = next;
+
+        if (++unsyncedRecords >= fsyncBatchSize) {
+            force();
+        }
+        return next;
+    }
+
+    /**
+     * Periodic fsync so that a partially filled batch is not left in the page cache for long.
+     */
+    @Scheduled(fixedDelayString = "${audit.journal.fsync-interval-ms:200}")
+    public synchronized void flush() {
+        if (unsyncedRecords > 0) {
+            force();
+        }
+    }
+
+    /**
+     * Đọc tối đa {@code maxRecords} record bắt đầu từ {@code from}.
+     * Có thể gọi lặp lại với {@link JournalBatch#next()} để tail journal.
+     * Record hỏng (cụt, sai CRC, không decode được) được log kèm vị trí và bỏ qua để replay không bị kẹt.
+     */
+    public JournalBatch read(JournalPosition from, int maxRecords) {
+        JournalPosition limit = writePosition;
+        List<AuditLog> records = new ArrayList<>();
+        JournalPosition position = from;
+
+        while (records.size() < maxRecords && position.isBefore(limit)) {
+            ByteBuffer segment = segmentForRead(position.segment(), limit);
+            if (segment == null) {
+                // Segment was purged or never existed; skip to the next one
+                position = new JournalPosition(position.segment() + 1, 0);
+                continue;
+            }
+            int end = position.segment() == limit.segment() ? limit.offset() : segment.capacity();
+            int offset = position.offset();
+
+            while (records.size() < maxRecords && offset + HEADER_BYTES <= end) {
+                int length = segment.getInt(offset);
+                if (length == 0) {
+                    break;
+                }
+                if (length < 0 || offset + HEADER_BYTES + length > end) {
+                    log.error("Truncated audit journal record at {}:{}; skipping to {}:{}",
+                            position.segment(), offset, position.segment(), end);
+                    offset = end;
+                    break;
+                }
+                ByteBuffer payload = segment.slice(offset + HEADER_BYTES, length);
+                CRC32C crc = new CRC32C();
+                crc.update(payload.duplicate());
+                if ((int) crc.getValue() != segment.getInt(offset + 4)) {
+                    log.error("Corrupt audit journal record at {}:{}; skipping to {}:{}",
+                            position.segment(), offset, position.segment(), end);
+                    offset = end;
+                    break;
+                }
+                try {
+                    records.add(AuditRecordCodec.decode(payload));
+                } catch (RuntimeException e) {
+                    // Khung record còn nguyên (length + CRC) nên chỉ bỏ qua đúng record này
+                    log.error("Undecodable audit journal record at {}:{} ({} bytes), skipped: {}",
+                            position.segment(), offset, length, e.toString());
+                }
+                offset += HEADER_BYTES + length;
+            }
+
+            boolean segmentExhausted = position.segment() < limit.segment()
+                    && records.size() < maxRecords;
+            position = segmentExhausted
+                    ? new JournalPosition(position.segment() + 1, 0)
+                    : new JournalPosition(position.segment(), offset);
+            if (!segmentExhausted) {
+                break;
+            }
+        }
+        return new JournalBatch(records, position);
+    }
+
+    public JournalPosition writePosition() {
+        return writePosition;
+    }
+
+    public JournalPosition loadCheckpoint() {
+        Path file = directory.resolve(CHECKPOINT_FILE);
+        if (!Files.exists(file)) {
+            return firstPosition();
+        }
+        try {
+            String[] parts = Files.readString(file, StandardCharsets.UTF_8).trim().split(":");
+            return new JournalPosition(Long.parseLong(parts[0]), Integer.parseInt(parts[1]));
+        } catch (IOException | RuntimeException e) {
+            log.error("Unreadable audit journal checkpoint, replaying from oldest segment", e);
+            return firstPosition();
+        }
+    }
+
+    public void storeCheckpoint(JournalPosition position) {
+        Path file = directory.resolve(CHECKPOINT_FILE);
+        Path tmp = directory.resolve(CHECKPOINT_FILE + ".tmp");
+        try {
+            Files.writeString(tmp, position.toString(), StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.SYNC);
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to store audit journal checkpoint", e);
+        }
+    }
+
+    /**
+     * Xóa các segment đã được replay, nhỏ hơn {@code segment}.
+     */
+    public void purgeSegmentsBefore(long segment) {
+        try {
+            for (long s : listSegments()) {
+                if (s >= segment || s >= writePosition.segment()) {
+                    break;
+                }
+                Files.deleteIfExists(segmentPath(s));
+                log.debug("Purged audit journal segment {}", s);
+            }
+        } catch (IOException e) {
+            log.warn("Failed to purge audit journal segments: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public synchronized void close() throws IOException {
+        if (activeChannel != null) {
+            force();
+            activeChannel.close();
+            activeChannel = null;
+        }
+    }
+
+    private JournalPosition firstPosition() {
+        try {
+            List<Long> segments = listSegments();
+            return new JournalPosition(segments.isEmpty() ? 0 : segments.get(0), 0);
+        } catch (IOException e) {
+            return JournalPosition.START;
+        }
+    }
+
+    private ByteBuffer segmentForRead(long segment, JournalPosition limit) {
+        synchronized (this) {
+            if (segment == activeSegment && activeBuffer != null) {
+                return activeBuffer.duplicate();
+            }
+        }
+        Path path = segmentPath(segment);
+        if (segment > limit.segment() || !Files.exists(path)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to map audit journal segment " + segment, e);
+        }
+    }
+
+    private void rollSegment() {
+        force();
+        try {
+            activeChannel.close();
+            mapActiveSegment(activeSegment + 1);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to roll audit journal segment", e);
+        }
+        writePosition = new JournalPosition(activeSegment, 0);
+    }
+
+    private void mapActiveSegment(long segment) throws IOException {
+        activeChannel = FileChannel.open(segmentPath(segment),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        activeBuffer = activeChannel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        activeSegment = segment;
+    }
+
+    /**
+     * Scan the active segment after a restart to find the end of the last valid record.
+     * Anything after a torn or corrupt record is zeroed so new appends start from a clean tail.
+     */
+    private int recoverEnd(MappedByteBuffer buffer) {
+        int offset = 0;
+        while (offset + HEADER_BYTES <= buffer.capacity()) {
+            int length = buffer.getInt(offset);
+            if (length <= 0 || offset + HEADER_BYTES + length > buffer.capacity()) {
+                break;
+            }
+            CRC32C crc = new CRC32C();
+            crc.update(buffer.slice(offset + HEADER_BYTES, length));
+            if ((int) crc.getValue() != buffer.getInt(offset + 4)) {
+                break;
+            }
+            offset += HEADER_BYTES + length;
+        }
+        for (int i = offset; i < buffer.capacity(); i++) {
+            if (buffer.get(i) != 0) {
+                buffer.put(i, (byte) 0);
+            }
+        }
+        return offset;
+    }
+
+    private void force() {
+        activeBuffer.force();
+        unsyncedRecords = 0;
+    }
+
+    private List<Long> listSegments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(p -> p.getFileName().toString())
+                    .filter(n -> n.startsWith(SEGMENT_PREFIX) && n.endsWith(SEGMENT_SUFFIX))
+                    .map(n -> Long.parseLong(n.substring(SEGMENT_PREFIX.length(), n.length() - SEGMENT_SUFFIX.length())))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private Path segmentPath(long segment) {
+        return directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, segment, SEGMENT_SUFFIX));
+    }
+
+    /**
+     * Kết quả một lần đọc: các record và vị trí để đọc tiếp.
+     */
+    public record JournalBatch(List<AuditLog> records, JournalPosition next) {
+        public boolean isEmpty() {
+            return records.isEmpty();
+        }
+    }
+}
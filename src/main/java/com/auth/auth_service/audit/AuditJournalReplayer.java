@@ -0,0 +1,110 @@
+package com.auth.auth_service.audit;
+
+import com.auth.auth_service.entity.AuditLog;
+import com.auth.auth_service.repository.AuditLogRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * Background shipper: đọc audit journal từ checkpoint và ghi theo lô vào bảng audit_logs.
+ * <p>
+ * Checkpoint chỉ được lưu sau khi transaction commit, nên khi DB lỗi các record vẫn nằm
+ * trong journal và được gửi lại ở lần chạy sau (at-least-once).
+ * Rollup thống kê ({@link AuditStatsRollup}) được cập nhật trong cùng transaction.
+ */
+@Component
+@Slf4j
+public class AuditJournalReplayer {
+
+    private final AuditJournal journal;
+    private final AuditLogRepository auditLogRepository;
+    private final AuditStatsRollup statsRollup;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final int retainedSegments;
+
+    private JournalPosition checkpoint;
+
+    public AuditJournalReplayer(
+            AuditJournal journal,
+            AuditLogRepository auditLogRepository,
+            AuditStatsRollup statsRollup,
+            TransactionTemplate transactionTemplate,
+            @Value("${audit.journal.replay-batch-size:500}") int batchSize,
+            @Value("${audit.journal.retained-segments:2}") int retainedSegments) {
+        this.journal = journal;
+        this.auditLogRepository = auditLogRepository;
+        this.statsRollup = statsRollup;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+        this.retainedSegments = retainedSegments;
+    }
+
+    @PostConstruct
+    public void init() {
+        checkpoint = journal.loadCheckpoint();
+        log.info("Audit journal replay starting from checkpoint {}", checkpoint);
+    }
+
+    @Scheduled(fixedDelayString = "${audit.journal.replay-interval-ms:500}")
+    public synchronized void replay() {
+        AuditJournal.JournalBatch batch;
+        do {
+            batch = journal.read(checkpoint, batchSize);
+            if (!batch.isEmpty()) {
+                try {
+                    ship(batch.records());
+                } catch (DataAccessException e) {
+                    log.warn("Audit replay deferred at {} ({} records): {}",
+                            checkpoint, batch.records().size(), e.getMessage());
+                    return;
+                }
+            }
+            if (!batch.next().equals(checkpoint)) {
+                checkpoint = batch.next();
+                journal.storeCheckpoint(checkpoint);
+            }
+        } while (batch.records().size() == batchSize);
+
+        journal.purgeSegmentsBefore(checkpoint.segment() - retainedSegments + 1);
+    }
+
+    public JournalPosition checkpoint() {
+        return checkpoint;
+    }
+
+    private void ship(List<AuditLog> records) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                auditLogRepository.saveAll(records);
+                // INSERT được batch tới lúc flush: flush tại đây để lỗi của lô rơi vào catch bên dưới
+                auditLogRepository.flush();
+                statsRollup.record(records);
+            });
+        } catch (DataIntegrityViolationException e) {
+            // Một record lỗi (vd: resourceId quá dài) không được chặn cả lô mãi mãi
+            log.warn("Audit batch rejected ({}), retrying record by record", e.getMostSpecificCause().getMessage());
+            for (AuditLog record : records) {
+                try {
+                    record.setId(null);
+                    transactionTemplate.executeWithoutResult(status -> {
+                        auditLogRepository.save(record);
+                        statsRollup.record(List.of(record));
+                    });
+                } catch (DataIntegrityViolationException rejected) {
+                    log.error("Dropping unpersistable audit record user={} resource={} action={} at {}: {}",
+                            record.getUserId(), record.getResourceType(), record.getAction(),
+                            record.getTimestamp(), rejected.getMostSpecificCause().getMessage());
+                }
+            }
+        }
+    }
+}
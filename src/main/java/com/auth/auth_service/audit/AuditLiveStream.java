@@ -0,0 +1,251 @@
+package com.auth.auth_service.audit;
+
+import com.auth.auth_service.dto.AuditLogFilter;
+import com.auth.auth_service.entity.AuditLog;
+import com.auth.auth_service.exception.TooManySubscribersException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.util.concurrent.Queues;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Live stream audit event + authorization decision cho Server-Sent Events.
+ * <p>
+ * Mỗi subscriber có buffer giới hạn ({@code audit.live.buffer-size}); khi đầy thì event mới bị bỏ
+ * và client nhận một event {@code dropped} khi buffer có chỗ trở lại. Subscriber bỏ lỡ quá
+ * {@code audit.live.max-dropped} event liên tiếp bị ngắt kết nối (slow consumer) và có thể kết nối
+ * lại với Last-Event-ID: các event gần nhất được giữ trong ring buffer để resume.
+ * <p>
+ * Publish không giữ lock chung: id lấy từ một {@link AtomicLong}, fan-out duyệt snapshot của
+ * danh sách subscriber và chỉ khóa từng subscriber (sink unicast cần một producer tại một thời điểm).
+ * Event từ các thread publish khác nhau có thể tới một subscriber không theo thứ tự id.
+ */
+@Component
+@Slf4j
+public class AuditLiveStream implements AuditEventListener {
+
+    public static final String EVENT_AUDIT = "audit";
+    public static final String EVENT_DECISION = "decision";
+    public static final String EVENT_DROPPED = "dropped";
+    public static final String EVENT_RESET = "reset";
+
+    private final int bufferSize;
+    private final int maxDropped;
+    private final int maxSubscribers;
+    private final Duration heartbeat;
+
+    /** Chỉ để đăng ký subscriber (kiểm tra giới hạn); publish không dùng */
+    private final Object subscribeLock = new Object();
+    private final AtomicReferenceArray<LiveEvent> ring;
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final long firstSequence;
+    private final AtomicLong sequence;
+
+    public AuditLiveStream(
+            @Value("${audit.live.buffer-size:256}") int bufferSize,
+            @Value("${audit.live.max-dropped:1000}") int maxDropped,
+            @Value("${audit.live.replay-size:2048}") int replaySize,
+            @Value("${audit.live.max-subscribers:100}") int maxSubscribers,
+            @Value("${audit.live.heartbeat-seconds:15}") int heartbeatSeconds) {
+        this.bufferSize = bufferSize;
+        this.maxDropped = maxDropped;
+        this.maxSubscribers = maxSubscribers;
+        this.heartbeat = Duration.ofSeconds(heartbeatSeconds);
+        this.ring = new AtomicReferenceArray<>(replaySize);
+        // Id tăng dần qua các lần restart, nên Last-Event-ID của phiên trước không trùng event mới
+        this.sequence = new AtomicLong(System.currentTimeMillis() * 1000);
+        this.firstSequence = sequence.get() + 1;
+    }
+
+    @Override
+    public void onAuditEvent(AuditLog event) {
+        publish(EVENT_AUDIT, event);
+    }
+
+    @Override
+    public void onDecision(AuditLog decision) {
+        publish(EVENT_DECISION, decision);
+    }
+
+    /**
+     * Đăng ký nhận event khớp filter.
+     *
+     * @param lastEventId id event cuối client đã nhận (header Last-Event-ID), hoặc null
+     * @throws TooManySubscribersException khi đã có {@code audit.live.max-subscribers} subscriber
+     */
+    public Flux<ServerSentEvent<Object>> subscribe(AuditLogFilter filter, Long lastEventId) {
+        Subscriber subscriber = new Subscriber(filter);
+        synchronized (subscribeLock) {
+            if (subscribers.size() >= maxSubscribers) {
+                throw new TooManySubscribersException("Too many live audit subscribers");
+            }
+            // Giữ khóa của subscriber để event publish song song chỉ tới sau phần replay
+            synchronized (subscriber) {
+                subscribers.add(subscriber);
+                // Event có id <= registeredAt đã (hoặc sắp) fan-out mà có thể thiếu subscriber này:
+                // chỉ nhận qua replay
+                subscriber.registeredAt = sequence.get();
+                if (lastEventId != null) {
+                    replay(subscriber, lastEventId);
+                }
+            }
+        }
+        log.info("Live audit subscriber connected ({} active)", subscribers.size());
+
+        Flux<ServerSentEvent<Object>> keepAlive = Flux.interval(heartbeat)
+                .map(tick -> ServerSentEvent.builder().comment("keepalive").build())
+                .takeUntilOther(subscriber.closed.asMono());
+        // prefetch = 1 so the subscriber's sink stays the only real buffer
+        return Flux.merge(1, subscriber.sink.asFlux().map(AuditLiveStream::toServerSentEvent), keepAlive)
+                .doFinally(signal -> disconnect(subscriber));
+    }
+
+    public int subscriberCount() {
+        return subscribers.size();
+    }
+
+    private void publish(String type, AuditLog payload) {
+        LiveEvent event = new LiveEvent(sequence.incrementAndGet(), type, payload);
+        ring.set(slot(event.id()), event);
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offer(event);
+        }
+    }
+
+    private int slot(long id) {
+        return (int) (id % ring.length());
+    }
+
+    /**
+     * Gửi lại các event sau {@code lastEventId} còn trong ring buffer (tối đa vừa buffer của subscriber).
+     * Nếu đã mất một phần, gửi event {@code reset} trước để client biết cần truy vấn lại /api/audit.
+     */
+    private void replay(Subscriber subscriber, long lastEventId) {
+        long last = subscriber.registeredAt;
+        long oldest = Math.max(firstSequence, last - ring.length() + 1);
+        if (lastEventId > last) {
+            // Id không thuộc phiên hiện tại
+            lastEventId = 0;
+        }
+        List<LiveEvent> missed = new ArrayList<>();
+        for (long id = Math.max(lastEventId + 1, oldest); id <= last; id++) {
+            LiveEvent event = ring.get(slot(id));
+            // Id đã cấp nhưng publisher chưa kịp ghi vào ring
+            while (event == null || event.id() < id) {
+                Thread.onSpinWait();
+                event = ring.get(slot(id));
+            }
+            if (event.id() != id) {
+                // Đã bị event mới hơn ghi đè trong lúc replay: chỉ gửi phần liên tục phía sau
+                missed.clear();
+                oldest = id + 1;
+                continue;
+            }
+            if (matches(subscriber.filter, event.payload())) {
+                missed.add(event);
+            }
+        }
+        int capacity = bufferSize - 1;
+        if (lastEventId + 1 < oldest || missed.size() > capacity) {
+            long resumeFrom = missed.size() > capacity ? missed.get(missed.size() - capacity).id() : oldest;
+            subscriber.sink.tryEmitNext(new LiveEvent(0, EVENT_RESET,
+                    Map.of("lastEventId", lastEventId, "resumedFrom", resumeFrom)));
+            missed = missed.subList(Math.max(0, missed.size() - capacity), missed.size());
+        }
+        missed.forEach(subscriber.sink::tryEmitNext);
+    }
+
+    private void disconnect(Subscriber subscriber) {
+        if (subscribers.remove(subscriber)) {
+            subscriber.closed.tryEmitEmpty();
+            log.info("Live audit subscriber disconnected ({} active)", subscribers.size());
+        }
+    }
+
+    private static ServerSentEvent<Object> toServerSentEvent(LiveEvent event) {
+        ServerSentEvent.Builder<Object> builder = ServerSentEvent.builder(event.payload()).event(event.type());
+        if (event.id() > 0) {
+            builder.id(String.valueOf(event.id()));
+        }
+        return builder.build();
+    }
+
+    static boolean matches(AuditLogFilter filter, Object payload) {
+        if (!(payload instanceof AuditLog event)) {
+            return true;
+        }
+        if (filter.getUserId() != null && !filter.getUserId().equals(event.getUserId())) return false;
+        if (filter.getResourceType() != null && !filter.getResourceType().equals(event.getResourceType())) return false;
+        if (filter.getResourceId() != null && !filter.getResourceId().equals(event.getResourceId())) return false;
+        if (filter.getAction() != null && !filter.getAction().equals(event.getAction())) return false;
+        if (filter.getAllowed() != null && filter.getAllowed() != event.isAllowed()) return false;
+        if (filter.getIpAddress() != null && !filter.getIpAddress().equals(event.getIpAddress())) return false;
+        Integer risk = event.getRiskScore();
+        if (filter.getMinRiskScore() != null && (risk == null || risk < filter.getMinRiskScore())) return false;
+        return filter.getMaxRiskScore() == null || (risk != null && risk <= filter.getMaxRiskScore());
+    }
+
+    /**
+     * Event trong stream; id = 0 cho các event thông báo (không dùng để resume).
+     */
+    record LiveEvent(long id, String type, Object payload) {
+    }
+
+    private final class Subscriber {
+        private final AuditLogFilter filter;
+        private final Sinks.Many<LiveEvent> sink;
+        private final Sinks.Empty<Void> closed = Sinks.empty();
+        private int dropped;
+        private long registeredAt;
+
+        Subscriber(AuditLogFilter filter) {
+            this.filter = filter;
+            this.sink = Sinks.many().unicast().onBackpressureBuffer(Queues.<LiveEvent>get(bufferSize).get());
+        }
+
+        /** Đồng bộ theo subscriber: sink unicast chỉ nhận một producer tại một thời điểm. */
+        synchronized void offer(LiveEvent event) {
+            if (event.id() <= registeredAt || !matches(filter, event.payload())) {
+                return;
+            }
+            if (dropped > 0) {
+                Sinks.EmitResult notice = sink.tryEmitNext(new LiveEvent(0, EVENT_DROPPED, Map.of("dropped", dropped)));
+                if (notice.isFailure()) {
+                    onFailure(notice);
+                    return;
+                }
+                dropped = 0;
+            }
+            Sinks.EmitResult result = sink.tryEmitNext(event);
+            if (result.isFailure()) {
+                onFailure(result);
+            }
+        }
+
+        private void onFailure(Sinks.EmitResult result) {
+            if (result != Sinks.EmitResult.FAIL_OVERFLOW) {
+                // Cancelled / terminated: client đã đi
+                subscribers.remove(this);
+                closed.tryEmitEmpty();
+                return;
+            }
+            if (++dropped >= maxDropped) {
+                log.warn("Disconnecting slow live audit subscriber after {} dropped events", dropped);
+                subscribers.remove(this);
+                sink.tryEmitComplete();
+                closed.tryEmitEmpty();
+            }
+        }
+    }
+}
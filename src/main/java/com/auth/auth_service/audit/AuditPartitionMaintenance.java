@@ -0,0 +1,116 @@
+package com.auth.auth_service.audit;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Bảo trì partition của audit_logs (xem V6__partition_audit_logs.sql):
+ * - Tạo trước partition cho các tháng sắp tới
+ * - Detach các partition cũ hơn thời gian lưu trữ để archive hoặc xóa
+ */
+@Component
+@Slf4j
+public class AuditPartitionMaintenance {
+
+    private static final Pattern PARTITION_NAME = Pattern.compile("audit_logs_y(\\d{4})m(\\d{2})");
+    static final String DETACHED_PREFIX = "audit_logs_detached_";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int monthsAhead;
+    private final int retentionMonths;
+    private final boolean dropDetached;
+
+    public AuditPartitionMaintenance(
+            JdbcTemplate jdbcTemplate,
+            @Value("${audit.partition.months-ahead:3}") int monthsAhead,
+            @Value("${audit.retention.months:12}") int retentionMonths,
+            @Value("${audit.retention.drop-detached:false}") boolean dropDetached) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.monthsAhead = monthsAhead;
+        this.retentionMonths = retentionMonths;
+        this.dropDetached = dropDetached;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        runMaintenance();
+    }
+
+    @Scheduled(cron = "${audit.partition.maintenance-cron:0 15 2 * * *}")
+    public void runMaintenance() {
+        try {
+            ensureFuturePartitions();
+            detachExpiredPartitions();
+        } catch (DataAccessException e) {
+            log.error("Audit partition maintenance failed: {}", e.getMessage());
+        }
+    }
+
+    public void ensureFuturePartitions() {
+        YearMonth current = YearMonth.now();
+        for (int i = 0; i <= monthsAhead; i++) {
+            LocalDate month = current.plusMonths(i).atDay(1);
+            jdbcTemplate.queryForObject("SELECT audit_logs_ensure_partition(?)", String.class, Date.valueOf(month));
+        }
+    }
+
+    /**
+     * Detach mọi partition tháng có dữ liệu hoàn toàn trước mốc retention.
+     * Partition bị detach được đổi tên thành {@code audit_logs_detached_yYYYYmMM}
+     * (hoặc bị xóa nếu {@code audit.retention.drop-detached=true}).
+     *
+     * @return tên các bảng đã detach
+     */
+    public List<String> detachExpiredPartitions() {
+        YearMonth cutoff = YearMonth.now().minusMonths(retentionMonths);
+        List<String> detached = new ArrayList<>();
+
+        for (String partition : listPartitions()) {
+            Matcher m = PARTITION_NAME.matcher(partition);
+            if (!m.matches()) {
+                continue;
+            }
+            YearMonth month = YearMonth.of(Integer.parseInt(m.group(1)), Integer.parseInt(m.group(2)));
+            if (!month.isBefore(cutoff)) {
+                continue;
+            }
+
+            jdbcTemplate.execute("ALTER TABLE audit_logs DETACH PARTITION " + partition);
+            if (dropDetached) {
+                jdbcTemplate.execute("DROP TABLE " + partition);
+                log.info("Dropped expired audit partition {}", partition);
+            } else {
+                String target = DETACHED_PREFIX + partition.substring("audit_logs_".length());
+                jdbcTemplate.execute("ALTER TABLE " + partition + " RENAME TO " + target);
+                log.info("Detached expired audit partition {} as {}", partition, target);
+                detached.add(target);
+            }
+        }
+        return detached;
+    }
+
+    public List<String> listPartitions() {
+        return jdbcTemplate.queryForList("""
+                SELECT c.relname
+                FROM pg_inherits i
+                JOIN pg_class c ON c.oid = i.inhrelid
+                JOIN pg_class p ON p.oid = i.inhparent
+                WHERE p.relname = 'audit_logs'
+                ORDER BY c.relname
+                """, String.class);
+    }
+}
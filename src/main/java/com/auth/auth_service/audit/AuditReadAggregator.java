@@ -0,0 +1,286 @@
+package com.auth.auth_service.audit;
+
+import com.auth.auth_service.dto.AuditLogFilter;
+import com.auth.auth_service.entity.AuditLog;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Gộp các lần đọc rủi ro thấp lặp lại theo cửa sổ thời gian (bảng audit_read_aggregates, xem V9).
+ * <p>
+ * Lần đọc đầu tiên của (user, resource, action) trong một cửa sổ vẫn được ghi đầy đủ vào audit_logs
+ * (có IP, user agent); các lần lặp lại chỉ được đếm trong bộ nhớ và được flush thành một dòng
+ * aggregate (count, first/last seen) khi cửa sổ kết thúc, cùng transaction với rollup thống kê.
+ * Flush lỗi thì số đếm được gộp lại vào bộ nhớ để thử lại ở lần sau. Khi crash, tối đa một cửa sổ
+ * số đếm chưa flush bị mất; event rủi ro cao không đi qua đây.
+ */
+@Component
+@Slf4j
+public class AuditReadAggregator {
+
+    private static final String UPSERT_SQL = """
+            INSERT INTO audit_read_aggregates
+                (window_start, user_id, resource_type, resource_id, action, event_count, first_seen, last_seen)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?)
+            ON CONFLICT (window_start, user_id, resource_type, resource_id, action)
+            DO UPDATE SET event_count = audit_read_aggregates.event_count + EXCLUDED.event_count,
+                          first_seen = LEAST(audit_read_aggregates.first_seen, EXCLUDED.first_seen),
+                          last_seen = GREATEST(audit_read_aggregates.last_seen, EXCLUDED.last_seen)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final AuditStatsRollup statsRollup;
+    private final int windowMinutes;
+    private final int retentionMonths;
+
+    private final Map<WindowKey, Window> windows = new ConcurrentHashMap<>();
+
+    public AuditReadAggregator(
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            AuditStatsRollup statsRollup,
+            @Value("${audit.tiering.window-minutes:5}") int windowMinutes,
+            @Value("${audit.retention.months:12}") int retentionMonths) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.statsRollup = statsRollup;
+        this.windowMinutes = Math.max(1, windowMinutes);
+        this.retentionMonths = retentionMonths;
+    }
+
+    /**
+     * @return true nếu event đã được gộp; false nếu đây là lần đầu trong cửa sổ và caller phải ghi
+     * đầy đủ
+     */
+    public boolean coalesce(AuditLog entry) {
+        WindowKey key = new WindowKey(windowStart(entry.getTimestamp()), entry.getUserId(),
+                entry.getResourceType(), entry.getResourceId(), entry.getAction());
+        Window window = windows.get(key);
+        if (window == null) {
+            window = new Window(windowMinutes);
+            Window existing = windows.putIfAbsent(key, window);
+            if (existing == null) {
+                return false;
+            }
+            window = existing;
+        }
+        return window.add(entry.getTimestamp(), key.windowStart());
+    }
+
+    /**
+     * Flush các cửa sổ đã kết thúc.
+     */
+    @Scheduled(fixedDelayString = "${audit.tiering.flush-interval-ms:10000}")
+    public void flushClosedWindows() {
+        flush(windowStart(LocalDateTime.now()));
+    }
+
+    @PreDestroy
+    public void flushAll() {
+        flush(LocalDateTime.MAX);
+    }
+
+    /**
+     * Xóa aggregate cũ hơn thời gian giữ audit log.
+     */
+    @Scheduled(cron = "${audit.tiering.prune-cron:0 30 2 * * *}")
+    public void pruneExpired() {
+        try {
+            int deleted = jdbcTemplate.update("DELETE FROM audit_read_aggregates WHERE window_start < ?",
+                    Timestamp.valueOf(LocalDateTime.now().minusMonths(retentionMonths)));
+            if (deleted > 0) {
+                log.info("Pruned {} expired audit read aggregates", deleted);
+            }
+        } catch (DataAccessException e) {
+            log.error("Audit read aggregate pruning failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Các aggregate khớp filter (userId, resourceType, resourceId, action, from/to theo window_start),
+     * mới nhất trước.
+     */
+    public List<ReadAggregate> search(AuditLogFilter filter, int limit) {
+        StringBuilder sql = new StringBuilder("""
+                SELECT window_start, user_id, resource_type, resource_id, action, event_count, first_seen, last_seen
+                FROM audit_read_aggregates WHERE 1 = 1""");
+        List<Object> params = new ArrayList<>();
+        appendEquals(sql, params, "user_id", filter.getUserId());
+        appendEquals(sql, params, "resource_type", filter.getResourceType());
+        appendEquals(sql, params, "resource_id", filter.getResourceId());
+        appendEquals(sql, params, "action", filter.getAction());
+        if (filter.getFrom() != null) {
+            sql.append(" AND window_start >= ?");
+            params.add(Timestamp.valueOf(windowStart(filter.getFrom())));
+        }
+        if (filter.getTo() != null) {
+            sql.append(" AND window_start < ?");
+            params.add(Timestamp.valueOf(filter.getTo()));
+        }
+        sql.append(" ORDER BY window_start DESC, id DESC LIMIT ?");
+        params.add(limit);
+        return jdbcTemplate.query(sql.toString(), (rs, i) -> new ReadAggregate(
+                rs.getTimestamp("window_start").toLocalDateTime(),
+                rs.getString("user_id"),
+                rs.getString("resource_type"),
+                rs.getString("resource_id"),
+                rs.getString("action"),
+                rs.getLong("event_count"),
+                rs.getTimestamp("first_seen").toLocalDateTime(),
+                rs.getTimestamp("last_seen").toLocalDateTime()), params.toArray());
+    }
+
+    private static void appendEquals(StringBuilder sql, List<Object> params, String column, Object value) {
+        if (value != null) {
+            sql.append(" AND ").append(column).append(" = ?");
+            params.add(value);
+        }
+    }
+
+    private void flush(LocalDateTime before) {
+        List<Object[]> rows = new ArrayList<>();
+        List<AuditStatsRollup.EventCount> counts = new ArrayList<>();
+        List<Map.Entry<WindowKey, Window>> flushed = new ArrayList<>();
+        Iterator<Map.Entry<WindowKey, Window>> it = windows.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<WindowKey, Window> entry = it.next();
+            WindowKey key = entry.getKey();
+            if (!key.windowStart().isBefore(before)) {
+                continue;
+            }
+            it.remove();
+            Window window = entry.getValue();
+            synchronized (window) {
+                window.closed = true;
+                if (window.count == 0) {
+                    continue;
+                }
+                rows.add(new Object[]{Timestamp.valueOf(key.windowStart()), key.userId(), key.resourceType(),
+                        key.resourceId(), key.action(), window.count,
+                        Timestamp.valueOf(window.firstSeen), Timestamp.valueOf(window.lastSeen)});
+                for (int i = 0; i < window.perMinute.length; i++) {
+                    if (window.perMinute[i] > 0) {
+                        counts.add(new AuditStatsRollup.EventCount(key.windowStart().plusMinutes(i),
+                                key.resourceType(), key.action(), true, window.perMinute[i]));
+                    }
+                }
+            }
+            flushed.add(entry);
+        }
+        if (rows.isEmpty()) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.batchUpdate(UPSERT_SQL, rows);
+                statsRollup.recordCounts(counts);
+            });
+            log.debug("Flushed {} audit read aggregates", rows.size());
+        } catch (DataAccessException e) {
+            log.error("Failed to flush {} audit read aggregates: {}", rows.size(), e.getMessage());
+            for (Map.Entry<WindowKey, Window> entry : flushed) {
+                restore(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Gộp số đếm của một cửa sổ flush lỗi trở lại bộ nhớ (cộng với cửa sổ mới cùng key nếu đã có).
+     */
+    private void restore(WindowKey key, Window failed) {
+        windows.compute(key, (k, current) -> {
+            Window restored = current != null ? current : new Window(windowMinutes);
+            if (!restored.merge(failed)) {
+                // Cửa sổ hiện tại vừa bị một lần flush khác đóng: thay bằng cửa sổ mới
+                restored = new Window(windowMinutes);
+                restored.merge(failed);
+            }
+            return restored;
+        });
+    }
+
+    private LocalDateTime windowStart(LocalDateTime time) {
+        LocalDateTime minute = time.truncatedTo(ChronoUnit.MINUTES);
+        return minute.minusMinutes(Math.floorMod(minute.getHour() * 60 + minute.getMinute(), windowMinutes));
+    }
+
+    /**
+     * Một dòng audit_read_aggregates: số lần đọc lặp lại (không tính dòng đầy đủ đầu tiên) trong cửa sổ.
+     */
+    public record ReadAggregate(LocalDateTime windowStart, String userId, String resourceType, String resourceId,
+                                String action, long eventCount, LocalDateTime firstSeen, LocalDateTime lastSeen) {
+    }
+
+    private record WindowKey(LocalDateTime windowStart, String userId, String resourceType,
+                             String resourceId, String action) {
+    }
+
+    /**
+     * Số lần đọc lặp lại trong một cửa sổ, đếm theo từng phút để rollup thống kê vẫn chính xác.
+     */
+    private static final class Window {
+        final long[] perMinute;
+        long count;
+        LocalDateTime firstSeen;
+        LocalDateTime lastSeen;
+        boolean closed;
+
+        Window(int minutes) {
+            this.perMinute = new long[minutes];
+        }
+
+        synchronized boolean add(LocalDateTime timestamp, LocalDateTime windowStart) {
+            if (closed) {
+                // Cửa sổ vừa được flush: ghi đầy đủ thay vì mất event
+                return false;
+            }
+            int minute = (int) ChronoUnit.MINUTES.between(windowStart, timestamp.truncatedTo(ChronoUnit.MINUTES));
+            perMinute[Math.min(Math.max(minute, 0), perMinute.length - 1)]++;
+            count++;
+            if (firstSeen == null || timestamp.isBefore(firstSeen)) {
+                firstSeen = timestamp;
+            }
+            if (lastSeen == null || timestamp.isAfter(lastSeen)) {
+                lastSeen = timestamp;
+            }
+            return true;
+        }
+
+        /**
+         * @return false nếu cửa sổ này đã đóng
+         */
+        synchronized boolean merge(Window other) {
+            if (closed) {
+                return false;
+            }
+            for (int i = 0; i < perMinute.length; i++) {
+                perMinute[i] += other.perMinute[i];
+            }
+            count += other.count;
+            if (firstSeen == null || other.firstSeen.isBefore(firstSeen)) {
+                firstSeen = other.firstSeen;
+            }
+            if (lastSeen == null || other.lastSeen.isAfter(lastSeen)) {
+                lastSeen = other.lastSeen;
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.auth.auth_service.audit;
+
+import com.auth.auth_service.entity.AuditLog;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Binary encoding of an {@link AuditLog} for the local journal.
+ * Layout: version byte, allowed flag, risk score, timestamp (epoch second + nano),
+ * then length-prefixed UTF-8 strings (-1 = null).
+ * The database id is never journaled; it is assigned when the replayer ships the row.
+ */
+final class AuditRecordCodec {
+
+    private static final byte VERSION = 1;
+    private static final int NULL_LENGTH = -1;
+    private static final int NULL_RISK = Integer.MIN_VALUE;
+
+    private AuditRecordCodec() {
+    }
+
+    static byte[] encode(AuditLog entry) {
+        byte[][] strings = {
+                utf8(entry.getUserId()),
+                utf8(entry.getResourceType()),
+                utf8(entry.getResourceId()),
+                utf8(entry.getAction()),
+                utf8(entry.getPolicyId()),
+                utf8(entry.getDenyReasons()),
+                utf8(entry.getIpAddress()),
+                utf8(entry.getUserAgent())
+        };
+
+        int size = 1 + 1 + 4 + 8 + 4;
+        for (byte[] s : strings) {
+            size += 4 + (s == null ? 0 : s.length);
+        }
+
+        LocalDateTime timestamp = entry.getTimestamp() != null ? entry.getTimestamp() : LocalDateTime.now();
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.put(VERSION);
+        buffer.put((byte) (entry.isAllowed() ? 1 : 0));
+        buffer.putInt(entry.getRiskScore() != null ? entry.getRiskScore() : NULL_RISK);
+        buffer.putLong(timestamp.toEpochSecond(ZoneOffset.UTC));
+        buffer.putInt(timestamp.getNano());
+        for (byte[] s : strings) {
+            if (s == null) {
+                buffer.putInt(NULL_LENGTH);
+            } else {
+                buffer.putInt(s.length);
+                buffer.put(s);
+            }
+        }
+        return buffer.array();
+    }
+
+    static AuditLog decode(ByteBuffer buffer) {
+        byte version = buffer.get();
+        if (version != VERSION) {
+            throw new IllegalStateException("Unsupported audit journal record version: " + version);
+        }
+        boolean allowed = buffer.get() == 1;
+        int risk = buffer.getInt();
+        long epochSecond = buffer.getLong();
+        int nano = buffer.getInt();
+
+        return AuditLog.builder()
+                .allowed(allowed)
+                .riskScore(risk == NULL_RISK ? null : risk)
+                .timestamp(LocalDateTime.ofEpochSecond(epochSecond, nano, ZoneOffset.UTC))
+                .userId(readString(buffer))
+                .resourceType(readString(buffer))
+                .resourceId(readString(buffer))
+                .action(readString(buffer))
+                .policyId(readString(buffer))
+                .denyReasons(readString(buffer))
+                .ipAddress(readString(buffer))
+                .userAgent(readString(buffer))
+                .build();
+    }
+
+    private static byte[] utf8(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,73 @@
+package com.auth.auth_service.audit;
+
+import com.auth.auth_service.entity.AuditLog;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Điểm ghi audit duy nhất: append vào {@link AuditJournal} (hoặc gộp lần đọc lặp lại rủi ro thấp,
+ * xem {@link AuditTieringPolicy}) rồi phát event tới các {@link AuditEventListener} (live stream,
+ * phát hiện bất thường...). Listener luôn nhận mọi event, kể cả event đã được gộp.
+ */
+@Component
+@Slf4j
+public class AuditRecorder {
+
+    private final AuditJournal journal;
+    private final AuditTieringPolicy tieringPolicy;
+    private final AuditReadAggregator readAggregator;
+    private final ObjectProvider<AuditEventListener> listenerProvider;
+    private volatile List<AuditEventListener> listeners;
+
+    public AuditRecorder(AuditJournal journal,
+                         AuditTieringPolicy tieringPolicy,
+                         AuditReadAggregator readAggregator,
+                         ObjectProvider<AuditEventListener> listenerProvider) {
+        this.journal = journal;
+        this.tieringPolicy = tieringPolicy;
+        this.readAggregator = readAggregator;
+        this.listenerProvider = listenerProvider;
+    }
+
+    public void record(AuditLog entry) {
+        record(entry, false);
+    }
+
+    /**
+     * @param readOnly request chỉ đọc; lần đọc lặp lại rủi ro thấp có thể được gộp thay vì ghi đầy đủ
+     */
+    public void record(AuditLog entry, boolean readOnly) {
+        if (!tieringPolicy.isCoalescable(entry, readOnly) || !readAggregator.coalesce(entry)) {
+            journal.append(entry);
+        }
+        for (AuditEventListener listener : listeners()) {
+            try {
+                listener.onAuditEvent(entry);
+            } catch (RuntimeException e) {
+                log.warn("Audit listener {} failed: {}", listener.getClass().getSimpleName(), e.getMessage());
+            }
+        }
+    }
+
+    public void recordDecision(AuditLog decision) {
+        for (AuditEventListener listener : listeners()) {
+            try {
+                listener.onDecision(decision);
+            } catch (RuntimeException e) {
+                log.warn("Audit listener {} failed: {}", listener.getClass().getSimpleName(), e.getMessage());
+            }
+        }
+    }
+
+    private List<AuditEventListener> listeners() {
+        List<AuditEventListener> resolved = listeners;
+        if (resolved == null) {
+            resolved = listenerProvider.orderedStream().toList();
+            listeners = resolved;
+        }
+        return resolved;
+    }
+}
@@ -0,0 +1,290 @@
+package com.auth.auth_service.audit;
+
+import com.auth.auth_service.entity.AuditLog;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+
+/**
+ * Thống kê audit tổng hợp sẵn (bảng audit_stats_rollup, xem V7).
+ * <p>
+ * Mỗi audit event cộng 1 vào bucket MINUTE, HOUR, DAY và ALL của bộ
+ * (resourceType, action, allowed). {@link AuditJournalReplayer} gọi {@link #record(Collection)}
+ * trong cùng transaction với insert audit_logs nên counters luôn khớp với dữ liệu đã ghi.
+ * Thống kê toàn thời gian chỉ đọc bucket ALL; một khoảng thời gian bất kỳ được tách thành
+ * các bucket ngày/giờ/phút lớn nhất phủ vừa khoảng đó rồi cộng lại.
+ */
+@Component
+@Slf4j
+public class AuditStatsRollup {
+
+    /** bucket_start của bucket ALL. */
+    static final LocalDateTime ALL_TIME = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private static final String UPSERT_SQL = """
+            INSERT INTO audit_stats_rollup (granularity, bucket_start, resource_type, action, allowed, event_count)
+            VALUES (?, ?, ?, ?, ?, ?)
+            ON CONFLICT (granularity, bucket_start, resource_type, action, allowed)
+            DO UPDATE SET event_count = audit_stats_rollup.event_count + EXCLUDED.event_count
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int minuteRetentionHours;
+    private final int hourRetentionDays;
+
+    public AuditStatsRollup(
+            JdbcTemplate jdbcTemplate,
+            @Value("${audit.stats.minute-retention-hours:48}") int minuteRetentionHours,
+            @Value("${audit.stats.hour-retention-days:90}") int hourRetentionDays) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.minuteRetentionHours = minuteRetentionHours;
+        this.hourRetentionDays = hourRetentionDays;
+    }
+
+    public enum Granularity {
+        MINUTE(ChronoUnit.MINUTES),
+        HOUR(ChronoUnit.HOURS),
+        DAY(ChronoUnit.DAYS),
+        ALL(null);
+
+        private final ChronoUnit unit;
+
+        Granularity(ChronoUnit unit) {
+            this.unit = unit;
+        }
+
+        LocalDateTime floor(LocalDateTime time) {
+            return unit == null ? ALL_TIME : time.truncatedTo(unit);
+        }
+
+        LocalDateTime ceil(LocalDateTime time) {
+            LocalDateTime floor = floor(time);
+            return floor.equals(time) ? time : floor.plus(1, unit);
+        }
+    }
+
+    /**
+     * Cộng dồn các event vào rollup. Phải được gọi trong transaction ghi audit_logs.
+     */
+    public void record(Collection<AuditLog> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        // Gộp trong batch trước để mỗi bucket chỉ upsert một lần; TreeMap giữ thứ tự khóa ổn định
+        Map<BucketKey, Long> deltas = new TreeMap<>();
+        for (AuditLog entry : entries) {
+            addDeltas(deltas, entry.getTimestamp(), entry.getResourceType(), entry.getAction(), entry.isAllowed(), 1);
+        }
+        upsert(deltas);
+    }
+
+    /**
+     * Cộng dồn các event đã được gộp sẵn (xem {@link AuditReadAggregator}), mỗi phần tử là số event
+     * trong một phút.
+     */
+    public void recordCounts(Collection<EventCount> counts) {
+        if (counts.isEmpty()) {
+            return;
+        }
+        Map<BucketKey, Long> deltas = new TreeMap<>();
+        for (EventCount count : counts) {
+            addDeltas(deltas, count.timestamp(), count.resourceType(), count.action(), count.allowed(), count.count());
+        }
+        upsert(deltas);
+    }
+
+    private static void addDeltas(Map<BucketKey, Long> deltas, LocalDateTime timestamp,
+                                  String resourceType, String action, boolean allowed, long count) {
+        for (Granularity granularity : Granularity.values()) {
+            BucketKey key = new BucketKey(granularity, granularity.floor(timestamp), resourceType, action, allowed);
+            deltas.merge(key, count, Long::sum);
+        }
+    }
+
+    private void upsert(Map<BucketKey, Long> deltas) {
+        List<Object[]> args = new ArrayList<>(deltas.size());
+        deltas.forEach((key, count) -> args.add(new Object[]{
+                key.granularity().name(), Timestamp.valueOf(key.bucketStart()),
+                key.resourceType(), key.action(), key.allowed(), count}));
+        jdbcTemplate.batchUpdate(UPSERT_SQL, args);
+    }
+
+    /**
+     * Thống kê toàn bộ lịch sử audit (đọc bucket ALL, không phụ thuộc số lượng log).
+     */
+    public AuditStats allTime() {
+        return aggregate("granularity = 'ALL'", List.of());
+    }
+
+    /**
+     * Thống kê trong khoảng [from, to). Mốc thời gian được làm tròn ra phút; với các mốc
+     * cũ hơn thời gian giữ bucket phút/giờ thì làm tròn ra giờ/ngày tương ứng.
+     */
+    public AuditStats window(LocalDateTime from, LocalDateTime to) {
+        LocalDateTime now = LocalDateTime.now();
+        from = widenFrom(from, now);
+        to = widenTo(to, now);
+        if (!from.isBefore(to)) {
+            return AuditStats.EMPTY;
+        }
+
+        List<BucketRange> ranges = new ArrayList<>();
+        decompose(from, to, Granularity.DAY, ranges);
+
+        StringJoiner where = new StringJoiner(" OR ", "(", ")");
+        List<Object> params = new ArrayList<>();
+        for (BucketRange range : ranges) {
+            where.add("(granularity = ? AND bucket_start >= ? AND bucket_start < ?)");
+            params.add(range.granularity().name());
+            params.add(Timestamp.valueOf(range.start()));
+            params.add(Timestamp.valueOf(range.end()));
+        }
+        return aggregate(where.toString(), params);
+    }
+
+    /**
+     * Xóa bucket phút/giờ quá hạn; bucket ngày và ALL được giữ lại.
+     */
+    @Scheduled(cron = "${audit.stats.prune-cron:0 30 * * * *}")
+    public void prune() {
+        LocalDateTime now = LocalDateTime.now();
+        try {
+            int minutes = jdbcTemplate.update(
+                    "DELETE FROM audit_stats_rollup WHERE granularity = 'MINUTE' AND bucket_start < ?",
+                    Timestamp.valueOf(minuteHorizon(now)));
+            int hours = jdbcTemplate.update(
+                    "DELETE FROM audit_stats_rollup WHERE granularity = 'HOUR' AND bucket_start < ?",
+                    Timestamp.valueOf(hourHorizon(now)));
+            if (minutes + hours > 0) {
+                log.debug("Pruned {} minute and {} hour audit stat buckets", minutes, hours);
+            }
+        } catch (DataAccessException e) {
+            log.warn("Audit stats prune failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Tách [from, to) thành các bucket: phần nguyên ngày dùng DAY, phần lẻ hai đầu dùng HOUR rồi MINUTE.
+     * {@code from} và {@code to} đã được làm tròn tới phút.
+     */
+    static void decompose(LocalDateTime from, LocalDateTime to, Granularity granularity, List<BucketRange> out) {
+        if (!from.isBefore(to)) {
+            return;
+        }
+        if (granularity == Granularity.MINUTE) {
+            out.add(new BucketRange(granularity, from, to));
+            return;
+        }
+        Granularity finer = granularity == Granularity.DAY ? Granularity.HOUR : Granularity.MINUTE;
+        LocalDateTime start = granularity.ceil(from);
+        LocalDateTime end = granularity.floor(to);
+        if (start.isBefore(end)) {
+            decompose(from, start, finer, out);
+            out.add(new BucketRange(granularity, start, end));
+            decompose(end, to, finer, out);
+        } else {
+            decompose(from, to, finer, out);
+        }
+    }
+
+    private LocalDateTime widenFrom(LocalDateTime from, LocalDateTime now) {
+        if (from.isBefore(hourHorizon(now))) {
+            return Granularity.DAY.floor(from);
+        }
+        if (from.isBefore(minuteHorizon(now))) {
+            return Granularity.HOUR.floor(from);
+        }
+        return Granularity.MINUTE.floor(from);
+    }
+
+    private LocalDateTime widenTo(LocalDateTime to, LocalDateTime now) {
+        if (to.isBefore(hourHorizon(now))) {
+            return Granularity.DAY.ceil(to);
+        }
+        if (to.isBefore(minuteHorizon(now))) {
+            return Granularity.HOUR.ceil(to);
+        }
+        return Granularity.MINUTE.ceil(to);
+    }
+
+    private LocalDateTime minuteHorizon(LocalDateTime now) {
+        return Granularity.HOUR.floor(now.minusHours(minuteRetentionHours));
+    }
+
+    private LocalDateTime hourHorizon(LocalDateTime now) {
+        return Granularity.DAY.floor(now.minusDays(hourRetentionDays));
+    }
+
+    private AuditStats aggregate(String where, List<Object> params) {
+        Map<String, Long> byResourceType = new HashMap<>();
+        Map<String, Long> byAction = new HashMap<>();
+        long[] totals = new long[2]; // [total, allowed]
+
+        jdbcTemplate.query("""
+                SELECT resource_type, action, allowed, SUM(event_count) AS cnt
+                FROM audit_stats_rollup
+                WHERE %s
+                GROUP BY resource_type, action, allowed
+                """.formatted(where), rs -> {
+            long count = rs.getLong("cnt");
+            byResourceType.merge(rs.getString("resource_type"), count, Long::sum);
+            byAction.merge(rs.getString("action"), count, Long::sum);
+            totals[0] += count;
+            if (rs.getBoolean("allowed")) {
+                totals[1] += count;
+            }
+        }, params.toArray());
+
+        return new AuditStats(totals[0], totals[1], byResourceType, byAction);
+    }
+
+    record BucketKey(Granularity granularity, LocalDateTime bucketStart,
+                     String resourceType, String action, boolean allowed) implements Comparable<BucketKey> {
+
+        private static final Comparator<BucketKey> ORDER = Comparator
+                .comparing(BucketKey::granularity)
+                .thenComparing(BucketKey::bucketStart)
+                .thenComparing(BucketKey::resourceType)
+                .thenComparing(BucketKey::action)
+                .thenComparing(BucketKey::allowed);
+
+        @Override
+        public int compareTo(BucketKey other) {
+            return ORDER.compare(this, other);
+        }
+    }
+
+    /**
+     * Số event đã gộp sẵn của một bộ (resourceType, action, allowed) tại một thời điểm.
+     */
+    public record EventCount(LocalDateTime timestamp, String resourceType, String action, boolean allowed, long count) {
+    }
+
+    record BucketRange(Granularity granularity, LocalDateTime start, LocalDateTime end) {
+    }
+
+    /**
+     * Kết quả thống kê cho một khoảng thời gian.
+     */
+    public record AuditStats(long totalEntries, long allowedCount,
+                             Map<String, Long> byResourceType, Map<String, Long> byAction) {
+
+        static final AuditStats EMPTY = new AuditStats(0, 0, Map.of(), Map.of());
+
+        public long deniedCount() {
+            return totalEntries - allowedCount;
+        }
+
+        public double denyRate() {
+            return totalEntries > 0 ? (double) deniedCount() / totalEntries * 100 : 0;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.auth.auth_service.audit;
+
+import com.auth.auth_service.entity.AuditLog;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+
+/**
+ * Phân tầng audit: event rủi ro cao luôn được ghi đầy đủ, chỉ các lần đọc rủi ro thấp mới được
+ * phép gộp (xem {@link AuditReadAggregator}).
+ * <p>
+ * Luôn ghi đầy đủ: risk score vượt ngưỡng, bị từ chối/lỗi (HTTP 4xx/5xx), action nhạy cảm
+ * (export, delete...) và resource nhạy cảm (AuditLog, AccessPolicy, SystemConfig...).
+ */
+@Component
+public class AuditTieringPolicy {
+
+    private final boolean enabled;
+    private final int riskThreshold;
+    private final Set<String> sensitiveResources;
+    private final Set<String> sensitiveActions;
+
+    public AuditTieringPolicy(
+            @Value("${audit.tiering.enabled:true}") boolean enabled,
+            @Value("${audit.tiering.risk-threshold:3}") int riskThreshold,
+            @Value("${audit.tiering.sensitive-resources:AuditLog,AccessPolicy,SystemConfig}") Set<String> sensitiveResources,
+            @Value("${audit.tiering.sensitive-actions:export,delete}") Set<String> sensitiveActions) {
+        this.enabled = enabled;
+        this.riskThreshold = riskThreshold;
+        this.sensitiveResources = Set.copyOf(sensitiveResources);
+        this.sensitiveActions = Set.copyOf(sensitiveActions);
+    }
+
+    /**
+     * @param readOnly request chỉ đọc (GET)
+     * @return true nếu event có thể được gộp thay vì ghi thành một dòng audit_logs
+     */
+    public boolean isCoalescable(AuditLog entry, boolean readOnly) {
+        if (!enabled || !readOnly || !entry.isAllowed()) {
+            return false;
+        }
+        if (entry.getRiskScore() != null && entry.getRiskScore() > riskThreshold) {
+            return false;
+        }
+        if (sensitiveResources.contains(entry.getResourceType()) || sensitiveActions.contains(entry.getAction())) {
+            return false;
+        }
+        return isSuccessStatus(entry.getDenyReasons());
+    }
+
+    /** AuditAspect ghi {@code HTTP_<status>} vào denyReasons cho request thành công về mặt exception. */
+    private static boolean isSuccessStatus(String denyReasons) {
+        return denyReasons != null && denyReasons.length() == 8 && denyReasons.startsWith("HTTP_")
+                && (denyReasons.charAt(5) == '2' || denyReasons.charAt(5) == '3');
+    }
+}
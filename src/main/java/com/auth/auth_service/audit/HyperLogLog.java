@@ -0,0 +1,89 @@
+package com.auth.auth_service.audit;
+
+import java.util.Arrays;
+
+/**
+ * HyperLogLog nhỏ gọn để ước lượng số phần tử phân biệt (sai số chuẩn ~1.04/sqrt(2^precision)).
+ * Không thread-safe; caller tự đồng bộ.
+ */
+final class HyperLogLog {
+
+    private final int precision;
+    private final byte[] registers;
+    private final double alphaMM;
+    private long cachedEstimate = -1;
+
+    HyperLogLog(int precision) {
+        if (precision < 4 || precision > 16) {
+            throw new IllegalArgumentException("precision must be between 4 and 16");
+        }
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+        int m = registers.length;
+        double alpha = switch (m) {
+            case 16 -> 0.673;
+            case 32 -> 0.697;
+            case 64 -> 0.709;
+            default -> 0.7213 / (1 + 1.079 / m);
+        };
+        this.alphaMM = alpha * m * m;
+    }
+
+    /**
+     * @return true nếu một register thay đổi (ước lượng có thể đã tăng)
+     */
+    boolean add(String value) {
+        long hash = hash(value);
+        int index = (int) (hash >>> (64 - precision));
+        long rest = hash << precision;
+        byte rank = (byte) Math.min(Long.numberOfLeadingZeros(rest) + 1, 64 - precision + 1);
+        if (rank > registers[index]) {
+            registers[index] = rank;
+            cachedEstimate = -1;
+            return true;
+        }
+        return false;
+    }
+
+    long estimate() {
+        if (cachedEstimate >= 0) {
+            return cachedEstimate;
+        }
+        int m = registers.length;
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) {
+                zeros++;
+            }
+        }
+        double estimate = alphaMM / sum;
+        if (estimate <= 2.5 * m && zeros > 0) {
+            // Linear counting cho khoảng nhỏ
+            estimate = m * Math.log((double) m / zeros);
+        }
+        cachedEstimate = Math.round(estimate);
+        return cachedEstimate;
+    }
+
+    void clear() {
+        Arrays.fill(registers, (byte) 0);
+        cachedEstimate = 0;
+    }
+
+    /** FNV-1a 64-bit + finalizer của MurmurHash3 để phân bố đều các bit cao. */
+    private static long hash(String value) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            h ^= value.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,24 @@
+package com.auth.auth_service.audit;
+
+/**
+ * Vị trí trong audit journal: số thứ tự segment + offset byte bên trong segment.
+ */
+public record JournalPosition(long segment, int offset) implements Comparable<JournalPosition> {
+
+    public static final JournalPosition START = new JournalPosition(0, 0);
+
+    @Override
+    public int compareTo(JournalPosition other) {
+        int bySegment = Long.compare(segment, other.segment);
+        return bySegment != 0 ? bySegment : Integer.compare(offset, other.offset);
+    }
+
+    public boolean isBefore(JournalPosition other) {
+        return compareTo(other) < 0;
+    }
+
+    @Override
+    public String toString() {
+        return segment + ":" + offset;
+    }
+}
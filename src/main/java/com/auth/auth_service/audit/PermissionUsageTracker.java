@@ -0,0 +1,148 @@
+package com.auth.auth_service.audit;
+
+import com.auth.auth_service.entity.AuditLog;
+import com.auth.auth_service.service.PermissionCatalog;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Đếm việc sử dụng quyền (bảng permission_usage, xem V11) từ các quyết định ALLOW: audit event của
+ * API và quyết định của AuthorizationService. Mỗi (user, permission id) chỉ là một bộ đếm trong bộ
+ * nhớ (số lần, lần đầu/cuối), được flush định kỳ bằng batch upsert; resource/action không khớp
+ * permission nào (vd. AuthorizationRequest) bị bỏ qua.
+ * <p>
+ * Bộ đếm bị đóng khi flush nên không mất lần dùng nào đến cùng lúc; flush lỗi thì số đếm được gộp
+ * lại để lần sau ghi tiếp.
+ */
+@Component
+@Slf4j
+public class PermissionUsageTracker implements AuditEventListener {
+
+    private static final String UPSERT_SQL = """
+            INSERT INTO permission_usage (user_id, permission_id, hit_count, first_used_at, last_used_at)
+            SELECT u.id, ?, ?, ?, ? FROM users u WHERE u.user_id = ?
+            ON CONFLICT (user_id, permission_id)
+            DO UPDATE SET hit_count = permission_usage.hit_count + EXCLUDED.hit_count,
+                          first_used_at = LEAST(permission_usage.first_used_at, EXCLUDED.first_used_at),
+                          last_used_at = GREATEST(permission_usage.last_used_at, EXCLUDED.last_used_at)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PermissionCatalog catalog;
+    private final Map<UsageKey, Usage> usages = new ConcurrentHashMap<>();
+
+    public PermissionUsageTracker(JdbcTemplate jdbcTemplate, PermissionCatalog catalog) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.catalog = catalog;
+    }
+
+    @Override
+    public void onAuditEvent(AuditLog event) {
+        track(event);
+    }
+
+    @Override
+    public void onDecision(AuditLog decision) {
+        track(decision);
+    }
+
+    private void track(AuditLog event) {
+        if (!event.isAllowed() || event.getPolicyId() == null || !event.getPolicyId().startsWith("ALLOW")
+                || event.getUserId() == null || "anonymous".equals(event.getUserId())) {
+            return;
+        }
+        LocalDateTime timestamp = event.getTimestamp() != null ? event.getTimestamp() : LocalDateTime.now();
+        // Có thể có nhiều permission cùng resource/action (khác scope)
+        for (PermissionCatalog.Entry permission : catalog.findAll(event.getResourceType(), event.getAction())) {
+            add(new UsageKey(event.getUserId(), permission.id()), 1, timestamp, timestamp);
+        }
+    }
+
+    private void add(UsageKey key, long hits, LocalDateTime firstUsed, LocalDateTime lastUsed) {
+        while (true) {
+            Usage usage = usages.computeIfAbsent(key, k -> new Usage());
+            if (usage.add(hits, firstUsed, lastUsed)) {
+                return;
+            }
+            // Bộ đếm vừa bị flush lấy đi: tạo bộ đếm mới
+            usages.remove(key, usage);
+        }
+    }
+
+    /**
+     * Ghi mọi bộ đếm hiện có xuống permission_usage.
+     */
+    @Scheduled(fixedDelayString = "${permission.usage.flush-interval-ms:10000}")
+    @PreDestroy
+    public synchronized void flush() {
+        List<Object[]> rows = new ArrayList<>();
+        List<Map.Entry<UsageKey, Usage>> flushed = new ArrayList<>();
+        Iterator<Map.Entry<UsageKey, Usage>> it = usages.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<UsageKey, Usage> entry = it.next();
+            it.remove();
+            Usage usage = entry.getValue();
+            synchronized (usage) {
+                usage.closed = true;
+                if (usage.hits == 0) {
+                    continue;
+                }
+                rows.add(new Object[]{entry.getKey().permissionId(), usage.hits,
+                        Timestamp.valueOf(usage.firstUsed), Timestamp.valueOf(usage.lastUsed), entry.getKey().userId()});
+            }
+            flushed.add(entry);
+        }
+        if (rows.isEmpty()) {
+            return;
+        }
+        try {
+            jdbcTemplate.batchUpdate(UPSERT_SQL, rows);
+            log.debug("Flushed {} permission usage counters", rows.size());
+        } catch (DataAccessException e) {
+            log.error("Failed to flush {} permission usage counters: {}", rows.size(), e.getMessage());
+            for (Map.Entry<UsageKey, Usage> entry : flushed) {
+                Usage usage = entry.getValue();
+                add(entry.getKey(), usage.hits, usage.firstUsed, usage.lastUsed);
+            }
+        }
+    }
+
+    /**
+     * @param userId users.user_id (mã nhân viên), được resolve sang users.id lúc flush
+     */
+    private record UsageKey(String userId, long permissionId) {
+    }
+
+    private static final class Usage {
+        long hits;
+        LocalDateTime firstUsed;
+        LocalDateTime lastUsed;
+        boolean closed;
+
+        synchronized boolean add(long count, LocalDateTime first, LocalDateTime last) {
+            if (closed) {
+                return false;
+            }
+            hits += count;
+            if (firstUsed == null || first.isBefore(firstUsed)) {
+                firstUsed = first;
+            }
+            if (lastUsed == null || last.isAfter(lastUsed)) {
+                lastUsed = last;
+            }
+            return true;
+        }
+    }
+}
@@ -1,17 +1,28 @@
 package com.auth.auth_service.controller;
 
 import com.auth.auth_service.dto.ApiResponse;
+import com.auth.auth_service.dto.ai.AnomalyReport;
+import com.auth.auth_service.dto.ai.JobTransferRecommendation;
+import com.auth.auth_service.dto.ai.NewUserRecommendation;
+import com.auth.auth_service.dto.ai.RightsizingReport;
+import com.auth.auth_service.exception.AIServiceException;
 import com.auth.auth_service.service.AIPermissionService;
+import com.auth.auth_service.service.PermissionRightsizingService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import java.util.Map;
 
 /**
  * Controller cho AI Permission Recommendation APIs Proxy các request tới PoweredAI-RBAC service
+ * <p>
+ * Các endpoint trả về Mono nên request được xử lý bất đồng bộ: thread servlet được trả lại ngay,
+ * response được ghi khi AI service phản hồi.
  */
 @RestController
 @RequestMapping("/api/ai")
@@ -20,6 +31,7 @@ import java.util.Map;
 public class AIController {
 
   private final AIPermissionService aiPermissionService;
+  private final PermissionRightsizingService rightsizingService;
 
   /**
    * Gợi ý quyền cho người dùng mới POST /api/ai/recommend/new-user
@@ -29,7 +41,7 @@ public class AIController {
    */
   @PostMapping("/recommend/new-user")
   @PreAuthorize("hasAnyRole('HR', 'SecurityAdmin', 'Manager')")
-  public ResponseEntity<ApiResponse<Map<String, Object>>> recommendNewUser(
+  public Mono<ResponseEntity<ApiResponse<NewUserRecommendation>>> recommendNewUser(
       @RequestBody Map<String, String> profile) {
     log.info("AI recommend new user request: {}", profile);
 
@@ -41,15 +53,9 @@ public class AIController {
     String position = profile.getOrDefault("position", "Doctor");
     String employmentType = profile.getOrDefault("employment_type", "Fulltime");
 
-    Map<String, Object> result = aiPermissionService.recommendNewUser(
+    return respond(aiPermissionService.recommendNewUserAsync(
         role, department, branch, license, seniority, position, employmentType
-    );
-
-    if (result.containsKey("error")) {
-      return ResponseEntity.ok(ApiResponse.error((String) result.get("error")));
-    }
-
-    return ResponseEntity.ok(ApiResponse.success(result));
+    ));
   }
 
   /**
@@ -62,7 +68,7 @@ public class AIController {
   @PostMapping("/recommend/job-transfer")
   @PreAuthorize("hasAnyRole('HR', 'SecurityAdmin', 'Manager')")
   @SuppressWarnings("unchecked")
-  public ResponseEntity<ApiResponse<Map<String, Object>>> recommendJobTransfer(
+  public Mono<ResponseEntity<ApiResponse<JobTransferRecommendation>>> recommendJobTransfer(
       @RequestBody Map<String, Object> request) {
     log.info("AI recommend job transfer request");
 
@@ -70,35 +76,50 @@ public class AIController {
     Map<String, String> newProfile = (Map<String, String>) request.get("new_profile");
 
     if (oldProfile == null || newProfile == null) {
-      return ResponseEntity.badRequest()
-          .body(ApiResponse.error("old_profile and new_profile are required"));
+      return Mono.just(ResponseEntity.badRequest()
+          .body(ApiResponse.error("old_profile and new_profile are required")));
     }
 
-    Map<String, Object> result = aiPermissionService.recommendJobTransfer(oldProfile, newProfile);
-
-    if (result.containsKey("error")) {
-      return ResponseEntity.ok(ApiResponse.error((String) result.get("error")));
-    }
-
-    return ResponseEntity.ok(ApiResponse.success(result));
+    return respond(aiPermissionService.recommendJobTransferAsync(oldProfile, newProfile));
   }
 
   /**
-   * Rightsizing - phát hiện quyền không sử dụng POST /api/ai/recommend/rightsizing?lookbackDays=90
+   * Rightsizing - phát hiện quyền không sử dụng POST
+   * /api/ai/recommend/rightsizing?lookbackDays=90&createRequests=false&limit=1000
+   * <p>
+   * Tính local từ permission_usage; createRequests=true thì tạo pending request RIGHTSIZING cho mọi
+   * quyền không dùng (kết quả có "requests_created"). lookbackDays dài hơn thời gian đã đếm usage trả 400.
    */
   @PostMapping("/recommend/rightsizing")
   @PreAuthorize("hasAnyRole('SecurityAdmin', 'ITAdmin')")
-  public ResponseEntity<ApiResponse<Map<String, Object>>> getRightsizing(
-      @RequestParam(defaultValue = "90") int lookbackDays) {
-    log.info("AI rightsizing request with lookbackDays={}", lookbackDays);
-
-    Map<String, Object> result = aiPermissionService.getRightsizing(lookbackDays);
-
-    if (result.containsKey("error")) {
-      return ResponseEntity.ok(ApiResponse.error((String) result.get("error")));
+  public Mono<ResponseEntity<ApiResponse<RightsizingReport>>> getRightsizing(
+      @RequestParam(defaultValue = "90") int lookbackDays,
+      @RequestParam(defaultValue = "false") boolean createRequests,
+      @RequestParam(defaultValue = "1000") int limit) {
+    log.info("Rightsizing request with lookbackDays={}, createRequests={}", lookbackDays, createRequests);
+
+    if (lookbackDays < 1 || limit < 1) {
+      return Mono.just(ResponseEntity.badRequest()
+          .body(ApiResponse.error("lookbackDays and limit must be positive")));
     }
+    return Mono.fromCallable(rightsizingService::maxLookbackDays)
+        .subscribeOn(Schedulers.boundedElastic())
+        .flatMap(maxLookbackDays -> lookbackDays > maxLookbackDays
+            ? Mono.just(ResponseEntity.badRequest().<ApiResponse<RightsizingReport>>body(ApiResponse.error(
+                "Permission usage is only tracked for the last " + maxLookbackDays
+                    + " days; lookbackDays must be at most " + maxLookbackDays)))
+            : respondRightsizing(lookbackDays, createRequests, limit));
+  }
 
-    return ResponseEntity.ok(ApiResponse.success(result));
+  private Mono<ResponseEntity<ApiResponse<RightsizingReport>>> respondRightsizing(
+      int lookbackDays, boolean createRequests, int limit) {
+    return respond(Mono.fromCallable(() -> {
+      RightsizingReport report = rightsizingService.analyze(lookbackDays, limit);
+      if (createRequests) {
+        report.setAdditionalProperty("requests_created", rightsizingService.createPendingRequests(lookbackDays));
+      }
+      return report;
+    }).subscribeOn(Schedulers.boundedElastic()));
   }
 
   /**
@@ -106,35 +127,40 @@ public class AIController {
    */
   @PostMapping("/recommend/anomaly")
   @PreAuthorize("hasRole('SecurityAdmin')")
-  public ResponseEntity<ApiResponse<Map<String, Object>>> detectAnomaly(
+  public Mono<ResponseEntity<ApiResponse<AnomalyReport>>> detectAnomaly(
       @RequestParam(defaultValue = "3") int riskThreshold) {
     log.info("AI anomaly detection request with riskThreshold={}", riskThreshold);
 
-    Map<String, Object> result = aiPermissionService.detectAnomaly(riskThreshold);
-
-    if (result.containsKey("error")) {
-      return ResponseEntity.ok(ApiResponse.error((String) result.get("error")));
-    }
-
-    return ResponseEntity.ok(ApiResponse.success(result));
+    return respond(aiPermissionService.detectAnomalyAsync(riskThreshold));
   }
 
   /**
    * Kiểm tra trạng thái kết nối AI service GET /api/ai/health
    */
   @GetMapping("/health")
-  public ResponseEntity<ApiResponse<Map<String, Object>>> healthCheck() {
-    boolean isHealthy = aiPermissionService.healthCheck();
-
-    Map<String, Object> status = Map.of(
-        "ai_service", isHealthy ? "UP" : "DOWN",
-        "message", isHealthy ? "AI service is running" : "AI service is not available"
-    );
+  public Mono<ResponseEntity<ApiResponse<Map<String, Object>>>> healthCheck() {
+    return aiPermissionService.healthCheckAsync().map(isHealthy -> {
+      Map<String, Object> status = Map.of(
+          "ai_service", isHealthy ? "UP" : "DOWN",
+          "message", isHealthy ? "AI service is running" : "AI service is not available",
+          "circuit_breaker", aiPermissionService.circuitState()
+      );
+
+      if (isHealthy) {
+        return ResponseEntity.ok(ApiResponse.success(status));
+      }
+      return ResponseEntity.ok(ApiResponse.success("AI service is not available", status));
+    });
+  }
 
-    if (isHealthy) {
-      return ResponseEntity.ok(ApiResponse.success(status));
-    }
-    return ResponseEntity.ok(ApiResponse.success("AI service is not available", status));
+  /**
+   * Lỗi AI service vẫn trả HTTP 200 với ApiResponse.error như trước.
+   */
+  private static <T> Mono<ResponseEntity<ApiResponse<T>>> respond(Mono<T> result) {
+    return result
+        .map(body -> ResponseEntity.ok(ApiResponse.success(body)))
+        .onErrorResume(AIServiceException.class,
+            e -> Mono.just(ResponseEntity.ok(ApiResponse.<T>error(e.getMessage()))));
   }
 }
 
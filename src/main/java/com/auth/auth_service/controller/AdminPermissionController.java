@@ -1,20 +1,25 @@
 package com.auth.auth_service.controller;
 
 import com.auth.auth_service.dto.ApiResponse;
+import com.auth.auth_service.dto.view.PendingRequestView;
 import com.auth.auth_service.entity.PendingPermissionRequest;
 import com.auth.auth_service.entity.User;
 import com.auth.auth_service.repository.PendingPermissionRequestRepository;
 import com.auth.auth_service.repository.UserRepository;
 import com.auth.auth_service.security.UserPrincipal;
+import com.auth.auth_service.service.PermissionCatalog;
+import com.auth.auth_service.service.PermissionReviewService;
+import com.auth.auth_service.service.ReferenceDataCache;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
 
-import java.time.LocalDateTime;
+import java.math.BigDecimal;
 import java.util.*;
 
 /**
@@ -30,6 +35,9 @@ public class AdminPermissionController {
     
     private final PendingPermissionRequestRepository pendingRepo;
     private final UserRepository userRepository;
+    private final PermissionReviewService reviewService;
+    private final PermissionCatalog permissionCatalog;
+    private final ReferenceDataCache referenceDataCache;
     
     /**
      * Lấy tất cả pending requests
@@ -37,7 +45,7 @@ public class AdminPermissionController {
      */
     @GetMapping("/pending")
     public ResponseEntity<ApiResponse<List<Map<String, Object>>>> getPendingRequests() {
-        List<PendingPermissionRequest> pendingList = pendingRepo.findAllPending();
+        List<PendingRequestView> pendingList = pendingRepo.findAllPendingViews();
         
         List<Map<String, Object>> result = pendingList.stream()
             .map(this::mapToDto)
@@ -52,7 +60,7 @@ public class AdminPermissionController {
      */
     @GetMapping("/pending/user/{userId}")
     public ResponseEntity<ApiResponse<List<Map<String, Object>>>> getPendingByUser(@PathVariable Long userId) {
-        List<PendingPermissionRequest> pendingList = pendingRepo.findByUserIdAndStatus(userId, "PENDING");
+        List<PendingRequestView> pendingList = pendingRepo.findViewsByUserIdAndStatus(userId, "PENDING");
         
         List<Map<String, Object>> result = pendingList.stream()
             .map(this::mapToDto)
@@ -67,7 +75,7 @@ public class AdminPermissionController {
      */
     @GetMapping("/pending/type/{type}")
     public ResponseEntity<ApiResponse<List<Map<String, Object>>>> getPendingByType(@PathVariable String type) {
-        List<PendingPermissionRequest> pendingList = pendingRepo.findByStatusAndRequestType("PENDING", type);
+        List<PendingRequestView> pendingList = pendingRepo.findViewsByStatusAndRequestType("PENDING", type);
         
         List<Map<String, Object>> result = pendingList.stream()
             .map(this::mapToDto)
@@ -101,6 +109,7 @@ public class AdminPermissionController {
      * - REMOVE: xóa khỏi user_additional_permissions
      * 
      * POST /api/admin/permissions/approve/{requestId}
+     * Body (optional): { "notes": "...", "version": 3 } - version lấy từ queue, sai version trả 409
      */
     @PostMapping("/approve/{requestId}")
     @Transactional
@@ -112,51 +121,27 @@ public class AdminPermissionController {
         PendingPermissionRequest request = pendingRepo.findById(requestId)
             .orElseThrow(() -> new RuntimeException("Request not found: " + requestId));
         
-        if (!"PENDING".equals(request.getStatus())) {
-            return ResponseEntity.badRequest()
-                .body(ApiResponse.error("Request already processed: " + request.getStatus()));
-        }
-        
-        // Lấy admin user
-        User adminUser = userRepository.findByUsername(admin.getUsername())
-            .orElseThrow(() -> new RuntimeException("Admin user not found"));
-        
-        User targetUser = request.getUser();
-        String changeType = request.getChangeType();
-        String action;
-        
-        if ("REMOVE".equals(changeType)) {
-            // Thu hồi quyền - xóa khỏi additional permissions
-            targetUser.getAdditionalPermissions().remove(request.getPermission());
-            action = "revoked from";
-        } else {
-            // Thêm quyền - mặc định ADD
-            targetUser.getAdditionalPermissions().add(request.getPermission());
-            action = "added to";
+        ResponseEntity<ApiResponse<String>> rejected = complete(request, body, admin, true);
+        if (rejected != null) {
+            return rejected;
         }
-        userRepository.save(targetUser);
-        
-        // Cập nhật trạng thái request
-        request.setStatus("APPROVED");
-        request.setReviewedBy(adminUser);
-        request.setReviewedAt(LocalDateTime.now());
-        request.setReviewNotes(body != null ? body.get("notes") : null);
-        pendingRepo.save(request);
         
+        String action = "REMOVE".equals(request.getChangeType()) ? "revoked from" : "added to";
         log.info("Permission {} {} user {} by admin {} (changeType: {})",
-            request.getPermission().getPermissionKey(),
+            permissionKey(request),
             action,
-            targetUser.getUsername(),
+            request.getUser().getUsername(),
             admin.getUsername(),
-            changeType);
+            request.getChangeType());
         
         return ResponseEntity.ok(ApiResponse.success(
-            "Permission " + action + " user: " + request.getPermission().getPermissionKey()));
+            "Permission " + action + " user: " + permissionKey(request)));
     }
     
     /**
      * Từ chối yêu cầu quyền
      * POST /api/admin/permissions/reject/{requestId}
+     * Body (optional): { "notes": "...", "version": 3 }
      */
     @PostMapping("/reject/{requestId}")
     @Transactional
@@ -168,29 +153,119 @@ public class AdminPermissionController {
         PendingPermissionRequest request = pendingRepo.findById(requestId)
             .orElseThrow(() -> new RuntimeException("Request not found: " + requestId));
         
-        if (!"PENDING".equals(request.getStatus())) {
-            return ResponseEntity.badRequest()
-                .body(ApiResponse.error("Request already processed: " + request.getStatus()));
+        ResponseEntity<ApiResponse<String>> rejected = complete(request, body, admin, false);
+        if (rejected != null) {
+            return rejected;
         }
         
-        // Lấy admin user
-        User adminUser = userRepository.findByUsername(admin.getUsername())
-            .orElseThrow(() -> new RuntimeException("Admin user not found"));
-        
-        // Cập nhật trạng thái request
-        request.setStatus("REJECTED");
-        request.setReviewedBy(adminUser);
-        request.setReviewedAt(LocalDateTime.now());
-        request.setReviewNotes(body != null ? body.get("notes") : null);
-        pendingRepo.save(request);
-        
         log.info("Permission {} rejected for user {} by admin {}",
-            request.getPermission().getPermissionKey(),
+            permissionKey(request),
             request.getUser().getUsername(),
             admin.getUsername());
         
         return ResponseEntity.ok(ApiResponse.success(
-            "Permission rejected: " + request.getPermission().getPermissionKey()));
+            "Permission rejected: " + permissionKey(request)));
+    }
+    
+    /**
+     * Permission key từ catalog, không load entity Permission (proxy LAZY)
+     */
+    private String permissionKey(PendingPermissionRequest request) {
+        Long permissionId = request.getPermission().getId();
+        return permissionCatalog.byId(permissionId)
+            .map(PermissionCatalog.Entry::permissionKey)
+            .orElse("permission#" + permissionId);
+    }
+    
+    /**
+     * Duyệt / từ chối có điều kiện (còn PENDING, không bị reviewer khác giữ, đúng version) bằng một câu UPDATE,
+     * nên hai admin duyệt cùng lúc chỉ một người thành công.
+     * 
+     * @return null nếu thành công, ngược lại là response lỗi
+     */
+    private ResponseEntity<ApiResponse<String>> complete(
+            PendingPermissionRequest request, Map<String, String> body, UserPrincipal admin, boolean approve) {
+        
+        String notes = body != null ? body.get("notes") : null;
+        Long version;
+        try {
+            version = body != null && body.get("version") != null ? Long.valueOf(body.get("version")) : null;
+        } catch (NumberFormatException e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error("Invalid version: " + body.get("version")));
+        }
+        
+        return switch (reviewService.complete(request.getId(), version, approve, admin.getId(), notes)) {
+            case DONE -> null;
+            case ALREADY_PROCESSED -> ResponseEntity.badRequest()
+                .body(ApiResponse.error("Request already processed"));
+            case VERSION_CONFLICT -> ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(ApiResponse.error("Request was modified or claimed by another reviewer, reload it"));
+            case CLAIMED -> ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(ApiResponse.error("Request is claimed by another reviewer"));
+            case DUPLICATE -> ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(ApiResponse.error("Request duplicates an already reviewed request"));
+        };
+    }
+    
+    /**
+     * Work queue: nhận (lease) các request tiếp theo để duyệt.
+     * Nhiều reviewer gọi cùng lúc không nhận trùng request; gọi lại thì gia hạn lease.
+     * 
+     * POST /api/admin/permissions/queue/claim?limit=20&requestType=NEW_USER&branch=CN_HN&minConfidence=0.8
+     */
+    @PostMapping("/queue/claim")
+    public ResponseEntity<ApiResponse<List<Map<String, Object>>>> claimQueue(
+            @RequestParam(defaultValue = "20") int limit,
+            @RequestParam(required = false) String requestType,
+            @RequestParam(required = false) String changeType,
+            @RequestParam(required = false) String branch,
+            @RequestParam(required = false) BigDecimal minConfidence,
+            @AuthenticationPrincipal UserPrincipal admin) {
+        
+        List<Map<String, Object>> claimed = reviewService.claimNext(admin.getId(), limit,
+            new PermissionReviewService.QueueFilter(requestType, changeType, branch, minConfidence));
+        
+        return ResponseEntity.ok(ApiResponse.success("Claimed " + claimed.size() + " requests", claimed));
+    }
+    
+    /**
+     * Hoàn thành một request đã nhận từ queue
+     * POST /api/admin/permissions/queue/{requestId}/complete
+     * Body: { "decision": "APPROVE" | "REJECT", "version": 3, "notes": "..." }
+     */
+    @PostMapping("/queue/{requestId}/complete")
+    @Transactional
+    public ResponseEntity<ApiResponse<String>> completeQueued(
+            @PathVariable Long requestId,
+            @RequestBody Map<String, String> body,
+            @AuthenticationPrincipal UserPrincipal admin) {
+        
+        String decision = body.get("decision");
+        if (body.get("version") == null || !("APPROVE".equals(decision) || "REJECT".equals(decision))) {
+            return ResponseEntity.badRequest()
+                .body(ApiResponse.error("decision (APPROVE | REJECT) and version are required"));
+        }
+        return "APPROVE".equals(decision)
+            ? approveRequest(requestId, body, admin)
+            : rejectRequest(requestId, body, admin);
+    }
+    
+    /**
+     * Trả lại các request đang giữ (tất cả, hoặc chỉ requestIds)
+     * POST /api/admin/permissions/queue/release
+     * Body (optional): { "requestIds": [1, 2, 3] }
+     */
+    @PostMapping("/queue/release")
+    @SuppressWarnings("unchecked")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> releaseQueue(
+            @RequestBody(required = false) Map<String, Object> body,
+            @AuthenticationPrincipal UserPrincipal admin) {
+        
+        List<Number> requestIds = body != null ? (List<Number>) body.get("requestIds") : null;
+        int released = reviewService.release(admin.getId(),
+            requestIds != null ? requestIds.stream().map(Number::longValue).toList() : null);
+        
+        return ResponseEntity.ok(ApiResponse.success(Map.of("released", released)));
     }
     
     /**
@@ -199,7 +274,6 @@ public class AdminPermissionController {
      * Body: { "requestIds": [1, 2, 3], "notes": "Bulk approval" }
      */
     @PostMapping("/approve-bulk")
-    @Transactional
     @SuppressWarnings("unchecked")
     public ResponseEntity<ApiResponse<Map<String, Object>>> approveBulk(
             @RequestBody Map<String, Object> body,
@@ -213,44 +287,11 @@ public class AdminPermissionController {
                 .body(ApiResponse.error("requestIds is required"));
         }
         
-        User adminUser = userRepository.findByUsername(admin.getUsername())
-            .orElseThrow(() -> new RuntimeException("Admin user not found"));
-        
-        int approved = 0;
-        int failed = 0;
-        List<String> errors = new ArrayList<>();
-        
-        for (Number id : requestIds) {
-            try {
-                PendingPermissionRequest request = pendingRepo.findById(id.longValue())
-                    .orElseThrow(() -> new RuntimeException("Request not found: " + id));
-                
-                if (!"PENDING".equals(request.getStatus())) {
-                    failed++;
-                    errors.add("Request " + id + " already processed");
-                    continue;
-                }
-                
-                User targetUser = request.getUser();
-                if ("REMOVE".equals(request.getChangeType())) {
-                    targetUser.getAdditionalPermissions().remove(request.getPermission());
-                } else {
-                    targetUser.getAdditionalPermissions().add(request.getPermission());
-                }
-                userRepository.save(targetUser);
-                
-                request.setStatus("APPROVED");
-                request.setReviewedBy(adminUser);
-                request.setReviewedAt(LocalDateTime.now());
-                request.setReviewNotes(notes);
-                pendingRepo.save(request);
-                
-                approved++;
-            } catch (Exception e) {
-                failed++;
-                errors.add("Request " + id + ": " + e.getMessage());
-            }
-        }
+        PermissionReviewService.ReviewResult review = reviewService.approve(
+            requestIds.stream().map(Number::longValue).toList(), admin.getId(), notes);
+        int approved = review.processed();
+        int failed = review.errors().size();
+        List<String> errors = review.errors();
         
         Map<String, Object> result = new LinkedHashMap<>();
         result.put("approved", approved);
@@ -267,7 +308,6 @@ public class AdminPermissionController {
      * POST /api/admin/permissions/reject-bulk
      */
     @PostMapping("/reject-bulk")
-    @Transactional
     @SuppressWarnings("unchecked")
     public ResponseEntity<ApiResponse<Map<String, Object>>> rejectBulk(
             @RequestBody Map<String, Object> body,
@@ -281,33 +321,10 @@ public class AdminPermissionController {
                 .body(ApiResponse.error("requestIds is required"));
         }
         
-        User adminUser = userRepository.findByUsername(admin.getUsername())
-            .orElseThrow(() -> new RuntimeException("Admin user not found"));
-        
-        int rejected = 0;
-        int failed = 0;
-        
-        for (Number id : requestIds) {
-            try {
-                PendingPermissionRequest request = pendingRepo.findById(id.longValue())
-                    .orElseThrow(() -> new RuntimeException("Request not found: " + id));
-                
-                if (!"PENDING".equals(request.getStatus())) {
-                    failed++;
-                    continue;
-                }
-                
-                request.setStatus("REJECTED");
-                request.setReviewedBy(adminUser);
-                request.setReviewedAt(LocalDateTime.now());
-                request.setReviewNotes(notes);
-                pendingRepo.save(request);
-                
-                rejected++;
-            } catch (Exception e) {
-                failed++;
-            }
-        }
+        PermissionReviewService.ReviewResult review = reviewService.reject(
+            requestIds.stream().map(Number::longValue).toList(), admin.getId(), notes);
+        int rejected = review.processed();
+        int failed = review.errors().size();
         
         Map<String, Object> result = new LinkedHashMap<>();
         result.put("rejected", rejected);
@@ -323,41 +340,21 @@ public class AdminPermissionController {
      * POST /api/admin/permissions/approve-all-for-user/{userId}
      */
     @PostMapping("/approve-all-for-user/{userId}")
-    @Transactional
     public ResponseEntity<ApiResponse<Map<String, Object>>> approveAllForUser(
             @PathVariable Long userId,
             @RequestBody(required = false) Map<String, String> body,
             @AuthenticationPrincipal UserPrincipal admin) {
         
-        User adminUser = userRepository.findByUsername(admin.getUsername())
-            .orElseThrow(() -> new RuntimeException("Admin user not found"));
-        
-        List<PendingPermissionRequest> pendingList = pendingRepo.findByUserIdAndStatus(userId, "PENDING");
-        
-        if (pendingList.isEmpty()) {
-            return ResponseEntity.ok(ApiResponse.success("No pending requests for user", Map.of("approved", 0)));
-        }
-        
-        User targetUser = pendingList.get(0).getUser();
         String notes = body != null ? body.get("notes") : "Bulk approval for user";
+        PermissionReviewService.ReviewResult review = reviewService.approveAllForUser(userId, admin.getId(), notes);
+        int approved = review.processed();
         
-        int approved = 0;
-        for (PendingPermissionRequest request : pendingList) {
-            if ("REMOVE".equals(request.getChangeType())) {
-                targetUser.getAdditionalPermissions().remove(request.getPermission());
-            } else {
-                targetUser.getAdditionalPermissions().add(request.getPermission());
-            }
-            
-            request.setStatus("APPROVED");
-            request.setReviewedBy(adminUser);
-            request.setReviewedAt(LocalDateTime.now());
-            request.setReviewNotes(notes);
-            pendingRepo.save(request);
-            approved++;
+        if (approved == 0 && review.errors().isEmpty()) {
+            return ResponseEntity.ok(ApiResponse.success("No pending requests for user", Map.of("approved", 0)));
         }
         
-        userRepository.save(targetUser);
+        User targetUser = userRepository.findById(userId)
+            .orElseThrow(() -> new RuntimeException("User not found: " + userId));
         
         log.info("All pending permissions approved for user {} by admin {}: {} permissions",
             targetUser.getUsername(), admin.getUsername(), approved);
@@ -366,31 +363,58 @@ public class AdminPermissionController {
         result.put("userId", userId);
         result.put("username", targetUser.getUsername());
         result.put("approved", approved);
+        if (!review.errors().isEmpty()) {
+            result.put("errors", review.errors());
+        }
         
         return ResponseEntity.ok(ApiResponse.success("All permissions approved for user", result));
     }
     
+    /**
+     * Hit / miss theo region của cache dữ liệu tham chiếu (roles, permissions, role_permissions)
+     * GET /api/admin/permissions/reference-cache
+     */
+    @GetMapping("/reference-cache")
+    @PreAuthorize("hasAnyRole('SecurityAdmin', 'ITAdmin')")
+    public ResponseEntity<ApiResponse<Map<String, Map<String, Object>>>> getReferenceCacheStats() {
+        return ResponseEntity.ok(ApiResponse.success(referenceDataCache.statistics()));
+    }
+    
+    /**
+     * Xóa cache dữ liệu tham chiếu sau khi sửa roles / permissions / role_permissions ngoài ứng dụng
+     * POST /api/admin/permissions/reference-cache/evict
+     */
+    @PostMapping("/reference-cache/evict")
+    @PreAuthorize("hasAnyRole('SecurityAdmin', 'ITAdmin')")
+    public ResponseEntity<ApiResponse<Map<String, Map<String, Object>>>> evictReferenceCache(
+            @AuthenticationPrincipal UserPrincipal admin) {
+        referenceDataCache.evict();
+        log.info("Reference data cache evicted by admin {}", admin.getUsername());
+        return ResponseEntity.ok(ApiResponse.success("Reference data cache evicted", referenceDataCache.statistics()));
+    }
+    
     /**
      * Map PendingPermissionRequest to DTO
      */
-    private Map<String, Object> mapToDto(PendingPermissionRequest request) {
+    private Map<String, Object> mapToDto(PendingRequestView request) {
         Map<String, Object> dto = new LinkedHashMap<>();
-        dto.put("id", request.getId());
-        dto.put("userId", request.getUser().getUserId());
-        dto.put("userDbId", request.getUser().getId());
-        dto.put("username", request.getUser().getUsername());
-        dto.put("userRole", request.getUser().getRole().getName());
-        dto.put("department", request.getUser().getDepartment());
-        dto.put("branch", request.getUser().getBranch());
-        dto.put("permissionId", request.getPermission().getId());
-        dto.put("permissionKey", request.getPermission().getPermissionKey());
-        dto.put("resourceType", request.getPermission().getResourceType());
-        dto.put("action", request.getPermission().getAction());
-        dto.put("confidence", request.getConfidence());
-        dto.put("requestType", request.getRequestType());
-        dto.put("changeType", request.getChangeType());
-        dto.put("status", request.getStatus());
-        dto.put("requestedAt", request.getRequestedAt());
+        dto.put("id", request.id());
+        dto.put("userId", request.userId());
+        dto.put("userDbId", request.userDbId());
+        dto.put("username", request.username());
+        dto.put("userRole", request.userRole());
+        dto.put("department", request.department());
+        dto.put("branch", request.branch());
+        dto.put("permissionId", request.permissionId());
+        dto.put("permissionKey", request.permissionKey());
+        dto.put("resourceType", request.resourceType());
+        dto.put("action", request.action());
+        dto.put("confidence", request.confidence());
+        dto.put("requestType", request.requestType());
+        dto.put("changeType", request.changeType());
+        dto.put("status", request.status());
+        dto.put("requestedAt", request.requestedAt());
+        dto.put("version", request.version());
         return dto;
     }
 }
@@ -1,73 +1,173 @@
 package com.auth.auth_service.controller;
 
+import com.auth.auth_service.audit.AuditArchiveService;
+import com.auth.auth_service.audit.AuditLiveStream;
+import com.auth.auth_service.audit.AuditReadAggregator;
 import com.auth.auth_service.dto.ApiResponse;
-import com.auth.auth_service.entity.AuditLog;
-import com.auth.auth_service.service.AuditService;
+import com.auth.auth_service.dto.AuditLogFilter;
+import com.auth.auth_service.dto.AuditLogPage;
+import com.auth.auth_service.service.AuditExportService;
+import com.auth.auth_service.service.AuditQueryService;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Sort;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.WebAsyncTask;
+import reactor.core.publisher.Flux;
 
+import java.io.IOException;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
+/**
+ * Audit log API. Tất cả endpoint phân trang bằng cursor: truyền {@code nextCursor}
+ * của response trước vào tham số {@code cursor}.
+ */
 @RestController
 @RequestMapping("/api/audit")
 @RequiredArgsConstructor
 public class AuditController {
     
-    private final AuditService auditService;
+    private final AuditQueryService auditQueryService;
+    private final AuditExportService auditExportService;
+    private final AuditArchiveService auditArchiveService;
+    private final AuditLiveStream auditLiveStream;
+    private final AuditReadAggregator auditReadAggregator;
     
+    /**
+     * Tìm kiếm với filter tùy chọn: userId, resourceType, resourceId, action, allowed,
+     * minRiskScore, maxRiskScore, ipAddress, from, to.
+     */
     @GetMapping
     @PreAuthorize("hasAnyRole('SecurityAdmin', 'ITAdmin')")
-    public ResponseEntity<ApiResponse<Page<AuditLog>>> getAuditLogs(
-            @RequestParam(defaultValue = "0") int page,
+    public ResponseEntity<ApiResponse<AuditLogPage>> getAuditLogs(
+            AuditLogFilter filter,
+            @RequestParam(required = false) String cursor,
             @RequestParam(defaultValue = "20") int size) {
-        Page<AuditLog> logs = auditService.getAuditLogs(
-                PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "timestamp")));
-        return ResponseEntity.ok(ApiResponse.success(logs));
+        return ResponseEntity.ok(ApiResponse.success(auditQueryService.search(filter, cursor, size)));
     }
     
     @GetMapping("/user/{userId}")
     @PreAuthorize("hasAnyRole('SecurityAdmin', 'ITAdmin')")
-    public ResponseEntity<ApiResponse<Page<AuditLog>>> getAuditLogsByUser(
+    public ResponseEntity<ApiResponse<AuditLogPage>> getAuditLogsByUser(
             @PathVariable String userId,
-            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(required = false) String cursor,
             @RequestParam(defaultValue = "20") int size) {
-        Page<AuditLog> logs = auditService.getAuditLogsByUser(userId, 
-                PageRequest.of(page, size));
-        return ResponseEntity.ok(ApiResponse.success(logs));
+        AuditLogFilter filter = AuditLogFilter.builder().userId(userId).build();
+        return ResponseEntity.ok(ApiResponse.success(auditQueryService.search(filter, cursor, size)));
     }
     
     @GetMapping("/range")
     @PreAuthorize("hasAnyRole('SecurityAdmin', 'ITAdmin')")
-    public ResponseEntity<ApiResponse<Page<AuditLog>>> getAuditLogsByTimeRange(
+    public ResponseEntity<ApiResponse<AuditLogPage>> getAuditLogsByTimeRange(
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end,
-            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(required = false) String cursor,
             @RequestParam(defaultValue = "20") int size) {
-        Page<AuditLog> logs = auditService.getAuditLogsByTimeRange(start, end, 
-                PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "timestamp")));
-        return ResponseEntity.ok(ApiResponse.success(logs));
+        // start và end đều bao gồm, như trước khi chuyển sang keyset
+        return ResponseEntity.ok(ApiResponse.success(auditQueryService.searchBetween(start, end, cursor, size)));
     }
     
     @GetMapping("/high-risk")
     @PreAuthorize("hasAnyRole('SecurityAdmin', 'ITAdmin')")
-    public ResponseEntity<ApiResponse<List<AuditLog>>> getHighRiskActions(
-            @RequestParam(defaultValue = "5") int threshold) {
-        List<AuditLog> logs = auditService.getHighRiskActions(threshold);
-        return ResponseEntity.ok(ApiResponse.success(logs));
+    public ResponseEntity<ApiResponse<AuditLogPage>> getHighRiskActions(
+            @RequestParam(defaultValue = "5") int threshold,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int size) {
+        AuditLogFilter filter = AuditLogFilter.builder().minRiskScore(threshold + 1).build();
+        return ResponseEntity.ok(ApiResponse.success(auditQueryService.search(filter, cursor, size)));
     }
     
     @GetMapping("/denied")
     @PreAuthorize("hasAnyRole('SecurityAdmin', 'ITAdmin')")
-    public ResponseEntity<ApiResponse<List<AuditLog>>> getDeniedAccesses() {
-        List<AuditLog> logs = auditService.getDeniedAccesses();
-        return ResponseEntity.ok(ApiResponse.success(logs));
+    public ResponseEntity<ApiResponse<AuditLogPage>> getDeniedAccesses(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int size) {
+        AuditLogFilter filter = AuditLogFilter.builder().allowed(false).build();
+        return ResponseEntity.ok(ApiResponse.success(auditQueryService.search(filter, cursor, size)));
+    }
+    
+    /**
+     * Export toàn bộ audit log khớp filter (cùng tham số với {@link #getAuditLogs}) dạng stream.
+     * format: csv | ndjson; gzip mặc định bật. Chạy async với timeout riêng
+     * ({@code audit.export.timeout-ms}), không dùng timeout async chung.
+     */
+    @GetMapping("/export")
+    @PreAuthorize("hasAnyRole('SecurityAdmin', 'ITAdmin')")
+    public WebAsyncTask<Void> exportAuditLogs(
+            AuditLogFilter filter,
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(defaultValue = "true") boolean gzip,
+            HttpServletResponse response) {
+        AuditExportService.Format exportFormat = AuditExportService.Format.parse(format);
+        String fileName = "audit-logs-" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"))
+                + "." + exportFormat.getExtension() + (gzip ? ".gz" : "");
+        
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"");
+        response.setContentType(gzip ? "application/gzip" : exportFormat.getContentType() + ";charset=UTF-8");
+        return new WebAsyncTask<>(auditExportService.getTimeoutMillis(), () -> {
+            auditExportService.export(filter, exportFormat, gzip, response.getOutputStream());
+            return null;
+        });
+    }
+    
+    /**
+     * Tìm trong archive dạng cột (audit log cũ hơn thời gian lưu trữ trong Postgres).
+     * Cùng filter với {@link #getAuditLogs}; trả về tối đa {@code limit} dòng mới nhất.
+     */
+    @GetMapping("/archive")
+    @PreAuthorize("hasAnyRole('SecurityAdmin', 'ITAdmin')")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> searchArchive(
+            AuditLogFilter filter,
+            @RequestParam(defaultValue = "100") int limit) throws IOException {
+        AuditArchiveService.ArchiveSearchResult result =
+                auditArchiveService.search(filter, Math.max(1, Math.min(limit, 1000)));
+        
+        Map<String, Object> data = new HashMap<>();
+        data.put("items", result.items());
+        data.put("totalMatched", result.totalMatched());
+        data.put("filesScanned", result.filesScanned());
+        data.put("blocksScanned", result.blocksScanned());
+        data.put("blocksSkipped", result.blocksSkipped());
+        return ResponseEntity.ok(ApiResponse.success(data));
+    }
+    
+    /**
+     * Các lần đọc rủi ro thấp lặp lại đã được gộp theo cửa sổ (không có dòng riêng trong audit_logs).
+     */
+    @GetMapping("/read-aggregates")
+    @PreAuthorize("hasAnyRole('SecurityAdmin', 'ITAdmin')")
+    public ResponseEntity<ApiResponse<List<AuditReadAggregator.ReadAggregate>>> getReadAggregates(
+            AuditLogFilter filter,
+            @RequestParam(defaultValue = "100") int limit) {
+        return ResponseEntity.ok(ApiResponse.success(
+                auditReadAggregator.search(filter, Math.max(1, Math.min(limit, 1000)))));
+    }
+    
+    @PostMapping("/archive/run")
+    @PreAuthorize("hasRole('SecurityAdmin')")
+    public ResponseEntity<ApiResponse<List<String>>> runArchival() {
+        List<String> files = auditArchiveService.archiveDetachedPartitions();
+        return ResponseEntity.ok(ApiResponse.success("Archived " + files.size() + " partition(s)", files));
+    }
+    
+    /**
+     * Live stream (Server-Sent Events) audit event và authorization decision, thay cho polling.
+     * Filter giống {@link #getAuditLogs}; gửi lại header Last-Event-ID khi reconnect để resume.
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @PreAuthorize("hasAnyRole('SecurityAdmin', 'ITAdmin')")
+    public Flux<ServerSentEvent<Object>> streamAuditEvents(
+            AuditLogFilter filter,
+            @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        return auditLiveStream.subscribe(filter, lastEventId);
     }
 }
-
@@ -0,0 +1,86 @@
+package com.auth.auth_service.controller;
+
+import com.auth.auth_service.aop.Audit;
+import com.auth.auth_service.dto.ApiResponse;
+import com.auth.auth_service.dto.BulkJobStatus;
+import com.auth.auth_service.dto.BulkJobTransferRequest;
+import com.auth.auth_service.dto.BulkOnboardingRequest;
+import com.auth.auth_service.security.UserPrincipal;
+import com.auth.auth_service.service.BulkJobService;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * Bulk job transfer / onboarding (tổ chức lại phòng ban, tuyển hàng loạt).
+ * Request chỉ tạo job và trả 202; tiến độ xem qua GET /api/admin/bulk/jobs/{jobId}.
+ */
+@RestController
+@RequestMapping("/api/admin/bulk")
+@RequiredArgsConstructor
+@Slf4j
+public class BulkOperationController {
+
+    private final BulkJobService bulkJobService;
+
+    /**
+     * Chuyển công tác hàng loạt, mỗi item giống body của PUT /api/users/{userId}/transfer
+     * kèm userId.
+     *
+     * POST /api/admin/bulk/job-transfers
+     * Body: { "transfers": [ { "userId": "U0001", "newDepartment": "Finance", "newRole": "Accountant" }, ... ] }
+     */
+    @Audit(resourceType = "User", action = "bulkTransfer", useFirstArgAsResourceId = false)
+    @PostMapping("/job-transfers")
+    @PreAuthorize("hasAnyRole('HR', 'Manager', 'SecurityAdmin')")
+    public ResponseEntity<ApiResponse<BulkJobStatus>> submitJobTransfers(
+            @Valid @RequestBody BulkJobTransferRequest request,
+            @AuthenticationPrincipal UserPrincipal admin) {
+        try {
+            BulkJobStatus job = bulkJobService.submitJobTransfers(request.getTransfers(), admin.getUsername());
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(ApiResponse.success("Bulk job transfer queued", job));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+
+    /**
+     * Tạo user hàng loạt, mỗi item giống body của POST /api/auth/register.
+     *
+     * POST /api/admin/bulk/onboarding
+     * Body: { "users": [ { "username": "...", "password": "...", "department": "...", ... }, ... ] }
+     */
+    @Audit(resourceType = "User", action = "bulkOnboarding", useFirstArgAsResourceId = false)
+    @PostMapping("/onboarding")
+    @PreAuthorize("hasAnyRole('HR', 'SecurityAdmin')")
+    public ResponseEntity<ApiResponse<BulkJobStatus>> submitOnboarding(
+            @Valid @RequestBody BulkOnboardingRequest request,
+            @AuthenticationPrincipal UserPrincipal admin) {
+        try {
+            BulkJobStatus job = bulkJobService.submitOnboarding(request.getUsers(), admin.getUsername());
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(ApiResponse.success("Bulk onboarding queued", job));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+
+    /**
+     * Tiến độ của bulk job: số item đã xử lý / lỗi, trạng thái các gợi ý AI trong outbox và
+     * (tối đa 100) item lỗi.
+     *
+     * GET /api/admin/bulk/jobs/{jobId}
+     */
+    @GetMapping("/jobs/{jobId}")
+    @PreAuthorize("hasAnyRole('HR', 'Manager', 'SecurityAdmin')")
+    public ResponseEntity<ApiResponse<BulkJobStatus>> getJob(@PathVariable Long jobId) {
+        return bulkJobService.getStatus(jobId)
+                .map(job -> ResponseEntity.ok(ApiResponse.success(job)))
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(ApiResponse.error("Bulk job not found: " + jobId)));
+    }
+}
@@ -4,10 +4,11 @@ import com.auth.auth_service.aop.Audit;
 import com.auth.auth_service.dto.ApiResponse;
 import com.auth.auth_service.dto.JobTransferRequest;
 import com.auth.auth_service.dto.UserDto;
-import com.auth.auth_service.entity.User;
+import com.auth.auth_service.dto.UserListingFilter;
+import com.auth.auth_service.dto.view.UserView;
 import com.auth.auth_service.repository.PendingPermissionRequestRepository;
-import com.auth.auth_service.repository.UserRepository;
 import com.auth.auth_service.service.JobTransferService;
+import com.auth.auth_service.service.UserListingService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -24,7 +25,7 @@ import java.util.stream.Collectors;
 @Slf4j
 public class UserController {
     
-    private final UserRepository userRepository;
+    private final UserListingService userListingService;
     private final JobTransferService jobTransferService;
     private final PendingPermissionRequestRepository pendingRepo;
     
@@ -32,17 +33,15 @@ public class UserController {
     @GetMapping
     @PreAuthorize("hasAnyRole('HR', 'Manager', 'SecurityAdmin')")
     public ResponseEntity<ApiResponse<List<UserDto>>> getAllUsers() {
-        List<UserDto> users = userRepository.findAll().stream()
-                .map(this::mapToDto)
-                .collect(Collectors.toList());
-        return ResponseEntity.ok(ApiResponse.success(users));
+        return ResponseEntity.ok(ApiResponse.success(listUsers(null, null, null)));
     }
     
     /**
-     * API chi tiết cho Admin - Lấy tất cả users với thông tin đầy đủ
+     * API chi tiết cho Admin - Lấy users với thông tin đầy đủ, phân trang bằng cursor
      * Bao gồm: pending permissions count, additional permissions count, statistics
+     * (statistics tính trên toàn bộ user khớp filter, không chỉ trang hiện tại)
      * 
-     * GET /api/users/admin/all
+     * GET /api/users/admin/all?role=&department=&branch=&enabled=&cursor=&size=
      */
     @Audit(resourceType = "User", action = "adminList", useFirstArgAsResourceId = false)
     @GetMapping("/admin/all")
@@ -51,61 +50,40 @@ public class UserController {
             @RequestParam(required = false) String role,
             @RequestParam(required = false) String department,
             @RequestParam(required = false) String branch,
-            @RequestParam(required = false) Boolean enabled) {
+            @RequestParam(required = false) Boolean enabled,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "" + UserListingService.DEFAULT_PAGE_SIZE) int size) {
         
-        List<User> users = userRepository.findAll();
+        UserListingFilter filter = UserListingFilter.builder()
+            .role(blankToNull(role))
+            .department(blankToNull(department))
+            .branch(blankToNull(branch))
+            .enabled(enabled)
+            .build();
         
-        // Apply filters
-        if (role != null && !role.isEmpty()) {
-            users = users.stream()
-                .filter(u -> u.getRole().getName().equalsIgnoreCase(role))
-                .collect(Collectors.toList());
-        }
-        if (department != null && !department.isEmpty()) {
-            users = users.stream()
-                .filter(u -> u.getDepartment().equalsIgnoreCase(department))
-                .collect(Collectors.toList());
-        }
-        if (branch != null && !branch.isEmpty()) {
-            users = users.stream()
-                .filter(u -> u.getBranch().equalsIgnoreCase(branch))
-                .collect(Collectors.toList());
-        }
-        if (enabled != null) {
-            users = users.stream()
-                .filter(u -> u.isEnabled() == enabled)
-                .collect(Collectors.toList());
-        }
+        UserListingService.UserListingPage page = userListingService.page(filter, cursor, size);
         
         // Map to detailed DTO
-        List<Map<String, Object>> userList = users.stream()
+        List<Map<String, Object>> userList = page.items().stream()
             .map(this::mapToAdminDto)
             .collect(Collectors.toList());
         
         // Statistics
+        UserListingService.UserListingStats statistics = userListingService.statistics(filter);
         Map<String, Object> stats = new LinkedHashMap<>();
-        stats.put("totalUsers", userList.size());
-        stats.put("activeUsers", users.stream().filter(User::isEnabled).count());
-        stats.put("inactiveUsers", users.stream().filter(u -> !u.isEnabled()).count());
-        stats.put("totalPendingPermissions", pendingRepo.countByStatus("PENDING"));
-        
-        // Group by role
-        Map<String, Long> byRole = users.stream()
-            .collect(Collectors.groupingBy(u -> u.getRole().getName(), Collectors.counting()));
-        stats.put("byRole", byRole);
-        
-        // Group by department
-        Map<String, Long> byDepartment = users.stream()
-            .collect(Collectors.groupingBy(User::getDepartment, Collectors.counting()));
-        stats.put("byDepartment", byDepartment);
-        
-        // Group by branch
-        Map<String, Long> byBranch = users.stream()
-            .collect(Collectors.groupingBy(User::getBranch, Collectors.counting()));
-        stats.put("byBranch", byBranch);
+        stats.put("totalUsers", statistics.totalUsers());
+        stats.put("activeUsers", statistics.activeUsers());
+        stats.put("inactiveUsers", statistics.inactiveUsers());
+        stats.put("totalPendingPermissions", statistics.totalPendingPermissions());
+        stats.put("byRole", statistics.byRole());
+        stats.put("byDepartment", statistics.byDepartment());
+        stats.put("byBranch", statistics.byBranch());
         
         Map<String, Object> result = new LinkedHashMap<>();
         result.put("users", userList);
+        result.put("size", page.size());
+        result.put("hasMore", page.hasMore());
+        result.put("nextCursor", page.nextCursor());
         result.put("statistics", stats);
         
         return ResponseEntity.ok(ApiResponse.success("All users for admin", result));
@@ -119,24 +97,24 @@ public class UserController {
     @GetMapping("/admin/{userId}")
     @PreAuthorize("hasAnyRole('HR', 'Manager', 'SecurityAdmin', 'ITAdmin')")
     public ResponseEntity<ApiResponse<Map<String, Object>>> getUserDetailForAdmin(@PathVariable String userId) {
-        User user = userRepository.findByUserId(userId)
+        UserListingService.UserListing user = userListingService.get(userId)
             .orElseThrow(() -> new RuntimeException("User not found: " + userId));
         
         Map<String, Object> detail = mapToAdminDto(user);
         
         // Thêm pending permissions chi tiết
-        List<Map<String, Object>> pendingList = pendingRepo.findByUserIdAndStatus(user.getId(), "PENDING")
+        List<Map<String, Object>> pendingList = pendingRepo.findViewsByUserIdAndStatus(user.user().id(), "PENDING")
             .stream()
             .map(p -> {
                 Map<String, Object> item = new LinkedHashMap<>();
-                item.put("id", p.getId());
-                item.put("permissionKey", p.getPermission().getPermissionKey());
-                item.put("resourceType", p.getPermission().getResourceType());
-                item.put("action", p.getPermission().getAction());
-                item.put("confidence", p.getConfidence());
-                item.put("changeType", p.getChangeType());
-                item.put("requestType", p.getRequestType());
-                item.put("requestedAt", p.getRequestedAt());
+                item.put("id", p.id());
+                item.put("permissionKey", p.permissionKey());
+                item.put("resourceType", p.resourceType());
+                item.put("action", p.action());
+                item.put("confidence", p.confidence());
+                item.put("changeType", p.changeType());
+                item.put("requestType", p.requestType());
+                item.put("requestedAt", p.requestedAt());
                 return item;
             })
             .collect(Collectors.toList());
@@ -149,40 +127,40 @@ public class UserController {
     /**
      * Map User to Admin DTO với thông tin đầy đủ
      */
-    private Map<String, Object> mapToAdminDto(User user) {
+    private Map<String, Object> mapToAdminDto(UserListingService.UserListing listing) {
+        UserView user = listing.user();
         Map<String, Object> dto = new LinkedHashMap<>();
-        dto.put("id", user.getId());
-        dto.put("userId", user.getUserId());
-        dto.put("username", user.getUsername());
-        dto.put("email", user.getEmail());
-        dto.put("role", user.getRole().getName());
-        dto.put("department", user.getDepartment());
-        dto.put("branch", user.getBranch());
-        dto.put("position", user.getPosition());
-        dto.put("hasLicense", user.isHasLicense());
-        dto.put("seniority", user.getSeniority());
-        dto.put("employmentType", user.getEmploymentType());
-        dto.put("enabled", user.isEnabled());
-        dto.put("accountNonLocked", user.isAccountNonLocked());
-        dto.put("assignedPatients", user.getAssignedPatients());
-        dto.put("assignedPatientsCount", user.getAssignedPatients() != null ? user.getAssignedPatients().size() : 0);
+        dto.put("id", user.id());
+        dto.put("userId", user.userId());
+        dto.put("username", user.username());
+        dto.put("email", user.email());
+        dto.put("role", user.role());
+        dto.put("department", user.department());
+        dto.put("branch", user.branch());
+        dto.put("position", user.position());
+        dto.put("hasLicense", user.hasLicense());
+        dto.put("seniority", user.seniority());
+        dto.put("employmentType", user.employmentType());
+        dto.put("enabled", user.enabled());
+        dto.put("accountNonLocked", user.accountNonLocked());
+        dto.put("assignedPatients", listing.assignedPatients());
+        dto.put("assignedPatientsCount", listing.assignedPatients().size());
         
         // Role permissions count
-        dto.put("rolePermissionsCount", user.getRole().getPermissions().size());
+        dto.put("rolePermissionsCount", listing.rolePermissionsCount());
         
         // Additional permissions count
-        dto.put("additionalPermissionsCount", user.getAdditionalPermissions().size());
+        dto.put("additionalPermissionsCount", listing.additionalPermissionsCount());
         
         // Pending permissions count
-        long pendingCount = pendingRepo.findByUserIdAndStatus(user.getId(), "PENDING").size();
-        dto.put("pendingPermissionsCount", pendingCount);
+        dto.put("pendingPermissionsCount", listing.pendingCount());
         
         // Total effective permissions
         dto.put("totalEffectivePermissions", 
-            user.getRole().getPermissions().size() + user.getAdditionalPermissions().size());
+            listing.rolePermissionsCount() + listing.additionalPermissionsCount());
         
         // Permissions map
-        dto.put("permissions", groupPermissionsByResource(user));
+        dto.put("permissions", listing.permissions());
         
         return dto;
     }
@@ -191,7 +169,7 @@ public class UserController {
     @GetMapping("/{userId}")
     @PreAuthorize("hasAnyRole('HR', 'Manager', 'SecurityAdmin')")
     public ResponseEntity<ApiResponse<UserDto>> getUserById(@PathVariable String userId) {
-        User user = userRepository.findByUserId(userId)
+        UserListingService.UserListing user = userListingService.get(userId)
                 .orElseThrow(() -> new RuntimeException("User not found: " + userId));
         return ResponseEntity.ok(ApiResponse.success(mapToDto(user)));
     }
@@ -200,30 +178,21 @@ public class UserController {
     @GetMapping("/department/{department}")
     @PreAuthorize("hasAnyRole('HR', 'Manager')")
     public ResponseEntity<ApiResponse<List<UserDto>>> getUsersByDepartment(@PathVariable String department) {
-        List<UserDto> users = userRepository.findByDepartment(department).stream()
-                .map(this::mapToDto)
-                .collect(Collectors.toList());
-        return ResponseEntity.ok(ApiResponse.success(users));
+        return ResponseEntity.ok(ApiResponse.success(listUsers(null, department, null)));
     }
     
     @Audit(resourceType = "User", action = "listByBranch")
     @GetMapping("/branch/{branch}")
     @PreAuthorize("hasAnyRole('HR', 'Manager')")
     public ResponseEntity<ApiResponse<List<UserDto>>> getUsersByBranch(@PathVariable String branch) {
-        List<UserDto> users = userRepository.findByBranch(branch).stream()
-                .map(this::mapToDto)
-                .collect(Collectors.toList());
-        return ResponseEntity.ok(ApiResponse.success(users));
+        return ResponseEntity.ok(ApiResponse.success(listUsers(null, null, branch)));
     }
     
     @Audit(resourceType = "User", action = "listByRole")
     @GetMapping("/role/{roleName}")
     @PreAuthorize("hasAnyRole('HR', 'Manager', 'SecurityAdmin')")
     public ResponseEntity<ApiResponse<List<UserDto>>> getUsersByRole(@PathVariable String roleName) {
-        List<UserDto> users = userRepository.findByRoleName(roleName).stream()
-                .map(this::mapToDto)
-                .collect(Collectors.toList());
-        return ResponseEntity.ok(ApiResponse.success(users));
+        return ResponseEntity.ok(ApiResponse.success(listUsers(roleName, null, null)));
     }
     
     /**
@@ -278,45 +247,42 @@ public class UserController {
         }
     }
     
-    private UserDto mapToDto(User user) {
+    /**
+     * Các endpoint /department, /branch, /role so khớp chính xác như trước; chỉ /admin/all không phân
+     * biệt hoa thường.
+     */
+    private List<UserDto> listUsers(String role, String department, String branch) {
+        UserListingFilter filter = UserListingFilter.builder()
+                .role(role)
+                .department(department)
+                .branch(branch)
+                .exactMatch(true)
+                .build();
+        return userListingService.list(filter).stream()
+                .map(this::mapToDto)
+                .collect(Collectors.toList());
+    }
+    
+    private UserDto mapToDto(UserListingService.UserListing listing) {
+        UserView user = listing.user();
         return UserDto.builder()
-                .userId(user.getUserId())
-                .username(user.getUsername())
-                .email(user.getEmail())
-                .role(user.getRole().getName())
-                .department(user.getDepartment())
-                .branch(user.getBranch())
-                .position(user.getPosition())
-                .hasLicense(user.isHasLicense())
-                .seniority(user.getSeniority())
-                .employmentType(user.getEmploymentType())
-                .enabled(user.isEnabled())
-                .assignedPatients(user.getAssignedPatients())
-                .permissions(groupPermissionsByResource(user))
+                .userId(user.userId())
+                .username(user.username())
+                .email(user.email())
+                .role(user.role())
+                .department(user.department())
+                .branch(user.branch())
+                .position(user.position())
+                .hasLicense(user.hasLicense())
+                .seniority(user.seniority())
+                .employmentType(user.employmentType())
+                .enabled(user.enabled())
+                .assignedPatients(listing.assignedPatients())
+                .permissions(listing.permissions())
                 .build();
     }
     
-    /**
-     * Group permissions by resource type
-     * Example output: {"AdmissionRecord": "read", "ClinicalNote": "create,read"}
-     */
-    private Map<String, String> groupPermissionsByResource(User user) {
-        Set<com.auth.auth_service.entity.Permission> allPermissions = new HashSet<>(user.getRole().getPermissions());
-        allPermissions.addAll(user.getAdditionalPermissions());
-        
-        Map<String, Set<String>> resourceActionsMap = new LinkedHashMap<>();
-        
-        for (com.auth.auth_service.entity.Permission permission : allPermissions) {
-            String resourceType = permission.getResourceType();
-            String action = permission.getAction();
-            resourceActionsMap.computeIfAbsent(resourceType, k -> new TreeSet<>()).add(action);
-        }
-        
-        Map<String, String> result = new LinkedHashMap<>();
-        resourceActionsMap.entrySet().stream()
-                .sorted(Map.Entry.comparingByKey())
-                .forEach(entry -> result.put(entry.getKey(), String.join(",", entry.getValue())));
-        
-        return result;
+    private static String blankToNull(String value) {
+        return value != null && !value.isEmpty() ? value : null;
     }
 }
@@ -7,6 +7,7 @@ import com.auth.auth_service.dto.AuthorizationResponse;
 import com.auth.auth_service.dto.mock.IncidentCaseDto;
 import com.auth.auth_service.security.UserPrincipal;
 import com.auth.auth_service.service.AuthorizationService;
+import com.auth.auth_service.service.IncidentService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
@@ -28,92 +29,7 @@ import java.util.*;
 public class IncidentController {
     
     private final AuthorizationService authorizationService;
-    
-    private static final Map<String, IncidentCaseDto> mockIncidents = new HashMap<>();
-    
-    static {
-        mockIncidents.put("INC001", IncidentCaseDto.builder()
-                .caseId("INC001")
-                .title("Unauthorized Access Attempt Detected")
-                .description("Multiple failed login attempts detected from IP 192.168.1.100 for user 'admin'. " +
-                        "Account temporarily locked after 5 failed attempts.")
-                .severity("Medium")
-                .category("Security")
-                .status("Resolved")
-                .reportedBy("SYSTEM")
-                .assignedTo("SECADMIN001")
-                .resolution("IP blocked, password reset required for affected account. " +
-                        "User notified via email.")
-                .affectedSystems(List.of("Authentication Service"))
-                .affectedUsers(List.of("admin"))
-                .incidentDate(LocalDateTime.now().minusDays(5))
-                .reportedAt(LocalDateTime.now().minusDays(5))
-                .resolvedAt(LocalDateTime.now().minusDays(4))
-                .createdAt(LocalDateTime.now().minusDays(5))
-                .updatedAt(LocalDateTime.now().minusDays(4))
-                .build());
-        
-        mockIncidents.put("INC002", IncidentCaseDto.builder()
-                .caseId("INC002")
-                .title("Data Export Without Approval")
-                .description("User DOC005 attempted to export medical records without proper approval. " +
-                        "Export was blocked by policy POL004.")
-                .severity("High")
-                .category("Compliance")
-                .status("InProgress")
-                .reportedBy("SYSTEM")
-                .assignedTo("SECADMIN001")
-                .resolution(null)
-                .affectedSystems(List.of("EMR System", "Export Service"))
-                .affectedUsers(List.of("DOC005"))
-                .incidentDate(LocalDateTime.now().minusDays(2))
-                .reportedAt(LocalDateTime.now().minusDays(2))
-                .resolvedAt(null)
-                .createdAt(LocalDateTime.now().minusDays(2))
-                .updatedAt(LocalDateTime.now().minusDays(1))
-                .build());
-        
-        mockIncidents.put("INC003", IncidentCaseDto.builder()
-                .caseId("INC003")
-                .title("PHI Breach - Unintended Disclosure")
-                .description("Patient data was accidentally sent to wrong email recipient. " +
-                        "Sender immediately notified IT and Security.")
-                .severity("Critical")
-                .category("Privacy")
-                .status("InProgress")
-                .reportedBy("NUR003")
-                .assignedTo("SECADMIN001")
-                .resolution(null)
-                .affectedSystems(List.of("Email System", "Patient Portal"))
-                .affectedUsers(List.of("NUR003", "PAT025"))
-                .incidentDate(LocalDateTime.now().minusHours(6))
-                .reportedAt(LocalDateTime.now().minusHours(5))
-                .resolvedAt(null)
-                .createdAt(LocalDateTime.now().minusHours(5))
-                .updatedAt(LocalDateTime.now().minusHours(1))
-                .build());
-        
-        mockIncidents.put("INC004", IncidentCaseDto.builder()
-                .caseId("INC004")
-                .title("System Downtime - Database Connection Pool Exhausted")
-                .description("Production database experienced connection pool exhaustion " +
-                        "causing intermittent service failures for 30 minutes.")
-                .severity("High")
-                .category("Operational")
-                .status("Resolved")
-                .reportedBy("ITADMIN001")
-                .assignedTo("ITADMIN001")
-                .resolution("Connection pool size increased from 50 to 100. " +
-                        "Added monitoring alerts for connection usage above 80%.")
-                .affectedSystems(List.of("Database Server", "All Services"))
-                .affectedUsers(List.of())
-                .incidentDate(LocalDateTime.now().minusDays(7))
-                .reportedAt(LocalDateTime.now().minusDays(7))
-                .resolvedAt(LocalDateTime.now().minusDays(7).plusHours(2))
-                .createdAt(LocalDateTime.now().minusDays(7))
-                .updatedAt(LocalDateTime.now().minusDays(7).plusHours(2))
-                .build());
-    }
+    private final IncidentService incidentService;
     
     @Audit(resourceType = "IncidentCase", action = "read")
     @GetMapping
@@ -129,7 +45,7 @@ public class IncidentController {
                     .body(ApiResponse.error("Access denied: " + String.join(", ", authResponse.getDenyReasons())));
         }
         
-        List<IncidentCaseDto> incidents = mockIncidents.values().stream()
+        List<IncidentCaseDto> incidents = incidentService.findAll().stream()
                 .filter(i -> severity == null || i.getSeverity().equals(severity))
                 .filter(i -> category == null || i.getCategory().equals(category))
                 .filter(i -> status == null || i.getStatus().equals(status))
@@ -145,7 +61,7 @@ public class IncidentController {
             @PathVariable String caseId,
             @AuthenticationPrincipal UserPrincipal user) {
         
-        IncidentCaseDto incident = mockIncidents.get(caseId);
+        IncidentCaseDto incident = incidentService.findById(caseId).orElse(null);
         if (incident == null) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
                     .body(ApiResponse.error("Incident not found"));
@@ -177,8 +93,6 @@ public class IncidentController {
                     .body(ApiResponse.error("Access denied: " + String.join(", ", authResponse.getDenyReasons())));
         }
         
-        String caseId = "INC" + String.format("%03d", mockIncidents.size() + 1);
-        request.setCaseId(caseId);
         request.setReportedBy(user.getUserId());
         request.setStatus("Open");
         request.setReportedAt(LocalDateTime.now());
@@ -202,7 +116,7 @@ public class IncidentController {
             request.setIncidentDate(LocalDateTime.now());
         }
         
-        mockIncidents.put(caseId, request);
+        String caseId = incidentService.create(request).getCaseId();
         
         log.info("Incident created by {}: {} - {}", user.getUserId(), caseId, request.getTitle());
         return ResponseEntity.status(HttpStatus.CREATED)
@@ -216,7 +130,7 @@ public class IncidentController {
             @RequestBody IncidentCaseDto request,
             @AuthenticationPrincipal UserPrincipal user) {
         
-        IncidentCaseDto existing = mockIncidents.get(caseId);
+        IncidentCaseDto existing = incidentService.findById(caseId).orElse(null);
         if (existing == null) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
                     .body(ApiResponse.error("Incident not found"));
@@ -256,7 +170,7 @@ public class IncidentController {
             @RequestParam String assigneeId,
             @AuthenticationPrincipal UserPrincipal user) {
         
-        IncidentCaseDto existing = mockIncidents.get(caseId);
+        IncidentCaseDto existing = incidentService.findById(caseId).orElse(null);
         if (existing == null) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
                     .body(ApiResponse.error("Incident not found"));
@@ -285,7 +199,7 @@ public class IncidentController {
             @RequestParam String resolution,
             @AuthenticationPrincipal UserPrincipal user) {
         
-        IncidentCaseDto existing = mockIncidents.get(caseId);
+        IncidentCaseDto existing = incidentService.findById(caseId).orElse(null);
         if (existing == null) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
                     .body(ApiResponse.error("Incident not found"));
@@ -317,7 +231,7 @@ public class IncidentController {
                     .body(ApiResponse.error("Access denied: " + String.join(", ", authResponse.getDenyReasons())));
         }
         
-        List<IncidentCaseDto> allIncidents = new ArrayList<>(mockIncidents.values());
+        List<IncidentCaseDto> allIncidents = incidentService.findAll();
         
         Map<String, Long> bySeverity = new HashMap<>();
         allIncidents.forEach(i -> bySeverity.merge(i.getSeverity(), 1L, Long::sum));
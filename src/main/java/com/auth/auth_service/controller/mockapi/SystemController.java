@@ -1,19 +1,20 @@
 package com.auth.auth_service.controller.mockapi;
 
 import com.auth.auth_service.aop.Audit;
+import com.auth.auth_service.audit.AuditStatsRollup;
 import com.auth.auth_service.dto.ApiResponse;
+import com.auth.auth_service.dto.AuditLogFilter;
+import com.auth.auth_service.dto.AuditLogPage;
 import com.auth.auth_service.dto.AuthorizationRequest;
 import com.auth.auth_service.dto.AuthorizationResponse;
 import com.auth.auth_service.dto.mock.AccessPolicyDto;
 import com.auth.auth_service.dto.mock.SystemConfigDto;
-import com.auth.auth_service.entity.AuditLog;
-import com.auth.auth_service.repository.AuditLogRepository;
 import com.auth.auth_service.security.UserPrincipal;
+import com.auth.auth_service.service.AuditQueryService;
 import com.auth.auth_service.service.AuthorizationService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Sort;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
@@ -35,7 +36,8 @@ import java.util.*;
 public class SystemController {
     
     private final AuthorizationService authorizationService;
-    private final AuditLogRepository auditLogRepository;
+    private final AuditQueryService auditQueryService;
+    private final AuditStatsRollup auditStatsRollup;
     
     private static final Map<String, SystemConfigDto> mockConfigs = new HashMap<>();
     private static final Map<String, AccessPolicyDto> mockPolicies = new HashMap<>();
@@ -335,12 +337,10 @@ public class SystemController {
     
     @Audit(resourceType = "AuditLog", action = "read")
     @GetMapping("/audit-logs")
-    public ResponseEntity<ApiResponse<List<AuditLog>>> getAuditLogs(
+    public ResponseEntity<ApiResponse<AuditLogPage>> getAuditLogs(
             @AuthenticationPrincipal UserPrincipal user,
-            @RequestParam(required = false) String userId,
-            @RequestParam(required = false) String resourceType,
-            @RequestParam(required = false) Boolean allowed,
-            @RequestParam(defaultValue = "0") int page,
+            AuditLogFilter filter,
+            @RequestParam(required = false) String cursor,
             @RequestParam(defaultValue = "50") int size) {
         
         AuthorizationResponse authResponse = checkAuthorization(user, "AuditLog", "read");
@@ -349,20 +349,8 @@ public class SystemController {
                     .body(ApiResponse.error("Access denied: " + String.join(", ", authResponse.getDenyReasons())));
         }
         
-        // Fetch from actual audit log repository
-        PageRequest pageRequest = PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "timestamp"));
-        List<AuditLog> logs = auditLogRepository.findAll(pageRequest).getContent();
-        
-        // Apply filters
-        if (userId != null) {
-            logs = logs.stream().filter(l -> userId.equals(l.getUserId())).toList();
-        }
-        if (resourceType != null) {
-            logs = logs.stream().filter(l -> resourceType.equals(l.getResourceType())).toList();
-        }
-        if (allowed != null) {
-            logs = logs.stream().filter(l -> allowed.equals(l.isAllowed())).toList();
-        }
+        // Filters are applied in SQL; paging uses a (timestamp, id) cursor
+        AuditLogPage logs = auditQueryService.search(filter, cursor, size);
         
         return ResponseEntity.ok(ApiResponse.success("Audit logs retrieved", logs));
     }
@@ -370,7 +358,9 @@ public class SystemController {
     @Audit(resourceType = "AuditLog", action = "read")
     @GetMapping("/audit-logs/stats")
     public ResponseEntity<ApiResponse<Map<String, Object>>> getAuditStats(
-            @AuthenticationPrincipal UserPrincipal user) {
+            @AuthenticationPrincipal UserPrincipal user,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
         
         AuthorizationResponse authResponse = checkAuthorization(user, "AuditLog", "read");
         if (!authResponse.isAllowed()) {
@@ -378,27 +368,22 @@ public class SystemController {
                     .body(ApiResponse.error("Access denied: " + String.join(", ", authResponse.getDenyReasons())));
         }
         
-        // Calculate stats from audit logs
-        List<AuditLog> allLogs = auditLogRepository.findAll();
-        
-        long totalEntries = allLogs.size();
-        long allowedCount = allLogs.stream().filter(AuditLog::isAllowed).count();
-        long deniedCount = totalEntries - allowedCount;
-        double denyRate = totalEntries > 0 ? (double) deniedCount / totalEntries * 100 : 0;
-        
-        Map<String, Long> byResourceType = new HashMap<>();
-        allLogs.forEach(l -> byResourceType.merge(l.getResourceType(), 1L, Long::sum));
-        
-        Map<String, Long> byAction = new HashMap<>();
-        allLogs.forEach(l -> byAction.merge(l.getAction(), 1L, Long::sum));
+        // Served from pre-aggregated rollup buckets, not from the audit_logs table
+        AuditStatsRollup.AuditStats auditStats = (from == null && to == null)
+                ? auditStatsRollup.allTime()
+                : auditStatsRollup.window(
+                        from != null ? from : LocalDateTime.of(1970, 1, 1, 0, 0),
+                        to != null ? to : LocalDateTime.now());
         
         Map<String, Object> stats = new HashMap<>();
-        stats.put("totalEntries", totalEntries);
-        stats.put("allowedCount", allowedCount);
-        stats.put("deniedCount", deniedCount);
-        stats.put("denyRate", String.format("%.2f%%", denyRate));
-        stats.put("byResourceType", byResourceType);
-        stats.put("byAction", byAction);
+        stats.put("totalEntries", auditStats.totalEntries());
+        stats.put("allowedCount", auditStats.allowedCount());
+        stats.put("deniedCount", auditStats.deniedCount());
+        stats.put("denyRate", String.format("%.2f%%", auditStats.denyRate()));
+        stats.put("byResourceType", auditStats.byResourceType());
+        stats.put("byAction", auditStats.byAction());
+        if (from != null) stats.put("from", from);
+        if (to != null) stats.put("to", to);
         
         return ResponseEntity.ok(ApiResponse.success("Audit statistics", stats));
     }
@@ -133,7 +133,7 @@ public class UnifiedMockController {
     }
     
     // ==================== GET ALL ====================
-    @Audit
+    @Audit(useFirstArgAsResourceId = false)
     @GetMapping("/{resourceType}")
     public ResponseEntity<ApiResponse<List<Map<String, Object>>>> getAll(
             @PathVariable String resourceType,
@@ -167,7 +167,7 @@ public class UnifiedMockController {
     }
     
     // ==================== GET BY ID ====================
-    @Audit
+    @Audit(useFirstArgAsResourceId = false)
     @GetMapping("/{resourceType}/{id}")
     public ResponseEntity<ApiResponse<Map<String, Object>>> getById(
             @PathVariable String resourceType,
@@ -199,7 +199,7 @@ public class UnifiedMockController {
     }
     
     // ==================== CREATE (NO BODY REQUIRED) ====================
-    @Audit
+    @Audit(useFirstArgAsResourceId = false)
     @PostMapping("/{resourceType}")
     public ResponseEntity<ApiResponse<Map<String, Object>>> create(
             @PathVariable String resourceType,
@@ -0,0 +1,34 @@
+package com.auth.auth_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDateTime;
+
+/**
+ * Bộ lọc audit log; mọi trường đều tùy chọn và được đẩy xuống SQL.
+ * Khoảng thời gian là [from, to).
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AuditLogFilter {
+    private String userId;
+    private String resourceType;
+    private String resourceId;
+    private String action;
+    private Boolean allowed;
+    private Integer minRiskScore;
+    private Integer maxRiskScore;
+    private String ipAddress;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime from;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime to;
+}
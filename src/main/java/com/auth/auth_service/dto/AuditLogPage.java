@@ -0,0 +1,24 @@
+package com.auth.auth_service.dto;
+
+import com.auth.auth_service.entity.AuditLog;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Một trang audit log theo keyset cursor.
+ * Gửi lại {@code nextCursor} để lấy trang kế tiếp (cũ hơn).
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AuditLogPage {
+    private List<AuditLog> items;
+    private int size;
+    private boolean hasMore;
+    private String nextCursor;
+}
@@ -0,0 +1,35 @@
+package com.auth.auth_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tiến độ một bulk job. {@code recommendations} đếm các gợi ý AI của job theo trạng thái outbox
+ * (PENDING, PROCESSING, DONE, FAILED).
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkJobStatus {
+    private Long jobId;
+    private String jobType;
+    private String status;
+    private int totalItems;
+    private int processedItems;
+    private int failedItems;
+    private double progress;
+    private Map<String, Long> recommendations;
+    /** Các item lỗi đầu tiên: index, userId/username, error */
+    private List<Map<String, Object>> errors;
+    private String createdBy;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+    private LocalDateTime completedAt;
+}
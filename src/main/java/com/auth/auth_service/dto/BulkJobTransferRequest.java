@@ -0,0 +1,23 @@
+package com.auth.auth_service.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Chuyển phòng ban/vị trí cho nhiều user trong một job (vd. tái cơ cấu cả khoa).
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkJobTransferRequest {
+
+    @NotEmpty(message = "transfers is required")
+    private List<@Valid BulkTransferItem> transfers;
+}
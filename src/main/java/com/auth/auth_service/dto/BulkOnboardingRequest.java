@@ -0,0 +1,23 @@
+package com.auth.auth_service.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Tạo nhiều user trong một job; mỗi phần tử giống body của /api/auth/register.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkOnboardingRequest {
+
+    @NotEmpty(message = "users is required")
+    private List<@Valid RegisterRequest> users;
+}
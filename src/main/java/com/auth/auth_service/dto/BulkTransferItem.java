@@ -0,0 +1,27 @@
+package com.auth.auth_service.dto;
+
+import com.fasterxml.jackson.annotation.JsonUnwrapped;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotBlank;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Một user trong bulk job transfer: user_id cùng các field của {@link JobTransferRequest}, ví dụ
+ * {@code {"userId": "NUR1A2B3C4D", "newDepartment": "Khoa_Ngoai", "newBranch": "CN_HCM"}}.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkTransferItem {
+
+    @NotBlank(message = "userId is required")
+    private String userId;
+
+    @Valid
+    @JsonUnwrapped
+    private JobTransferRequest transfer;
+}
@@ -0,0 +1,24 @@
+package com.auth.auth_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Bộ lọc danh sách user; mọi trường đều tùy chọn và được đẩy xuống SQL.
+ * Role / department / branch không phân biệt hoa thường, trừ khi {@code exactMatch}.
+ */
+@Data
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserListingFilter {
+    private String userId;
+    private String role;
+    private String department;
+    private String branch;
+    private Boolean enabled;
+    /** So khớp role / department / branch chính xác (phân biệt hoa thường) */
+    private boolean exactMatch;
+}
@@ -0,0 +1,35 @@
+package com.auth.auth_service.dto.ai;
+
+import com.fasterxml.jackson.annotation.JsonAnyGetter;
+import com.fasterxml.jackson.annotation.JsonAnySetter;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Phần chung của response từ AI service. Field chưa được map thành thuộc tính có kiểu được giữ
+ * trong {@link #getAdditionalProperties()} và được serialize lại nguyên dạng.
+ */
+@Data
+public class AIResponse {
+
+    private String type;
+
+    /** Phiên bản model đã sinh ra response (nếu AI service trả về) */
+    @JsonProperty("model_version")
+    private String modelVersion;
+
+    private Map<String, Object> additionalProperties = new LinkedHashMap<>();
+
+    @JsonAnyGetter
+    public Map<String, Object> getAdditionalProperties() {
+        return additionalProperties;
+    }
+
+    @JsonAnySetter
+    public void setAdditionalProperty(String name, Object value) {
+        additionalProperties.put(name, value);
+    }
+}
@@ -0,0 +1,13 @@
+package com.auth.auth_service.dto.ai;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+/**
+ * Response của POST /recommend/anomaly. Nội dung phân tích do AI service định nghĩa và được
+ * giữ nguyên trong additionalProperties.
+ */
+@Data
+@EqualsAndHashCode(callSuper = true)
+public class AnomalyReport extends AIResponse {
+}
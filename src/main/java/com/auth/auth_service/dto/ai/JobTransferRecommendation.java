@@ -0,0 +1,29 @@
+package com.auth.auth_service.dto.ai;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Response của POST /recommend/job-transfer.
+ */
+@Data
+@EqualsAndHashCode(callSuper = true)
+public class JobTransferRecommendation extends AIResponse {
+
+    @JsonProperty("added_permissions")
+    private List<PermissionRecommendation> addedPermissions = new ArrayList<>();
+
+    @JsonProperty("removed_permissions")
+    private List<PermissionRecommendation> removedPermissions = new ArrayList<>();
+
+    @JsonProperty("retained_permissions")
+    private List<PermissionRecommendation> retainedPermissions = new ArrayList<>();
+
+    /** Chiến lược áp dụng cho từng nhóm (added/removed/retained) */
+    private Map<String, String> strategy;
+}
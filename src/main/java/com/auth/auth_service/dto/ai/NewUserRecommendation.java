@@ -0,0 +1,17 @@
+package com.auth.auth_service.dto.ai;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Response của POST /recommend/new-user.
+ */
+@Data
+@EqualsAndHashCode(callSuper = true)
+public class NewUserRecommendation extends AIResponse {
+
+    private List<PermissionRecommendation> recommendations = new ArrayList<>();
+}
@@ -0,0 +1,43 @@
+package com.auth.auth_service.dto.ai;
+
+import com.fasterxml.jackson.annotation.JsonAnyGetter;
+import com.fasterxml.jackson.annotation.JsonAnySetter;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Một quyền được AI gợi ý, ví dụ {@code {"permission_id": 45, "permission": "StaffProfile_read", "confidence": 0.95}}.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PermissionRecommendation {
+
+    @JsonProperty("permission_id")
+    private Long permissionId;
+
+    /** Nhãn dạng ResourceType_action */
+    private String permission;
+
+    private Double confidence;
+
+    @Builder.Default
+    private Map<String, Object> additionalProperties = new LinkedHashMap<>();
+
+    @JsonAnyGetter
+    public Map<String, Object> getAdditionalProperties() {
+        return additionalProperties;
+    }
+
+    @JsonAnySetter
+    public void setAdditionalProperty(String name, Object value) {
+        additionalProperties.put(name, value);
+    }
+}
@@ -0,0 +1,14 @@
+package com.auth.auth_service.dto.ai;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+/**
+ * Báo cáo quyền không dùng của POST /api/ai/recommend/rightsizing, do
+ * {@link com.auth.auth_service.service.PermissionRightsizingService} tính local. Giữ dạng response
+ * của AI service (type, model_version = "local", các field còn lại trong additionalProperties).
+ */
+@Data
+@EqualsAndHashCode(callSuper = true)
+public class RightsizingReport extends AIResponse {
+}
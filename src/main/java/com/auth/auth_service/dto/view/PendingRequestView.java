@@ -0,0 +1,28 @@
+package com.auth.auth_service.dto.view;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Một pending permission request kèm thông tin user / permission, đọc bằng một query
+ * (JOIN user, role, permission) thay vì đi qua các association LAZY cho từng dòng.
+ */
+public record PendingRequestView(
+        Long id,
+        String userId,
+        Long userDbId,
+        String username,
+        String userRole,
+        String department,
+        String branch,
+        Long permissionId,
+        String permissionKey,
+        String resourceType,
+        String action,
+        BigDecimal confidence,
+        String requestType,
+        String changeType,
+        String status,
+        LocalDateTime requestedAt,
+        Long version) {
+}
@@ -0,0 +1,9 @@
+package com.auth.auth_service.dto.view;
+
+/**
+ * Một permission của role hoặc user
+ *
+ * @param ownerId roles.id hoặc users.id
+ */
+public record PermissionGrantView(Long ownerId, String resourceType, String action) {
+}
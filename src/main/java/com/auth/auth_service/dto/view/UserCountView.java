@@ -0,0 +1,7 @@
+package com.auth.auth_service.dto.view;
+
+/**
+ * Số dòng theo user (GROUP BY user_id)
+ */
+public record UserCountView(Long userId, Long count) {
+}
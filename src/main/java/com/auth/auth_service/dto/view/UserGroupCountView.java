@@ -0,0 +1,7 @@
+package com.auth.auth_service.dto.view;
+
+/**
+ * Số user theo (role, department, branch, enabled), dùng để tính thống kê của danh sách user.
+ */
+public record UserGroupCountView(String role, String department, String branch, boolean enabled, Long count) {
+}
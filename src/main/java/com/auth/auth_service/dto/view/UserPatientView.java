@@ -0,0 +1,7 @@
+package com.auth.auth_service.dto.view;
+
+/**
+ * Một dòng của user_assigned_patients
+ */
+public record UserPatientView(Long userId, String patientId) {
+}
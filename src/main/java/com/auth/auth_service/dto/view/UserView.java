@@ -0,0 +1,21 @@
+package com.auth.auth_service.dto.view;
+
+/**
+ * Các cột của users (và tên role) dùng cho danh sách user, không load các collection EAGER.
+ */
+public record UserView(
+        Long id,
+        String userId,
+        String username,
+        String email,
+        Long roleId,
+        String role,
+        String department,
+        String branch,
+        String position,
+        boolean hasLicense,
+        String seniority,
+        String employmentType,
+        boolean enabled,
+        boolean accountNonLocked) {
+}
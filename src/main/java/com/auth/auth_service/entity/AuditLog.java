@@ -16,8 +16,12 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 public class AuditLog {
     
+    /**
+     * Pooled sequence (INCREMENT BY 50, xem V15): id được cấp trong bộ nhớ nên INSERT có thể batch
+     */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "audit_logs_id_seq")
+    @SequenceGenerator(name = "audit_logs_id_seq", sequenceName = "audit_logs_id_seq", allocationSize = 50)
     private Long id;
     
     @Column(nullable = false)
@@ -24,8 +24,12 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 public class PendingPermissionRequest {
     
+    /**
+     * Pooled sequence (INCREMENT BY 50, xem V15): id được cấp trong bộ nhớ nên INSERT có thể batch
+     */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "pending_permission_requests_id_seq")
+    @SequenceGenerator(name = "pending_permission_requests_id_seq", sequenceName = "pending_permission_requests_id_seq", allocationSize = 50)
     private Long id;
     
     /**
@@ -94,4 +98,23 @@ public class PendingPermissionRequest {
      */
     @Column(name = "review_notes", length = 500)
     private String reviewNotes;
+
+    /**
+     * Reviewer đang giữ request trong work queue
+     */
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "claimed_by")
+    private User claimedBy;
+
+    /**
+     * Hết hạn lease của claimedBy
+     */
+    @Column(name = "claimed_until")
+    private LocalDateTime claimedUntil;
+
+    /**
+     * Optimistic lock, tăng khi claim / duyệt
+     */
+    @Version
+    private Long version;
 }
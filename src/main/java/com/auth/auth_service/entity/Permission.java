@@ -5,9 +5,17 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
+/**
+ * Dữ liệu tham chiếu, nằm trong second-level cache
+ * (xem {@link com.auth.auth_service.service.ReferenceDataCache}).
+ */
 @Entity
 @Table(name = "permissions")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Data
 @Builder
 @NoArgsConstructor
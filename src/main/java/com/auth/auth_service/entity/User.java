@@ -4,21 +4,51 @@ import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 
 import java.util.HashSet;
 import java.util.Set;
 
+/**
+ * Mọi association đều LAZY; repository chọn phần cần nạp theo use case bằng entity graph.
+ * Mỗi graph join tối đa một collection để tránh tích Descartes patients × permissions
+ * (bác sĩ có thể được gán hàng nghìn bệnh nhân). Role.permissions đến từ second-level cache.
+ */
 @Entity
 @Table(name = "users")
+@NamedEntityGraph(name = User.GRAPH_AUTHENTICATION, attributeNodes = {
+        @NamedAttributeNode("role"),
+        @NamedAttributeNode("additionalPermissions")
+})
+@NamedEntityGraph(name = User.GRAPH_DETAIL, attributeNodes = {
+        @NamedAttributeNode("role"),
+        @NamedAttributeNode("assignedPatients")
+})
+@NamedEntityGraph(name = User.GRAPH_LISTING, attributeNodes = @NamedAttributeNode("role"))
+@NamedEntityGraph(name = User.GRAPH_TRANSFER, attributeNodes = @NamedAttributeNode("role"))
 @Data
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
 public class User {
-    
+
+    /** Authorities: role và permission bổ sung; assignedPatients nạp bằng query riêng khi cần */
+    public static final String GRAPH_AUTHENTICATION = "User.authentication";
+    /** Hồ sơ chi tiết: role và danh sách bệnh nhân; permission bổ sung nạp bằng query riêng */
+    public static final String GRAPH_DETAIL = "User.detail";
+    /** Danh sách user: chỉ role */
+    public static final String GRAPH_LISTING = "User.listing";
+    /** Chuyển công tác: profile và role, không cần permission / bệnh nhân */
+    public static final String GRAPH_TRANSFER = "User.transfer";
+    
+    /**
+     * Pooled sequence (INCREMENT BY 50, xem V15): id được cấp trong bộ nhớ nên INSERT có thể batch
+     */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_id_seq")
+    @SequenceGenerator(name = "users_id_seq", sequenceName = "users_id_seq", allocationSize = 50)
     private Long id;
     
     @Column(unique = true, nullable = false)
@@ -61,23 +91,29 @@ public class User {
     @Column(nullable = false)
     private boolean credentialsNonExpired = true;
     
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "role_id", nullable = false)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     private Role role;
     
-    @ElementCollection(fetch = FetchType.EAGER)
+    @ElementCollection(fetch = FetchType.LAZY)
     @CollectionTable(name = "user_assigned_patients", joinColumns = @JoinColumn(name = "user_id"))
     @Column(name = "patient_id")
     @Builder.Default
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     private Set<String> assignedPatients = new HashSet<>();
     
-    @ManyToMany(fetch = FetchType.EAGER)
+    @ManyToMany(fetch = FetchType.LAZY)
     @JoinTable(
         name = "user_additional_permissions",
         joinColumns = @JoinColumn(name = "user_id"),
         inverseJoinColumns = @JoinColumn(name = "permission_id")
     )
     @Builder.Default
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     private Set<Permission> additionalPermissions = new HashSet<>();
 }
 
@@ -0,0 +1,17 @@
+package com.auth.auth_service.exception;
+
+import lombok.Getter;
+
+/**
+ * Lỗi khi gọi AI service: HTTP lỗi ({@link #getStatus()} khác null), timeout hoặc không kết nối được.
+ */
+@Getter
+public class AIServiceException extends RuntimeException {
+
+    private final Integer status;
+
+    public AIServiceException(String message, Integer status, Throwable cause) {
+        super(message, cause);
+        this.status = status;
+    }
+}
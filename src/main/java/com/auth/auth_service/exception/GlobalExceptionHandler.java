@@ -2,7 +2,9 @@ package com.auth.auth_service.exception;
 
 import com.auth.auth_service.dto.ApiResponse;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.authentication.BadCredentialsException;
@@ -64,6 +66,31 @@ public class GlobalExceptionHandler {
                 .body(response);
     }
     
+    @ExceptionHandler(TooManySubscribersException.class)
+    public ResponseEntity<ApiResponse<?>> handleTooManySubscribersException(TooManySubscribersException ex) {
+        log.warn("Subscription rejected: {}", ex.getMessage());
+        return ResponseEntity
+                .status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "30")
+                // Client SSE chỉ gửi Accept: text/event-stream; đặt sẵn content type để không bị 406
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(ApiResponse.error(ex.getMessage()));
+    }
+    
+    @ExceptionHandler(InvalidCursorException.class)
+    public ResponseEntity<ApiResponse<?>> handleInvalidCursorException(InvalidCursorException ex) {
+        return ResponseEntity
+                .status(HttpStatus.BAD_REQUEST)
+                .body(ApiResponse.error(ex.getMessage()));
+    }
+    
+    @ExceptionHandler(UnsupportedExportFormatException.class)
+    public ResponseEntity<ApiResponse<?>> handleUnsupportedExportFormatException(UnsupportedExportFormatException ex) {
+        return ResponseEntity
+                .status(HttpStatus.BAD_REQUEST)
+                .body(ApiResponse.error(ex.getMessage()));
+    }
+    
     @ExceptionHandler(RuntimeException.class)
     public ResponseEntity<ApiResponse<?>> handleRuntimeException(RuntimeException ex) {
         log.error("Runtime error: {}", ex.getMessage(), ex);
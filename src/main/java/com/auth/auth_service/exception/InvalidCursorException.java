@@ -0,0 +1,11 @@
+package com.auth.auth_service.exception;
+
+/**
+ * Cursor phân trang không giải mã được (sửa tay, cắt cụt, của endpoint khác); lỗi của client (400).
+ */
+public class InvalidCursorException extends RuntimeException {
+
+    public InvalidCursorException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,11 @@
+package com.auth.auth_service.exception;
+
+/**
+ * Live stream đã đủ số subscriber tối đa; client nên thử lại sau (503).
+ */
+public class TooManySubscribersException extends RuntimeException {
+
+    public TooManySubscribersException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,11 @@
+package com.auth.auth_service.exception;
+
+/**
+ * Format export audit không phải csv / ndjson; lỗi của client (400).
+ */
+public class UnsupportedExportFormatException extends RuntimeException {
+
+    public UnsupportedExportFormatException(String format) {
+        super("Unsupported export format: " + format + " (expected csv or ndjson)");
+    }
+}
@@ -0,0 +1,74 @@
+package com.auth.auth_service.repository;
+
+import com.auth.auth_service.dto.AuditLogFilter;
+import com.auth.auth_service.entity.AuditLog;
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Dynamic predicates cho audit_logs. Chỉ các filter có giá trị mới sinh điều kiện WHERE.
+ */
+public final class AuditLogSpecifications {
+
+    private AuditLogSpecifications() {
+    }
+
+    public static Specification<AuditLog> matching(AuditLogFilter filter) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            if (filter.getUserId() != null) {
+                predicates.add(cb.equal(root.get("userId"), filter.getUserId()));
+            }
+            if (filter.getResourceType() != null) {
+                predicates.add(cb.equal(root.get("resourceType"), filter.getResourceType()));
+            }
+            if (filter.getResourceId() != null) {
+                predicates.add(cb.equal(root.get("resourceId"), filter.getResourceId()));
+            }
+            if (filter.getAction() != null) {
+                predicates.add(cb.equal(root.get("action"), filter.getAction()));
+            }
+            if (filter.getAllowed() != null) {
+                predicates.add(cb.equal(root.get("allowed"), filter.getAllowed()));
+            }
+            if (filter.getMinRiskScore() != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("riskScore"), filter.getMinRiskScore()));
+            }
+            if (filter.getMaxRiskScore() != null) {
+                predicates.add(cb.lessThanOrEqualTo(root.get("riskScore"), filter.getMaxRiskScore()));
+            }
+            if (filter.getIpAddress() != null) {
+                predicates.add(cb.equal(root.get("ipAddress"), filter.getIpAddress()));
+            }
+            if (filter.getFrom() != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("timestamp"), filter.getFrom()));
+            }
+            if (filter.getTo() != null) {
+                predicates.add(cb.lessThan(root.get("timestamp"), filter.getTo()));
+            }
+            return cb.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+
+    /**
+     * {@code timestamp <= until}: cận trên bao gồm, cho các API giữ ngữ nghĩa BETWEEN cũ.
+     */
+    public static Specification<AuditLog> notAfter(LocalDateTime until) {
+        return (root, query, cb) -> cb.lessThanOrEqualTo(root.get("timestamp"), until);
+    }
+
+    /**
+     * Keyset: các bản ghi đứng sau (timestamp, id) theo thứ tự timestamp DESC, id DESC.
+     * Cận {@code timestamp <= ?} là điều kiện dư nhưng PostgreSQL dùng được làm Index Cond để seek
+     * index (timestamp DESC, id DESC); phần OR còn lại chỉ lọc các dòng trùng timestamp.
+     */
+    public static Specification<AuditLog> olderThan(LocalDateTime timestamp, long id) {
+        return (root, query, cb) -> cb.and(
+                cb.lessThanOrEqualTo(root.get("timestamp"), timestamp),
+                cb.or(cb.lessThan(root.get("timestamp"), timestamp), cb.lessThan(root.get("id"), id)));
+    }
+}
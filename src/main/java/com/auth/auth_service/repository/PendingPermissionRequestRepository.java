@@ -1,16 +1,48 @@
 package com.auth.auth_service.repository;
 
+import com.auth.auth_service.dto.view.PendingRequestView;
+import com.auth.auth_service.dto.view.UserCountView;
 import com.auth.auth_service.entity.PendingPermissionRequest;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface PendingPermissionRequestRepository extends JpaRepository<PendingPermissionRequest, Long> {
     
+    /**
+     * Projection kèm user / role / permission (JOIN), dùng cho các danh sách
+     */
+    String VIEW_SELECT = """
+            SELECT new com.auth.auth_service.dto.view.PendingRequestView(p.id, u.userId, u.id, u.username, r.name,
+                u.department, u.branch, perm.id, perm.permissionKey, perm.resourceType, perm.action, p.confidence,
+                p.requestType, p.changeType, p.status, p.requestedAt, p.version)
+            FROM PendingPermissionRequest p JOIN p.user u JOIN u.role r JOIN p.permission perm
+            """;
+    
+    @Query(VIEW_SELECT + "WHERE p.status = 'PENDING' ORDER BY p.requestedAt DESC")
+    List<PendingRequestView> findAllPendingViews();
+    
+    @Query(VIEW_SELECT + "WHERE u.id = :userId AND p.status = :status ORDER BY p.requestedAt DESC")
+    List<PendingRequestView> findViewsByUserIdAndStatus(@Param("userId") Long userId, @Param("status") String status);
+    
+    @Query(VIEW_SELECT + "WHERE p.status = :status AND p.requestType = :requestType ORDER BY p.requestedAt DESC")
+    List<PendingRequestView> findViewsByStatusAndRequestType(@Param("status") String status,
+                                                             @Param("requestType") String requestType);
+    
+    /**
+     * Số pending request của mỗi user trong ids
+     */
+    @Query("""
+            SELECT new com.auth.auth_service.dto.view.UserCountView(p.user.id, COUNT(p))
+            FROM PendingPermissionRequest p
+            WHERE p.status = 'PENDING' AND p.user.id IN :ids GROUP BY p.user.id""")
+    List<UserCountView> countPendingByUserIds(@Param("ids") Collection<Long> ids);
+    
     /**
      * Tìm theo status
      */
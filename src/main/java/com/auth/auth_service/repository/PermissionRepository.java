@@ -1,23 +1,39 @@
 package com.auth.auth_service.repository;
 
 import com.auth.auth_service.entity.Permission;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
 import java.util.Optional;
 
+import static org.hibernate.jpa.HibernateHints.HINT_CACHEABLE;
+
+/**
+ * Các query đọc được đánh dấu cacheable (query cache), xem {@link RoleRepository}.
+ */
 @Repository
 public interface PermissionRepository extends JpaRepository<Permission, Long> {
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
     Optional<Permission> findByResourceTypeAndActionAndScope(String resourceType, String action, String scope);
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
     Optional<Permission> findByPermissionKey(String permissionKey);
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
     List<Permission> findByResourceType(String resourceType);
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
     List<Permission> findByAction(String action);
     boolean existsByPermissionKey(String permissionKey);
+
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+    @Override
+    List<Permission> findAll();
     
     /**
      * Tìm permission theo resourceType và action (không quan tâm scope)
      */
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
     Optional<Permission> findFirstByResourceTypeAndAction(String resourceType, String action);
 }
 
@@ -1,14 +1,38 @@
 package com.auth.auth_service.repository;
 
+import com.auth.auth_service.dto.view.PermissionGrantView;
 import com.auth.auth_service.entity.Role;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
+import static org.hibernate.jpa.HibernateHints.HINT_CACHEABLE;
+
+/**
+ * Các query đọc được đánh dấu cacheable (query cache); kết quả tự vô hiệu khi Hibernate ghi vào
+ * roles / permissions / role_permissions, còn thay đổi ngoài Hibernate cần
+ * {@link com.auth.auth_service.service.ReferenceDataCache#evict()}.
+ */
 @Repository
 public interface RoleRepository extends JpaRepository<Role, Long> {
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
     Optional<Role> findByName(String name);
     boolean existsByName(String name);
+
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+    @Override
+    List<Role> findAll();
+    
+    /**
+     * Permission của mọi role trong một query
+     */
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+    @Query("SELECT new com.auth.auth_service.dto.view.PermissionGrantView(r.id, p.resourceType, p.action) FROM Role r JOIN r.permissions p")
+    List<PermissionGrantView> findAllPermissionViews();
 }
 
@@ -1,29 +1,74 @@
 package com.auth.auth_service.repository;
 
+import com.auth.auth_service.dto.view.PermissionGrantView;
+import com.auth.auth_service.dto.view.UserPatientView;
+import com.auth.auth_service.dto.view.UserView;
 import com.auth.auth_service.entity.User;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
+/**
+ * Association của {@link User} đều LAZY: mỗi method đọc entity khai báo entity graph của use case
+ * dùng nó, method không có graph (findById, findByEmail) chỉ nạp dòng users.
+ */
 @Repository
-public interface UserRepository extends JpaRepository<User, Long> {
+public interface UserRepository extends JpaRepository<User, Long>, UserRepositoryCustom {
+    /**
+     * Đăng nhập và JWT filter (UserPrincipal)
+     */
+    @EntityGraph(User.GRAPH_AUTHENTICATION)
     Optional<User> findByUsername(String username);
+    
+    @EntityGraph(User.GRAPH_AUTHENTICATION)
     Optional<User> findByUserId(String userId);
+    
+    /**
+     * Hồ sơ đầy đủ của user (GET /api/auth/me)
+     */
+    @EntityGraph(User.GRAPH_DETAIL)
+    Optional<User> findDetailByUsername(String username);
+    
+    @EntityGraph(User.GRAPH_TRANSFER)
+    Optional<User> findForTransferByUserId(String userId);
+    
     Optional<User> findByEmail(String email);
     
     boolean existsByUsername(String username);
     boolean existsByUserId(String userId);
     boolean existsByEmail(String email);
     
+    @EntityGraph(User.GRAPH_LISTING)
     List<User> findByDepartment(String department);
+    @EntityGraph(User.GRAPH_LISTING)
     List<User> findByBranch(String branch);
+    @EntityGraph(User.GRAPH_LISTING)
     List<User> findByRoleName(String roleName);
     
+    @EntityGraph(User.GRAPH_LISTING)
     @Query("SELECT u FROM User u WHERE u.department = :department AND u.branch = :branch")
     List<User> findByDepartmentAndBranch(@Param("department") String department, @Param("branch") String branch);
+    
+    @Query("""
+            SELECT new com.auth.auth_service.dto.view.UserView(u.id, u.userId, u.username, u.email, r.id, r.name,
+                u.department, u.branch, u.position, u.hasLicense, u.seniority, u.employmentType, u.enabled,
+                u.accountNonLocked)
+            FROM User u JOIN u.role r WHERE u.userId = :userId""")
+    Optional<UserView> findViewByUserId(@Param("userId") String userId);
+    
+    @Query("""
+            SELECT new com.auth.auth_service.dto.view.PermissionGrantView(u.id, p.resourceType, p.action)
+            FROM User u JOIN u.additionalPermissions p WHERE u.id IN :ids""")
+    List<PermissionGrantView> findAdditionalPermissionViews(@Param("ids") Collection<Long> ids);
+    
+    @Query("""
+            SELECT new com.auth.auth_service.dto.view.UserPatientView(u.id, ap)
+            FROM User u JOIN u.assignedPatients ap WHERE u.id IN :ids""")
+    List<UserPatientView> findAssignedPatientViews(@Param("ids") Collection<Long> ids);
 }
-
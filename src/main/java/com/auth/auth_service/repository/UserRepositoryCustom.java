@@ -0,0 +1,24 @@
+package com.auth.auth_service.repository;
+
+import com.auth.auth_service.dto.view.UserGroupCountView;
+import com.auth.auth_service.dto.view.UserView;
+import com.auth.auth_service.entity.User;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+
+/**
+ * Query projection theo {@link Specification} (Spring Data không hỗ trợ DTO record cho Specification).
+ */
+public interface UserRepositoryCustom {
+
+    /**
+     * Tối đa {@code limit} user khớp spec, theo id ASC.
+     */
+    List<UserView> findViews(Specification<User> spec, int limit);
+
+    /**
+     * Số user khớp spec theo (role, department, branch, enabled).
+     */
+    List<UserGroupCountView> countGroups(Specification<User> spec);
+}
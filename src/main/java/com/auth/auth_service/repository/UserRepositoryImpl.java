@@ -0,0 +1,57 @@
+package com.auth.auth_service.repository;
+
+import com.auth.auth_service.dto.view.UserGroupCountView;
+import com.auth.auth_service.dto.view.UserView;
+import com.auth.auth_service.entity.Role;
+import com.auth.auth_service.entity.User;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+
+class UserRepositoryImpl implements UserRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<UserView> findViews(Specification<User> spec, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<UserView> query = cb.createQuery(UserView.class);
+        Root<User> u = query.from(User.class);
+        Join<User, Role> r = u.join("role");
+        query.select(cb.construct(UserView.class,
+                u.get("id"), u.get("userId"), u.get("username"), u.get("email"), r.get("id"), r.get("name"),
+                u.get("department"), u.get("branch"), u.get("position"), u.get("hasLicense"), u.get("seniority"),
+                u.get("employmentType"), u.get("enabled"), u.get("accountNonLocked")));
+        where(query, u, cb, spec);
+        query.orderBy(cb.asc(u.get("id")));
+        return entityManager.createQuery(query).setMaxResults(limit).getResultList();
+    }
+
+    @Override
+    public List<UserGroupCountView> countGroups(Specification<User> spec) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<UserGroupCountView> query = cb.createQuery(UserGroupCountView.class);
+        Root<User> u = query.from(User.class);
+        Join<User, Role> r = u.join("role");
+        query.select(cb.construct(UserGroupCountView.class,
+                r.get("name"), u.get("department"), u.get("branch"), u.get("enabled"), cb.count(u)));
+        where(query, u, cb, spec);
+        query.groupBy(r.get("name"), u.get("department"), u.get("branch"), u.get("enabled"));
+        return entityManager.createQuery(query).getResultList();
+    }
+
+    private static void where(CriteriaQuery<?> query, Root<User> u, CriteriaBuilder cb, Specification<User> spec) {
+        Predicate predicate = spec.toPredicate(u, query, cb);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.auth.auth_service.repository;
+
+import com.auth.auth_service.dto.UserListingFilter;
+import com.auth.auth_service.entity.Role;
+import com.auth.auth_service.entity.User;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Dynamic predicates cho users. Chỉ các filter có giá trị mới sinh điều kiện WHERE.
+ */
+public final class UserSpecifications {
+
+    private UserSpecifications() {
+    }
+
+    public static Specification<User> matching(UserListingFilter filter) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            if (filter.getUserId() != null) {
+                predicates.add(cb.equal(root.get("userId"), filter.getUserId()));
+            }
+            boolean exact = filter.isExactMatch();
+            if (filter.getRole() != null) {
+                predicates.add(equal(cb, role(root).get("name"), filter.getRole(), exact));
+            }
+            if (filter.getDepartment() != null) {
+                predicates.add(equal(cb, root.get("department"), filter.getDepartment(), exact));
+            }
+            if (filter.getBranch() != null) {
+                predicates.add(equal(cb, root.get("branch"), filter.getBranch(), exact));
+            }
+            if (filter.getEnabled() != null) {
+                predicates.add(cb.equal(root.get("enabled"), filter.getEnabled()));
+            }
+            return cb.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+
+    /**
+     * Keyset: các user đứng sau id theo thứ tự id ASC.
+     */
+    public static Specification<User> after(long id) {
+        return (root, query, cb) -> cb.greaterThan(root.get("id"), id);
+    }
+
+    /**
+     * Dùng lại join role đã có trong query (vd. join của phần select) thay vì join thêm lần nữa.
+     */
+    @SuppressWarnings("unchecked")
+    private static Join<User, Role> role(Root<User> root) {
+        for (Join<User, ?> join : root.getJoins()) {
+            if ("role".equals(join.getAttribute().getName())) {
+                return (Join<User, Role>) join;
+            }
+        }
+        return root.join("role");
+    }
+
+    private static Predicate equal(CriteriaBuilder cb, Path<String> path, String value, boolean exact) {
+        return exact ? cb.equal(path, value) : cb.equal(cb.lower(path), lower(value));
+    }
+
+    private static String lower(String value) {
+        return value.toLowerCase(Locale.ROOT);
+    }
+}
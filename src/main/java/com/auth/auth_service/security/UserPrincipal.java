@@ -73,7 +73,8 @@ public class UserPrincipal implements UserDetails {
                 .accountNonExpired(user.isAccountNonExpired())
                 .accountNonLocked(user.isAccountNonLocked())
                 .credentialsNonExpired(user.isCredentialsNonExpired())
-                .assignedPatients(user.getAssignedPatients())
+                // Copy: collection LAZY phải được nạp trong transaction của UserDetailsService
+                .assignedPatients(user.getAssignedPatients() != null ? new HashSet<>(user.getAssignedPatients()) : null)
                 .authorities(authorities)
                 .build();
     }
@@ -0,0 +1,150 @@
+package com.auth.auth_service.service;
+
+/**
+ * Circuit breaker cho các lời gọi tới AI service, dựa trên cửa sổ N lời gọi gần nhất.
+ * <p>
+ * CLOSED → OPEN khi đủ {@code minCalls} lời gọi và tỉ lệ lỗi hoặc tỉ lệ gọi chậm vượt ngưỡng.
+ * OPEN từ chối ngay mọi lời gọi; sau {@code openNanos} (hoặc khi health probe thấy service đã lên)
+ * chuyển HALF_OPEN và cho qua {@code halfOpenCalls} lời gọi thử: tất cả thành công thì CLOSED,
+ * một lời gọi lỗi/chậm thì OPEN lại.
+ */
+final class AICircuitBreaker {
+
+    enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private static final byte OK = 0;
+    private static final byte FAILED = 1;
+    private static final byte SLOW = 2;
+
+    private final int minCalls;
+    private final double failureRateThreshold;
+    private final double slowRateThreshold;
+    private final long slowCallNanos;
+    private final long openNanos;
+    private final int halfOpenCalls;
+
+    private final byte[] outcomes;
+    private int index;
+    private int count;
+    private int failures;
+    private int slows;
+
+    private volatile State state = State.CLOSED;
+    private long openedAt;
+    private int halfOpenPermits;
+    private int halfOpenSuccesses;
+
+    AICircuitBreaker(int windowSize, int minCalls, double failureRateThreshold, double slowRateThreshold,
+                     long slowCallNanos, long openNanos, int halfOpenCalls) {
+        this.outcomes = new byte[Math.max(1, windowSize)];
+        this.minCalls = Math.max(1, Math.min(minCalls, outcomes.length));
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowRateThreshold = slowRateThreshold;
+        this.slowCallNanos = slowCallNanos;
+        this.openNanos = openNanos;
+        this.halfOpenCalls = Math.max(1, halfOpenCalls);
+    }
+
+    State state() {
+        return state;
+    }
+
+    /**
+     * @return true nếu được phép gọi; caller phải báo kết quả qua {@link #onResult} hoặc
+     * {@link #onCancel}
+     */
+    synchronized boolean tryAcquire(long now) {
+        if (state == State.OPEN) {
+            if (now - openedAt < openNanos) {
+                return false;
+            }
+            toHalfOpen();
+        }
+        if (state == State.HALF_OPEN) {
+            if (halfOpenPermits == 0) {
+                return false;
+            }
+            halfOpenPermits--;
+        }
+        return true;
+    }
+
+    synchronized void onResult(boolean failed, long durationNanos, long now) {
+        byte outcome = failed ? FAILED : durationNanos >= slowCallNanos ? SLOW : OK;
+        if (state == State.HALF_OPEN) {
+            if (outcome != OK) {
+                toOpen(now);
+            } else if (++halfOpenSuccesses >= halfOpenCalls) {
+                toClosed();
+            }
+            return;
+        }
+        if (state == State.OPEN) {
+            return;
+        }
+        if (count == outcomes.length) {
+            forget(outcomes[index]);
+        } else {
+            count++;
+        }
+        outcomes[index] = outcome;
+        index = (index + 1) % outcomes.length;
+        if (outcome == FAILED) {
+            failures++;
+        } else if (outcome == SLOW) {
+            slows++;
+        }
+        if (count >= minCalls
+                && (failures >= failureRateThreshold * count || slows >= slowRateThreshold * count)) {
+            toOpen(now);
+        }
+    }
+
+    /** Lời gọi bị hủy (vd. thua hedge) trước khi có kết quả. */
+    synchronized void onCancel() {
+        if (state == State.HALF_OPEN && halfOpenPermits + halfOpenSuccesses < halfOpenCalls) {
+            halfOpenPermits++;
+        }
+    }
+
+    /** Health probe không kết nối được tới AI service. */
+    synchronized void onProbeFailure(long now) {
+        if (state != State.OPEN) {
+            toOpen(now);
+        }
+    }
+
+    /** Health probe thành công: không cần chờ hết thời gian OPEN để thử lại. */
+    synchronized void onProbeSuccess() {
+        if (state == State.OPEN) {
+            toHalfOpen();
+        }
+    }
+
+    private void forget(byte outcome) {
+        if (outcome == FAILED) {
+            failures--;
+        } else if (outcome == SLOW) {
+            slows--;
+        }
+    }
+
+    private void toOpen(long now) {
+        state = State.OPEN;
+        openedAt = now;
+    }
+
+    private void toHalfOpen() {
+        state = State.HALF_OPEN;
+        halfOpenPermits = halfOpenCalls;
+        halfOpenSuccesses = 0;
+    }
+
+    private void toClosed() {
+        state = State.CLOSED;
+        index = 0;
+        count = 0;
+        failures = 0;
+        slows = 0;
+    }
+}
@@ -1,36 +1,108 @@
 package com.auth.auth_service.service;
 
+import com.auth.auth_service.dto.ai.AIResponse;
+import com.auth.auth_service.dto.ai.AnomalyReport;
+import com.auth.auth_service.dto.ai.JobTransferRecommendation;
+import com.auth.auth_service.dto.ai.NewUserRecommendation;
+import com.auth.auth_service.exception.AIServiceException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
 
 import java.time.Duration;
-import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Service để gọi AI Permission Recommendation API
  * Kết nối với PoweredAI-RBAC service
+ * <p>
+ * Các method trả về {@link Mono} không block thread gọi; lỗi HTTP, timeout hay mất kết nối được
+ * chuyển thành {@link AIServiceException}. Các biến thể blocking chỉ dành cho luồng đồng bộ
+ * (đăng ký user, job transfer) và dùng chung cùng pipeline.
+ * <p>
+ * Gợi ý new-user và job-transfer chỉ phụ thuộc vào profile nên được cache theo profile đã chuẩn hóa
+ * ({@code ai.cache.*}); cache bị xóa khi AI service trả về model_version khác với lần trước.
+ * <p>
+ * Mỗi lời gọi đi qua circuit breaker ({@link AICircuitBreaker}) và bulkhead giới hạn số lời gọi đồng
+ * thời: khi AI service sập hoặc quá tải, lời gọi bị từ chối ngay thay vì chờ hết timeout. Các gợi ý
+ * là idempotent nên có thể bật hedging ({@code ai.resilience.hedge-delay-ms}): nếu lần gọi đầu chưa
+ * trả lời sau khoảng trễ đó thì gửi thêm một lần và lấy kết quả về trước. Health probe chạy nền,
+ * {@link #healthCheckAsync()} chỉ đọc kết quả probe gần nhất.
+ * <p>
+ * {@link LocalPermissionRecommender} vừa là fast path (profile đã có đủ nhiều user tương tự thì
+ * không gọi AI) vừa là fallback khi AI service lỗi; kết quả fallback không được cache.
  */
 @Service
 @Slf4j
 public class AIPermissionService {
-    
+
     private final WebClient webClient;
-    private final int timeout;
-    
+    private final Duration timeout;
+    private final AIRecommendationCache<NewUserKey, NewUserRecommendation> newUserCache;
+    private final AIRecommendationCache<JobTransferKey, JobTransferRecommendation> jobTransferCache;
+    private final AtomicReference<String> modelVersion = new AtomicReference<>();
+    private final AICircuitBreaker circuitBreaker;
+    private final int maxConcurrentCalls;
+    private final AtomicInteger activeCalls = new AtomicInteger();
+    private final Duration hedgeDelay;
+    private final int probeFailuresToOpen;
+    private final AtomicBoolean probing = new AtomicBoolean();
+    private final AtomicInteger probeFailures = new AtomicInteger();
+    private final LocalPermissionRecommender localRecommender;
+    private volatile boolean healthy;
+
     public AIPermissionService(
             @Value("${ai.service.url:http://localhost:8000}") String aiServiceUrl,
-            @Value("${ai.service.timeout:5000}") int timeout) {
+            @Value("${ai.service.timeout:5000}") int timeout,
+            @Value("${ai.cache.ttl-minutes:30}") long cacheTtlMinutes,
+            @Value("${ai.cache.max-size:1000}") int cacheMaxSize,
+            @Value("${ai.resilience.window-size:20}") int windowSize,
+            @Value("${ai.resilience.min-calls:5}") int minCalls,
+            @Value("${ai.resilience.failure-rate-threshold:0.5}") double failureRateThreshold,
+            @Value("${ai.resilience.slow-call-rate-threshold:0.8}") double slowCallRateThreshold,
+            @Value("${ai.resilience.slow-call-ms:2000}") long slowCallMs,
+            @Value("${ai.resilience.open-ms:30000}") long openMs,
+            @Value("${ai.resilience.half-open-calls:3}") int halfOpenCalls,
+            @Value("${ai.resilience.max-concurrent-calls:20}") int maxConcurrentCalls,
+            @Value("${ai.resilience.hedge-delay-ms:0}") long hedgeDelayMs,
+            @Value("${ai.resilience.probe-failures-to-open:2}") int probeFailuresToOpen,
+            MeterRegistry meterRegistry,
+            LocalPermissionRecommender localRecommender) {
+        this.localRecommender = localRecommender;
         this.webClient = WebClient.builder()
                 .baseUrl(aiServiceUrl)
                 .build();
-        this.timeout = timeout;
+        this.timeout = Duration.ofMillis(timeout);
+        Duration cacheTtl = Duration.ofMinutes(cacheTtlMinutes);
+        this.newUserCache = new AIRecommendationCache<>("ai.recommend.new-user", cacheTtl, cacheMaxSize, meterRegistry);
+        this.jobTransferCache = new AIRecommendationCache<>("ai.recommend.job-transfer", cacheTtl, cacheMaxSize, meterRegistry);
+        this.circuitBreaker = new AICircuitBreaker(windowSize, minCalls, failureRateThreshold, slowCallRateThreshold,
+                Duration.ofMillis(slowCallMs).toNanos(), Duration.ofMillis(openMs).toNanos(), halfOpenCalls);
+        this.maxConcurrentCalls = Math.max(1, maxConcurrentCalls);
+        this.hedgeDelay = Duration.ofMillis(Math.max(0, hedgeDelayMs));
+        this.probeFailuresToOpen = Math.max(1, probeFailuresToOpen);
+        Gauge.builder("ai.circuit.state", circuitBreaker, cb -> cb.state().ordinal())
+                .description("AI service circuit breaker state (0=closed, 1=open, 2=half-open)")
+                .register(meterRegistry);
+        Gauge.builder("ai.bulkhead.active", activeCalls, AtomicInteger::get)
+                .description("In-flight calls to the AI service")
+                .register(meterRegistry);
         log.info("AIPermissionService initialized with URL: {}", aiServiceUrl);
     }
-    
+
     /**
      * Gợi ý quyền cho người dùng mới
      * @param role Vai trò (Doctor, Nurse, Receptionist, Cashier, HR)
@@ -38,185 +110,279 @@ public class AIPermissionService {
      * @param branch Chi nhánh (CN_HN, CN_HCM)
      * @param license Có giấy phép (Yes/No)
      * @param seniority Thâm niên (Junior/Senior)
-     * @return Map chứa danh sách quyền được gợi ý và độ tin cậy
+     * @return danh sách quyền được gợi ý và độ tin cậy
      */
-    @SuppressWarnings("unchecked")
-    public Map<String, Object> recommendNewUser(String role, String department, String branch, 
-                                                 String license, String seniority,String position, String employmentType) {
-        log.info("Requesting AI recommendation for new user: role={}, department={}, branch={}", 
-                role, department, branch);
-        
-        Map<String, String> profile = Map.of(
-            "role", role,
-            "department", department,
-            "branch", branch,
-            "license", license,
-            "seniority", seniority,
-            "position", position,
-            "employment_type", employmentType
-        );
-        
-        try {
-            Map<String, Object> result = webClient.post()
-                    .uri("/recommend/new-user")
-                    .bodyValue(profile)
-                    .retrieve()
-                    .bodyToMono(Map.class)
-                    .timeout(Duration.ofMillis(timeout))
-                    .block();
-            
-            log.info("AI recommendation received successfully");
-            return result;
-        } catch (WebClientResponseException e) {
-            log.error("AI Service HTTP error: {} - {}", e.getStatusCode(), e.getMessage());
-            return Map.of(
-                "error", "AI service error",
-                "status", e.getStatusCode().value(),
-                "message", e.getMessage()
-            );
-        } catch (Exception e) {
-            log.error("AI Service connection error: {}", e.getMessage());
-            return Map.of(
-                "error", "AI service unavailable",
-                "message", e.getMessage()
-            );
+    public Mono<NewUserRecommendation> recommendNewUserAsync(String role, String department, String branch,
+                                                             String license, String seniority,
+                                                             String position, String employmentType) {
+        NewUserKey key = new NewUserKey(normalize(role), normalize(department), normalize(branch),
+                normalize(license), normalize(seniority), normalize(position), normalize(employmentType));
+        Map<String, String> localProfile = key.toProfile();
+        Optional<NewUserRecommendation> local = localRecommender.fastPathNewUser(localProfile);
+        if (local.isPresent()) {
+            return Mono.just(local.get());
         }
+        return newUserCache.get(key, () -> {
+            log.info("Requesting AI recommendation for new user: role={}, department={}, branch={}",
+                    role, department, branch);
+
+            Map<String, String> profile = Map.of(
+                "role", role,
+                "department", department,
+                "branch", branch,
+                "license", license,
+                "seniority", seniority,
+                "position", position,
+                "employment_type", employmentType
+            );
+            return post("/recommend/new-user", profile, NewUserRecommendation.class, "recommendation");
+        }).onErrorResume(AIServiceException.class,
+                e -> fallback(localRecommender.recommendNewUser(localProfile), e));
     }
-    
+
     /**
      * Gợi ý quyền khi chuyển vị trí công tác
      * @param oldProfile Profile cũ của người dùng
      * @param newProfile Profile mới của người dùng
-     * @return Map chứa quyền được thêm, gỡ và giữ lại
+     * @return quyền được thêm, gỡ và giữ lại
      */
-    @SuppressWarnings("unchecked")
-    public Map<String, Object> recommendJobTransfer(Map<String, String> oldProfile, 
-                                                     Map<String, String> newProfile) {
-        log.info("Requesting AI recommendation for job transfer: {} -> {}", 
-                oldProfile.get("role"), newProfile.get("role"));
-        
-        Map<String, Object> request = Map.of(
-            "old_profile", oldProfile,
-            "new_profile", newProfile
-        );
-        
-        try {
-            Map<String, Object> result = webClient.post()
-                    .uri("/recommend/job-transfer")
-                    .bodyValue(request)
-                    .retrieve()
-                    .bodyToMono(Map.class)
-                    .timeout(Duration.ofMillis(timeout))
-                    .block();
-            
-            log.info("AI job transfer recommendation received successfully");
-            return result;
-        } catch (WebClientResponseException e) {
-            log.error("AI Service HTTP error: {} - {}", e.getStatusCode(), e.getMessage());
-            return Map.of(
-                "error", "AI service error",
-                "status", e.getStatusCode().value(),
-                "message", e.getMessage()
-            );
-        } catch (Exception e) {
-            log.error("AI Service connection error: {}", e.getMessage());
-            return Map.of(
-                "error", "AI service unavailable",
-                "message", e.getMessage()
-            );
+    public Mono<JobTransferRecommendation> recommendJobTransferAsync(Map<String, String> oldProfile,
+                                                                     Map<String, String> newProfile) {
+        JobTransferKey key = new JobTransferKey(normalize(oldProfile), normalize(newProfile));
+        Optional<JobTransferRecommendation> local =
+                localRecommender.fastPathJobTransfer(key.oldProfile(), key.newProfile());
+        if (local.isPresent()) {
+            return Mono.just(local.get());
         }
+        return jobTransferCache.get(key, () -> {
+            log.info("Requesting AI recommendation for job transfer: {} -> {}",
+                    oldProfile.get("role"), newProfile.get("role"));
+
+            Map<String, Object> request = Map.of(
+                "old_profile", oldProfile,
+                "new_profile", newProfile
+            );
+            return post("/recommend/job-transfer", request, JobTransferRecommendation.class, "job transfer recommendation");
+        }).onErrorResume(AIServiceException.class,
+                e -> fallback(localRecommender.recommendJobTransfer(key.oldProfile(), key.newProfile()), e));
     }
-    
+
     /**
-     * Rightsizing - phát hiện quyền không sử dụng
-     * @param lookbackDays Số ngày quay lại để kiểm tra (mặc định 90)
-     * @return Map chứa danh sách quyền không sử dụng
+     * Dùng gợi ý local khi AI service lỗi; không có dữ liệu local đủ tin cậy thì trả lỗi gốc.
      */
-    @SuppressWarnings("unchecked")
-    public Map<String, Object> getRightsizing(int lookbackDays) {
-        log.info("Requesting AI rightsizing analysis with lookback_days={}", lookbackDays);
-        
-        try {
-            Map<String, Object> result = webClient.post()
-                    .uri("/recommend/rightsizing")
-                    .bodyValue(Map.of("lookback_days", lookbackDays))
-                    .retrieve()
-                    .bodyToMono(Map.class)
-                    .timeout(Duration.ofMillis(timeout))
-                    .block();
-            
-            log.info("AI rightsizing analysis received successfully");
-            return result;
-        } catch (WebClientResponseException e) {
-            log.error("AI Service HTTP error: {} - {}", e.getStatusCode(), e.getMessage());
-            return Map.of(
-                "error", "AI service error",
-                "status", e.getStatusCode().value(),
-                "message", e.getMessage()
-            );
-        } catch (Exception e) {
-            log.error("AI Service connection error: {}", e.getMessage());
-            return Map.of(
-                "error", "AI service unavailable",
-                "message", e.getMessage()
-            );
+    private static <T> Mono<T> fallback(Optional<T> local, AIServiceException e) {
+        if (local.isEmpty()) {
+            return Mono.error(e);
         }
+        log.warn("AI service failed ({}), using local permission recommendation", e.getMessage());
+        return Mono.just(local.get());
     }
-    
+
     /**
      * Phát hiện bất thường trong audit logs
      * @param riskThreshold Ngưỡng rủi ro (mặc định 3)
-     * @return Map chứa danh sách các sự kiện bất thường
      */
-    @SuppressWarnings("unchecked")
-    public Map<String, Object> detectAnomaly(int riskThreshold) {
+    public Mono<AnomalyReport> detectAnomalyAsync(int riskThreshold) {
         log.info("Requesting AI anomaly detection with risk_threshold={}", riskThreshold);
-        
-        try {
-            Map<String, Object> result = webClient.post()
-                    .uri("/recommend/anomaly")
-                    .bodyValue(Map.of("risk_threshold", riskThreshold))
-                    .retrieve()
-                    .bodyToMono(Map.class)
-                    .timeout(Duration.ofMillis(timeout))
-                    .block();
-            
-            log.info("AI anomaly detection received successfully");
-            return result;
-        } catch (WebClientResponseException e) {
-            log.error("AI Service HTTP error: {} - {}", e.getStatusCode(), e.getMessage());
-            return Map.of(
-                "error", "AI service error",
-                "status", e.getStatusCode().value(),
-                "message", e.getMessage()
-            );
-        } catch (Exception e) {
-            log.error("AI Service connection error: {}", e.getMessage());
-            return Map.of(
-                "error", "AI service unavailable",
-                "message", e.getMessage()
-            );
+        return post("/recommend/anomaly", Map.of("risk_threshold", riskThreshold),
+                AnomalyReport.class, "anomaly detection");
+    }
+
+    /**
+     * Trạng thái AI service theo health probe gần nhất (không gọi AI service)
+     * @return true nếu lần probe gần nhất thành công (không bao giờ lỗi)
+     */
+    public Mono<Boolean> healthCheckAsync() {
+        return Mono.just(healthy);
+    }
+
+    /** Trạng thái circuit breaker: CLOSED, OPEN hoặc HALF_OPEN */
+    public String circuitState() {
+        return circuitBreaker.state().name();
+    }
+
+    /**
+     * Probe /docs định kỳ, không đi qua circuit breaker. Không kết nối được liên tiếp
+     * {@code probe-failures-to-open} lần thì mở breaker ngay;
+     * probe thành công khi breaker đang mở thì cho thử lại sớm (HALF_OPEN).
+     */
+    @Scheduled(fixedDelayString = "${ai.resilience.health-interval-ms:10000}")
+    public void probeHealth() {
+        if (!probing.compareAndSet(false, true)) {
+            return;
+        }
+        webClient.get()
+                .uri("/docs")
+                .retrieve()
+                .toBodilessEntity()
+                .timeout(timeout)
+                .doFinally(signal -> probing.set(false))
+                .subscribe(response -> {
+                    if (!healthy) {
+                        log.info("AI Service health check succeeded");
+                    }
+                    healthy = true;
+                    probeFailures.set(0);
+                    circuitBreaker.onProbeSuccess();
+                }, e -> {
+                    if (healthy) {
+                        log.warn("AI Service health check failed: {}", e.getMessage());
+                    }
+                    healthy = false;
+                    if (!(e instanceof WebClientResponseException)
+                            && probeFailures.incrementAndGet() >= probeFailuresToOpen) {
+                        circuitBreaker.onProbeFailure(System.nanoTime());
+                    }
+                });
+    }
+
+    /**
+     * Phiên bản blocking của {@link #recommendNewUserAsync} cho luồng đăng ký user.
+     *
+     * @throws AIServiceException nếu AI service lỗi hoặc không phản hồi
+     */
+    public NewUserRecommendation recommendNewUser(String role, String department, String branch,
+                                                  String license, String seniority,
+                                                  String position, String employmentType) {
+        return recommendNewUserAsync(role, department, branch, license, seniority, position, employmentType).block();
+    }
+
+    /**
+     * Phiên bản blocking của {@link #recommendJobTransferAsync} cho luồng job transfer.
+     *
+     * @throws AIServiceException nếu AI service lỗi hoặc không phản hồi
+     */
+    public JobTransferRecommendation recommendJobTransfer(Map<String, String> oldProfile,
+                                                          Map<String, String> newProfile) {
+        return recommendJobTransferAsync(oldProfile, newProfile).block();
+    }
+
+    private <T> Mono<T> post(String uri, Object body, Class<T> responseType, String operation) {
+        Mono<T> attempt = guarded(webClient.post()
+                .uri(uri)
+                .bodyValue(body)
+                .retrieve()
+                .bodyToMono(responseType));
+        Mono<T> call = hedgeDelay.isZero() ? attempt : hedged(attempt);
+        return call
+                .switchIfEmpty(Mono.error(() -> new AIServiceException("AI service returned an empty response", null, null)))
+                .doOnNext(result -> {
+                    log.info("AI {} received successfully", operation);
+                    if (result instanceof AIResponse response) {
+                        observeModelVersion(response.getModelVersion());
+                    }
+                })
+                .onErrorMap(e -> !(e instanceof AIServiceException), this::toServiceException);
+    }
+
+    /**
+     * Một lần gọi qua circuit breaker + bulkhead. Lời gọi bị từ chối lỗi ngay, không tốn kết nối.
+     */
+    private <T> Mono<T> guarded(Mono<T> call) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            if (!circuitBreaker.tryAcquire(start)) {
+                return Mono.error(new AIServiceException("AI service unavailable", null, null));
+            }
+            if (activeCalls.incrementAndGet() > maxConcurrentCalls) {
+                activeCalls.decrementAndGet();
+                circuitBreaker.onCancel();
+                return Mono.error(new AIServiceException("AI service busy", null, null));
+            }
+            AtomicBoolean recorded = new AtomicBoolean();
+            return call
+                    .timeout(timeout)
+                    .doOnSuccess(result -> {
+                        if (recorded.compareAndSet(false, true)) {
+                            circuitBreaker.onResult(false, System.nanoTime() - start, System.nanoTime());
+                        }
+                    })
+                    .doOnError(e -> {
+                        if (recorded.compareAndSet(false, true)) {
+                            circuitBreaker.onResult(isServiceFailure(e), System.nanoTime() - start, System.nanoTime());
+                        }
+                    })
+                    .doOnCancel(() -> {
+                        if (recorded.compareAndSet(false, true)) {
+                            circuitBreaker.onCancel();
+                        }
+                    })
+                    .doFinally(signal -> activeCalls.decrementAndGet());
+        });
+    }
+
+    /**
+     * Gửi thêm một lần gọi nếu lần đầu chưa có kết quả sau {@link #hedgeDelay}, lấy kết quả về trước.
+     * Lần đầu lỗi trước khi hết trễ (vd. breaker đang mở) thì trả lỗi ngay, không gửi thêm.
+     */
+    private <T> Mono<T> hedged(Mono<T> attempt) {
+        return Mono.defer(() -> {
+            Sinks.Empty<Void> primaryFailed = Sinks.empty();
+            AtomicReference<Throwable> primaryError = new AtomicReference<>();
+            Mono<T> primary = attempt.doOnError(e -> {
+                primaryError.set(e);
+                primaryFailed.tryEmitEmpty();
+            });
+            Mono<T> backup = Mono.delay(hedgeDelay)
+                    .takeUntilOther(primaryFailed.asMono())
+                    .flatMap(tick -> attempt);
+            return Mono.firstWithValue(primary, backup)
+                    .onErrorMap(NoSuchElementException.class,
+                            e -> primaryError.get() != null ? primaryError.get() : e);
+        });
+    }
+
+    /** Lỗi 4xx là lỗi của request, không phải của AI service */
+    private static boolean isServiceFailure(Throwable e) {
+        if (e instanceof WebClientResponseException responseException) {
+            return responseException.getStatusCode().is5xxServerError();
         }
+        return true;
     }
-    
+
     /**
-     * Kiểm tra kết nối tới AI service
-     * @return true nếu kết nối thành công
+     * Model mới có thể gợi ý khác cho cùng profile: bỏ toàn bộ gợi ý đã cache.
      */
-    public boolean healthCheck() {
-        try {
-            webClient.get()
-                    .uri("/docs")
-                    .retrieve()
-                    .bodyToMono(String.class)
-                    .timeout(Duration.ofMillis(timeout))
-                    .block();
-            return true;
-        } catch (Exception e) {
-            log.warn("AI Service health check failed: {}", e.getMessage());
-            return false;
+    private void observeModelVersion(String version) {
+        if (version == null) {
+            return;
+        }
+        String previous = modelVersion.getAndSet(version);
+        if (previous != null && !previous.equals(version)) {
+            log.info("AI model version changed {} -> {}, clearing recommendation cache", previous, version);
+            newUserCache.invalidateAll();
+            jobTransferCache.invalidateAll();
         }
     }
-}
 
+    private static String normalize(String value) {
+        return value != null ? value.trim() : "";
+    }
+
+    private static Map<String, String> normalize(Map<String, String> profile) {
+        Map<String, String> normalized = new TreeMap<>();
+        profile.forEach((k, v) -> normalized.put(k, normalize(v)));
+        return normalized;
+    }
+
+    private AIServiceException toServiceException(Throwable e) {
+        if (e instanceof WebClientResponseException responseException) {
+            log.error("AI Service HTTP error: {} - {}", responseException.getStatusCode(), e.getMessage());
+            return new AIServiceException("AI service error", responseException.getStatusCode().value(), e);
+        }
+        log.error("AI Service connection error: {}", e.getMessage());
+        return new AIServiceException("AI service unavailable", null, e);
+    }
+
+    private record NewUserKey(String role, String department, String branch, String license,
+                              String seniority, String position, String employmentType) {
+
+        Map<String, String> toProfile() {
+            return Map.of("role", role, "department", department, "branch", branch, "license", license,
+                    "seniority", seniority, "position", position, "employment_type", employmentType);
+        }
+    }
 
+    private record JobTransferKey(Map<String, String> oldProfile, Map<String, String> newProfile) {
+    }
+}
@@ -0,0 +1,137 @@
+package com.auth.auth_service.service;
+
+import com.auth.auth_service.dto.ai.PermissionRecommendation;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Ghi kết quả AI của một batch job outbox thành pending_permission_requests và đánh dấu job DONE,
+ * trong cùng một transaction ngắn (JDBC batch, không gọi AI).
+ * <p>
+ * Nhãn "ResourceType_action" được resolve qua {@link PermissionCatalog} (không query DB). Gợi ý
+ * trùng với request PENDING đã có bị bỏ qua (ON CONFLICT); với NEW_USER, quyền đã có từ role cũng
+ * bị bỏ qua.
+ */
+@Component
+@Slf4j
+public class AIRecommendationApplier {
+
+    private static final String INSERT_NEW_USER_SQL = """
+            INSERT INTO pending_permission_requests
+                (user_id, permission_id, confidence, request_type, change_type, status, requested_at)
+            SELECT ?, ?, ?, 'NEW_USER', 'ADD', 'PENDING', ?
+            WHERE NOT EXISTS (
+                SELECT 1 FROM users u JOIN role_permissions rp ON rp.role_id = u.role_id
+                WHERE u.id = ? AND rp.permission_id = ?)
+            ON CONFLICT DO NOTHING
+            """;
+
+    private static final String INSERT_JOB_TRANSFER_SQL = """
+            INSERT INTO pending_permission_requests
+                (user_id, permission_id, confidence, request_type, change_type, status, requested_at)
+            VALUES (?, ?, ?, 'JOB_TRANSFER', ?, 'PENDING', ?)
+            ON CONFLICT DO NOTHING
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final AIRecommendationOutbox outbox;
+    private final PermissionCatalog catalog;
+
+    public AIRecommendationApplier(JdbcTemplate jdbcTemplate,
+                                   PlatformTransactionManager transactionManager,
+                                   AIRecommendationOutbox outbox,
+                                   PermissionCatalog catalog) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.outbox = outbox;
+        this.catalog = catalog;
+    }
+
+    /**
+     * @return số pending request đã tạo
+     */
+    int apply(List<Result> results) {
+        if (results.isEmpty()) {
+            return 0;
+        }
+        Integer created = transactionTemplate.execute(status -> {
+            Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+            List<Object[]> newUserRows = new ArrayList<>();
+            List<Object[]> jobTransferRows = new ArrayList<>();
+
+            for (Result result : results) {
+                long userId = result.job().userId();
+                if (AIRecommendationOutbox.NEW_USER.equals(result.job().requestType())) {
+                    for (PermissionRecommendation rec : result.added()) {
+                        Long permissionId = resolve(rec);
+                        if (permissionId != null) {
+                            newUserRows.add(new Object[]{userId, permissionId, confidence(rec), now, userId, permissionId});
+                        }
+                    }
+                } else {
+                    addJobTransferRows(jobTransferRows, userId, result.added(), "ADD", now);
+                    addJobTransferRows(jobTransferRows, userId, result.removed(), "REMOVE", now);
+                }
+            }
+
+            int count = sum(jdbcTemplate.batchUpdate(INSERT_NEW_USER_SQL, newUserRows))
+                    + sum(jdbcTemplate.batchUpdate(INSERT_JOB_TRANSFER_SQL, jobTransferRows));
+            outbox.markDone(results.stream().map(r -> r.job().id()).toList());
+            return count;
+        });
+        log.info("Applied {} AI recommendation jobs: {} pending permission requests created", results.size(), created);
+        return created != null ? created : 0;
+    }
+
+    private void addJobTransferRows(List<Object[]> rows, long userId,
+                                    List<PermissionRecommendation> recommendations, String changeType,
+                                    Timestamp now) {
+        for (PermissionRecommendation rec : recommendations) {
+            Long permissionId = resolve(rec);
+            if (permissionId != null) {
+                rows.add(new Object[]{userId, permissionId, confidence(rec), changeType, now});
+            }
+        }
+    }
+
+    /**
+     * Nhãn (vd. "MedicalRecord_read") → permission id có id nhỏ nhất, giống
+     * {@code findFirstByResourceTypeAndAction}.
+     */
+    private Long resolve(PermissionRecommendation rec) {
+        return catalog.resolveLabel(rec.getPermission()).map(PermissionCatalog.Entry::id).orElse(null);
+    }
+
+    private static BigDecimal confidence(PermissionRecommendation rec) {
+        double confidence = rec.getConfidence() != null ? rec.getConfidence() : 0.6;
+        return BigDecimal.valueOf(confidence).setScale(2, RoundingMode.HALF_UP);
+    }
+
+    private static int sum(int[] counts) {
+        int total = 0;
+        for (int c : counts) {
+            // SUCCESS_NO_INFO (-2) khi driver không trả số dòng
+            total += Math.max(c, 0);
+        }
+        return total;
+    }
+
+    /**
+     * Kết quả AI cho một job outbox. NEW_USER chỉ dùng {@code added}.
+     */
+    record Result(AIRecommendationOutbox.OutboxJob job,
+                  List<PermissionRecommendation> added,
+                  List<PermissionRecommendation> removed) {
+    }
+}
@@ -0,0 +1,184 @@
+package com.auth.auth_service.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.cache.CacheMeterBinder;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Cache có giới hạn kích thước + TTL cho các gợi ý của AI service, key là profile đã chuẩn hóa.
+ * <p>
+ * Các request giống nhau đang chạy đồng thời dùng chung một lời gọi (entry lưu {@link Mono} đã
+ * {@code cache()}); lỗi không được cache. {@link #invalidateAll()} bỏ toàn bộ entry, kể cả kết quả
+ * của lời gọi đang chạy từ trước khi invalidate.
+ * <p>
+ * Metric theo chuẩn Micrometer: {@code cache.gets{result=hit|miss}}, {@code cache.puts},
+ * {@code cache.evictions}, {@code cache.size}, thêm {@code cache.coalesced} (hit trên lời gọi
+ * đang chạy).
+ */
+final class AIRecommendationCache<K, V> {
+
+    private final Duration ttl;
+    private final int maxSize;
+    private final Map<K, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder puts = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    AIRecommendationCache(String name, Duration ttl, int maxSize, MeterRegistry meterRegistry) {
+        this.ttl = ttl;
+        this.maxSize = Math.max(1, maxSize);
+        new Metrics(this, name).bindTo(meterRegistry);
+    }
+
+    /**
+     * @param loader chỉ được gọi khi chưa có entry còn hạn (hoặc đang chạy) cho key
+     */
+    Mono<V> get(K key, Supplier<Mono<V>> loader) {
+        long now = System.nanoTime();
+        Entry<V> current = entries.get(key);
+        if (current != null && !current.isExpired(now)) {
+            recordHit(current);
+            return current.value;
+        }
+
+        Entry<V> created = new Entry<>(now, generation.get());
+        created.value = Mono.defer(loader)
+                .doOnNext(value -> loaded(key, created))
+                .doOnError(e -> entries.remove(key, created))
+                .cache(value -> ttl, e -> Duration.ZERO, () -> Duration.ZERO);
+
+        Entry<V> winner = entries.compute(key, (k, existing) ->
+                existing != null && !existing.isExpired(now) ? existing : created);
+        if (winner != created) {
+            recordHit(winner);
+            return winner.value;
+        }
+        misses.increment();
+        if (entries.size() > maxSize) {
+            evict(now);
+        }
+        return created.value;
+    }
+
+    void invalidateAll() {
+        generation.incrementAndGet();
+        entries.clear();
+    }
+
+    private void recordHit(Entry<V> entry) {
+        hits.increment();
+        if (entry.expiresAt == Long.MAX_VALUE) {
+            coalesced.increment();
+        }
+    }
+
+    private void loaded(K key, Entry<V> entry) {
+        if (entry.generation != generation.get()) {
+            // Kết quả từ trước khi invalidate (vd. model version đổi giữa chừng): trả cho caller nhưng không giữ lại
+            entries.remove(key, entry);
+            return;
+        }
+        entry.expiresAt = System.nanoTime() + ttl.toNanos();
+        puts.increment();
+    }
+
+    /**
+     * Bỏ entry hết hạn; nếu vẫn vượt giới hạn thì bỏ entry tạo sớm nhất.
+     */
+    private void evict(long now) {
+        entries.entrySet().removeIf(e -> {
+            boolean expired = e.getValue().isExpired(now);
+            if (expired) {
+                evictions.increment();
+            }
+            return expired;
+        });
+        while (entries.size() > maxSize) {
+            Map.Entry<K, Entry<V>> oldest = null;
+            for (Map.Entry<K, Entry<V>> e : entries.entrySet()) {
+                if (oldest == null || e.getValue().createdAt - oldest.getValue().createdAt < 0) {
+                    oldest = e;
+                }
+            }
+            if (oldest == null) {
+                return;
+            }
+            if (entries.remove(oldest.getKey(), oldest.getValue())) {
+                evictions.increment();
+            }
+        }
+    }
+
+    private static final class Entry<V> {
+        final long createdAt;
+        final long generation;
+        Mono<V> value;
+        /** Long.MAX_VALUE khi lời gọi còn đang chạy */
+        volatile long expiresAt = Long.MAX_VALUE;
+
+        Entry(long createdAt, long generation) {
+            this.createdAt = createdAt;
+            this.generation = generation;
+        }
+
+        boolean isExpired(long now) {
+            return expiresAt != Long.MAX_VALUE && now - expiresAt >= 0;
+        }
+    }
+
+    private static final class Metrics extends CacheMeterBinder<AIRecommendationCache<?, ?>> {
+
+        private final AIRecommendationCache<?, ?> cache;
+
+        Metrics(AIRecommendationCache<?, ?> cache, String name) {
+            super(cache, name, Tags.empty());
+            this.cache = cache;
+        }
+
+        @Override
+        protected Long size() {
+            return (long) cache.entries.size();
+        }
+
+        @Override
+        protected long hitCount() {
+            return cache.hits.sum();
+        }
+
+        @Override
+        protected Long missCount() {
+            return cache.misses.sum();
+        }
+
+        @Override
+        protected Long evictionCount() {
+            return cache.evictions.sum();
+        }
+
+        @Override
+        protected long putCount() {
+            return cache.puts.sum();
+        }
+
+        @Override
+        protected void bindImplementationSpecificMetrics(MeterRegistry registry) {
+            FunctionCounter.builder("cache.coalesced", cache, c -> c.coalesced.sum())
+                    .tags(getTagsWithCacheName())
+                    .description("Cache hits served by an in-flight AI call")
+                    .register(registry);
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.auth.auth_service.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bảng ai_recommendation_outbox (xem V10): job gợi ý quyền được ghi cùng transaction với thay đổi
+ * user, {@link AIRecommendationWorker} xử lý sau khi commit. Không có lời gọi AI nào giữ connection.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class AIRecommendationOutbox {
+
+    public static final String NEW_USER = "NEW_USER";
+    public static final String JOB_TRANSFER = "JOB_TRANSFER";
+
+    private static final TypeReference<Map<String, String>> PROFILE = new TypeReference<>() {};
+    private static final TypeReference<Map<String, Map<String, String>>> PROFILE_PAIR = new TypeReference<>() {};
+
+    private static final String INSERT_SQL =
+            "INSERT INTO ai_recommendation_outbox (user_id, request_type, payload, created_at, next_attempt_at, bulk_job_id) VALUES (?, ?, ?, ?, ?, ?)";
+
+    private static final String CLAIM_SQL = """
+            UPDATE ai_recommendation_outbox o
+            SET status = 'PROCESSING', attempts = o.attempts + 1, locked_until = ?
+            WHERE o.id IN (
+                SELECT id FROM ai_recommendation_outbox
+                WHERE (status = 'PENDING' AND next_attempt_at <= ?)
+                   OR (status = 'PROCESSING' AND locked_until < ?)
+                ORDER BY id
+                LIMIT ?
+                FOR UPDATE SKIP LOCKED)
+            RETURNING o.id, o.user_id, o.request_type, o.payload, o.attempts
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Ghi job NEW_USER; phải nằm trong transaction tạo user.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueueNewUser(Long userId, Map<String, String> profile) {
+        insert(Request.newUser(userId, profile));
+    }
+
+    /**
+     * Ghi job JOB_TRANSFER; phải nằm trong transaction cập nhật user.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueueJobTransfer(Long userId, Map<String, String> oldProfile, Map<String, String> newProfile) {
+        insert(Request.jobTransfer(userId, oldProfile, newProfile));
+    }
+
+    /**
+     * Ghi nhiều job trong một JDBC batch; phải nằm trong transaction cập nhật các user.
+     *
+     * @param bulkJobId bulk job tạo ra các request (để theo dõi tiến độ), có thể null
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueueAll(List<Request> requests, Long bulkJobId) {
+        if (requests.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> rows = new ArrayList<>(requests.size());
+        for (Request request : requests) {
+            rows.add(new Object[]{request.userId(), request.requestType(), write(request.payload()), now, now, bulkJobId});
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+        log.debug("Queued {} AI recommendations for bulk job {}", requests.size(), bulkJobId);
+    }
+
+    /**
+     * Nhận tối đa {@code limit} job đến hạn (hoặc job PROCESSING đã hết lease do worker chết) và
+     * giữ lease tới {@code leaseUntil}. Các worker song song không nhận trùng job.
+     */
+    List<OutboxJob> claim(int limit, LocalDateTime leaseUntil) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        return jdbcTemplate.query(CLAIM_SQL, (rs, i) -> new OutboxJob(
+                rs.getLong("id"),
+                rs.getLong("user_id"),
+                rs.getString("request_type"),
+                rs.getString("payload"),
+                rs.getInt("attempts")), Timestamp.valueOf(leaseUntil), now, now, limit);
+    }
+
+    void markDone(Collection<Long> ids) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(
+                "UPDATE ai_recommendation_outbox SET status = 'DONE', processed_at = ?, locked_until = NULL, last_error = NULL WHERE id = ?",
+                ids.stream().map(id -> new Object[]{now, id}).toList());
+    }
+
+    void reschedule(long id, LocalDateTime nextAttemptAt, String error) {
+        jdbcTemplate.update(
+                "UPDATE ai_recommendation_outbox SET status = 'PENDING', next_attempt_at = ?, locked_until = NULL, last_error = ? WHERE id = ?",
+                Timestamp.valueOf(nextAttemptAt), truncate(error), id);
+    }
+
+    void markFailed(long id, String error) {
+        jdbcTemplate.update(
+                "UPDATE ai_recommendation_outbox SET status = 'FAILED', processed_at = ?, locked_until = NULL, last_error = ? WHERE id = ?",
+                Timestamp.valueOf(LocalDateTime.now()), truncate(error), id);
+    }
+
+    /**
+     * Xóa các job DONE / FAILED xử lý xong trước {@code cutoff}.
+     *
+     * @return số dòng đã xóa
+     */
+    int deleteFinishedBefore(LocalDateTime cutoff) {
+        return jdbcTemplate.update(
+                "DELETE FROM ai_recommendation_outbox WHERE status IN ('DONE', 'FAILED') AND processed_at < ?",
+                Timestamp.valueOf(cutoff));
+    }
+
+    Map<String, String> readProfile(OutboxJob job) {
+        return read(job.payload(), PROFILE);
+    }
+
+    Map<String, Map<String, String>> readProfilePair(OutboxJob job) {
+        return read(job.payload(), PROFILE_PAIR);
+    }
+
+    private void insert(Request request) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.update(INSERT_SQL, request.userId(), request.requestType(), write(request.payload()), now, now, null);
+        log.debug("Queued {} AI recommendation for user id {}", request.requestType(), request.userId());
+    }
+
+    private String write(Object payload) {
+        try {
+            return objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize AI recommendation payload", e);
+        }
+    }
+
+    private <T> T read(String payload, TypeReference<T> type) {
+        try {
+            return objectMapper.readValue(payload, type);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Corrupt AI recommendation payload", e);
+        }
+    }
+
+    private static String truncate(String error) {
+        return error != null && error.length() > 500 ? error.substring(0, 500) : error;
+    }
+
+    /**
+     * Một job cần ghi, xem {@link #enqueueAll}.
+     */
+    public record Request(Long userId, String requestType, Object payload) {
+
+        public static Request newUser(Long userId, Map<String, String> profile) {
+            return new Request(userId, NEW_USER, profile);
+        }
+
+        public static Request jobTransfer(Long userId, Map<String, String> oldProfile, Map<String, String> newProfile) {
+            return new Request(userId, JOB_TRANSFER, Map.of("old_profile", oldProfile, "new_profile", newProfile));
+        }
+    }
+
+    /**
+     * Một dòng outbox đã được worker nhận.
+     *
+     * @param attempts số lần xử lý, tính cả lần hiện tại
+     */
+    record OutboxJob(long id, long userId, String requestType, String payload, int attempts) {
+    }
+}
@@ -0,0 +1,181 @@
+package com.auth.auth_service.service;
+
+import com.auth.auth_service.dto.ai.PermissionRecommendation;
+import com.auth.auth_service.exception.AIServiceException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Worker xử lý ai_recommendation_outbox: nhận một batch job (SKIP LOCKED, có lease), gọi AI service
+ * không blocking với số lời gọi đồng thời giới hạn, rồi ghi kết quả qua
+ * {@link AIRecommendationApplier} trong một transaction ngắn.
+ * <p>
+ * Không có connection nào bị giữ trong lúc chờ AI: claim và apply là hai lệnh JDBC riêng. Job lỗi
+ * được thử lại với backoff tăng dần; lỗi 4xx hoặc hết số lần thử thì chuyển FAILED. Job DONE / FAILED
+ * được xóa sau {@code ai.outbox.retention-days}.
+ */
+@Component
+@Slf4j
+public class AIRecommendationWorker {
+
+    private final AIRecommendationOutbox outbox;
+    private final AIRecommendationApplier applier;
+    private final AIPermissionService aiPermissionService;
+    private final int batchSize;
+    private final int concurrency;
+    private final Duration lease;
+    private final int maxAttempts;
+    private final Duration retryBase;
+    private final Duration retryMax;
+    private final Duration retention;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public AIRecommendationWorker(
+            AIRecommendationOutbox outbox,
+            AIRecommendationApplier applier,
+            AIPermissionService aiPermissionService,
+            @Value("${ai.outbox.batch-size:50}") int batchSize,
+            @Value("${ai.outbox.concurrency:8}") int concurrency,
+            @Value("${ai.outbox.lease-seconds:120}") long leaseSeconds,
+            @Value("${ai.outbox.max-attempts:8}") int maxAttempts,
+            @Value("${ai.outbox.retry-base-ms:5000}") long retryBaseMs,
+            @Value("${ai.outbox.retry-max-ms:600000}") long retryMaxMs,
+            @Value("${ai.outbox.retention-days:30}") long retentionDays) {
+        this.outbox = outbox;
+        this.applier = applier;
+        this.aiPermissionService = aiPermissionService;
+        this.batchSize = Math.max(1, batchSize);
+        this.concurrency = Math.max(1, concurrency);
+        this.lease = Duration.ofSeconds(leaseSeconds);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.retryBase = Duration.ofMillis(retryBaseMs);
+        this.retryMax = Duration.ofMillis(retryMaxMs);
+        this.retention = Duration.ofDays(retentionDays);
+    }
+
+    /**
+     * Nhận batch tiếp theo nếu batch trước đã xong. Lời gọi AI chạy bất đồng bộ nên thread của
+     * scheduler không bị chiếm.
+     */
+    @Scheduled(fixedDelayString = "${ai.outbox.poll-interval-ms:1000}")
+    public void poll() {
+        if (!running.compareAndSet(false, true)) {
+            return;
+        }
+        List<AIRecommendationOutbox.OutboxJob> jobs;
+        try {
+            jobs = outbox.claim(batchSize, LocalDateTime.now().plus(lease));
+        } catch (DataAccessException e) {
+            running.set(false);
+            log.error("Failed to claim AI recommendation jobs: {}", e.getMessage());
+            return;
+        }
+        if (jobs.isEmpty()) {
+            running.set(false);
+            return;
+        }
+        log.debug("Processing {} AI recommendation jobs", jobs.size());
+
+        Flux.fromIterable(jobs)
+                .flatMap(job -> recommend(job)
+                        .map(result -> new Outcome(job, result, null))
+                        .onErrorResume(e -> Mono.just(new Outcome(job, null, e))), concurrency)
+                .collectList()
+                // Ghi DB trên boundedElastic, không chạy JDBC trên event loop của WebClient
+                .publishOn(Schedulers.boundedElastic())
+                .doOnNext(this::complete)
+                .doFinally(signal -> running.set(false))
+                .subscribe(outcomes -> { }, e -> log.error("AI recommendation batch failed: {}", e.getMessage()));
+    }
+
+    /**
+     * Xóa job đã xong quá thời gian giữ; tiến độ AI của bulk job cũ hơn mốc này không còn đếm được.
+     */
+    @Scheduled(cron = "${ai.outbox.prune-cron:0 0 3 * * *}")
+    public void pruneFinished() {
+        try {
+            int deleted = outbox.deleteFinishedBefore(LocalDateTime.now().minus(retention));
+            if (deleted > 0) {
+                log.info("Pruned {} finished AI recommendation jobs", deleted);
+            }
+        } catch (DataAccessException e) {
+            log.error("AI recommendation outbox pruning failed: {}", e.getMessage());
+        }
+    }
+
+    private Mono<AIRecommendationApplier.Result> recommend(AIRecommendationOutbox.OutboxJob job) {
+        return Mono.defer(() -> {
+            if (AIRecommendationOutbox.NEW_USER.equals(job.requestType())) {
+                Map<String, String> p = outbox.readProfile(job);
+                return aiPermissionService.recommendNewUserAsync(p.get("role"), p.get("department"), p.get("branch"),
+                                p.get("license"), p.get("seniority"), p.get("position"), p.get("employment_type"))
+                        .map(r -> new AIRecommendationApplier.Result(job, nonNull(r.getRecommendations()), List.of()));
+            }
+            Map<String, Map<String, String>> pair = outbox.readProfilePair(job);
+            return aiPermissionService.recommendJobTransferAsync(pair.get("old_profile"), pair.get("new_profile"))
+                    .map(r -> new AIRecommendationApplier.Result(job,
+                            nonNull(r.getAddedPermissions()), nonNull(r.getRemovedPermissions())));
+        });
+    }
+
+    private void complete(List<Outcome> outcomes) {
+        List<AIRecommendationApplier.Result> results = new ArrayList<>();
+        for (Outcome outcome : outcomes) {
+            if (outcome.error() != null) {
+                retryOrFail(outcome.job(), outcome.error());
+            } else {
+                results.add(outcome.result());
+            }
+        }
+        try {
+            applier.apply(results);
+        } catch (DataAccessException e) {
+            log.error("Failed to persist {} AI recommendation results: {}", results.size(), e.getMessage());
+            results.forEach(result -> retryOrFail(result.job(), e));
+        }
+    }
+
+    private void retryOrFail(AIRecommendationOutbox.OutboxJob job, Throwable e) {
+        boolean clientError = e instanceof AIServiceException ai && ai.getStatus() != null
+                && ai.getStatus() >= 400 && ai.getStatus() < 500;
+        try {
+            if (clientError || !(e instanceof AIServiceException || e instanceof DataAccessException)
+                    || job.attempts() >= maxAttempts) {
+                log.warn("AI recommendation job {} ({}) failed after {} attempts: {}",
+                        job.id(), job.requestType(), job.attempts(), e.getMessage());
+                outbox.markFailed(job.id(), e.getMessage());
+            } else {
+                outbox.reschedule(job.id(), LocalDateTime.now().plus(backoff(job.attempts())), e.getMessage());
+            }
+        } catch (DataAccessException dbError) {
+            // Lease hết hạn thì job được nhận lại
+            log.error("Failed to update AI recommendation job {}: {}", job.id(), dbError.getMessage());
+        }
+    }
+
+    private Duration backoff(int attempts) {
+        Duration delay = retryBase.multipliedBy(1L << Math.min(attempts - 1, 20));
+        return delay.compareTo(retryMax) > 0 ? retryMax : delay;
+    }
+
+    private static List<PermissionRecommendation> nonNull(List<PermissionRecommendation> list) {
+        return list != null ? list : List.of();
+    }
+
+    private record Outcome(AIRecommendationOutbox.OutboxJob job, AIRecommendationApplier.Result result, Throwable error) {
+    }
+}
@@ -0,0 +1,242 @@
+package com.auth.auth_service.service;
+
+import com.auth.auth_service.dto.AuditLogFilter;
+import com.auth.auth_service.exception.UnsupportedExportFormatException;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.opencsv.CSVWriter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Export audit log dạng stream (CSV hoặc NDJSON, có thể gzip).
+ * <p>
+ * Đọc qua JDBC cursor forward-only (fetch size trong transaction read-only, để PostgreSQL
+ * không nạp toàn bộ kết quả), map từng dòng ResultSet thẳng ra output, không tạo entity JPA.
+ * Bộ nhớ dùng không phụ thuộc số dòng export.
+ */
+@Service
+@Slf4j
+public class AuditExportService {
+
+    public enum Format {
+        CSV("csv", "text/csv"),
+        NDJSON("ndjson", "application/x-ndjson");
+
+        private final String extension;
+        private final String contentType;
+
+        Format(String extension, String contentType) {
+            this.extension = extension;
+            this.contentType = contentType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        /**
+         * @throws UnsupportedExportFormatException nếu {@code value} không phải csv / ndjson
+         */
+        public static Format parse(String value) {
+            for (Format format : values()) {
+                if (format.extension.equalsIgnoreCase(value)) {
+                    return format;
+                }
+            }
+            throw new UnsupportedExportFormatException(value);
+        }
+    }
+
+    private static final String[] COLUMNS = {
+            "id", "timestamp", "user_id", "resource_type", "resource_id", "action", "allowed",
+            "policy_id", "deny_reasons", "risk_score", "ip_address", "user_agent"
+    };
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final JdbcTemplate cursorJdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ObjectMapper objectMapper;
+    private final long timeoutMillis;
+
+    public AuditExportService(
+            DataSource dataSource,
+            PlatformTransactionManager transactionManager,
+            ObjectMapper objectMapper,
+            @Value("${audit.export.fetch-size:5000}") int fetchSize,
+            @Value("${audit.export.timeout-ms:3600000}") long timeoutMillis) {
+        this.cursorJdbcTemplate = new JdbcTemplate(dataSource);
+        this.cursorJdbcTemplate.setFetchSize(fetchSize);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.objectMapper = objectMapper;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Timeout async riêng cho request export (export lớn chạy lâu hơn nhiều so với
+     * {@code spring.mvc.async.request-timeout} mặc định của các endpoint khác).
+     */
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    /**
+     * Ghi toàn bộ audit log khớp filter (theo thứ tự thời gian tăng dần) ra {@code out}.
+     *
+     * @return số dòng đã ghi
+     */
+    public long export(AuditLogFilter filter, Format format, boolean gzip, OutputStream out) throws IOException {
+        OutputStream target = gzip ? new GZIPOutputStream(out, BUFFER_SIZE) : out;
+        Writer writer = new BufferedWriter(new OutputStreamWriter(target, StandardCharsets.UTF_8), BUFFER_SIZE);
+
+        RowSink sink = format == Format.CSV ? new CsvSink(writer) : new NdjsonSink(writer);
+        long[] rows = new long[1];
+        long start = System.currentTimeMillis();
+
+        List<Object> params = new ArrayList<>();
+        String sql = "SELECT " + String.join(", ", COLUMNS) + " FROM audit_logs"
+                + buildWhere(filter, params) + " ORDER BY timestamp, id";
+
+        try {
+            readOnlyTransaction.executeWithoutResult(status ->
+                    cursorJdbcTemplate.query(sql, (RowCallbackHandler) rs -> {
+                        try {
+                            sink.write(rs);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                        rows[0]++;
+                    }, params.toArray()));
+        } catch (UncheckedIOException e) {
+            // Client ngắt kết nối giữa chừng
+            throw e.getCause();
+        }
+
+        sink.close();
+        log.info("Audit export finished: {} rows as {}{} in {} ms",
+                rows[0], format.getExtension(), gzip ? ".gz" : "", System.currentTimeMillis() - start);
+        return rows[0];
+    }
+
+    private String buildWhere(AuditLogFilter filter, List<Object> params) {
+        List<String> conditions = new ArrayList<>();
+        addCondition(conditions, params, "user_id = ?", filter.getUserId());
+        addCondition(conditions, params, "resource_type = ?", filter.getResourceType());
+        addCondition(conditions, params, "resource_id = ?", filter.getResourceId());
+        addCondition(conditions, params, "action = ?", filter.getAction());
+        addCondition(conditions, params, "allowed = ?", filter.getAllowed());
+        addCondition(conditions, params, "risk_score >= ?", filter.getMinRiskScore());
+        addCondition(conditions, params, "risk_score <= ?", filter.getMaxRiskScore());
+        addCondition(conditions, params, "ip_address = ?", filter.getIpAddress());
+        addCondition(conditions, params, "timestamp >= ?",
+                filter.getFrom() != null ? Timestamp.valueOf(filter.getFrom()) : null);
+        addCondition(conditions, params, "timestamp < ?",
+                filter.getTo() != null ? Timestamp.valueOf(filter.getTo()) : null);
+        return conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions);
+    }
+
+    private static void addCondition(List<String> conditions, List<Object> params, String condition, Object value) {
+        if (value != null) {
+            conditions.add(condition);
+            params.add(value);
+        }
+    }
+
+    private interface RowSink {
+        void write(ResultSet rs) throws SQLException, IOException;
+
+        void close() throws IOException;
+    }
+
+    private static final class CsvSink implements RowSink {
+        private final CSVWriter csv;
+        private final String[] line = new String[COLUMNS.length];
+
+        CsvSink(Writer writer) {
+            this.csv = new CSVWriter(writer);
+            csv.writeNext(COLUMNS, false);
+        }
+
+        @Override
+        public void write(ResultSet rs) throws SQLException {
+            for (int i = 0; i < COLUMNS.length; i++) {
+                line[i] = rs.getString(i + 1);
+            }
+            line[1] = rs.getTimestamp(2).toLocalDateTime().toString();
+            line[6] = String.valueOf(rs.getBoolean(7));
+            csv.writeNext(line, false);
+        }
+
+        @Override
+        public void close() throws IOException {
+            csv.close();
+        }
+    }
+
+    private final class NdjsonSink implements RowSink {
+        private final JsonGenerator json;
+        private boolean empty = true;
+
+        NdjsonSink(Writer writer) throws IOException {
+            this.json = objectMapper.getFactory().createGenerator(writer);
+            json.setRootValueSeparator(new SerializedString("\n"));
+        }
+
+        @Override
+        public void write(ResultSet rs) throws SQLException, IOException {
+            empty = false;
+            json.writeStartObject();
+            json.writeNumberField("id", rs.getLong(1));
+            json.writeStringField("timestamp", rs.getTimestamp(2).toLocalDateTime().toString());
+            json.writeStringField("userId", rs.getString(3));
+            json.writeStringField("resourceType", rs.getString(4));
+            json.writeStringField("resourceId", rs.getString(5));
+            json.writeStringField("action", rs.getString(6));
+            json.writeBooleanField("allowed", rs.getBoolean(7));
+            writeNullable("policyId", rs.getString(8));
+            writeNullable("denyReasons", rs.getString(9));
+            int risk = rs.getInt(10);
+            if (!rs.wasNull()) {
+                json.writeNumberField("riskScore", risk);
+            }
+            writeNullable("ipAddress", rs.getString(11));
+            writeNullable("userAgent", rs.getString(12));
+            json.writeEndObject();
+        }
+
+        private void writeNullable(String field, String value) throws IOException {
+            if (value != null) {
+                json.writeStringField(field, value);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!empty) {
+                json.writeRaw('\n');
+            }
+            json.close();
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.auth.auth_service.service;
+
+import com.auth.auth_service.dto.AuditLogFilter;
+import com.auth.auth_service.dto.AuditLogPage;
+import com.auth.auth_service.entity.AuditLog;
+import com.auth.auth_service.exception.InvalidCursorException;
+import com.auth.auth_service.repository.AuditLogRepository;
+import com.auth.auth_service.repository.AuditLogSpecifications;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Truy vấn audit log: mọi filter được đẩy xuống SQL và phân trang bằng keyset
+ * (timestamp DESC, id DESC) thay vì OFFSET, nên trang sâu tốn chi phí như trang đầu.
+ */
+@Service
+@RequiredArgsConstructor
+public class AuditQueryService {
+
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 500;
+
+    private static final Sort NEWEST_FIRST = Sort.by(Sort.Order.desc("timestamp"), Sort.Order.desc("id"));
+
+    private final AuditLogRepository auditLogRepository;
+
+    /**
+     * @param cursor {@code nextCursor} của trang trước, hoặc null cho trang đầu
+     * @param size   số bản ghi mỗi trang (tối đa {@value #MAX_PAGE_SIZE})
+     */
+    @Transactional(readOnly = true)
+    public AuditLogPage search(AuditLogFilter filter, String cursor, int size) {
+        return search(AuditLogSpecifications.matching(filter), cursor, size);
+    }
+
+    /**
+     * Audit log trong [start, end]: cả hai đầu đều bao gồm, như {@code findByTimestampBetween} mà
+     * endpoint /range dùng trước đây (khác {@link AuditLogFilter}, vốn là [from, to)).
+     */
+    @Transactional(readOnly = true)
+    public AuditLogPage searchBetween(LocalDateTime start, LocalDateTime end, String cursor, int size) {
+        Specification<AuditLog> spec = AuditLogSpecifications.matching(AuditLogFilter.builder().from(start).build())
+                .and(AuditLogSpecifications.notAfter(end));
+        return search(spec, cursor, size);
+    }
+
+    private AuditLogPage search(Specification<AuditLog> spec, String cursor, int size) {
+        int limit = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+
+        if (cursor != null && !cursor.isBlank()) {
+            Cursor position = Cursor.decode(cursor);
+            spec = spec.and(AuditLogSpecifications.olderThan(position.timestamp(), position.id()));
+        }
+
+        // Lấy thêm một bản ghi để biết còn trang sau hay không
+        List<AuditLog> rows = auditLogRepository.findBy(spec, q -> q.sortBy(NEWEST_FIRST).limit(limit + 1).all());
+        boolean hasMore = rows.size() > limit;
+        List<AuditLog> items = hasMore ? new ArrayList<>(rows.subList(0, limit)) : rows;
+
+        String nextCursor = null;
+        if (hasMore) {
+            AuditLog last = items.get(items.size() - 1);
+            nextCursor = new Cursor(last.getTimestamp(), last.getId()).encode();
+        }
+
+        return AuditLogPage.builder()
+                .items(items)
+                .size(items.size())
+                .hasMore(hasMore)
+                .nextCursor(nextCursor)
+                .build();
+    }
+
+    /**
+     * Vị trí keyset; mã hóa base64url của "timestamp|id".
+     */
+    record Cursor(LocalDateTime timestamp, long id) {
+
+        String encode() {
+            String raw = timestamp + "|" + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        static Cursor decode(String cursor) {
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int separator = raw.lastIndexOf('|');
+                return new Cursor(LocalDateTime.parse(raw.substring(0, separator)),
+                        Long.parseLong(raw.substring(separator + 1)));
+            } catch (RuntimeException e) {
+                throw new InvalidCursorException("Invalid audit cursor: " + cursor);
+            }
+        }
+    }
+}
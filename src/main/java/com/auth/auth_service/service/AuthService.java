@@ -4,17 +4,15 @@ import com.auth.auth_service.dto.LoginRequest;
 import com.auth.auth_service.dto.LoginResponse;
 import com.auth.auth_service.dto.RegisterRequest;
 import com.auth.auth_service.dto.UserDto;
-import com.auth.auth_service.entity.PendingPermissionRequest;
 import com.auth.auth_service.entity.Role;
 import com.auth.auth_service.entity.User;
-import com.auth.auth_service.repository.PendingPermissionRequestRepository;
-import com.auth.auth_service.repository.PermissionRepository;
 import com.auth.auth_service.repository.RoleRepository;
 import com.auth.auth_service.repository.UserRepository;
 import com.auth.auth_service.security.JwtTokenProvider;
 import com.auth.auth_service.security.UserPrincipal;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
@@ -23,7 +21,6 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.math.BigDecimal;
 import java.util.*;
 
 @Service
@@ -36,9 +33,8 @@ public class AuthService {
     private final UserRepository userRepository;
     private final RoleRepository roleRepository;
     private final PasswordEncoder passwordEncoder;
-    private final AIPermissionService aiPermissionService;
-    private final PermissionRepository permissionRepository;
-    private final PendingPermissionRequestRepository pendingRepo;
+    private final AIRecommendationOutbox aiRecommendationOutbox;
+    private final ApplicationEventPublisher eventPublisher;
     
     @Transactional(readOnly = true)
     public LoginResponse login(LoginRequest loginRequest) {
@@ -80,7 +76,7 @@ public class AuthService {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         UserPrincipal userPrincipal = (UserPrincipal) authentication.getPrincipal();
         
-        User user = userRepository.findByUsername(userPrincipal.getUsername())
+        User user = userRepository.findDetailByUsername(userPrincipal.getUsername())
                 .orElseThrow(() -> new RuntimeException("User not found"));
         
         return mapToUserDto(user);
@@ -129,98 +125,48 @@ public class AuthService {
                 .credentialsNonExpired(true)
                 .build();
         
-        User savedUser = userRepository.save(user);
-        
-        // Gọi AI để gợi ý quyền bổ sung
-        try {
-            Map<String, Object> aiRecommendation = aiPermissionService.recommendNewUser(
-                registerRequest.getRole(),
-                registerRequest.getDepartment(),
-                registerRequest.getBranch(),
-                registerRequest.isHasLicense() ? "Yes" : "No",
-                seniority,
-                position,
-                employmentType
-            );
-            
-            if (aiRecommendation != null && !aiRecommendation.containsKey("error")) {
-                int pendingCount = saveAIRecommendationsAsPending(savedUser, aiRecommendation);
-                log.info("User registered with {} AI-recommended permissions pending approval", pendingCount);
-            }
-        } catch (Exception e) {
-            log.warn("Failed to get AI recommendations for user {}: {}", savedUser.getUsername(), e.getMessage());
-            // Không throw exception - user vẫn được tạo thành công
-        }
+        // Flush ngay: id lấy từ pooled sequence nên INSERT bị hoãn tới lúc flush, trong khi
+        // outbox bên dưới ghi bằng JDBC và tham chiếu users(id)
+        User savedUser = userRepository.saveAndFlush(user);
+        
+        // Gợi ý quyền bổ sung từ AI được xử lý sau khi commit (ai_recommendation_outbox)
+        aiRecommendationOutbox.enqueueNewUser(savedUser.getId(), Map.of(
+            "role", registerRequest.getRole(),
+            "department", registerRequest.getDepartment(),
+            "branch", registerRequest.getBranch(),
+            "license", registerRequest.isHasLicense() ? "Yes" : "No",
+            "seniority", seniority,
+            "position", position,
+            "employment_type", employmentType
+        ));
+        eventPublisher.publishEvent(new UserPermissionsChangedEvent(savedUser.getId()));
         
         log.info("User registered successfully: {} with role {}", savedUser.getUsername(), role.getName());
         
         return mapToUserDto(savedUser);
     }
     
-    /**
-     * Lưu các gợi ý từ AI vào bảng pending_permission_requests
-     */
-    @SuppressWarnings("unchecked")
-    private int saveAIRecommendationsAsPending(User user, Map<String, Object> aiRecommendation) {
-        Object recommendationsObj = aiRecommendation.get("recommendations");
-        if (recommendationsObj == null || !(recommendationsObj instanceof List)) {
-            return 0;
-        }
+    private String generateUserId(String roleName) {
+        String prefix = userIdPrefix(roleName);
         
-        List<Map<String, Object>> recommendations = (List<Map<String, Object>>) recommendationsObj;
-        int count = 0;
+        // Generate unique ID
+        String uniquePart = UUID.randomUUID().toString().substring(0, 8).toUpperCase();
+        String userId = prefix + uniquePart;
         
-        for (Map<String, Object> rec : recommendations) {
-            String permissionLabel = (String) rec.get("permission"); // e.g., "MedicalRecord_read"
-            Object confidenceObj = rec.get("confidence");
-            double confidence = confidenceObj instanceof Number ? ((Number) confidenceObj).doubleValue() : 0.6;
-            
-            // Parse permission label: "ResourceType_action"
-            String[] parts = permissionLabel.split("_");
-            if (parts.length >= 2) {
-                String resourceType = parts[0];
-                String action = parts[1];
-                
-                // Tìm permission trong database
-                permissionRepository.findFirstByResourceTypeAndAction(resourceType, action)
-                    .ifPresent(permission -> {
-                        // Kiểm tra user chưa có quyền này từ role
-                        boolean alreadyHasFromRole = user.getRole().getPermissions().stream()
-                            .anyMatch(p -> p.getId().equals(permission.getId()));
-                        
-                        // Nếu đã có quyền từ role thì không cần thêm
-                        if (alreadyHasFromRole) {
-                            return;
-                        }
-                        
-                        // Kiểm tra chưa có pending request
-                        boolean alreadyPending = pendingRepo.existsByUserIdAndPermissionIdAndStatus(
-                            user.getId(), permission.getId(), "PENDING");
-                        
-                        if (!alreadyPending) {
-                            PendingPermissionRequest pending = PendingPermissionRequest.builder()
-                                .user(user)
-                                .permission(permission)
-                                .confidence(BigDecimal.valueOf(confidence))
-                                .requestType("NEW_USER")
-                                .changeType("ADD")
-                                .status("PENDING")
-                                .build();
-                            
-                            pendingRepo.save(pending);
-                            log.debug("Created pending permission request: {} -> {} (confidence: {})",
-                                user.getUsername(), permissionLabel, confidence);
-                        }
-                    });
-                count++;
-            }
+        // Đảm bảo userId unique
+        while (userRepository.existsByUserId(userId)) {
+            uniquePart = UUID.randomUUID().toString().substring(0, 8).toUpperCase();
+            userId = prefix + uniquePart;
         }
         
-        return count;
+        return userId;
     }
     
-    private String generateUserId(String roleName) {
-        String prefix = switch (roleName.toUpperCase()) {
+    /**
+     * Tiền tố user_id theo role, vd. DOC, NUR; phần còn lại là 8 ký tự ngẫu nhiên.
+     */
+    static String userIdPrefix(String roleName) {
+        return switch (roleName.toUpperCase()) {
             case "DOCTOR" -> "DOC";
             case "NURSE" -> "NUR";
             case "RECEPTIONIST" -> "REC";
@@ -231,18 +177,6 @@ public class AuthService {
             case "SECURITYADMIN" -> "SEC";
             default -> "USR";
         };
-        
-        // Generate unique ID
-        String uniquePart = UUID.randomUUID().toString().substring(0, 8).toUpperCase();
-        String userId = prefix + uniquePart;
-        
-        // Đảm bảo userId unique
-        while (userRepository.existsByUserId(userId)) {
-            uniquePart = UUID.randomUUID().toString().substring(0, 8).toUpperCase();
-            userId = prefix + uniquePart;
-        }
-        
-        return userId;
     }
     
     private UserDto mapToUserDto(User user) {
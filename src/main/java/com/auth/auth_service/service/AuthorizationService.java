@@ -1,5 +1,6 @@
 package com.auth.auth_service.service;
 
+import com.auth.auth_service.audit.AuditRecorder;
 import com.auth.auth_service.dto.AuthorizationRequest;
 import com.auth.auth_service.dto.AuthorizationResponse;
 import com.auth.auth_service.entity.AuditLog;
@@ -28,6 +29,7 @@ import static java.util.Map.entry;
 public class AuthorizationService {
     
     private final AuditLogRepository auditLogRepository;
+    private final AuditRecorder auditRecorder;
     
     // Role-based permissions mapping (from emr_authz.rego)
     private static final Map<String, Map<String, Set<String>>> ROLE_PERMISSIONS = new HashMap<>();
@@ -153,6 +155,7 @@ public class AuthorizationService {
         
         // Log the authorization decision
 //        logAuthorizationDecision(user, request, allowed, policyId, denyReasons, riskScore);
+        publishDecision(user, request, allowed, policyId, denyReasons, riskScore);
         
         return AuthorizationResponse.builder()
                 .allowed(allowed)
@@ -430,6 +433,25 @@ public class AuthorizationService {
         }
     }
     
+    /**
+     * Phát quyết định tới live stream / listeners (không ghi DB).
+     */
+    private void publishDecision(UserPrincipal user, AuthorizationRequest request,
+                                 boolean allowed, String policyId,
+                                 List<String> denyReasons, int riskScore) {
+        auditRecorder.recordDecision(AuditLog.builder()
+                .userId(user.getUserId())
+                .resourceType(request.getResourceType())
+                .resourceId(request.getResourceId() != null ? request.getResourceId() : "N/A")
+                .action(request.getAction())
+                .allowed(allowed)
+                .policyId(policyId)
+                .denyReasons(denyReasons.isEmpty() ? null : String.join(", ", denyReasons))
+                .riskScore(riskScore)
+                .timestamp(LocalDateTime.now())
+                .build());
+    }
+    
     private void logAuthorizationDecision(UserPrincipal user, AuthorizationRequest request,
                                           boolean allowed, String policyId, 
                                           List<String> denyReasons, int riskScore) {
@@ -0,0 +1,509 @@
+package com.auth.auth_service.service;
+
+import com.auth.auth_service.dto.BulkTransferItem;
+import com.auth.auth_service.dto.JobTransferRequest;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Xử lý bulk job do {@link BulkJobService} tạo. Mỗi lần chạy nhận (hoặc gia hạn) lease của một job
+ * và xử lý một chunk item trong một transaction: đọc user/role bằng một query cho cả chunk, cập nhật
+ * hoặc tạo user bằng JDBC batch, ghi các job gợi ý vào outbox (AI được gọi bởi
+ * {@link AIRecommendationWorker}) và đánh dấu item. Restart hay chết giữa chừng chỉ làm mất chunk
+ * đang chạy; lease hết hạn thì job được tiếp tục từ các item còn PENDING.
+ * <p>
+ * Chunk lỗi (vd. trùng username do request song song) được thử lại từng item để chỉ item lỗi bị
+ * đánh dấu FAILED. Chỉ lỗi dữ liệu của item (vi phạm ràng buộc, payload hỏng) làm item FAILED; lỗi DB
+ * tạm thời (deadlock, serialization failure, mất kết nối) để item PENDING cho lần chạy sau.
+ * <p>
+ * Mật khẩu của onboarding được hash theo chunk trên executor riêng ({@code bulk.hash-threads}),
+ * trước khi mở transaction; payload của item được ghi đè bằng bản đã hash khi item xong.
+ */
+@Component
+@Slf4j
+public class BulkJobRunner {
+
+    private static final String CLAIM_SQL = """
+            UPDATE bulk_jobs j
+            SET status = 'RUNNING', locked_by = ?, locked_until = ?, updated_at = ?
+            WHERE j.id = (
+                SELECT id FROM bulk_jobs
+                WHERE status IN ('QUEUED', 'RUNNING')
+                  AND (locked_until IS NULL OR locked_until < ? OR locked_by = ?)
+                ORDER BY id
+                LIMIT 1
+                FOR UPDATE SKIP LOCKED)
+            RETURNING j.id, j.job_type
+            """;
+
+    private static final String USERS_SQL = """
+            SELECT u.id, u.user_id, u.role_id, r.name AS role, u.department, u.branch, u.has_license,
+                   u.seniority, u.position, u.employment_type
+            FROM users u JOIN roles r ON r.id = u.role_id
+            WHERE u.user_id = ANY(?)
+            """;
+
+    private static final String UPDATE_USER_SQL = """
+            UPDATE users SET department = ?, branch = ?, position = ?, has_license = ?, seniority = ?,
+                             role_id = ?, updated_at = ?
+            WHERE id = ?
+            """;
+
+    private static final String INSERT_USER_SQL = """
+            INSERT INTO users (user_id, username, password, email, department, branch, position, has_license,
+                               seniority, employment_type, role_id, enabled, account_non_expired,
+                               account_non_locked, credentials_non_expired, created_at, updated_at)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, TRUE, TRUE, TRUE, TRUE, ?, ?)
+            """;
+
+    private static final String UPDATE_ITEM_SQL =
+            "UPDATE bulk_job_items SET status = ?, user_id = ?, error = ?, processed_at = ?, payload = ? WHERE job_id = ? AND item_index = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final AIRecommendationOutbox outbox;
+    private final ApplicationEventPublisher eventPublisher;
+    private final PasswordEncoder passwordEncoder;
+    private final ThreadPoolExecutor hashExecutor;
+    private final int chunkSize;
+    private final Duration lease;
+    private final String instanceId = UUID.randomUUID().toString();
+
+    public BulkJobRunner(JdbcTemplate jdbcTemplate,
+                         PlatformTransactionManager transactionManager,
+                         ObjectMapper objectMapper,
+                         AIRecommendationOutbox outbox,
+                         ApplicationEventPublisher eventPublisher,
+                         PasswordEncoder passwordEncoder,
+                         @Value("${bulk.chunk-size:200}") int chunkSize,
+                         @Value("${bulk.lease-seconds:60}") long leaseSeconds,
+                         @Value("${bulk.hash-threads:2}") int hashThreads) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.outbox = outbox;
+        this.eventPublisher = eventPublisher;
+        this.passwordEncoder = passwordEncoder;
+        this.chunkSize = Math.max(1, chunkSize);
+        this.lease = Duration.ofSeconds(leaseSeconds);
+        int threads = Math.max(1, hashThreads);
+        AtomicInteger threadCount = new AtomicInteger();
+        // Chỉ runner gửi việc, mỗi lần tối đa một chunk; hàng đợi đầy thì thread của runner tự hash
+        this.hashExecutor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(this.chunkSize), runnable -> {
+                    Thread thread = new Thread(runnable, "bulk-hash-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        hashExecutor.shutdownNow();
+    }
+
+    /**
+     * Xử lý một chunk của job đầu tiên chưa xong. Chạy ngắn để không chiếm thread của scheduler.
+     */
+    @Scheduled(fixedDelayString = "${bulk.poll-interval-ms:500}")
+    public void poll() {
+        try {
+            Job job = claim();
+            if (job == null) {
+                return;
+            }
+            List<Item> items = jdbcTemplate.query("""
+                    SELECT item_index, payload FROM bulk_job_items
+                    WHERE job_id = ? AND status = 'PENDING' ORDER BY item_index LIMIT ?""",
+                    (rs, i) -> new Item(rs.getInt("item_index"), rs.getString("payload")), job.id(), chunkSize);
+            if (items.isEmpty()) {
+                complete(job.id());
+                return;
+            }
+            if (BulkJobService.ONBOARDING.equals(job.type())) {
+                items = hashPasswords(job, items);
+                if (items.isEmpty()) {
+                    return;
+                }
+            }
+            try {
+                process(job, items);
+            } catch (RuntimeException e) {
+                if (!isItemError(e)) {
+                    throw e;
+                }
+                log.warn("Bulk job {} chunk of {} items failed ({}), retrying one by one",
+                        job.id(), items.size(), e.getMessage());
+                for (Item item : items) {
+                    try {
+                        process(job, List.of(item));
+                    } catch (RuntimeException itemError) {
+                        if (!isItemError(itemError)) {
+                            throw itemError;
+                        }
+                        fail(job.id(), item, itemError.getMessage());
+                    }
+                }
+            }
+        } catch (DataAccessException | TransactionException e) {
+            // Các item chưa xong vẫn PENDING: lần poll sau (hoặc runner khác khi lease hết hạn) tiếp tục
+            log.error("Bulk job processing failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Lỗi dữ liệu của chính item: vi phạm ràng buộc (vd. trùng username) hoặc lỗi không đến từ DB
+     * (payload hỏng). Các lỗi DB khác là tạm thời và không làm item FAILED.
+     */
+    private static boolean isItemError(RuntimeException e) {
+        return e instanceof DataIntegrityViolationException
+                || !(e instanceof DataAccessException || e instanceof TransactionException);
+    }
+
+    /**
+     * Hash song song mật khẩu của các item chưa hash, ngoài transaction. Item có payload hỏng được giữ
+     * nguyên để {@link #process} đánh dấu FAILED; item mà encoder từ chối (vd. mật khẩu dài hơn 72 byte
+     * với BCrypt) bị FAILED ngay và không được trả về.
+     */
+    private List<Item> hashPasswords(Job job, List<Item> items) {
+        List<CompletableFuture<Item>> hashed = new ArrayList<>(items.size());
+        for (Item item : items) {
+            BulkJobService.OnboardingItem user;
+            try {
+                user = read(item.payload(), BulkJobService.OnboardingItem.class);
+            } catch (IllegalStateException e) {
+                hashed.add(CompletableFuture.completedFuture(item));
+                continue;
+            }
+            if (user.passwordHash() != null || user.password() == null) {
+                hashed.add(CompletableFuture.completedFuture(item));
+                continue;
+            }
+            hashed.add(CompletableFuture.supplyAsync(
+                    () -> new Item(item.index(), write(user.hashed(passwordEncoder.encode(user.password())))),
+                    hashExecutor));
+        }
+        List<Item> ready = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            try {
+                ready.add(hashed.get(i).join());
+            } catch (CompletionException e) {
+                if (!(e.getCause() instanceof IllegalArgumentException)) {
+                    throw e;
+                }
+                fail(job.id(), items.get(i), e.getCause().getMessage());
+            }
+        }
+        return ready;
+    }
+
+    private Job claim() {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        Timestamp leaseUntil = Timestamp.valueOf(LocalDateTime.now().plus(lease));
+        List<Job> jobs = jdbcTemplate.query(CLAIM_SQL, (rs, i) -> new Job(rs.getLong("id"), rs.getString("job_type")),
+                instanceId, leaseUntil, now, now, instanceId);
+        return jobs.isEmpty() ? null : jobs.get(0);
+    }
+
+    private void complete(long jobId) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.update("""
+                UPDATE bulk_jobs SET status = 'COMPLETED', completed_at = ?, updated_at = ?, locked_by = NULL, locked_until = NULL
+                WHERE id = ?""", now, now, jobId);
+        log.info("Bulk job {} completed", jobId);
+    }
+
+    private void process(Job job, List<Item> items) {
+        transactionTemplate.executeWithoutResult(status -> {
+            Chunk chunk = new Chunk(job.id());
+            Map<String, Long> roles = new HashMap<>();
+            jdbcTemplate.query("SELECT id, name FROM roles", rs -> {
+                roles.put(rs.getString("name"), rs.getLong("id"));
+            });
+            if (BulkJobService.ONBOARDING.equals(job.type())) {
+                onboard(items, roles, chunk);
+            } else {
+                transfer(items, roles, chunk);
+            }
+            outbox.enqueueAll(chunk.requests, job.id());
+            jdbcTemplate.batchUpdate(UPDATE_ITEM_SQL, chunk.itemRows);
+            jdbcTemplate.update("""
+                    UPDATE bulk_jobs SET processed_items = processed_items + ?, failed_items = failed_items + ?, updated_at = ?
+                    WHERE id = ?""", chunk.itemRows.size(), chunk.failed, chunk.now, job.id());
+            chunk.changedUsers.forEach(userId -> eventPublisher.publishEvent(new UserPermissionsChangedEvent(userId)));
+        });
+    }
+
+    private void fail(long jobId, Item item, String error) {
+        Chunk chunk = new Chunk(jobId);
+        chunk.fail(item, error);
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.batchUpdate(UPDATE_ITEM_SQL, chunk.itemRows);
+                jdbcTemplate.update("""
+                        UPDATE bulk_jobs SET processed_items = processed_items + 1, failed_items = failed_items + 1, updated_at = ?
+                        WHERE id = ?""", chunk.now, jobId);
+            });
+        } catch (DataAccessException e) {
+            log.error("Failed to mark bulk job {} item {} as failed: {}", jobId, item.index(), e.getMessage());
+        }
+    }
+
+    /**
+     * Giống {@link JobTransferService#initiateJobTransfer} cho cả chunk. Nhiều item của cùng một user
+     * được áp dụng lần lượt.
+     */
+    private void transfer(List<Item> items, Map<String, Long> roles, Chunk chunk) {
+        List<BulkTransferItem> transfers = new ArrayList<>(items.size());
+        Set<String> userIds = new LinkedHashSet<>();
+        for (Item item : items) {
+            BulkTransferItem transfer = read(item.payload(), BulkTransferItem.class);
+            transfers.add(transfer);
+            userIds.add(transfer.getUserId());
+        }
+        Map<String, UserRow> users = new HashMap<>();
+        jdbcTemplate.query(USERS_SQL, rs -> {
+            users.put(rs.getString("user_id"), new UserRow(rs.getLong("id"), rs.getLong("role_id"), rs.getString("role"),
+                    rs.getString("department"), rs.getString("branch"), rs.getBoolean("has_license"),
+                    rs.getString("seniority"), rs.getString("position"), rs.getString("employment_type")));
+        }, (Object) userIds.toArray(String[]::new));
+
+        Map<Long, Object[]> updates = new LinkedHashMap<>();
+        for (int i = 0; i < items.size(); i++) {
+            Item item = items.get(i);
+            BulkTransferItem transfer = transfers.get(i);
+            JobTransferRequest request = transfer.getTransfer();
+            UserRow user = users.get(transfer.getUserId());
+            if (user == null) {
+                chunk.fail(item, "User not found: " + transfer.getUserId());
+                continue;
+            }
+            if (request == null || request.getNewDepartment() == null || request.getNewDepartment().isBlank()) {
+                chunk.fail(item, "New department is required");
+                continue;
+            }
+            long roleId = user.roleId();
+            String role = user.role();
+            if (request.getNewRole() != null && !request.getNewRole().equals(user.role())) {
+                Long newRoleId = roles.get(request.getNewRole());
+                if (newRoleId == null) {
+                    chunk.fail(item, "Role not found: " + request.getNewRole());
+                    continue;
+                }
+                roleId = newRoleId;
+                role = request.getNewRole();
+            }
+            UserRow moved = new UserRow(user.id(), roleId, role, request.getNewDepartment(),
+                    request.getNewBranch() != null ? request.getNewBranch() : user.branch(),
+                    request.getHasLicense() != null ? request.getHasLicense() : user.hasLicense(),
+                    request.getSeniority() != null ? request.getSeniority() : user.seniority(),
+                    request.getNewPosition() != null ? request.getNewPosition() : user.position(),
+                    user.employmentType());
+            users.put(transfer.getUserId(), moved);
+            updates.put(user.id(), new Object[]{moved.department(), moved.branch(), moved.position(), moved.hasLicense(),
+                    moved.seniority(), moved.roleId(), chunk.now, moved.id()});
+            chunk.requests.add(AIRecommendationOutbox.Request.jobTransfer(user.id(), user.profile(), moved.profile()));
+            chunk.done(item, user.id());
+        }
+        jdbcTemplate.batchUpdate(UPDATE_USER_SQL, new ArrayList<>(updates.values()));
+    }
+
+    /**
+     * Giống {@link AuthService#register} cho cả chunk; mật khẩu đã được hash bởi {@link #hashPasswords}.
+     */
+    private void onboard(List<Item> items, Map<String, Long> roles, Chunk chunk) {
+        List<BulkJobService.OnboardingItem> users = new ArrayList<>(items.size());
+        Set<String> usernames = new HashSet<>();
+        Set<String> emails = new HashSet<>();
+        for (Item item : items) {
+            BulkJobService.OnboardingItem user = read(item.payload(), BulkJobService.OnboardingItem.class);
+            users.add(user);
+            usernames.add(user.username());
+            if (user.email() != null && !user.email().isBlank()) {
+                emails.add(user.email());
+            }
+        }
+        Set<String> takenUsernames = new HashSet<>();
+        Set<String> takenEmails = new HashSet<>();
+        jdbcTemplate.query("SELECT username, email FROM users WHERE username = ANY(?) OR email = ANY(?)", rs -> {
+            takenUsernames.add(rs.getString("username"));
+            takenEmails.add(rs.getString("email"));
+        }, usernames.toArray(String[]::new), emails.toArray(String[]::new));
+
+        List<Object[]> inserts = new ArrayList<>();
+        Map<String, Item> itemsByUsername = new LinkedHashMap<>();
+        Map<String, Map<String, String>> profiles = new HashMap<>();
+        for (int i = 0; i < items.size(); i++) {
+            Item item = items.get(i);
+            BulkJobService.OnboardingItem user = users.get(i);
+            String email = user.email() != null && !user.email().isBlank() ? user.email() : null;
+            Long roleId = roles.get(user.role());
+            if (!takenUsernames.add(user.username())) {
+                chunk.fail(item, "Username already exists: " + user.username());
+                continue;
+            }
+            if (email != null && !takenEmails.add(email)) {
+                chunk.fail(item, "Email already exists: " + email);
+                continue;
+            }
+            if (roleId == null) {
+                chunk.fail(item, "Role not found: " + user.role());
+                continue;
+            }
+            if (user.passwordHash() == null) {
+                chunk.fail(item, "Password is required");
+                continue;
+            }
+            String position = user.position() != null ? user.position() : "Staff";
+            String seniority = user.seniority() != null ? user.seniority() : "Junior";
+            String employmentType = user.employmentType() != null ? user.employmentType() : "FullTime";
+            inserts.add(new Object[]{AuthService.userIdPrefix(user.role()), user.username(), user.passwordHash(), email,
+                    user.department(), user.branch(), position, user.hasLicense(), seniority, employmentType, roleId,
+                    chunk.now, chunk.now});
+            itemsByUsername.put(user.username(), item);
+            profiles.put(user.username(), Map.of(
+                    "role", user.role(),
+                    "department", user.department(),
+                    "branch", user.branch(),
+                    "license", user.hasLicense() ? "Yes" : "No",
+                    "seniority", seniority,
+                    "position", position,
+                    "employment_type", employmentType));
+        }
+        if (inserts.isEmpty()) {
+            return;
+        }
+        assignUserIds(inserts);
+        jdbcTemplate.batchUpdate(INSERT_USER_SQL, inserts);
+        jdbcTemplate.query("SELECT id, username FROM users WHERE username = ANY(?)", rs -> {
+            long userId = rs.getLong("id");
+            String username = rs.getString("username");
+            chunk.requests.add(AIRecommendationOutbox.Request.newUser(userId, profiles.get(username)));
+            chunk.done(itemsByUsername.get(username), userId);
+        }, (Object) itemsByUsername.keySet().toArray(String[]::new));
+    }
+
+    /**
+     * Thay tiền tố ở cột đầu bằng user_id đầy đủ (tiền tố + 8 ký tự ngẫu nhiên), không trùng trong
+     * chunk và trong bảng users.
+     */
+    private void assignUserIds(List<Object[]> inserts) {
+        Map<String, Object[]> byUserId = new HashMap<>();
+        List<Object[]> pending = new ArrayList<>(inserts);
+        while (!pending.isEmpty()) {
+            List<String> candidates = new ArrayList<>();
+            for (Object[] row : pending) {
+                String prefix = row[0].toString().replaceAll("[0-9A-F]{8}$", "");
+                String userId;
+                do {
+                    userId = prefix + UUID.randomUUID().toString().substring(0, 8).toUpperCase();
+                } while (byUserId.containsKey(userId));
+                row[0] = userId;
+                byUserId.put(userId, row);
+                candidates.add(userId);
+            }
+            pending = new ArrayList<>();
+            for (String taken : jdbcTemplate.queryForList("SELECT user_id FROM users WHERE user_id = ANY(?)",
+                    String.class, (Object) candidates.toArray(String[]::new))) {
+                pending.add(byUserId.remove(taken));
+            }
+        }
+    }
+
+    private String write(Object item) {
+        try {
+            return objectMapper.writeValueAsString(item);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize bulk job item", e);
+        }
+    }
+
+    private <T> T read(String payload, Class<T> type) {
+        try {
+            return objectMapper.readValue(payload, type);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Corrupt bulk job item", e);
+        }
+    }
+
+    private record Job(long id, String type) {
+    }
+
+    private record Item(int index, String payload) {
+    }
+
+    /** Trạng thái hiện tại của user trong lúc xử lý chunk */
+    private record UserRow(long id, long roleId, String role, String department, String branch, boolean hasLicense,
+                           String seniority, String position, String employmentType) {
+
+        /** Như JobTransferService.buildProfile */
+        Map<String, String> profile() {
+            return Map.of(
+                    "role", role,
+                    "department", department,
+                    "branch", branch,
+                    "license", hasLicense ? "Yes" : "No",
+                    "seniority", seniority != null ? seniority : "Junior",
+                    "position", position != null ? position : role,
+                    "employment_type", employmentType != null ? employmentType : "FullTime");
+        }
+    }
+
+    /** Kết quả của một chunk, ghi trong cùng transaction */
+    private static final class Chunk {
+        final long jobId;
+        final Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        final List<Object[]> itemRows = new ArrayList<>();
+        final List<AIRecommendationOutbox.Request> requests = new ArrayList<>();
+        final Set<Long> changedUsers = new LinkedHashSet<>();
+        int failed;
+
+        Chunk(long jobId) {
+            this.jobId = jobId;
+        }
+
+        void done(Item item, long userId) {
+            itemRows.add(new Object[]{"DONE", userId, null, now, item.payload(), jobId, item.index()});
+            changedUsers.add(userId);
+        }
+
+        void fail(Item item, String error) {
+            String message = error != null && error.length() > 500 ? error.substring(0, 500) : error;
+            itemRows.add(new Object[]{"FAILED", null, message, now, item.payload(), jobId, item.index()});
+            failed++;
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.auth.auth_service.service;
+
+import com.auth.auth_service.dto.BulkJobStatus;
+import com.auth.auth_service.dto.BulkTransferItem;
+import com.auth.auth_service.dto.RegisterRequest;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Tạo và theo dõi bulk job (bảng bulk_jobs / bulk_job_items, xem V12). Request chỉ ghi job và các
+ * item; {@link BulkJobRunner} xử lý dần theo chunk và có thể tiếp tục sau khi restart.
+ * <p>
+ * Request không hash mật khẩu của bulk onboarding (BCrypt cho {@code bulk.max-items} user mất vài
+ * phút CPU): {@link BulkJobRunner} hash theo chunk trên executor riêng và ghi đè payload bằng bản đã
+ * hash khi item xong, nên mật khẩu gốc chỉ nằm trong item đang PENDING.
+ */
+@Service
+@Slf4j
+public class BulkJobService {
+
+    public static final String JOB_TRANSFER = "JOB_TRANSFER";
+    public static final String ONBOARDING = "ONBOARDING";
+
+    private static final int MAX_ERRORS = 100;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final int maxItems;
+
+    public BulkJobService(JdbcTemplate jdbcTemplate,
+                          PlatformTransactionManager transactionManager,
+                          ObjectMapper objectMapper,
+                          @Value("${bulk.max-items:10000}") int maxItems) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.maxItems = maxItems;
+    }
+
+    public BulkJobStatus submitJobTransfers(List<BulkTransferItem> transfers, String createdBy) {
+        checkSize(transfers.size());
+        return submit(JOB_TRANSFER, transfers, createdBy);
+    }
+
+    public BulkJobStatus submitOnboarding(List<RegisterRequest> users, String createdBy) {
+        checkSize(users.size());
+        List<OnboardingItem> items = users.stream()
+                .map(u -> new OnboardingItem(u.getUsername(), u.getPassword(), null, u.getEmail(),
+                        u.getDepartment(), u.getBranch(), u.getPosition(), u.getRole(), u.isHasLicense(),
+                        u.getSeniority(), u.getEmploymentType()))
+                .toList();
+        return submit(ONBOARDING, items, createdBy);
+    }
+
+    public Optional<BulkJobStatus> getStatus(Long jobId) {
+        List<BulkJobStatus> jobs = jdbcTemplate.query("SELECT * FROM bulk_jobs WHERE id = ?", (rs, i) -> {
+            int total = rs.getInt("total_items");
+            int processed = rs.getInt("processed_items");
+            Timestamp completedAt = rs.getTimestamp("completed_at");
+            return BulkJobStatus.builder()
+                    .jobId(rs.getLong("id"))
+                    .jobType(rs.getString("job_type"))
+                    .status(rs.getString("status"))
+                    .totalItems(total)
+                    .processedItems(processed)
+                    .failedItems(rs.getInt("failed_items"))
+                    .progress(total == 0 ? 1.0 : Math.round(processed * 1000.0 / total) / 1000.0)
+                    .createdBy(rs.getString("created_by"))
+                    .createdAt(rs.getTimestamp("created_at").toLocalDateTime())
+                    .updatedAt(rs.getTimestamp("updated_at").toLocalDateTime())
+                    .completedAt(completedAt != null ? completedAt.toLocalDateTime() : null)
+                    .build();
+        }, jobId);
+        if (jobs.isEmpty()) {
+            return Optional.empty();
+        }
+        BulkJobStatus status = jobs.get(0);
+
+        Map<String, Long> recommendations = new LinkedHashMap<>();
+        jdbcTemplate.query("SELECT status, COUNT(*) AS n FROM ai_recommendation_outbox WHERE bulk_job_id = ? GROUP BY status",
+                rs -> {
+                    recommendations.put(rs.getString("status"), rs.getLong("n"));
+                }, jobId);
+        status.setRecommendations(recommendations);
+        if (status.getFailedItems() > 0) {
+            status.setErrors(jdbcTemplate.query("""
+                    SELECT item_index, error FROM bulk_job_items
+                    WHERE job_id = ? AND status = 'FAILED' ORDER BY item_index LIMIT ?""", (rs, i) -> {
+                Map<String, Object> error = new LinkedHashMap<>();
+                error.put("index", rs.getInt("item_index"));
+                error.put("error", rs.getString("error"));
+                return error;
+            }, jobId, MAX_ERRORS));
+        } else {
+            status.setErrors(List.of());
+        }
+        return Optional.of(status);
+    }
+
+    private void checkSize(int size) {
+        if (size > maxItems) {
+            throw new IllegalArgumentException("Too many items: " + size + " (max " + maxItems + ")");
+        }
+    }
+
+    private BulkJobStatus submit(String jobType, List<?> items, String createdBy) {
+        List<String> payloads = new ArrayList<>(items.size());
+        for (Object item : items) {
+            payloads.add(write(item));
+        }
+        Long jobId = transactionTemplate.execute(status -> {
+            Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+            Long id = jdbcTemplate.queryForObject("""
+                    INSERT INTO bulk_jobs (job_type, total_items, created_by, created_at, updated_at)
+                    VALUES (?, ?, ?, ?, ?) RETURNING id""", Long.class, jobType, payloads.size(), createdBy, now, now);
+            List<Object[]> rows = new ArrayList<>(payloads.size());
+            for (int i = 0; i < payloads.size(); i++) {
+                rows.add(new Object[]{id, i, payloads.get(i)});
+            }
+            jdbcTemplate.batchUpdate("INSERT INTO bulk_job_items (job_id, item_index, payload) VALUES (?, ?, ?)", rows);
+            return id;
+        });
+        log.info("Bulk {} job {} queued with {} items by {}", jobType, jobId, payloads.size(), createdBy);
+        return getStatus(jobId).orElseThrow();
+    }
+
+    private String write(Object item) {
+        try {
+            return objectMapper.writeValueAsString(item);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize bulk job item", e);
+        }
+    }
+
+    /**
+     * Một user của bulk onboarding như được lưu trong bulk_job_items: {@code password} khi còn chờ xử lý,
+     * {@code passwordHash} (và password null) sau khi runner đã hash.
+     */
+    record OnboardingItem(String username, String password, String passwordHash, String email, String department,
+                          String branch, String position, String role, boolean hasLicense, String seniority,
+                          String employmentType) {
+
+        OnboardingItem hashed(String hash) {
+            return new OnboardingItem(username, null, hash, email, department, branch, position, role, hasLicense,
+                    seniority, employmentType);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.auth.auth_service.service;
+
+import com.auth.auth_service.dto.mock.IncidentCaseDto;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Kho incident case dùng chung (in-memory) cho IncidentController và các detector nội bộ
+ * (ví dụ {@link com.auth.auth_service.audit.AuditAnomalyDetector}).
+ */
+@Service
+@Slf4j
+public class IncidentService {
+
+    private final Map<String, IncidentCaseDto> incidents = new ConcurrentHashMap<>();
+    private final AtomicInteger sequence = new AtomicInteger();
+
+    public IncidentService() {
+        incidents.put("INC001", IncidentCaseDto.builder()
+                .caseId("INC001")
+                .title("Unauthorized Access Attempt Detected")
+                .description("Multiple failed login attempts detected from IP 192.168.1.100 for user 'admin'. " +
+                        "Account temporarily locked after 5 failed attempts.")
+                .severity("Medium")
+                .category("Security")
+                .status("Resolved")
+                .reportedBy("SYSTEM")
+                .assignedTo("SECADMIN001")
+                .resolution("IP blocked, password reset required for affected account. " +
+                        "User notified via email.")
+                .affectedSystems(List.of("Authentication Service"))
+                .affectedUsers(List.of("admin"))
+                .incidentDate(LocalDateTime.now().minusDays(5))
+                .reportedAt(LocalDateTime.now().minusDays(5))
+                .resolvedAt(LocalDateTime.now().minusDays(4))
+                .createdAt(LocalDateTime.now().minusDays(5))
+                .updatedAt(LocalDateTime.now().minusDays(4))
+                .build());
+        
+        incidents.put("INC002", IncidentCaseDto.builder()
+                .caseId("INC002")
+                .title("Data Export Without Approval")
+                .description("User DOC005 attempted to export medical records without proper approval. " +
+                        "Export was blocked by policy POL004.")
+                .severity("High")
+                .category("Compliance")
+                .status("InProgress")
+                .reportedBy("SYSTEM")
+                .assignedTo("SECADMIN001")
+                .resolution(null)
+                .affectedSystems(List.of("EMR System", "Export Service"))
+                .affectedUsers(List.of("DOC005"))
+                .incidentDate(LocalDateTime.now().minusDays(2))
+                .reportedAt(LocalDateTime.now().minusDays(2))
+                .resolvedAt(null)
+                .createdAt(LocalDateTime.now().minusDays(2))
+                .updatedAt(LocalDateTime.now().minusDays(1))
+                .build());
+        
+        incidents.put("INC003", IncidentCaseDto.builder()
+                .caseId("INC003")
+                .title("PHI Breach - Unintended Disclosure")
+                .description("Patient data was accidentally sent to wrong email recipient. " +
+                        "Sender immediately notified IT and Security.")
+                .severity("Critical")
+                .category("Privacy")
+                .status("InProgress")
+                .reportedBy("NUR003")
+                .assignedTo("SECADMIN001")
+                .resolution(null)
+                .affectedSystems(List.of("Email System", "Patient Portal"))
+                .affectedUsers(List.of("NUR003", "PAT025"))
+                .incidentDate(LocalDateTime.now().minusHours(6))
+                .reportedAt(LocalDateTime.now().minusHours(5))
+                .resolvedAt(null)
+                .createdAt(LocalDateTime.now().minusHours(5))
+                .updatedAt(LocalDateTime.now().minusHours(1))
+                .build());
+        
+        incidents.put("INC004", IncidentCaseDto.builder()
+                .caseId("INC004")
+                .title("System Downtime - Database Connection Pool Exhausted")
+                .description("Production database experienced connection pool exhaustion " +
+                        "causing intermittent service failures for 30 minutes.")
+                .severity("High")
+                .category("Operational")
+                .status("Resolved")
+                .reportedBy("ITADMIN001")
+                .assignedTo("ITADMIN001")
+                .resolution("Connection pool size increased from 50 to 100. " +
+                        "Added monitoring alerts for connection usage above 80%.")
+                .affectedSystems(List.of("Database Server", "All Services"))
+                .affectedUsers(List.of())
+                .incidentDate(LocalDateTime.now().minusDays(7))
+                .reportedAt(LocalDateTime.now().minusDays(7))
+                .resolvedAt(LocalDateTime.now().minusDays(7).plusHours(2))
+                .createdAt(LocalDateTime.now().minusDays(7))
+                .updatedAt(LocalDateTime.now().minusDays(7).plusHours(2))
+                .build());
+        sequence.set(incidents.size());
+    }
+
+    public List<IncidentCaseDto> findAll() {
+        return new ArrayList<>(incidents.values());
+    }
+
+    public Optional<IncidentCaseDto> findById(String caseId) {
+        return Optional.ofNullable(incidents.get(caseId));
+    }
+
+    /**
+     * Lưu incident mới với caseId kế tiếp (INC005, INC006, ...).
+     */
+    public IncidentCaseDto create(IncidentCaseDto incident) {
+        String caseId = "INC" + String.format("%03d", sequence.incrementAndGet());
+        incident.setCaseId(caseId);
+        if (incident.getCreatedAt() == null) {
+            incident.setCreatedAt(LocalDateTime.now());
+        }
+        if (incident.getUpdatedAt() == null) {
+            incident.setUpdatedAt(incident.getCreatedAt());
+        }
+        incidents.put(caseId, incident);
+        return incident;
+    }
+}
@@ -1,24 +1,24 @@
 package com.auth.auth_service.service;
 
 import com.auth.auth_service.dto.JobTransferRequest;
-import com.auth.auth_service.entity.PendingPermissionRequest;
+import com.auth.auth_service.dto.view.PendingRequestView;
+import com.auth.auth_service.dto.view.UserView;
 import com.auth.auth_service.entity.Role;
 import com.auth.auth_service.entity.User;
 import com.auth.auth_service.repository.PendingPermissionRequestRepository;
-import com.auth.auth_service.repository.PermissionRepository;
 import com.auth.auth_service.repository.RoleRepository;
 import com.auth.auth_service.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.math.BigDecimal;
 import java.util.*;
 
 /**
  * Service xử lý Job Transfer - chuyển phòng ban/vị trí cho user.
- * Tích hợp với AI service để gợi ý thay đổi quyền.
+ * Gợi ý thay đổi quyền từ AI service được xử lý bất đồng bộ qua {@link AIRecommendationOutbox}.
  */
 @Service
 @RequiredArgsConstructor
@@ -27,20 +27,19 @@ public class JobTransferService {
     
     private final UserRepository userRepository;
     private final RoleRepository roleRepository;
-    private final PermissionRepository permissionRepository;
-    private final AIPermissionService aiPermissionService;
+    private final AIRecommendationOutbox aiRecommendationOutbox;
     private final PendingPermissionRequestRepository pendingRepo;
+    private final ApplicationEventPublisher eventPublisher;
     
     /**
      * Khởi tạo quy trình chuyển phòng ban cho user.
      * 1. Lưu old profile
-     * 2. Gọi AI để lấy gợi ý thay đổi quyền
-     * 3. Cập nhật thông tin user
-     * 4. Lưu pending permission requests
+     * 2. Cập nhật thông tin user
+     * 3. Ghi job gợi ý thay đổi quyền vào outbox (AI được gọi sau khi commit)
      */
     @Transactional
     public Map<String, Object> initiateJobTransfer(String userId, JobTransferRequest request) {
-        User user = userRepository.findByUserId(userId)
+        User user = userRepository.findForTransferByUserId(userId)
             .orElseThrow(() -> new RuntimeException("User not found: " + userId));
         
         // 1. Lưu old profile
@@ -67,15 +66,7 @@ public class JobTransferService {
             "employment_type", user.getEmploymentType()
         );
         
-        // 3. Gọi AI để lấy gợi ý
-        Map<String, Object> aiResult = aiPermissionService.recommendJobTransfer(oldProfile, newProfile);
-        
-        if (aiResult.containsKey("error")) {
-            log.warn("AI service error during job transfer: {}", aiResult.get("error"));
-            // Vẫn tiếp tục cập nhật user, chỉ không có AI recommendation
-        }
-        
-        // 4. Cập nhật thông tin user
+        // 3. Cập nhật thông tin user
         user.setDepartment(newDepartment);
         if (request.getNewBranch() != null) {
             user.setBranch(request.getNewBranch());
@@ -99,19 +90,14 @@ public class JobTransferService {
         
         userRepository.save(user);
         
-        // 5. Lưu pending permission requests
-        int addedCount = 0;
-        int removedCount = 0;
+        // 4. Gợi ý thay đổi quyền từ AI được xử lý sau khi commit (ai_recommendation_outbox)
+        aiRecommendationOutbox.enqueueJobTransfer(user.getId(), oldProfile, newProfile);
+        eventPublisher.publishEvent(new UserPermissionsChangedEvent(user.getId()));
         
-        if (!aiResult.containsKey("error")) {
-            addedCount = savePermissionChanges(user, aiResult, "added_permissions", "ADD");
-            removedCount = savePermissionChanges(user, aiResult, "removed_permissions", "REMOVE");
-        }
-        
-        log.info("Job transfer completed for user {}: {} -> {}, {} permissions to add, {} to remove",
-            userId, oldDepartment, newDepartment, addedCount, removedCount);
+        log.info("Job transfer completed for user {}: {} -> {}, AI permission recommendation queued",
+            userId, oldDepartment, newDepartment);
         
-        // 6. Trả về kết quả
+        // 5. Trả về kết quả
         Map<String, Object> result = new LinkedHashMap<>();
         result.put("status", "JOB_TRANSFER_INITIATED");
         result.put("userId", userId);
@@ -121,16 +107,8 @@ public class JobTransferService {
             "branch", Map.of("from", oldBranch, "to", user.getBranch()),
             "role", Map.of("from", oldRole, "to", user.getRole().getName())
         ));
-        result.put("pendingPermissions", Map.of(
-            "toAdd", addedCount,
-            "toRemove", removedCount
-        ));
-        
-        if (!aiResult.containsKey("error")) {
-            result.put("aiRecommendation", aiResult);
-        }
-        
-        result.put("message", "Job transfer processed. Permission changes pending admin approval.");
+        result.put("aiRecommendationStatus", "QUEUED");
+        result.put("message", "Job transfer processed. AI permission changes will be pending admin approval shortly.");
         
         return result;
     }
@@ -150,102 +128,38 @@ public class JobTransferService {
         );
     }
     
-    /**
-     * Lưu các thay đổi permission vào bảng pending
-     */
-    @SuppressWarnings("unchecked")
-    private int savePermissionChanges(User user, Map<String, Object> aiResult, 
-                                       String key, String changeType) {
-        Object permissionsObj = aiResult.get(key);
-        if (permissionsObj == null) {
-            return 0;
-        }
-        
-        List<Map<String, Object>> permissions;
-        if (permissionsObj instanceof List) {
-            permissions = (List<Map<String, Object>>) permissionsObj;
-        } else {
-            return 0;
-        }
-        
-        if (permissions.isEmpty()) {
-            return 0;
-        }
-        
-        int count = 0;
-        for (Map<String, Object> perm : permissions) {
-            String permissionLabel = (String) perm.get("permission"); // e.g., "ClinicalNote_create"
-            Object confidenceObj = perm.get("confidence");
-            double confidence = confidenceObj instanceof Number ? ((Number) confidenceObj).doubleValue() : 0.6;
-            
-            // Parse permission label: "ResourceType_action"
-            String[] parts = permissionLabel.split("_");
-            if (parts.length >= 2) {
-                String resourceType = parts[0];
-                String action = parts[1];
-                
-                // Tìm permission trong database
-                permissionRepository.findFirstByResourceTypeAndAction(resourceType, action)
-                    .ifPresent(permission -> {
-                        // Kiểm tra chưa có pending request
-                        boolean alreadyPending = pendingRepo
-                            .existsByUserIdAndPermissionIdAndStatusAndChangeType(
-                                user.getId(), permission.getId(), "PENDING", changeType);
-                        
-                        if (!alreadyPending) {
-                            PendingPermissionRequest pending = PendingPermissionRequest.builder()
-                                .user(user)
-                                .permission(permission)
-                                .confidence(BigDecimal.valueOf(confidence))
-                                .requestType("JOB_TRANSFER")
-                                .changeType(changeType)
-                                .status("PENDING")
-                                .build();
-                            
-                            pendingRepo.save(pending);
-                            log.debug("Created pending {} request: {} -> {} (confidence: {})",
-                                changeType, user.getUsername(), permissionLabel, confidence);
-                        }
-                    });
-                count++;
-            }
-        }
-        
-        return count;
-    }
-    
     /**
      * Lấy danh sách pending changes cho một user
      */
     public Map<String, Object> getPendingChanges(String userId) {
-        User user = userRepository.findByUserId(userId)
+        UserView user = userRepository.findViewByUserId(userId)
             .orElseThrow(() -> new RuntimeException("User not found: " + userId));
         
-        List<PendingPermissionRequest> pending = pendingRepo.findByUserIdAndStatus(user.getId(), "PENDING");
+        List<PendingRequestView> pending = pendingRepo.findViewsByUserIdAndStatus(user.id(), "PENDING");
         
         List<Map<String, Object>> toAdd = new ArrayList<>();
         List<Map<String, Object>> toRemove = new ArrayList<>();
         
-        for (PendingPermissionRequest req : pending) {
+        for (PendingRequestView req : pending) {
             Map<String, Object> item = new LinkedHashMap<>();
-            item.put("id", req.getId());
-            item.put("permissionKey", req.getPermission().getPermissionKey());
-            item.put("resourceType", req.getPermission().getResourceType());
-            item.put("action", req.getPermission().getAction());
-            item.put("confidence", req.getConfidence());
-            item.put("requestType", req.getRequestType());
-            item.put("requestedAt", req.getRequestedAt());
+            item.put("id", req.id());
+            item.put("permissionKey", req.permissionKey());
+            item.put("resourceType", req.resourceType());
+            item.put("action", req.action());
+            item.put("confidence", req.confidence());
+            item.put("requestType", req.requestType());
+            item.put("requestedAt", req.requestedAt());
             
-            if ("ADD".equals(req.getChangeType())) {
+            if ("ADD".equals(req.changeType())) {
                 toAdd.add(item);
-            } else if ("REMOVE".equals(req.getChangeType())) {
+            } else if ("REMOVE".equals(req.changeType())) {
                 toRemove.add(item);
             }
         }
         
         Map<String, Object> result = new LinkedHashMap<>();
         result.put("userId", userId);
-        result.put("username", user.getUsername());
+        result.put("username", user.username());
         result.put("toAdd", toAdd);
         result.put("toRemove", toRemove);
         result.put("totalPending", pending.size());
@@ -0,0 +1,503 @@
+package com.auth.auth_service.service;
+
+import com.auth.auth_service.dto.ai.JobTransferRecommendation;
+import com.auth.auth_service.dto.ai.NewUserRecommendation;
+import com.auth.auth_service.dto.ai.PermissionRecommendation;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Bộ gợi ý quyền chạy trong tiến trình, học từ quyền hiện có: role_permissions +
+ * user_additional_permissions (đã gồm các pending request ADD/REMOVE được duyệt) của user đang
+ * enabled, cộng tỉ lệ duyệt/từ chối của pending_permission_requests.
+ * <p>
+ * User được nhóm theo profile với 4 mức: đầy đủ 7 thuộc tính → (role, department, branch,
+ * position) → (role, department) → (role). Mỗi nhóm giữ số user và số user có từng quyền, nên
+ * P(quyền | profile) = count / users. Truy vấn dùng mức chi tiết nhất có ít nhất {@code min-support}
+ * user; confidence = P × tỉ lệ được duyệt (prior Laplace), chỉ trả về khi ≥ {@code min-confidence}
+ * (thang 0.60 - 1.00, 2 chữ số như PendingPermissionRequest.confidence).
+ * <p>
+ * Bảng được dựng lại toàn bộ khi khởi động và theo {@code rebuild-cron}; giữa hai lần đó, mỗi
+ * {@link UserPermissionsChangedEvent} chỉ cập nhật đóng góp của một user. Rebuild đọc database
+ * không giữ lock, nên các user thay đổi trong lúc đó được ghi lại và cập nhật lần nữa sau khi thay
+ * bảng mới.
+ * <p>
+ * Quyền được đánh số theo dense id của {@link PermissionCatalog}: quyền của một user là BitSet, số
+ * đếm của một nhóm là mảng int; permission chưa có trong catalog bị bỏ qua.
+ */
+@Component
+@Slf4j
+public class LocalPermissionRecommender {
+
+    private static final String USERS_SQL = """
+            SELECT u.id, r.name AS role, u.department, u.branch, u.has_license, u.seniority, u.position, u.employment_type
+            FROM users u JOIN roles r ON r.id = u.role_id
+            WHERE u.enabled""";
+
+    private static final String GRANTS_SQL = """
+            SELECT u.id AS user_id, rp.permission_id FROM users u JOIN role_permissions rp ON rp.role_id = u.role_id
+            WHERE u.enabled
+            UNION
+            SELECT uap.user_id, uap.permission_id FROM user_additional_permissions uap JOIN users u ON u.id = uap.user_id
+            WHERE u.enabled""";
+
+    private static final String USER_GRANTS_SQL = """
+            SELECT rp.permission_id FROM users u JOIN role_permissions rp ON rp.role_id = u.role_id WHERE u.id = ?
+            UNION
+            SELECT permission_id FROM user_additional_permissions WHERE user_id = ?""";
+
+    private static final String REVIEWS_SQL = """
+            SELECT change_type, permission_id, status, COUNT(*) AS n
+            FROM pending_permission_requests
+            WHERE status IN ('APPROVED', 'REJECTED')
+            GROUP BY change_type, permission_id, status""";
+
+    /** Số mức nhóm, xem {@link Model#segmentKeys} */
+    private static final int SEGMENT_LEVELS = 4;
+
+    /** Số lần duyệt giả định cho permission chưa có lịch sử review */
+    private static final double ACCEPTANCE_PRIOR = 2.0;
+
+    private static final BitSet NO_PERMISSIONS = new BitSet();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PermissionCatalog catalog;
+    private final boolean enabled;
+    private final int minSupport;
+    private final int fastPathMinSupport;
+    private final double minConfidence;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Model model = new Model(Map.of(), Map.of(), Map.of());
+    /** User thay đổi trong lúc rebuild đang chạy; null khi không rebuild (guarded by lock) */
+    private Set<Long> changedDuringRebuild;
+
+    public LocalPermissionRecommender(
+            JdbcTemplate jdbcTemplate,
+            PermissionCatalog catalog,
+            @Value("${ai.local.enabled:true}") boolean enabled,
+            @Value("${ai.local.min-support:5}") int minSupport,
+            @Value("${ai.local.fast-path-min-support:50}") int fastPathMinSupport,
+            @Value("${ai.local.min-confidence:0.6}") double minConfidence) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.catalog = catalog;
+        this.enabled = enabled;
+        this.minSupport = Math.max(1, minSupport);
+        this.fastPathMinSupport = fastPathMinSupport;
+        this.minConfidence = minConfidence;
+    }
+
+    /**
+     * Profile theo định dạng request của AI service: role, department, branch, license (Yes/No),
+     * seniority, position, employment_type.
+     *
+     * @return empty nếu không có nhóm nào đủ {@code min-support} user
+     */
+    public Optional<NewUserRecommendation> recommendNewUser(Map<String, String> profile) {
+        return recommendNewUser(profile, minSupport, SEGMENT_LEVELS);
+    }
+
+    /**
+     * Như {@link #recommendNewUser(Map)} nhưng chỉ trả lời khi nhóm có đúng profile này đủ lớn để bỏ
+     * qua AI service ({@code fast-path-min-support}, 0 = tắt); không lùi về nhóm thô hơn.
+     */
+    public Optional<NewUserRecommendation> fastPathNewUser(Map<String, String> profile) {
+        return fastPathMinSupport > 0 ? recommendNewUser(profile, fastPathMinSupport, 1) : Optional.empty();
+    }
+
+    public Optional<JobTransferRecommendation> recommendJobTransfer(Map<String, String> oldProfile,
+                                                                    Map<String, String> newProfile) {
+        return recommendJobTransfer(oldProfile, newProfile, minSupport, SEGMENT_LEVELS);
+    }
+
+    public Optional<JobTransferRecommendation> fastPathJobTransfer(Map<String, String> oldProfile,
+                                                                   Map<String, String> newProfile) {
+        return fastPathMinSupport > 0 ? recommendJobTransfer(oldProfile, newProfile, fastPathMinSupport, 1) : Optional.empty();
+    }
+
+    private Optional<NewUserRecommendation> recommendNewUser(Map<String, String> profile, int support, int levels) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        List<String> key = normalize(profile);
+        lock.readLock().lock();
+        try {
+            Segment segment = model.find(key, support, levels);
+            if (segment == null) {
+                return Optional.empty();
+            }
+            BitSet rolePermissions = model.rolePermissions.getOrDefault(key.get(0), NO_PERMISSIONS);
+            List<PermissionRecommendation> recommendations = new ArrayList<>();
+            for (int permission = 0; permission < segment.counts.length; permission++) {
+                int count = segment.counts[permission];
+                if (count > 0 && !rolePermissions.get(permission)) {
+                    double confidence = model.confidence(permission, false, (double) count / segment.users);
+                    if (confidence >= minConfidence) {
+                        addRecommendation(recommendations, permission, confidence);
+                    }
+                }
+            }
+            recommendations.sort(BY_CONFIDENCE);
+            NewUserRecommendation result = new NewUserRecommendation();
+            result.setType("NEW_USER");
+            result.setModelVersion("local");
+            result.setRecommendations(recommendations);
+            return Optional.of(result);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Quyền kỳ vọng của một profile = quyền của role + quyền có confidence ≥ ngưỡng trong nhóm.
+     * added = kỳ vọng mới − kỳ vọng cũ; removed = kỳ vọng cũ − kỳ vọng mới, với confidence là xác
+     * suất một người trong nhóm mới không có quyền đó.
+     */
+    private Optional<JobTransferRecommendation> recommendJobTransfer(Map<String, String> oldProfile,
+                                                                     Map<String, String> newProfile, int support,
+                                                                     int levels) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        List<String> oldKey = normalize(oldProfile);
+        List<String> newKey = normalize(newProfile);
+        lock.readLock().lock();
+        try {
+            Segment newSegment = model.find(newKey, support, levels);
+            if (newSegment == null) {
+                return Optional.empty();
+            }
+            Map<Integer, Double> expectedNew = expected(newKey, newSegment);
+            Map<Integer, Double> expectedOld = expected(oldKey, model.find(oldKey, minSupport, SEGMENT_LEVELS));
+
+            List<PermissionRecommendation> added = new ArrayList<>();
+            List<PermissionRecommendation> retained = new ArrayList<>();
+            List<PermissionRecommendation> removed = new ArrayList<>();
+            BitSet newRolePermissions = model.rolePermissions.getOrDefault(newKey.get(0), NO_PERMISSIONS);
+            expectedNew.forEach((permission, confidence) ->
+                    addRecommendation(expectedOld.containsKey(permission) ? retained : added, permission, confidence));
+            expectedOld.forEach((permission, ignored) -> {
+                // Quyền của role mới luôn được giữ, không bao giờ gợi ý thu hồi
+                if (!expectedNew.containsKey(permission) && !newRolePermissions.get(permission)) {
+                    double absent = 1.0 - (double) newSegment.count(permission) / newSegment.users;
+                    double confidence = model.confidence(permission, true, absent);
+                    if (confidence >= minConfidence) {
+                        addRecommendation(removed, permission, confidence);
+                    }
+                }
+            });
+            added.sort(BY_CONFIDENCE);
+            retained.sort(BY_CONFIDENCE);
+            removed.sort(BY_CONFIDENCE);
+
+            JobTransferRecommendation result = new JobTransferRecommendation();
+            result.setType("JOB_TRANSFER");
+            result.setModelVersion("local");
+            result.setAddedPermissions(added);
+            result.setRemovedPermissions(removed);
+            result.setRetainedPermissions(retained);
+            return Optional.of(result);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Dense id → confidence */
+    private Map<Integer, Double> expected(List<String> key, Segment segment) {
+        Map<Integer, Double> expected = new HashMap<>();
+        BitSet rolePermissions = model.rolePermissions.getOrDefault(key.get(0), NO_PERMISSIONS);
+        for (int permission = rolePermissions.nextSetBit(0); permission >= 0; permission = rolePermissions.nextSetBit(permission + 1)) {
+            expected.put(permission, 1.0);
+        }
+        if (segment != null) {
+            for (int permission = 0; permission < segment.counts.length; permission++) {
+                int count = segment.counts[permission];
+                if (count > 0) {
+                    double confidence = model.confidence(permission, false, (double) count / segment.users);
+                    if (confidence >= minConfidence) {
+                        expected.putIfAbsent(permission, confidence);
+                    }
+                }
+            }
+        }
+        return expected;
+    }
+
+    private void addRecommendation(List<PermissionRecommendation> target, int permission, double confidence) {
+        PermissionCatalog.Entry entry = catalog.byDenseId(permission);
+        if (entry == null) {
+            return;
+        }
+        target.add(PermissionRecommendation.builder()
+                .permissionId(entry.id())
+                .permission(entry.label())
+                .confidence(Math.round(Math.min(confidence, 1.0) * 100) / 100.0)
+                .build());
+    }
+
+    private static final Comparator<PermissionRecommendation> BY_CONFIDENCE =
+            Comparator.comparing(PermissionRecommendation::getConfidence).reversed()
+                    .thenComparing(PermissionRecommendation::getPermissionId);
+
+    /**
+     * Dựng lại toàn bộ bảng từ database.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${ai.local.rebuild-cron:0 0 3 * * *}")
+    public synchronized void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        long start = System.nanoTime();
+        lock.writeLock().lock();
+        try {
+            changedDuringRebuild = new HashSet<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        Set<Long> changed = Set.of();
+        try {
+            Map<String, BitSet> rolePermissions = new HashMap<>();
+            jdbcTemplate.query("SELECT r.name, rp.permission_id FROM role_permissions rp JOIN roles r ON r.id = rp.role_id", rs -> {
+                set(rolePermissions.computeIfAbsent(rs.getString("name"), r -> new BitSet()), rs.getLong("permission_id"));
+            });
+            Map<Integer, Double> addAcceptance = new HashMap<>();
+            Map<Integer, Double> removeAcceptance = new HashMap<>();
+            loadAcceptance(addAcceptance, removeAcceptance);
+
+            Map<Long, List<String>> profiles = new HashMap<>();
+            jdbcTemplate.query(USERS_SQL, rs -> {
+                profiles.put(rs.getLong("id"), profile(rs));
+            });
+            Map<Long, BitSet> grants = new HashMap<>();
+            jdbcTemplate.query(GRANTS_SQL, rs -> {
+                set(grants.computeIfAbsent(rs.getLong("user_id"), u -> new BitSet()), rs.getLong("permission_id"));
+            });
+
+            Model rebuilt = new Model(rolePermissions, addAcceptance, removeAcceptance);
+            profiles.forEach((userId, profile) ->
+                    rebuilt.put(userId, new UserSnapshot(profile, grants.getOrDefault(userId, NO_PERMISSIONS))));
+
+            lock.writeLock().lock();
+            try {
+                model = rebuilt;
+                changed = changedDuringRebuild;
+                changedDuringRebuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.info("Local permission recommender rebuilt from {} users, {} segments in {} ms",
+                    rebuilt.users.size(), rebuilt.segments.size(), (System.nanoTime() - start) / 1_000_000);
+        } catch (DataAccessException e) {
+            log.error("Local permission recommender rebuild failed: {}", e.getMessage());
+            lock.writeLock().lock();
+            try {
+                changedDuringRebuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        // Bảng mới có thể được đọc trước các thay đổi này: đọc lại từng user
+        changed.forEach(this::refresh);
+    }
+
+    /**
+     * Cập nhật đóng góp của một user sau khi thay đổi đã commit.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onUserPermissionsChanged(UserPermissionsChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        refresh(event.userId());
+    }
+
+    private void refresh(Long userId) {
+        try {
+            List<List<String>> rows = jdbcTemplate.query(USERS_SQL + " AND u.id = ?", (rs, i) -> profile(rs), userId);
+            BitSet permissions = new BitSet();
+            for (Long permissionId : jdbcTemplate.queryForList(USER_GRANTS_SQL, Long.class, userId, userId)) {
+                set(permissions, permissionId);
+            }
+            lock.writeLock().lock();
+            try {
+                model.remove(userId);
+                if (!rows.isEmpty()) {
+                    model.put(userId, new UserSnapshot(rows.get(0), permissions));
+                }
+                if (changedDuringRebuild != null) {
+                    changedDuringRebuild.add(userId);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } catch (DataAccessException e) {
+            log.warn("Failed to refresh local recommender for user id {}: {}", userId, e.getMessage());
+        }
+    }
+
+    private void set(BitSet permissions, long permissionId) {
+        int permission = catalog.denseId(permissionId);
+        if (permission >= 0) {
+            permissions.set(permission);
+        }
+    }
+
+    private void loadAcceptance(Map<Integer, Double> addAcceptance, Map<Integer, Double> removeAcceptance) {
+        Map<Integer, long[]> add = new HashMap<>();
+        Map<Integer, long[]> remove = new HashMap<>();
+        jdbcTemplate.query(REVIEWS_SQL, rs -> {
+            int permission = catalog.denseId(rs.getLong("permission_id"));
+            if (permission < 0) {
+                return;
+            }
+            long[] counts = ("REMOVE".equals(rs.getString("change_type")) ? remove : add)
+                    .computeIfAbsent(permission, p -> new long[2]);
+            counts["APPROVED".equals(rs.getString("status")) ? 0 : 1] += rs.getLong("n");
+        });
+        add.forEach((p, c) -> addAcceptance.put(p, acceptance(c)));
+        remove.forEach((p, c) -> removeAcceptance.put(p, acceptance(c)));
+    }
+
+    private static double acceptance(long[] counts) {
+        return (counts[0] + ACCEPTANCE_PRIOR) / (counts[0] + counts[1] + ACCEPTANCE_PRIOR);
+    }
+
+    private static List<String> profile(java.sql.ResultSet rs) throws java.sql.SQLException {
+        return List.of(
+                normalize(rs.getString("role")),
+                normalize(rs.getString("department")),
+                normalize(rs.getString("branch")),
+                rs.getBoolean("has_license") ? "Yes" : "No",
+                normalize(rs.getString("seniority")),
+                normalize(rs.getString("position")),
+                normalize(rs.getString("employment_type")));
+    }
+
+    private static List<String> normalize(Map<String, String> profile) {
+        return List.of(
+                normalize(profile.get("role")),
+                normalize(profile.get("department")),
+                normalize(profile.get("branch")),
+                normalize(profile.get("license")),
+                normalize(profile.get("seniority")),
+                normalize(profile.get("position")),
+                normalize(profile.get("employment_type")));
+    }
+
+    private static String normalize(String value) {
+        return value != null ? value.trim() : "";
+    }
+
+    /** Profile đã chuẩn hóa (thứ tự như {@link #normalize(Map)}) và quyền hiệu lực của một user */
+    private record UserSnapshot(List<String> profile, BitSet permissions) {
+    }
+
+    /** Số user trong nhóm và số user có từng quyền */
+    private static final class Segment {
+        int users;
+        /** Theo dense id */
+        int[] counts = new int[0];
+
+        int count(int permission) {
+            return permission < counts.length ? counts[permission] : 0;
+        }
+
+        void add(BitSet permissions, int delta) {
+            if (permissions.length() > counts.length) {
+                counts = Arrays.copyOf(counts, permissions.length());
+            }
+            for (int permission = permissions.nextSetBit(0); permission >= 0; permission = permissions.nextSetBit(permission + 1)) {
+                counts[permission] += delta;
+            }
+        }
+    }
+
+    private static final class Model {
+        final Map<String, BitSet> rolePermissions;
+        final Map<Integer, Double> addAcceptance;
+        final Map<Integer, Double> removeAcceptance;
+        final Map<Long, UserSnapshot> users = new HashMap<>();
+        final Map<List<String>, Segment> segments = new HashMap<>();
+
+        Model(Map<String, BitSet> rolePermissions,
+              Map<Integer, Double> addAcceptance, Map<Integer, Double> removeAcceptance) {
+            this.rolePermissions = rolePermissions;
+            this.addAcceptance = addAcceptance;
+            this.removeAcceptance = removeAcceptance;
+        }
+
+        /** Nhóm chi tiết nhất (trong {@code levels} mức đầu) có ít nhất {@code support} user */
+        Segment find(List<String> profile, int support, int levels) {
+            List<List<String>> keys = segmentKeys(profile);
+            for (int level = 0; level < levels; level++) {
+                Segment segment = segments.get(keys.get(level));
+                if (segment != null && segment.users >= support) {
+                    return segment;
+                }
+            }
+            return null;
+        }
+
+        double confidence(int permission, boolean remove, double probability) {
+            return probability * (remove ? removeAcceptance : addAcceptance).getOrDefault(permission, 1.0);
+        }
+
+        void put(Long userId, UserSnapshot user) {
+            users.put(userId, user);
+            for (List<String> key : segmentKeys(user.profile())) {
+                Segment segment = segments.computeIfAbsent(key, k -> new Segment());
+                segment.users++;
+                segment.add(user.permissions(), 1);
+            }
+        }
+
+        void remove(Long userId) {
+            UserSnapshot user = users.remove(userId);
+            if (user == null) {
+                return;
+            }
+            for (List<String> key : segmentKeys(user.profile())) {
+                Segment segment = segments.get(key);
+                if (--segment.users == 0) {
+                    segments.remove(key);
+                    continue;
+                }
+                segment.add(user.permissions(), -1);
+            }
+        }
+
+        /**
+         * Khóa nhóm từ chi tiết nhất tới role: profile đầy đủ, (role, department, branch, position),
+         * (role, department), (role).
+         */
+        private static List<List<String>> segmentKeys(List<String> p) {
+            return List.of(
+                    List.of("0", p.get(0), p.get(1), p.get(2), p.get(3), p.get(4), p.get(5), p.get(6)),
+                    List.of("1", p.get(0), p.get(1), p.get(2), p.get(5)),
+                    List.of("2", p.get(0), p.get(1)),
+                    List.of("3", p.get(0)));
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.auth.auth_service.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Catalog permissions trong bộ nhớ: tra theo id, permission key ("MedicalRecord:read:all"),
+ * cặp (resourceType, action) hoặc nhãn "ResourceType_action" của AI service mà không cần query DB.
+ * Nạp khi khởi động (hoặc lần đầu được dùng), làm mới theo {@code permission.catalog.refresh-ms}
+ * hoặc qua {@link #refresh()} sau khi sửa bảng permissions.
+ * <p>
+ * Mỗi permission có một dense id (0 .. {@link #size()} - 1) cố định trong suốt vòng đời tiến trình:
+ * permission mới được gán số kế tiếp khi refresh, permission đã xóa để lại chỗ trống. Đây là không
+ * gian id chung cho các cấu trúc theo permission trong bộ nhớ (BitSet, mảng đếm).
+ */
+@Component
+@Slf4j
+public class PermissionCatalog {
+
+    private static final Snapshot EMPTY = new Snapshot(new Entry[0], Map.of(), Map.of(), Map.of());
+
+    private final JdbcTemplate jdbcTemplate;
+    /** permission id → dense id, chỉ thêm, không bao giờ gán lại (guarded by this) */
+    private final Map<Long, Integer> denseIds = new HashMap<>();
+    private volatile Snapshot snapshot;
+
+    public PermissionCatalog(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public Optional<Entry> byId(long id) {
+        return Optional.ofNullable(snapshot().byId.get(id));
+    }
+
+    /**
+     * @return null nếu dense id chưa được gán hoặc permission đã bị xóa
+     */
+    public Entry byDenseId(int denseId) {
+        Entry[] entries = snapshot().byDenseId;
+        return denseId >= 0 && denseId < entries.length ? entries[denseId] : null;
+    }
+
+    /**
+     * @return -1 nếu permission không có trong catalog
+     */
+    public int denseId(long id) {
+        Entry entry = snapshot().byId.get(id);
+        return entry != null ? entry.denseId() : -1;
+    }
+
+    /**
+     * Cận trên (không bao gồm) của dense id, dùng làm kích thước BitSet / mảng.
+     */
+    public int size() {
+        return snapshot().byDenseId.length;
+    }
+
+    public List<Entry> entries() {
+        return Arrays.stream(snapshot().byDenseId).filter(e -> e != null).toList();
+    }
+
+    public Optional<Entry> byKey(String permissionKey) {
+        return Optional.ofNullable(snapshot().byKey.get(permissionKey));
+    }
+
+    /**
+     * Permission có id nhỏ nhất cho (resourceType, action), như {@code findFirstByResourceTypeAndAction}.
+     */
+    public Optional<Entry> find(String resourceType, String action) {
+        List<Entry> entries = findAll(resourceType, action);
+        return entries.isEmpty() ? Optional.empty() : Optional.of(entries.get(0));
+    }
+
+    /**
+     * Mọi permission (khác scope) cho (resourceType, action), theo id tăng dần.
+     */
+    public List<Entry> findAll(String resourceType, String action) {
+        Map<String, List<Entry>> actions = snapshot().byResource.get(resourceType);
+        return actions != null ? actions.getOrDefault(action, List.of()) : List.of();
+    }
+
+    /**
+     * Nhãn "ResourceType_action" (phần sau dấu '_' thứ hai, nếu có, bị bỏ qua) → permission có id
+     * nhỏ nhất. Tách bằng indexOf, không split/regex. Khớp chính xác như trước đây (không trim, phân
+     * biệt hoa thường); nhãn thiếu resource hoặc action thì không resolve.
+     */
+    public Optional<Entry> resolveLabel(String label) {
+        if (label == null) {
+            return Optional.empty();
+        }
+        int separator = label.indexOf('_');
+        if (separator <= 0) {
+            return Optional.empty();
+        }
+        int end = label.indexOf('_', separator + 1);
+        return find(label.substring(0, separator), label.substring(separator + 1, end < 0 ? label.length() : end));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${permission.catalog.refresh-ms:300000}",
+            initialDelayString = "${permission.catalog.refresh-ms:300000}")
+    public void refresh() {
+        load();
+    }
+
+    private Snapshot snapshot() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            synchronized (this) {
+                current = snapshot != null ? snapshot : load();
+            }
+        }
+        return current;
+    }
+
+    private synchronized Snapshot load() {
+        List<Entry> loaded = new ArrayList<>();
+        try {
+            jdbcTemplate.query("SELECT id, resource_type, action, scope, permission_key FROM permissions ORDER BY id", rs -> {
+                long id = rs.getLong("id");
+                int denseId = denseIds.computeIfAbsent(id, k -> denseIds.size());
+                loaded.add(new Entry(denseId, id, rs.getString("resource_type"), rs.getString("action"),
+                        rs.getString("scope"), rs.getString("permission_key")));
+            });
+        } catch (DataAccessException e) {
+            log.error("Failed to load permission catalog: {}", e.getMessage());
+            return snapshot != null ? snapshot : EMPTY;
+        }
+
+        Entry[] byDenseId = new Entry[denseIds.size()];
+        Map<Long, Entry> byId = new HashMap<>();
+        Map<String, Entry> byKey = new HashMap<>();
+        Map<String, Map<String, List<Entry>>> byResource = new HashMap<>();
+        for (Entry entry : loaded) {
+            byDenseId[entry.denseId()] = entry;
+            byId.put(entry.id(), entry);
+            if (entry.permissionKey() != null) {
+                byKey.put(entry.permissionKey(), entry);
+            }
+            byResource.computeIfAbsent(entry.resourceType(), r -> new HashMap<>())
+                    .computeIfAbsent(entry.action(), a -> new ArrayList<>()).add(entry);
+        }
+        Snapshot loadedSnapshot = new Snapshot(byDenseId, byId, byKey, byResource);
+        snapshot = loadedSnapshot;
+        log.debug("Permission catalog loaded: {} permissions", loaded.size());
+        return loadedSnapshot;
+    }
+
+    /**
+     * @param label nhãn "ResourceType_action" như AI service dùng
+     */
+    public record Entry(int denseId, long id, String resourceType, String action, String scope,
+                        String permissionKey, String label) {
+
+        Entry(int denseId, long id, String resourceType, String action, String scope, String permissionKey) {
+            this(denseId, id, resourceType, action, scope, permissionKey, resourceType + "_" + action);
+        }
+    }
+
+    private record Snapshot(Entry[] byDenseId, Map<Long, Entry> byId, Map<String, Entry> byKey,
+                            Map<String, Map<String, List<Entry>>> byResource) {
+    }
+}
@@ -0,0 +1,388 @@
+package com.auth.auth_service.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Duyệt / từ chối pending permission request theo tập hợp: một câu UPDATE ... RETURNING nhận mọi
+ * request còn PENDING, sau đó một câu INSERT và một câu DELETE (unnest mảng user/permission) trên
+ * user_additional_permissions, thay vì findById + save cho từng request.
+ * <p>
+ * Nếu cùng một (user, permission) có cả ADD và REMOVE trong một lần duyệt, request có id lớn hơn
+ * (tạo sau) quyết định kết quả. Request trùng (user, permission, change type) với một request đã có
+ * trạng thái đích bị bỏ qua và báo lỗi (ràng buộc UNIQUE của V5).
+ * <p>
+ * Work queue (V13): reviewer lease N request tiếp theo bằng FOR UPDATE SKIP LOCKED nên nhiều
+ * reviewer không nhận trùng và không chờ lock của nhau. Mỗi lần request đổi người giữ hoặc được duyệt
+ * thì version tăng (reviewer gia hạn lease của chính mình không làm tăng version); duyệt với version
+ * cũ (lease đã hết và request đã được giao cho người khác) thất bại. Request đang được người khác
+ * giữ (lease còn hạn) không duyệt được, kể cả qua các đường duyệt hàng loạt: chúng bị bỏ qua và báo
+ * trong errors.
+ */
+@Service
+@Slf4j
+public class PermissionReviewService {
+
+    private static final String REVIEW_SQL = """
+            UPDATE pending_permission_requests p
+            SET status = ?, reviewed_by = ?, reviewed_at = ?, review_notes = ?, version = p.version + 1,
+                claimed_by = NULL, claimed_until = NULL
+            WHERE %s AND p.status = 'PENDING'
+              AND NOT EXISTS (
+                  SELECT 1 FROM pending_permission_requests g
+                  WHERE g.user_id = p.user_id AND g.permission_id = p.permission_id
+                    AND g.change_type = p.change_type AND g.status = ?)
+            RETURNING p.id, p.user_id, p.permission_id, p.change_type
+            """;
+
+    /** ARRAY(subquery) để subquery có LIMIT / SKIP LOCKED chỉ chạy một lần */
+    private static final String CLAIM_SQL = """
+            WITH claimed AS (
+                UPDATE pending_permission_requests p
+                SET claimed_by = ?, claimed_until = ?,
+                    version = CASE WHEN p.claimed_by IS DISTINCT FROM ? THEN p.version + 1 ELSE p.version END
+                WHERE p.id = ANY(ARRAY(
+                    SELECT q.id FROM pending_permission_requests q
+                    JOIN users u ON u.id = q.user_id
+                    WHERE q.status = 'PENDING'
+                      AND (q.claimed_until IS NULL OR q.claimed_until < ? OR q.claimed_by = ?)
+                      %s
+                    ORDER BY q.confidence DESC, q.id
+                    LIMIT ?
+                    FOR UPDATE OF q SKIP LOCKED))
+                RETURNING p.*)
+            SELECT c.id, c.version, c.confidence, c.request_type, c.change_type, c.requested_at, c.claimed_until,
+                   u.id AS user_db_id, u.user_id, u.username, r.name AS role, u.department, u.branch,
+                   c.permission_id, perm.permission_key, perm.resource_type, perm.action
+            FROM claimed c
+            JOIN users u ON u.id = c.user_id
+            JOIN roles r ON r.id = u.role_id
+            JOIN permissions perm ON perm.id = c.permission_id
+            ORDER BY c.confidence DESC, c.id
+            """;
+
+    private static final String ADD_SQL = """
+            INSERT INTO user_additional_permissions (user_id, permission_id)
+            SELECT * FROM unnest(?::bigint[], ?::bigint[])
+            ON CONFLICT DO NOTHING
+            """;
+
+    private static final String REMOVE_SQL = """
+            DELETE FROM user_additional_permissions uap
+            USING unnest(?::bigint[], ?::bigint[]) AS r(user_id, permission_id)
+            WHERE uap.user_id = r.user_id AND uap.permission_id = r.permission_id
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Duration lease;
+    private final int maxClaim;
+
+    public PermissionReviewService(JdbcTemplate jdbcTemplate,
+                                   ApplicationEventPublisher eventPublisher,
+                                   @Value("${permission.review.lease-seconds:900}") long leaseSeconds,
+                                   @Value("${permission.review.max-claim:100}") int maxClaim) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.eventPublisher = eventPublisher;
+        this.lease = Duration.ofSeconds(leaseSeconds);
+        this.maxClaim = maxClaim;
+    }
+
+    /** Request chưa bị ai giữ, do reviewer giữ, hoặc lease đã hết */
+    private static final String LEASE_FILTER = " AND (p.claimed_by IS NULL OR p.claimed_by = ? OR p.claimed_until < ?)";
+
+    /** Cùng điều kiện với {@link #LEASE_FILTER}, phủ định: reviewer khác đang giữ request */
+    private static final String CLAIMED_BY_OTHER =
+            "claimed_by IS NOT NULL AND claimed_by <> ? AND claimed_until >= ? AS claimed_by_other";
+
+    /**
+     * Duyệt các request còn PENDING trong {@code requestIds}; id không duyệt được (kể cả request
+     * reviewer khác đang giữ) có trong errors.
+     */
+    @Transactional
+    public ReviewResult approve(Collection<Long> requestIds, Long reviewerId, String notes) {
+        Long[] ids = requestIds.toArray(Long[]::new);
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Claimed> claimed = review("APPROVED", "p.id = ANY(?)" + LEASE_FILTER, reviewerId, notes,
+                ids, reviewerId, now);
+        Set<Long> users = apply(claimed);
+        return new ReviewResult(claimed.size(), unclaimed(ids, claimed, "APPROVED", reviewerId, now), users);
+    }
+
+    /**
+     * Từ chối các request còn PENDING trong {@code requestIds}; quyền của user không đổi. Request
+     * reviewer khác đang giữ bị bỏ qua.
+     */
+    @Transactional
+    public ReviewResult reject(Collection<Long> requestIds, Long reviewerId, String notes) {
+        Long[] ids = requestIds.toArray(Long[]::new);
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Claimed> claimed = review("REJECTED", "p.id = ANY(?)" + LEASE_FILTER, reviewerId, notes,
+                ids, reviewerId, now);
+        return new ReviewResult(claimed.size(), unclaimed(ids, claimed, "REJECTED", reviewerId, now), Set.of());
+    }
+
+    /**
+     * Duyệt mọi request PENDING của một user, trừ request reviewer khác đang giữ.
+     */
+    @Transactional
+    public ReviewResult approveAllForUser(Long userId, Long reviewerId, String notes) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Claimed> claimed = review("APPROVED", "p.user_id = ?" + LEASE_FILTER, reviewerId, notes,
+                userId, reviewerId, now);
+        Set<Long> users = apply(claimed);
+        List<String> errors = new ArrayList<>();
+        jdbcTemplate.query("SELECT id, " + CLAIMED_BY_OTHER
+                        + " FROM pending_permission_requests WHERE user_id = ? AND status = 'PENDING'",
+                rs -> {
+                    errors.add(rs.getBoolean("claimed_by_other")
+                            ? "Request " + rs.getLong("id") + " is claimed by another reviewer"
+                            : "Request " + rs.getLong("id") + " conflicts with an already APPROVED request");
+                }, reviewerId, now, userId);
+        return new ReviewResult(claimed.size(), errors, users);
+    }
+
+    /**
+     * Duyệt hoặc từ chối một request, chỉ khi nó còn PENDING, không bị reviewer khác giữ và (nếu có)
+     * version khớp.
+     *
+     * @param expectedVersion version reviewer đã nhận (từ queue hoặc danh sách); null thì không kiểm tra
+     * @throws RuntimeException nếu request không tồn tại
+     */
+    @Transactional
+    public Completion complete(Long requestId, Long expectedVersion, boolean approve, Long reviewerId, String notes) {
+        String status = approve ? "APPROVED" : "REJECTED";
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Claimed> claimed = expectedVersion != null
+                ? review(status, "p.id = ? AND p.version = ?" + LEASE_FILTER, reviewerId, notes,
+                        requestId, expectedVersion, reviewerId, now)
+                : review(status, "p.id = ?" + LEASE_FILTER, reviewerId, notes, requestId, reviewerId, now);
+        if (!claimed.isEmpty()) {
+            if (approve) {
+                apply(claimed);
+            }
+            return Completion.DONE;
+        }
+        List<Map<String, Object>> current = jdbcTemplate.queryForList(
+                "SELECT status, version, " + CLAIMED_BY_OTHER + " FROM pending_permission_requests WHERE id = ?",
+                reviewerId, now, requestId);
+        if (current.isEmpty()) {
+            throw new RuntimeException("Request not found: " + requestId);
+        }
+        Map<String, Object> row = current.get(0);
+        if (!"PENDING".equals(row.get("status"))) {
+            return Completion.ALREADY_PROCESSED;
+        }
+        if (expectedVersion != null && !expectedVersion.equals(((Number) row.get("version")).longValue())) {
+            return Completion.VERSION_CONFLICT;
+        }
+        return Boolean.TRUE.equals(row.get("claimed_by_other")) ? Completion.CLAIMED : Completion.DUPLICATE;
+    }
+
+    /**
+     * Lease tối đa {@code limit} request PENDING tiếp theo (confidence cao trước) cho reviewer.
+     * Request reviewer đang giữ được gia hạn và trả lại; request người khác đang giữ bị bỏ qua.
+     */
+    @Transactional
+    public List<Map<String, Object>> claimNext(Long reviewerId, int limit, QueueFilter filter) {
+        LocalDateTime now = LocalDateTime.now();
+        StringBuilder conditions = new StringBuilder();
+        List<Object> args = new ArrayList<>(List.of(reviewerId, Timestamp.valueOf(now.plus(lease)), reviewerId,
+                Timestamp.valueOf(now), reviewerId));
+        if (filter.requestType() != null) {
+            conditions.append(" AND q.request_type = ?");
+            args.add(filter.requestType());
+        }
+        if (filter.changeType() != null) {
+            conditions.append(" AND q.change_type = ?");
+            args.add(filter.changeType());
+        }
+        if (filter.branch() != null) {
+            conditions.append(" AND u.branch = ?");
+            args.add(filter.branch());
+        }
+        if (filter.minConfidence() != null) {
+            conditions.append(" AND q.confidence >= ?");
+            args.add(filter.minConfidence());
+        }
+        args.add(Math.min(Math.max(limit, 1), maxClaim));
+
+        return jdbcTemplate.query(CLAIM_SQL.formatted(conditions), (rs, i) -> {
+            Map<String, Object> dto = new LinkedHashMap<>();
+            dto.put("id", rs.getLong("id"));
+            dto.put("version", rs.getLong("version"));
+            dto.put("userId", rs.getString("user_id"));
+            dto.put("userDbId", rs.getLong("user_db_id"));
+            dto.put("username", rs.getString("username"));
+            dto.put("userRole", rs.getString("role"));
+            dto.put("department", rs.getString("department"));
+            dto.put("branch", rs.getString("branch"));
+            dto.put("permissionId", rs.getLong("permission_id"));
+            dto.put("permissionKey", rs.getString("permission_key"));
+            dto.put("resourceType", rs.getString("resource_type"));
+            dto.put("action", rs.getString("action"));
+            dto.put("confidence", rs.getBigDecimal("confidence"));
+            dto.put("requestType", rs.getString("request_type"));
+            dto.put("changeType", rs.getString("change_type"));
+            dto.put("requestedAt", rs.getTimestamp("requested_at").toLocalDateTime());
+            dto.put("claimedUntil", rs.getTimestamp("claimed_until").toLocalDateTime());
+            return dto;
+        }, args.toArray());
+    }
+
+    /**
+     * Trả lại các request reviewer đang giữ (tất cả, hoặc chỉ {@code requestIds}).
+     *
+     * @return số request được trả lại
+     */
+    @Transactional
+    public int release(Long reviewerId, Collection<Long> requestIds) {
+        String sql = """
+                UPDATE pending_permission_requests SET claimed_by = NULL, claimed_until = NULL, version = version + 1
+                WHERE claimed_by = ? AND status = 'PENDING'""";
+        return requestIds == null || requestIds.isEmpty()
+                ? jdbcTemplate.update(sql, reviewerId)
+                : jdbcTemplate.update(sql + " AND id = ANY(?)", reviewerId, requestIds.toArray(Long[]::new));
+    }
+
+    private List<Claimed> review(String status, String filter, Long reviewerId, String notes, Object... filterArgs) {
+        long start = System.nanoTime();
+        Object[] args = new Object[filterArgs.length + 5];
+        args[0] = status;
+        args[1] = reviewerId;
+        args[2] = Timestamp.valueOf(LocalDateTime.now());
+        args[3] = notes;
+        System.arraycopy(filterArgs, 0, args, 4, filterArgs.length);
+        args[args.length - 1] = status;
+        List<Claimed> claimed = jdbcTemplate.query(REVIEW_SQL.formatted(filter),
+                (rs, i) -> new Claimed(rs.getLong("id"), rs.getLong("user_id"), rs.getLong("permission_id"),
+                        rs.getString("change_type")),
+                args);
+        log.debug("{} {} pending permission requests in {} ms", status, claimed.size(),
+                (System.nanoTime() - start) / 1_000_000);
+        return claimed;
+    }
+
+    /**
+     * Áp dụng các request đã duyệt lên user_additional_permissions và phát event cho mỗi user bị
+     * thay đổi (sau commit).
+     */
+    private Set<Long> apply(List<Claimed> claimed) {
+        Map<List<Long>, Claimed> effective = new LinkedHashMap<>();
+        claimed.stream()
+                .sorted(Comparator.comparingLong(Claimed::id))
+                .forEach(c -> effective.put(List.of(c.userId(), c.permissionId()), c));
+
+        List<Long> addUsers = new ArrayList<>();
+        List<Long> addPermissions = new ArrayList<>();
+        List<Long> removeUsers = new ArrayList<>();
+        List<Long> removePermissions = new ArrayList<>();
+        Set<Long> users = new LinkedHashSet<>();
+        for (Claimed c : effective.values()) {
+            if ("REMOVE".equals(c.changeType())) {
+                removeUsers.add(c.userId());
+                removePermissions.add(c.permissionId());
+            } else {
+                addUsers.add(c.userId());
+                addPermissions.add(c.permissionId());
+            }
+            users.add(c.userId());
+        }
+        if (!removeUsers.isEmpty()) {
+            jdbcTemplate.update(REMOVE_SQL, removeUsers.toArray(Long[]::new), removePermissions.toArray(Long[]::new));
+        }
+        if (!addUsers.isEmpty()) {
+            jdbcTemplate.update(ADD_SQL, addUsers.toArray(Long[]::new), addPermissions.toArray(Long[]::new));
+        }
+        users.forEach(userId -> eventPublisher.publishEvent(new UserPermissionsChangedEvent(userId)));
+        return users;
+    }
+
+    /**
+     * Lý do cho các id không được nhận (không tồn tại, đã xử lý, reviewer khác đang giữ, hoặc trùng
+     * request đã có).
+     */
+    private List<String> unclaimed(Long[] ids, List<Claimed> claimed, String status, Long reviewerId, Timestamp now) {
+        if (claimed.size() == ids.length) {
+            return List.of();
+        }
+        Set<Long> done = new LinkedHashSet<>();
+        claimed.forEach(c -> done.add(c.id()));
+        List<Long> missing = new ArrayList<>();
+        for (Long id : ids) {
+            if (!done.contains(id)) {
+                missing.add(id);
+            }
+        }
+        Map<Long, String> statuses = new HashMap<>();
+        Set<Long> claimedByOther = new HashSet<>();
+        jdbcTemplate.query("SELECT id, status, " + CLAIMED_BY_OTHER + " FROM pending_permission_requests WHERE id = ANY(?)",
+                rs -> {
+                    statuses.put(rs.getLong("id"), rs.getString("status"));
+                    if (rs.getBoolean("claimed_by_other")) {
+                        claimedByOther.add(rs.getLong("id"));
+                    }
+                }, reviewerId, now, missing.toArray(Long[]::new));
+
+        List<String> errors = new ArrayList<>(missing.size());
+        for (Long id : missing) {
+            String current = statuses.get(id);
+            if (current == null) {
+                errors.add("Request " + id + ": Request not found: " + id);
+            } else if ("PENDING".equals(current) && claimedByOther.contains(id)) {
+                errors.add("Request " + id + " is claimed by another reviewer");
+            } else if ("PENDING".equals(current)) {
+                errors.add("Request " + id + " conflicts with an already " + status + " request");
+            } else {
+                errors.add("Request " + id + " already processed");
+            }
+        }
+        return errors;
+    }
+
+    /** Kết quả của {@link #complete} */
+    public enum Completion {
+        DONE,
+        ALREADY_PROCESSED,
+        /** Request đã được claim / sửa sau khi reviewer nhận nó */
+        VERSION_CONFLICT,
+        /** Reviewer khác đang giữ request (lease còn hạn) */
+        CLAIMED,
+        /** Trùng (user, permission, change type) với một request đã có trạng thái đích */
+        DUPLICATE
+    }
+
+    /** Bộ lọc của work queue; null là không lọc */
+    public record QueueFilter(String requestType, String changeType, String branch, BigDecimal minConfidence) {
+    }
+
+    private record Claimed(long id, long userId, long permissionId, String changeType) {
+    }
+
+    /**
+     * @param processed số request đã duyệt / từ chối
+     * @param errors    lý do cho từng request không xử lý được
+     * @param users     users.id có quyền bị thay đổi
+     */
+    public record ReviewResult(int processed, List<String> errors, Set<Long> users) {
+    }
+}
@@ -0,0 +1,140 @@
+package com.auth.auth_service.service;
+
+import com.auth.auth_service.audit.PermissionUsageTracker;
+import com.auth.auth_service.dto.ai.RightsizingReport;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rightsizing chạy local trên permission_usage (xem {@link PermissionUsageTracker}): quyền bổ sung
+ * (user_additional_permissions) của user đang enabled không được dùng trong {@code lookbackDays}
+ * ngày. Quyền mới được duyệt ADD trong khoảng đó không bị tính là không dùng.
+ * <p>
+ * permission_usage chỉ đếm từ {@link #trackingStartedAt()} (xem V17): khoảng lookback bắt đầu trước
+ * mốc đó bị từ chối, vì thiếu dòng usage khi ấy không chứng minh được quyền không được dùng.
+ * <p>
+ * Confidence của gợi ý REMOVE: 0.95 nếu chưa từng dùng, 0.80 nếu có dùng trước khoảng lookback.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PermissionRightsizingService {
+
+    /** Anti-join theo primary key của permission_usage và unique key của pending_permission_requests */
+    private static final String UNUSED_GRANTS = """
+            FROM user_additional_permissions uap
+            JOIN users u ON u.id = uap.user_id
+            JOIN permissions p ON p.id = uap.permission_id
+            LEFT JOIN permission_usage pu ON pu.user_id = uap.user_id AND pu.permission_id = uap.permission_id
+            WHERE u.enabled
+              AND (pu.last_used_at IS NULL OR pu.last_used_at < ?)
+              AND NOT EXISTS (
+                  SELECT 1 FROM pending_permission_requests g
+                  WHERE g.user_id = uap.user_id AND g.permission_id = uap.permission_id
+                    AND g.status = 'APPROVED' AND g.change_type = 'ADD' AND g.reviewed_at >= ?)
+            """;
+
+    private static final String REPORT_SQL = """
+            SELECT u.user_id, u.username, uap.permission_id, p.resource_type || '_' || p.action AS permission,
+                   pu.hit_count, pu.last_used_at, COUNT(*) OVER () AS total
+            """ + UNUSED_GRANTS + """
+            ORDER BY uap.user_id, uap.permission_id
+            LIMIT ?
+            """;
+
+    private static final String CREATE_REQUESTS_SQL = """
+            INSERT INTO pending_permission_requests
+                (user_id, permission_id, confidence, request_type, change_type, status, requested_at)
+            SELECT uap.user_id, uap.permission_id, CASE WHEN pu.last_used_at IS NULL THEN 0.95 ELSE 0.80 END,
+                   'RIGHTSIZING', 'REMOVE', 'PENDING', ?
+            """ + UNUSED_GRANTS + """
+            ON CONFLICT DO NOTHING
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PermissionUsageTracker usageTracker;
+
+    /**
+     * Báo cáo quyền không dùng, cùng dạng response mà AI service từng trả về.
+     *
+     * @param limit số dòng tối đa trong unused_permissions; total_unused luôn là tổng chính xác
+     * @throws IllegalArgumentException nếu khoảng lookback bắt đầu trước {@link #trackingStartedAt()}
+     */
+    public RightsizingReport analyze(int lookbackDays, int limit) {
+        LocalDateTime cutoff = cutoff(LocalDateTime.now(), lookbackDays);
+        usageTracker.flush();
+        long[] total = {0};
+        List<Map<String, Object>> unused = new ArrayList<>();
+        jdbcTemplate.query(REPORT_SQL, rs -> {
+            total[0] = rs.getLong("total");
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("user_id", rs.getString("user_id"));
+            row.put("username", rs.getString("username"));
+            row.put("permission_id", rs.getLong("permission_id"));
+            row.put("permission", rs.getString("permission"));
+            Timestamp lastUsed = rs.getTimestamp("last_used_at");
+            row.put("hit_count", lastUsed != null ? rs.getLong("hit_count") : 0L);
+            row.put("last_used_at", lastUsed != null ? lastUsed.toLocalDateTime() : null);
+            unused.add(row);
+        }, Timestamp.valueOf(cutoff), Timestamp.valueOf(cutoff), limit);
+
+        RightsizingReport report = new RightsizingReport();
+        report.setType("RIGHTSIZING");
+        report.setModelVersion("local");
+        report.setAdditionalProperty("lookback_days", lookbackDays);
+        report.setAdditionalProperty("total_unused", total[0]);
+        report.setAdditionalProperty("unused_permissions", unused);
+        return report;
+    }
+
+    /**
+     * Tạo pending request RIGHTSIZING/REMOVE cho mọi quyền không dùng, bằng một câu INSERT ... SELECT.
+     * Quyền đã có request REMOVE đang chờ duyệt bị bỏ qua.
+     *
+     * @return số request đã tạo
+     * @throws IllegalArgumentException nếu khoảng lookback bắt đầu trước {@link #trackingStartedAt()}
+     */
+    public int createPendingRequests(int lookbackDays) {
+        LocalDateTime now = LocalDateTime.now();
+        Timestamp cutoff = Timestamp.valueOf(cutoff(now, lookbackDays));
+        usageTracker.flush();
+        int created = jdbcTemplate.update(CREATE_REQUESTS_SQL, Timestamp.valueOf(now), cutoff, cutoff);
+        log.info("Rightsizing (lookback {} days): {} pending REMOVE requests created", lookbackDays, created);
+        return created;
+    }
+
+    /**
+     * Thời điểm permission_usage bắt đầu được đếm.
+     */
+    public LocalDateTime trackingStartedAt() {
+        return jdbcTemplate.queryForObject("SELECT started_at FROM permission_usage_tracking", Timestamp.class)
+                .toLocalDateTime();
+    }
+
+    /**
+     * Số ngày lookback dài nhất mà mọi lần dùng quyền đều đã được đếm.
+     */
+    public long maxLookbackDays() {
+        return Duration.between(trackingStartedAt(), LocalDateTime.now()).toDays();
+    }
+
+    private LocalDateTime cutoff(LocalDateTime now, int lookbackDays) {
+        LocalDateTime cutoff = now.minusDays(lookbackDays);
+        LocalDateTime startedAt = trackingStartedAt();
+        if (cutoff.isBefore(startedAt)) {
+            throw new IllegalArgumentException("Permission usage has only been tracked since " + startedAt
+                    + "; lookbackDays must be at most " + Duration.between(startedAt, now).toDays());
+        }
+        return cutoff;
+    }
+}
@@ -0,0 +1,205 @@
+package com.auth.auth_service.service;
+
+import com.auth.auth_service.entity.Permission;
+import com.auth.auth_service.entity.Role;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.cache.CacheMeterBinder;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.hibernate.cache.jcache.internal.JCacheRegionFactory;
+import org.hibernate.cache.spi.RegionFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.stereotype.Service;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.cache.management.CacheStatisticsMXBean;
+import javax.management.JMX;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Second-level cache của dữ liệu tham chiếu (Role, Permission, role_permissions và query cache),
+ * JCache trên Caffeine với các region khai báo trong {@code hibernate-cache.conf}. Hibernate tự cập
+ * nhật cache khi ghi qua JPA; mọi thay đổi ngoài Hibernate (migration, SQL tay, JdbcTemplate) phải gọi
+ * {@link #evict()}.
+ * <p>
+ * Mỗi region được bind vào Micrometer như các cache khác ({@code cache.gets}, {@code cache.puts},
+ * {@code cache.evictions}, {@code cache.size}) kèm {@code cache.hit.ratio}. Số liệu lấy từ thống kê
+ * JCache của riêng region đó ({@code monitoring.statistics}), không cần Hibernate statistics.
+ */
+@Service
+@Slf4j
+public class ReferenceDataCache {
+
+    static final String ROLE_REGION = Role.class.getName();
+    static final String ROLE_PERMISSIONS_REGION = Role.class.getName() + ".permissions";
+    static final String PERMISSION_REGION = Permission.class.getName();
+    static final String QUERY_REGION = RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME;
+
+    private final SessionFactory sessionFactory;
+    private final PermissionCatalog permissionCatalog;
+    private final Map<String, Region> regions = new LinkedHashMap<>();
+
+    public ReferenceDataCache(EntityManagerFactory entityManagerFactory,
+                              PermissionCatalog permissionCatalog,
+                              MeterRegistry meterRegistry) {
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        this.permissionCatalog = permissionCatalog;
+        RegionFactory regionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getCache().getRegionFactory();
+        CacheManager cacheManager = regionFactory instanceof JCacheRegionFactory jcache ? jcache.getCacheManager() : null;
+        for (String name : List.of(ROLE_REGION, ROLE_PERMISSIONS_REGION, PERMISSION_REGION, QUERY_REGION)) {
+            Region region = cacheManager != null ? Region.of(cacheManager, name) : null;
+            if (region == null) {
+                log.warn("Second-level cache region {} is not available, its metrics will stay at 0", name);
+            }
+            regions.put(name, region);
+            new RegionMetrics(this, name).bindTo(meterRegistry);
+        }
+    }
+
+    /**
+     * Xóa toàn bộ cache dữ liệu tham chiếu và nạp lại {@link PermissionCatalog}.
+     */
+    public void evict() {
+        org.hibernate.Cache cache = sessionFactory.getCache();
+        cache.evictEntityData(Role.class);
+        cache.evictEntityData(Permission.class);
+        cache.evictCollectionData(ROLE_PERMISSIONS_REGION);
+        cache.evictQueryRegions();
+        permissionCatalog.refresh();
+        log.info("Reference data cache evicted");
+    }
+
+    /**
+     * Số liệu theo region: hits, misses, puts, evictions, hitRatio, size.
+     */
+    public Map<String, Map<String, Object>> statistics() {
+        Map<String, Map<String, Object>> result = new LinkedHashMap<>();
+        regions.forEach((name, region) -> {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("hits", region != null ? region.statistics().getCacheHits() : 0);
+            entry.put("misses", region != null ? region.statistics().getCacheMisses() : 0);
+            entry.put("puts", region != null ? region.statistics().getCachePuts() : 0);
+            entry.put("evictions", region != null ? region.statistics().getCacheEvictions() : 0);
+            entry.put("hitRatio", hitRatio(region));
+            entry.put("size", region != null ? region.size() : 0);
+            result.put(name, entry);
+        });
+        return result;
+    }
+
+    private static double hitRatio(Region region) {
+        if (region == null) {
+            return 0;
+        }
+        long hits = region.statistics().getCacheHits();
+        long gets = hits + region.statistics().getCacheMisses();
+        return gets > 0 ? (double) hits / gets : 0;
+    }
+
+    /**
+     * Cache Caffeine của một region cùng MXBean thống kê JCache mà provider đăng ký khi bật
+     * {@code monitoring.statistics}.
+     */
+    private record Region(Cache<Object, Object> cache, CacheStatisticsMXBean statistics) {
+
+        /**
+         * @return null nếu region chưa được tạo (second-level / query cache bị tắt) hoặc tắt thống kê
+         */
+        static Region of(CacheManager cacheManager, String name) {
+            Cache<Object, Object> cache = cacheManager.getCache(name);
+            if (cache == null) {
+                return null;
+            }
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = statisticsName(cacheManager, name);
+            if (!server.isRegistered(objectName)) {
+                return null;
+            }
+            return new Region(cache, JMX.newMXBeanProxy(server, objectName, CacheStatisticsMXBean.class));
+        }
+
+        long size() {
+            return cache.unwrap(com.github.benmanes.caffeine.cache.Cache.class).estimatedSize();
+        }
+
+        /**
+         * Tên MBean theo đặc tả JCache; dấu {@code , : = \n} trong URI / tên cache được đổi thành '.'.
+         */
+        private static ObjectName statisticsName(CacheManager cacheManager, String name) {
+            try {
+                return new ObjectName("javax.cache:type=CacheStatistics,CacheManager="
+                        + sanitize(cacheManager.getURI().toString()) + ",Cache=" + sanitize(name));
+            } catch (MalformedObjectNameException e) {
+                throw new IllegalStateException("Invalid cache statistics name for region " + name, e);
+            }
+        }
+
+        private static String sanitize(String value) {
+            return value == null ? "" : value.replaceAll("[,:=\n]", ".");
+        }
+    }
+
+    private static final class RegionMetrics extends CacheMeterBinder<ReferenceDataCache> {
+
+        private final String region;
+
+        RegionMetrics(ReferenceDataCache cache, String region) {
+            super(cache, region, Tags.of("cache.type", "hibernate-l2"));
+            this.region = region;
+        }
+
+        private Region region() {
+            ReferenceDataCache cache = getCache();
+            return cache != null ? cache.regions.get(region) : null;
+        }
+
+        @Override
+        protected Long size() {
+            Region region = region();
+            return region != null ? region.size() : null;
+        }
+
+        @Override
+        protected long hitCount() {
+            Region region = region();
+            return region != null ? region.statistics().getCacheHits() : 0;
+        }
+
+        @Override
+        protected Long missCount() {
+            Region region = region();
+            return region != null ? region.statistics().getCacheMisses() : 0L;
+        }
+
+        @Override
+        protected Long evictionCount() {
+            Region region = region();
+            return region != null ? region.statistics().getCacheEvictions() : null;
+        }
+
+        @Override
+        protected long putCount() {
+            Region region = region();
+            return region != null ? region.statistics().getCachePuts() : 0;
+        }
+
+        @Override
+        protected void bindImplementationSpecificMetrics(MeterRegistry registry) {
+            Gauge.builder("cache.hit.ratio", this, metrics -> hitRatio(metrics.region()))
+                    .tags(getTagsWithCacheName())
+                    .description("Second-level cache hit ratio since startup")
+                    .register(registry);
+        }
+    }
+}
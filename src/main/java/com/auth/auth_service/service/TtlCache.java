@@ -0,0 +1,162 @@
+package com.auth.auth_service.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.cache.CacheMeterBinder;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Cache đồng bộ có giới hạn kích thước + TTL cho kết quả tính từ DB.
+ * <p>
+ * Loader chạy trên thread của caller (nên nằm trong transaction của caller); các caller đồng thời
+ * cùng key chờ chung một lần load. Lỗi không được cache.
+ * <p>
+ * Metric theo chuẩn Micrometer: {@code cache.gets{result=hit|miss}}, {@code cache.puts},
+ * {@code cache.evictions}, {@code cache.size}.
+ */
+final class TtlCache<K, V> {
+
+    private final long ttlNanos;
+    private final int maxSize;
+    private final Map<K, Entry<V>> entries = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder puts = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    TtlCache(String name, Duration ttl, int maxSize, MeterRegistry meterRegistry) {
+        this.ttlNanos = ttl.toNanos();
+        this.maxSize = Math.max(1, maxSize);
+        new Metrics(this, name).bindTo(meterRegistry);
+    }
+
+    /**
+     * @param loader chỉ được gọi khi chưa có entry còn hạn (hoặc đang load) cho key
+     */
+    V get(K key, Supplier<V> loader) {
+        long now = System.nanoTime();
+        Entry<V> created = new Entry<>(now);
+        Entry<V> winner = entries.compute(key, (k, existing) ->
+                existing != null && !existing.isExpired(now) ? existing : created);
+        if (winner != created) {
+            hits.increment();
+            return join(winner.value);
+        }
+
+        misses.increment();
+        if (entries.size() > maxSize) {
+            evict(now);
+        }
+        try {
+            V value = loader.get();
+            created.expiresAt = System.nanoTime() + ttlNanos;
+            created.value.complete(value);
+            puts.increment();
+            return value;
+        } catch (RuntimeException | Error e) {
+            entries.remove(key, created);
+            created.value.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private static <V> V join(CompletableFuture<V> value) {
+        try {
+            return value.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Bỏ entry hết hạn; nếu vẫn vượt giới hạn thì bỏ entry tạo sớm nhất.
+     */
+    private void evict(long now) {
+        entries.entrySet().removeIf(e -> {
+            boolean expired = e.getValue().isExpired(now);
+            if (expired) {
+                evictions.increment();
+            }
+            return expired;
+        });
+        while (entries.size() > maxSize) {
+            Map.Entry<K, Entry<V>> oldest = null;
+            for (Map.Entry<K, Entry<V>> e : entries.entrySet()) {
+                if (oldest == null || e.getValue().createdAt - oldest.getValue().createdAt < 0) {
+                    oldest = e;
+                }
+            }
+            if (oldest == null) {
+                return;
+            }
+            if (entries.remove(oldest.getKey(), oldest.getValue())) {
+                evictions.increment();
+            }
+        }
+    }
+
+    private static final class Entry<V> {
+        final long createdAt;
+        final CompletableFuture<V> value = new CompletableFuture<>();
+        /** Long.MAX_VALUE khi đang load */
+        volatile long expiresAt = Long.MAX_VALUE;
+
+        Entry(long createdAt) {
+            this.createdAt = createdAt;
+        }
+
+        boolean isExpired(long now) {
+            return expiresAt != Long.MAX_VALUE && now - expiresAt >= 0;
+        }
+    }
+
+    private static final class Metrics extends CacheMeterBinder<TtlCache<?, ?>> {
+
+        private final TtlCache<?, ?> cache;
+
+        Metrics(TtlCache<?, ?> cache, String name) {
+            super(cache, name, Tags.empty());
+            this.cache = cache;
+        }
+
+        @Override
+        protected Long size() {
+            return (long) cache.entries.size();
+        }
+
+        @Override
+        protected long hitCount() {
+            return cache.hits.sum();
+        }
+
+        @Override
+        protected Long missCount() {
+            return cache.misses.sum();
+        }
+
+        @Override
+        protected Long evictionCount() {
+            return cache.evictions.sum();
+        }
+
+        @Override
+        protected long putCount() {
+            return cache.puts.sum();
+        }
+
+        @Override
+        protected void bindImplementationSpecificMetrics(MeterRegistry registry) {
+        }
+    }
+}
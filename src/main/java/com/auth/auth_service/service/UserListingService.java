@@ -0,0 +1,232 @@
+package com.auth.auth_service.service;
+
+import com.auth.auth_service.dto.UserListingFilter;
+import com.auth.auth_service.dto.view.PermissionGrantView;
+import com.auth.auth_service.dto.view.UserGroupCountView;
+import com.auth.auth_service.dto.view.UserView;
+import com.auth.auth_service.entity.User;
+import com.auth.auth_service.exception.InvalidCursorException;
+import com.auth.auth_service.repository.PendingPermissionRequestRepository;
+import com.auth.auth_service.repository.RoleRepository;
+import com.auth.auth_service.repository.UserRepository;
+import com.auth.auth_service.repository.UserSpecifications;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Danh sách user cho các API đọc. Filter được đẩy xuống SQL ({@link UserSpecifications}) và phân
+ * trang bằng keyset (id ASC); mỗi trang tốn số câu SQL cố định (user, permission của role,
+ * permission bổ sung, patient, số pending) bất kể kích thước trang.
+ * <p>
+ * Thống kê (tổng số, theo role / department / branch) được tính bằng một câu GROUP BY trên toàn bộ
+ * user khớp filter và cache ngắn hạn ({@code user.listing.stats-*}) vì mỗi lần lật trang đều cần nó.
+ */
+@Service
+public class UserListingService {
+
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 500;
+
+    private final UserRepository userRepository;
+    private final RoleRepository roleRepository;
+    private final PendingPermissionRequestRepository pendingRepo;
+    private final TtlCache<UserListingFilter, UserListingStats> statsCache;
+
+    public UserListingService(UserRepository userRepository,
+                              RoleRepository roleRepository,
+                              PendingPermissionRequestRepository pendingRepo,
+                              MeterRegistry meterRegistry,
+                              @Value("${user.listing.stats-ttl-seconds:30}") long statsTtlSeconds,
+                              @Value("${user.listing.stats-cache-size:100}") int statsCacheSize) {
+        this.userRepository = userRepository;
+        this.roleRepository = roleRepository;
+        this.pendingRepo = pendingRepo;
+        this.statsCache = new TtlCache<>("user.listing.stats", Duration.ofSeconds(statsTtlSeconds),
+                statsCacheSize, meterRegistry);
+    }
+
+    /**
+     * @param cursor {@code nextCursor} của trang trước, hoặc null cho trang đầu
+     * @param size   số user mỗi trang (tối đa {@value #MAX_PAGE_SIZE})
+     */
+    @Transactional(readOnly = true)
+    public UserListingPage page(UserListingFilter filter, String cursor, int size) {
+        int limit = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+
+        Specification<User> spec = UserSpecifications.matching(filter);
+        if (cursor != null && !cursor.isBlank()) {
+            spec = spec.and(UserSpecifications.after(Cursor.decode(cursor).id()));
+        }
+
+        // Lấy thêm một user để biết còn trang sau hay không
+        List<UserView> rows = userRepository.findViews(spec, limit + 1);
+        boolean hasMore = rows.size() > limit;
+        List<UserView> users = hasMore ? rows.subList(0, limit) : rows;
+
+        String nextCursor = hasMore ? new Cursor(users.get(users.size() - 1).id()).encode() : null;
+        return new UserListingPage(enrich(users), users.size(), hasMore, nextCursor);
+    }
+
+    /**
+     * Toàn bộ user khớp filter, đọc theo từng trang {@value #MAX_PAGE_SIZE} user.
+     */
+    @Transactional(readOnly = true)
+    public List<UserListing> list(UserListingFilter filter) {
+        List<UserListing> result = new ArrayList<>();
+        String cursor = null;
+        do {
+            UserListingPage page = page(filter, cursor, MAX_PAGE_SIZE);
+            result.addAll(page.items());
+            cursor = page.nextCursor();
+        } while (cursor != null);
+        return result;
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<UserListing> get(String userId) {
+        return page(UserListingFilter.builder().userId(userId).build(), null, 1).items().stream().findFirst();
+    }
+
+    /**
+     * Thống kê của các user khớp filter; có thể trễ tối đa {@code user.listing.stats-ttl-seconds}.
+     */
+    @Transactional(readOnly = true)
+    public UserListingStats statistics(UserListingFilter filter) {
+        UserListingFilter key = filter.isExactMatch() ? filter : filter.toBuilder()
+                .role(lower(filter.getRole()))
+                .department(lower(filter.getDepartment()))
+                .branch(lower(filter.getBranch()))
+                .build();
+        return statsCache.get(key, () -> computeStatistics(key));
+    }
+
+    private UserListingStats computeStatistics(UserListingFilter filter) {
+        long total = 0;
+        long active = 0;
+        Map<String, Long> byRole = new TreeMap<>(Comparator.nullsFirst(Comparator.naturalOrder()));
+        Map<String, Long> byDepartment = new TreeMap<>(Comparator.nullsFirst(Comparator.naturalOrder()));
+        Map<String, Long> byBranch = new TreeMap<>(Comparator.nullsFirst(Comparator.naturalOrder()));
+        for (UserGroupCountView group : userRepository.countGroups(UserSpecifications.matching(filter))) {
+            long count = group.count();
+            total += count;
+            if (group.enabled()) {
+                active += count;
+            }
+            byRole.merge(group.role(), count, Long::sum);
+            byDepartment.merge(group.department(), count, Long::sum);
+            byBranch.merge(group.branch(), count, Long::sum);
+        }
+        return new UserListingStats(total, active, total - active, pendingRepo.countByStatus("PENDING"),
+                byRole, byDepartment, byBranch);
+    }
+
+    private List<UserListing> enrich(List<UserView> users) {
+        if (users.isEmpty()) {
+            return List.of();
+        }
+        List<Long> ids = users.stream().map(UserView::id).toList();
+
+        Map<Long, List<PermissionGrantView>> rolePermissions = new HashMap<>();
+        for (PermissionGrantView grant : roleRepository.findAllPermissionViews()) {
+            rolePermissions.computeIfAbsent(grant.ownerId(), id -> new ArrayList<>()).add(grant);
+        }
+        Map<Long, List<PermissionGrantView>> additionalPermissions = new HashMap<>();
+        for (PermissionGrantView grant : userRepository.findAdditionalPermissionViews(ids)) {
+            additionalPermissions.computeIfAbsent(grant.ownerId(), id -> new ArrayList<>()).add(grant);
+        }
+        Map<Long, Set<String>> patients = new HashMap<>();
+        userRepository.findAssignedPatientViews(ids)
+                .forEach(p -> patients.computeIfAbsent(p.userId(), id -> new TreeSet<>()).add(p.patientId()));
+        Map<Long, Long> pendingCounts = new HashMap<>();
+        pendingRepo.countPendingByUserIds(ids).forEach(c -> pendingCounts.put(c.userId(), c.count()));
+
+        List<UserListing> result = new ArrayList<>(users.size());
+        for (UserView user : users) {
+            List<PermissionGrantView> fromRole = rolePermissions.getOrDefault(user.roleId(), List.of());
+            List<PermissionGrantView> additional = additionalPermissions.getOrDefault(user.id(), List.of());
+            result.add(new UserListing(user,
+                    patients.getOrDefault(user.id(), Set.of()),
+                    groupByResource(fromRole, additional),
+                    fromRole.size(),
+                    additional.size(),
+                    pendingCounts.getOrDefault(user.id(), 0L)));
+        }
+        return result;
+    }
+
+    /**
+     * Permission theo resource type, vd. {"AdmissionRecord": "read", "ClinicalNote": "create,read"}
+     */
+    private Map<String, String> groupByResource(List<PermissionGrantView> fromRole,
+                                                List<PermissionGrantView> additional) {
+        Map<String, Set<String>> actions = new TreeMap<>();
+        fromRole.forEach(p -> actions.computeIfAbsent(p.resourceType(), k -> new TreeSet<>()).add(p.action()));
+        additional.forEach(p -> actions.computeIfAbsent(p.resourceType(), k -> new TreeSet<>()).add(p.action()));
+        Map<String, String> result = new LinkedHashMap<>();
+        actions.forEach((resource, set) -> result.put(resource, String.join(",", set)));
+        return result;
+    }
+
+    private static String lower(String value) {
+        return value != null ? value.toLowerCase(Locale.ROOT) : null;
+    }
+
+    /**
+     * @param rolePermissionsCount       số permission của role (kể cả trùng với permission bổ sung)
+     * @param additionalPermissionsCount số permission bổ sung của user
+     */
+    public record UserListing(UserView user, Set<String> assignedPatients, Map<String, String> permissions,
+                              int rolePermissionsCount, int additionalPermissionsCount, long pendingCount) {
+    }
+
+    /**
+     * Một trang user theo keyset cursor; gửi lại {@code nextCursor} để lấy trang kế tiếp.
+     */
+    public record UserListingPage(List<UserListing> items, int size, boolean hasMore, String nextCursor) {
+    }
+
+    /**
+     * @param totalPendingPermissions tổng số pending request của toàn hệ thống (không theo filter)
+     */
+    public record UserListingStats(long totalUsers, long activeUsers, long inactiveUsers, long totalPendingPermissions,
+                                   Map<String, Long> byRole, Map<String, Long> byDepartment,
+                                   Map<String, Long> byBranch) {
+    }
+
+    /**
+     * Vị trí keyset; mã hóa base64url của id.
+     */
+    record Cursor(long id) {
+
+        String encode() {
+            return Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString(Long.toString(id).getBytes(StandardCharsets.UTF_8));
+        }
+
+        static Cursor decode(String cursor) {
+            try {
+                return new Cursor(Long.parseLong(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8)));
+            } catch (RuntimeException e) {
+                throw new InvalidCursorException("Invalid user cursor: " + cursor);
+            }
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.auth.auth_service.service;
+
+/**
+ * Phát sau khi profile hoặc quyền hiệu lực của một user thay đổi (đăng ký, job transfer, duyệt
+ * pending permission). Listener nên xử lý sau khi transaction commit.
+ *
+ * @param userId id (khóa chính) của bảng users
+ */
+public record UserPermissionsChangedEvent(Long userId) {
+}
@@ -0,0 +1,31 @@
+-- =====================================================
+-- V10: AI recommendation outbox
+-- register / job transfer chỉ commit thay đổi user + một dòng outbox;
+-- worker gọi AI service ngoài transaction rồi ghi pending_permission_requests.
+-- =====================================================
+
+CREATE TABLE IF NOT EXISTS ai_recommendation_outbox (
+    id BIGSERIAL PRIMARY KEY,
+    user_id BIGINT NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+
+    -- NEW_USER: payload = profile; JOB_TRANSFER: payload = {old_profile, new_profile}
+    request_type VARCHAR(50) NOT NULL,
+    payload TEXT NOT NULL,
+
+    -- PENDING -> PROCESSING -> DONE, hoặc FAILED sau max attempts
+    status VARCHAR(20) NOT NULL DEFAULT 'PENDING',
+    attempts INT NOT NULL DEFAULT 0,
+    next_attempt_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    locked_until TIMESTAMP,
+    last_error VARCHAR(500),
+
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    processed_at TIMESTAMP
+);
+
+-- Worker chỉ quét các dòng chưa xong
+CREATE INDEX IF NOT EXISTS idx_ai_outbox_ready ON ai_recommendation_outbox (next_attempt_at, id)
+    WHERE status IN ('PENDING', 'PROCESSING');
+CREATE INDEX IF NOT EXISTS idx_ai_outbox_user ON ai_recommendation_outbox (user_id);
+
+COMMENT ON TABLE ai_recommendation_outbox IS 'AI recommendation jobs committed with the user change, processed outside the transaction';
@@ -0,0 +1,18 @@
+-- =====================================================
+-- V11: Permission usage
+-- Số lần dùng và thời điểm dùng gần nhất của mỗi (user, permission), đếm trong
+-- bộ nhớ từ các quyết định ALLOW rồi flush định kỳ bằng batch upsert.
+-- Rightsizing tìm quyền không dùng bằng anti-join theo primary key, không quét audit_logs.
+-- =====================================================
+
+CREATE TABLE IF NOT EXISTS permission_usage (
+    user_id BIGINT NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+    permission_id BIGINT NOT NULL REFERENCES permissions(id) ON DELETE CASCADE,
+    hit_count BIGINT NOT NULL DEFAULT 0,
+    first_used_at TIMESTAMP NOT NULL,
+    last_used_at TIMESTAMP NOT NULL,
+    -- Cùng khóa với user_additional_permissions
+    PRIMARY KEY (user_id, permission_id)
+) WITH (fillfactor = 80); -- upsert chỉ đổi cột ngoài index: để chỗ cho HOT update
+
+COMMENT ON TABLE permission_usage IS 'Per (user, permission) hit counts and last use, flushed from in-memory counters';
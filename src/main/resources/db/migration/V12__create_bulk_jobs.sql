@@ -0,0 +1,55 @@
+-- =====================================================
+-- V12: Bulk job transfer / onboarding
+-- Mỗi job gồm nhiều item; runner xử lý từng chunk item trong một transaction
+-- (cập nhật user + ghi outbox + đánh dấu item), nên job dừng giữa chừng được
+-- tiếp tục từ các item còn PENDING.
+-- =====================================================
+
+CREATE TABLE IF NOT EXISTS bulk_jobs (
+    id BIGSERIAL PRIMARY KEY,
+
+    -- JOB_TRANSFER | ONBOARDING
+    job_type VARCHAR(50) NOT NULL,
+
+    -- QUEUED -> RUNNING -> COMPLETED
+    status VARCHAR(20) NOT NULL DEFAULT 'QUEUED',
+    total_items INT NOT NULL,
+    processed_items INT NOT NULL DEFAULT 0,
+    failed_items INT NOT NULL DEFAULT 0,
+
+    -- Runner đang giữ job tới thời điểm này; hết hạn thì runner khác tiếp tục
+    locked_by VARCHAR(64),
+    locked_until TIMESTAMP,
+
+    created_by VARCHAR(100),
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    completed_at TIMESTAMP
+);
+
+CREATE INDEX IF NOT EXISTS idx_bulk_jobs_active ON bulk_jobs (id) WHERE status IN ('QUEUED', 'RUNNING');
+
+CREATE TABLE IF NOT EXISTS bulk_job_items (
+    job_id BIGINT NOT NULL REFERENCES bulk_jobs(id) ON DELETE CASCADE,
+    item_index INT NOT NULL,
+
+    -- JSON của một transfer / một user mới (mật khẩu đã được hash)
+    payload TEXT NOT NULL,
+
+    -- PENDING -> DONE | FAILED
+    status VARCHAR(20) NOT NULL DEFAULT 'PENDING',
+    user_id BIGINT REFERENCES users(id) ON DELETE SET NULL,
+    error VARCHAR(500),
+    processed_at TIMESTAMP,
+
+    PRIMARY KEY (job_id, item_index)
+);
+
+CREATE INDEX IF NOT EXISTS idx_bulk_job_items_pending ON bulk_job_items (job_id, item_index) WHERE status = 'PENDING';
+
+-- Theo dõi tiến độ gợi ý AI của từng bulk job
+ALTER TABLE ai_recommendation_outbox ADD COLUMN IF NOT EXISTS bulk_job_id BIGINT REFERENCES bulk_jobs(id) ON DELETE SET NULL;
+CREATE INDEX IF NOT EXISTS idx_ai_outbox_bulk_job ON ai_recommendation_outbox (bulk_job_id) WHERE bulk_job_id IS NOT NULL;
+
+COMMENT ON TABLE bulk_jobs IS 'Resumable bulk job transfers / onboarding';
+COMMENT ON TABLE bulk_job_items IS 'One user per item, processed in chunks';
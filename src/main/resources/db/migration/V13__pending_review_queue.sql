@@ -0,0 +1,17 @@
+-- =====================================================
+-- V13: Work queue cho reviewer của pending_permission_requests
+-- Reviewer nhận (lease) N request tiếp theo bằng FOR UPDATE SKIP LOCKED; request
+-- đang được lease không được giao cho người khác tới claimed_until.
+-- version tăng mỗi lần request bị claim / duyệt, việc duyệt chỉ thành công với
+-- version mà reviewer đã nhận (optimistic locking).
+-- =====================================================
+
+ALTER TABLE pending_permission_requests ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE pending_permission_requests ADD COLUMN IF NOT EXISTS claimed_by BIGINT REFERENCES users(id) ON DELETE SET NULL;
+ALTER TABLE pending_permission_requests ADD COLUMN IF NOT EXISTS claimed_until TIMESTAMP;
+
+-- Thứ tự của queue: confidence cao trước
+CREATE INDEX IF NOT EXISTS idx_pending_queue ON pending_permission_requests (confidence DESC, id) WHERE status = 'PENDING';
+
+COMMENT ON COLUMN pending_permission_requests.version IS 'Optimistic lock version, bumped on claim and review';
+COMMENT ON COLUMN pending_permission_requests.claimed_until IS 'Review lease of claimed_by; expired leases can be claimed again';
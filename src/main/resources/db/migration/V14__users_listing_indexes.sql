@@ -0,0 +1,8 @@
+-- =====================================================
+-- V14: Indexes for UserListingService
+-- User listings filter department / branch case-insensitively and page with a
+-- keyset predicate on id, so each filter gets an expression index ending with id.
+-- =====================================================
+
+CREATE INDEX IF NOT EXISTS idx_users_lower_department_id ON users (lower(department), id);
+CREATE INDEX IF NOT EXISTS idx_users_lower_branch_id ON users (lower(branch), id);
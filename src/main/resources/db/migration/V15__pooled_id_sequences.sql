@@ -0,0 +1,13 @@
+-- =====================================================
+-- V15: Pooled id allocation for write-heavy tables
+-- AuditLog, User and PendingPermissionRequest switch from IDENTITY to
+-- @SequenceGenerator(allocationSize = 50) with Hibernate's pooled optimizer:
+-- one nextval reserves a block of 50 ids, so INSERTs no longer need the
+-- generated key back and can be sent as JDBC batches.
+-- Plain SQL inserts (DEFAULT nextval) keep working; each one just takes the
+-- top id of its own block.
+-- =====================================================
+
+ALTER SEQUENCE audit_logs_id_seq INCREMENT BY 50;
+ALTER SEQUENCE users_id_seq INCREMENT BY 50;
+ALTER SEQUENCE pending_permission_requests_id_seq INCREMENT BY 50;
@@ -0,0 +1,14 @@
+-- =====================================================
+-- V16: ai_recommendation_outbox indexes theo đúng câu claim và câu dọn dẹp
+-- CLAIM_SQL lọc (PENDING đến hạn) OR (PROCESSING hết lease) rồi ORDER BY id LIMIT;
+-- index (next_attempt_at, id) không cho thứ tự id nên phải sort mọi dòng chưa xong.
+-- Partial index theo id quét đúng thứ tự và dừng sau LIMIT dòng khớp.
+-- DONE / FAILED bị xóa sau ai.outbox.retention-days, theo processed_at.
+-- =====================================================
+
+DROP INDEX IF EXISTS idx_ai_outbox_ready;
+CREATE INDEX IF NOT EXISTS idx_ai_outbox_ready ON ai_recommendation_outbox (id)
+    WHERE status IN ('PENDING', 'PROCESSING');
+
+CREATE INDEX IF NOT EXISTS idx_ai_outbox_finished ON ai_recommendation_outbox (processed_at)
+    WHERE status IN ('DONE', 'FAILED');
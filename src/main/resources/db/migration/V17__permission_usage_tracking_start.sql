@@ -0,0 +1,18 @@
+-- =====================================================
+-- V17: Thời điểm bắt đầu đếm permission_usage
+-- permission_usage rỗng khi deploy và không back-fill được chính xác từ audit_logs
+-- (read rủi ro thấp bị gộp vào audit_read_aggregates). Thiếu dòng usage chỉ có nghĩa
+-- "không dùng" với khoảng lookback bắt đầu từ mốc này trở đi; rightsizing từ chối
+-- khoảng lookback dài hơn.
+-- =====================================================
+
+CREATE TABLE IF NOT EXISTS permission_usage_tracking (
+    -- Bảng chỉ có một dòng
+    id BOOLEAN PRIMARY KEY DEFAULT TRUE CHECK (id),
+    started_at TIMESTAMP NOT NULL
+);
+
+INSERT INTO permission_usage_tracking (id, started_at) VALUES (TRUE, CURRENT_TIMESTAMP)
+ON CONFLICT (id) DO NOTHING;
+
+COMMENT ON TABLE permission_usage_tracking IS 'When permission_usage counting started; rightsizing lookback windows may not start earlier';
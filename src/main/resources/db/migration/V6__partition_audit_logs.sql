@@ -0,0 +1,91 @@
+-- =====================================================
+-- V6: Partition audit_logs by month (RANGE on timestamp)
+-- Replaces the single heap table + six B-tree indexes from V2
+-- with monthly partitions and a BRIN index (B-tree indexes: V8).
+-- =====================================================
+
+-- Keep the old table aside while data is copied
+ALTER TABLE audit_logs RENAME TO audit_logs_legacy;
+ALTER INDEX IF EXISTS audit_logs_pkey RENAME TO audit_logs_legacy_pkey;
+DROP INDEX IF EXISTS idx_audit_logs_user_id;
+DROP INDEX IF EXISTS idx_audit_logs_resource_type;
+DROP INDEX IF EXISTS idx_audit_logs_action;
+DROP INDEX IF EXISTS idx_audit_logs_allowed;
+DROP INDEX IF EXISTS idx_audit_logs_timestamp;
+DROP INDEX IF EXISTS idx_audit_logs_risk_score;
+
+-- Partitioned parent (the partition key must be part of the primary key)
+CREATE TABLE audit_logs (
+    id BIGINT NOT NULL DEFAULT nextval('audit_logs_id_seq'),
+    user_id VARCHAR(50) NOT NULL,
+    resource_type VARCHAR(100) NOT NULL,
+    resource_id VARCHAR(100) NOT NULL,
+    action VARCHAR(50) NOT NULL,
+    allowed BOOLEAN NOT NULL,
+    policy_id VARCHAR(255),
+    deny_reasons VARCHAR(1000),
+    risk_score INTEGER,
+    timestamp TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    ip_address VARCHAR(50),
+    user_agent VARCHAR(500),
+    PRIMARY KEY (id, timestamp)
+) PARTITION BY RANGE (timestamp);
+
+-- The id sequence moves to the new table so dropping the legacy table keeps it
+ALTER SEQUENCE audit_logs_id_seq OWNED BY audit_logs.id;
+
+-- Safety net for rows outside every monthly partition
+CREATE TABLE IF NOT EXISTS audit_logs_default PARTITION OF audit_logs DEFAULT;
+
+-- Creates the monthly partition containing p_month (idempotent).
+-- Rows that already landed in the default partition for that month are moved into it.
+CREATE OR REPLACE FUNCTION audit_logs_ensure_partition(p_month DATE) RETURNS TEXT AS $$
+DECLARE
+    v_start DATE := date_trunc('month', p_month)::date;
+    v_end   DATE := (date_trunc('month', p_month) + INTERVAL '1 month')::date;
+    v_name  TEXT := 'audit_logs_' || to_char(v_start, '"y"YYYY"m"MM');
+BEGIN
+    IF to_regclass(v_name) IS NOT NULL THEN
+        RETURN v_name;
+    END IF;
+
+    IF EXISTS (SELECT 1 FROM audit_logs_default WHERE timestamp >= v_start AND timestamp < v_end) THEN
+        EXECUTE format('CREATE TABLE %I (LIKE audit_logs INCLUDING DEFAULTS INCLUDING CONSTRAINTS)', v_name);
+        EXECUTE format('INSERT INTO %I SELECT * FROM audit_logs_default WHERE timestamp >= %L AND timestamp < %L',
+                       v_name, v_start, v_end);
+        DELETE FROM audit_logs_default WHERE timestamp >= v_start AND timestamp < v_end;
+        EXECUTE format('ALTER TABLE audit_logs ATTACH PARTITION %I FOR VALUES FROM (%L) TO (%L)',
+                       v_name, v_start, v_end);
+    ELSE
+        EXECUTE format('CREATE TABLE %I PARTITION OF audit_logs FOR VALUES FROM (%L) TO (%L)',
+                       v_name, v_start, v_end);
+    END IF;
+    RETURN v_name;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Partitions from the oldest existing row up to three months ahead
+DO $$
+DECLARE
+    v_month DATE := date_trunc('month',
+            COALESCE((SELECT MIN(timestamp) FROM audit_logs_legacy), CURRENT_TIMESTAMP))::date;
+BEGIN
+    WHILE v_month <= (date_trunc('month', CURRENT_TIMESTAMP) + INTERVAL '3 months')::date LOOP
+        PERFORM audit_logs_ensure_partition(v_month);
+        v_month := (v_month + INTERVAL '1 month')::date;
+    END LOOP;
+END $$;
+
+INSERT INTO audit_logs (id, user_id, resource_type, resource_id, action, allowed, policy_id,
+                        deny_reasons, risk_score, timestamp, ip_address, user_agent)
+SELECT id, user_id, resource_type, resource_id, action, allowed, policy_id,
+       deny_reasons, risk_score, timestamp, ip_address, user_agent
+FROM audit_logs_legacy;
+
+DROP TABLE audit_logs_legacy;
+
+-- Append-only data is physically ordered by time -> BRIN for wide time-range scans.
+-- The B-tree indexes for filtered listings are the keyset indexes of V8.
+CREATE INDEX IF NOT EXISTS idx_audit_logs_timestamp_brin ON audit_logs USING BRIN (timestamp);
+
+COMMENT ON TABLE audit_logs IS 'Stores all authorization decisions for audit (monthly partitions)';
@@ -0,0 +1,30 @@
+-- =====================================================
+-- V7: Audit statistics rollups
+-- Pre-aggregated counters per (bucket, resource_type, action, allowed),
+-- maintained by AuditJournalReplayer in the same transaction as the audit rows.
+-- granularity: MINUTE, HOUR, DAY, ALL (single all-time bucket at epoch)
+-- =====================================================
+
+CREATE TABLE IF NOT EXISTS audit_stats_rollup (
+    granularity VARCHAR(10) NOT NULL,
+    bucket_start TIMESTAMP NOT NULL,
+    resource_type VARCHAR(100) NOT NULL,
+    action VARCHAR(50) NOT NULL,
+    allowed BOOLEAN NOT NULL,
+    event_count BIGINT NOT NULL DEFAULT 0,
+    PRIMARY KEY (granularity, bucket_start, resource_type, action, allowed)
+);
+
+-- Backfill from existing audit history
+INSERT INTO audit_stats_rollup (granularity, bucket_start, resource_type, action, allowed, event_count)
+SELECT g.granularity,
+       CASE g.granularity
+           WHEN 'ALL' THEN TIMESTAMP '1970-01-01 00:00:00'
+           ELSE date_trunc(lower(g.granularity), a.timestamp)
+       END AS bucket_start,
+       a.resource_type, a.action, a.allowed, COUNT(*)
+FROM audit_logs a
+CROSS JOIN (VALUES ('MINUTE'), ('HOUR'), ('DAY'), ('ALL')) AS g(granularity)
+GROUP BY 1, 2, 3, 4, 5;
+
+COMMENT ON TABLE audit_stats_rollup IS 'Incrementally maintained audit event counters (minute/hour/day/all-time buckets)';
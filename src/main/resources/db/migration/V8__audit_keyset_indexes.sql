@@ -0,0 +1,27 @@
+-- =====================================================
+-- V8: Composite indexes for AuditQueryService
+-- Every audit listing is ordered by (timestamp DESC, id DESC) and pages with a
+-- keyset predicate on that pair, so each filter gets an index that ends with it:
+-- the first page and the deepest page both read only LIMIT rows per partition.
+-- =====================================================
+
+-- Unfiltered / time-range listing
+CREATE INDEX IF NOT EXISTS idx_audit_logs_ts_id ON audit_logs (timestamp DESC, id DESC);
+
+-- userId filter
+CREATE INDEX IF NOT EXISTS idx_audit_logs_user_ts_id ON audit_logs (user_id, timestamp DESC, id DESC);
+
+-- resourceType (+ action as residual filter)
+CREATE INDEX IF NOT EXISTS idx_audit_logs_resource_ts_id ON audit_logs (resource_type, timestamp DESC, id DESC);
+
+-- ipAddress filter (investigations by source address)
+CREATE INDEX IF NOT EXISTS idx_audit_logs_ip_ts_id ON audit_logs (ip_address, timestamp DESC, id DESC)
+    WHERE ip_address IS NOT NULL;
+
+-- allowed = false: denies are rare, index only those rows
+CREATE INDEX IF NOT EXISTS idx_audit_logs_denied_ts_id ON audit_logs (timestamp DESC, id DESC)
+    WHERE allowed = false;
+
+-- Risk range: only risky rows are indexed; the score is carried for index-only filtering
+CREATE INDEX IF NOT EXISTS idx_audit_logs_risky_ts_id ON audit_logs (timestamp DESC, id DESC)
+    INCLUDE (risk_score) WHERE risk_score > 0;
@@ -0,0 +1,23 @@
+-- =====================================================
+-- V9: Coalesced low-risk audit reads
+-- The first read of (user, resource, action) in a window is written to
+-- audit_logs in full; repeats inside the window are only counted here.
+-- Total reads = audit_logs rows + event_count of the matching windows.
+-- =====================================================
+
+CREATE TABLE IF NOT EXISTS audit_read_aggregates (
+    id BIGSERIAL PRIMARY KEY,
+    window_start TIMESTAMP NOT NULL,
+    user_id VARCHAR(50) NOT NULL,
+    resource_type VARCHAR(100) NOT NULL,
+    resource_id VARCHAR(100) NOT NULL,
+    action VARCHAR(50) NOT NULL,
+    event_count BIGINT NOT NULL,
+    first_seen TIMESTAMP NOT NULL,
+    last_seen TIMESTAMP NOT NULL,
+    CONSTRAINT uk_audit_read_aggregates UNIQUE (window_start, user_id, resource_type, resource_id, action)
+);
+
+CREATE INDEX IF NOT EXISTS idx_audit_read_aggregates_user ON audit_read_aggregates (user_id, window_start DESC);
+
+COMMENT ON TABLE audit_read_aggregates IS 'Windowed counts of repeated low-risk reads not written to audit_logs';
@@ -0,0 +1,51 @@
+package com.auth.auth_service.aop;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+
+import java.lang.reflect.Method;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Method kế thừa từ class cha được resolve riêng cho từng class con: {@code @Audit} và
+ * {@code @RequestMapping} ở mức class lấy từ target class đang gọi, không từ lần gọi đầu tiên.
+ */
+class AuditMetadataRegistryTest {
+
+	private final AuditMetadataRegistry registry = new AuditMetadataRegistry(null);
+
+	@Test
+	void inheritedMethodIsResolvedPerTargetClass() throws Exception {
+		Method remove = BaseController.class.getDeclaredMethod("remove", String.class);
+
+		AuditMetadata records = registry.get(remove, RecordController.class);
+		AuditMetadata exports = registry.get(remove, ExportController.class);
+
+		assertThat(records.resourceType()).isEqualTo("MedicalRecord");
+		assertThat(records.allowPolicyId()).isEqualTo("ALLOW_MedicalRecord_remove");
+		assertThat(records.staticRiskScore()).isEqualTo(3);
+		assertThat(exports.resourceType()).isEqualTo("Export");
+		assertThat(exports.allowPolicyId()).isEqualTo("ALLOW_Export_remove");
+		assertThat(exports.staticRiskScore()).isEqualTo(6);
+
+		assertThat(registry.get(remove, RecordController.class)).isSameAs(records);
+	}
+
+	abstract static class BaseController {
+		@DeleteMapping("/{id}")
+		public void remove(String id) {
+		}
+	}
+
+	@Audit(resourceType = "MedicalRecord")
+	@RequestMapping("/api/records")
+	static class RecordController extends BaseController {
+	}
+
+	@Audit(resourceType = "Export")
+	@RequestMapping("/api/export")
+	static class ExportController extends BaseController {
+	}
+}
@@ -0,0 +1,157 @@
+package com.auth.auth_service.audit;
+
+import com.auth.auth_service.dto.mock.IncidentCaseDto;
+import com.auth.auth_service.entity.AuditLog;
+import com.auth.auth_service.service.IncidentService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Ngưỡng của {@link AuditAnomalyDetector} trên baseline EWMA: giờ trong dải bình thường không tạo
+ * incident, vượt z-threshold thì có; chưa đủ warm-up không xét volume; tỷ lệ từ chối không cần
+ * warm-up; cooldown chặn incident lặp; incident chỉ được tạo bởi job nền.
+ */
+class AuditAnomalyDetectorTest {
+
+	private static final LocalDateTime DAY = LocalDateTime.of(2026, 3, 2, 8, 0);
+
+	private IncidentService incidentService;
+	private AuditAnomalyDetector detector;
+
+	@BeforeEach
+	void setUp() {
+		incidentService = new IncidentService();
+		detector = detector(10);
+	}
+
+	@Test
+	void volumeWithinBaselineRaisesNothing() {
+		warmUp("DOC1", 10);
+
+		// Baseline ~30 ± 5 request/giờ: 40 request chưa tới z = 4
+		hour("DOC1", DAY.plusHours(10), 40, 0);
+		detector.raisePendingIncidents();
+
+		assertThat(anomalyIncidents()).isEmpty();
+	}
+
+	@Test
+	void volumeSpikeAfterWarmupRaisesIncident() {
+		warmUp("DOC1", 10);
+
+		hour("DOC1", DAY.plusHours(10), 150, 0);
+		detector.raisePendingIncidents();
+
+		assertThat(anomalyIncidents()).singleElement().satisfies(incident -> {
+			assertThat(incident.getTitle()).contains("DOC1").contains(AuditAnomalyDetector.SIGNAL_VOLUME)
+					.doesNotContain(AuditAnomalyDetector.SIGNAL_RESOURCES);
+			assertThat(incident.getAffectedUsers()).containsExactly("DOC1");
+			assertThat(incident.getIncidentDate()).isAfterOrEqualTo(DAY.plusHours(10));
+		});
+	}
+
+	@Test
+	void volumeIsNotJudgedBeforeWarmup() {
+		warmUp("DOC1", 3);
+
+		hour("DOC1", DAY.plusHours(3), 150, 0);
+		detector.raisePendingIncidents();
+
+		assertThat(anomalyIncidents()).isEmpty();
+	}
+
+	@Test
+	void resourceFanoutRaisesIncident() {
+		warmUp("DOC1", 10);
+
+		// Cùng số request như baseline nhưng mỗi request một hồ sơ khác nhau
+		for (int i = 0; i < 35; i++) {
+			detector.onAuditEvent(event("DOC1", DAY.plusHours(10).plusSeconds(i), "MR-fanout-" + i, true));
+		}
+		detector.raisePendingIncidents();
+
+		assertThat(anomalyIncidents()).singleElement()
+				.extracting(IncidentCaseDto::getTitle).asString().contains(AuditAnomalyDetector.SIGNAL_RESOURCES);
+	}
+
+	@Test
+	void denyRateNeedsNoWarmupButMinimumEvents() {
+		hour("NEW1", DAY, 19, 10);
+		detector.raisePendingIncidents();
+		assertThat(anomalyIncidents()).isEmpty();
+
+		detector.onAuditEvent(event("NEW1", DAY.plusMinutes(30), "MR-1", false));
+		detector.raisePendingIncidents();
+
+		assertThat(anomalyIncidents()).singleElement()
+				.extracting(IncidentCaseDto::getTitle).asString().contains(AuditAnomalyDetector.SIGNAL_DENY_RATE);
+	}
+
+	@Test
+	void cooldownSuppressesRepeatedIncidents() {
+		warmUp("DOC1", 10);
+
+		hour("DOC1", DAY.plusHours(10), 150, 0);
+		// Vẫn bất thường nhưng trong cooldown 60 phút tính từ incident trước
+		hour("DOC1", DAY.plusHours(10).plusMinutes(30), 150, 0);
+		detector.raisePendingIncidents();
+		assertThat(anomalyIncidents()).hasSize(1);
+
+		// Giờ 10 (300 request) đã kéo baseline lên, nên cần đột biến lớn hơn
+		hour("DOC1", DAY.plusHours(12), 1000, 0);
+		detector.raisePendingIncidents();
+		assertThat(anomalyIncidents()).hasSize(2);
+	}
+
+	@Test
+	void incidentsAreCreatedOffTheEventThreadAndBounded() {
+		detector = detector(1);
+		hour("NEW1", DAY, 20, 10);
+		hour("NEW2", DAY, 20, 10);
+
+		// onAuditEvent chỉ xếp hàng; hàng đợi 1 phần tử nên incident thứ hai bị bỏ
+		assertThat(anomalyIncidents()).isEmpty();
+		detector.raisePendingIncidents();
+		assertThat(anomalyIncidents()).extracting(i -> i.getAffectedUsers().get(0)).containsExactly("NEW1");
+	}
+
+	private AuditAnomalyDetector detector(int maxPendingIncidents) {
+		return new AuditAnomalyDetector(incidentService, 0.1, 8, 20, 4.0, 15, 5, 0.3, 0.05, 8, 19,
+				60, 30, 1000, 9, maxPendingIncidents);
+	}
+
+	/** {@code hours} giờ làm việc liên tiếp, xen kẽ 25 / 35 request trên 5 hồ sơ */
+	private void warmUp(String userId, int hours) {
+		for (int h = 0; h < hours; h++) {
+			hour(userId, DAY.plusHours(h), h % 2 == 0 ? 25 : 35, 0);
+		}
+	}
+
+	private void hour(String userId, LocalDateTime start, int requests, int denied) {
+		for (int i = 0; i < requests; i++) {
+			detector.onAuditEvent(event(userId, start.plusSeconds(i), "MR-" + (i % 5), i >= denied));
+		}
+	}
+
+	private List<IncidentCaseDto> anomalyIncidents() {
+		return incidentService.findAll().stream()
+				.filter(incident -> "ANOMALY_DETECTOR".equals(incident.getReportedBy()))
+				.toList();
+	}
+
+	private static AuditLog event(String userId, LocalDateTime timestamp, String resourceId, boolean allowed) {
+		return AuditLog.builder()
+				.userId(userId)
+				.resourceType("MedicalRecord")
+				.resourceId(resourceId)
+				.action("read")
+				.allowed(allowed)
+				.timestamp(timestamp)
+				.build();
+	}
+}
@@ -0,0 +1,119 @@
+package com.auth.auth_service.audit;
+
+import com.auth.auth_service.dto.AuditLogFilter;
+import com.auth.auth_service.entity.AuditLog;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Ghi rồi đọc lại file archive ({@link AuditArchiveWriter} / {@link AuditArchiveReader}): mọi cột
+ * giữ nguyên giá trị (kể cả null, Unicode, id và timestamp không liên tục), filter chỉ trả về dòng
+ * khớp và block không thể khớp bị bỏ qua.
+ */
+class AuditArchiveFormatTest {
+
+	private static final int BLOCK_ROWS = 4;
+	private static final LocalDateTime BASE = LocalDateTime.of(2025, 3, 1, 0, 0, 0, 123_456_000);
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void writeThenReadRoundTripsEveryColumn() throws Exception {
+		List<AuditLog> rows = rows();
+		Path file = write(rows);
+
+		List<AuditLog> read = new ArrayList<>();
+		try (AuditArchiveReader reader = AuditArchiveReader.open(file)) {
+			assertThat(reader.rowCount()).isEqualTo(rows.size());
+			assertThat(reader.blockCount()).isEqualTo((rows.size() + BLOCK_ROWS - 1) / BLOCK_ROWS);
+
+			AuditArchiveReader.ScanStats stats = reader.scan(AuditLogFilter.builder().build(), read::add);
+			assertThat(stats.rowsMatched()).isEqualTo(rows.size());
+		}
+
+		assertThat(read).usingRecursiveFieldByFieldElementComparator().containsExactlyElementsOf(rows);
+	}
+
+	@Test
+	void filtersMatchRowsAndSkipBlocks() throws Exception {
+		List<AuditLog> rows = rows();
+		Path file = write(rows);
+
+		try (AuditArchiveReader reader = AuditArchiveReader.open(file)) {
+			List<AuditLog> denied = new ArrayList<>();
+			reader.scan(AuditLogFilter.builder().userId("U2").allowed(false).build(), denied::add);
+			assertThat(denied).usingRecursiveFieldByFieldElementComparator().containsExactlyElementsOf(
+					rows.stream().filter(r -> r.getUserId().equals("U2") && !r.isAllowed()).toList());
+
+			List<AuditLog> window = new ArrayList<>();
+			AuditArchiveReader.ScanStats stats = reader.scan(AuditLogFilter.builder()
+					.userId("U1").from(BASE.plusMinutes(3)).to(BASE.plusMinutes(5)).build(), window::add);
+			assertThat(window).extracting(AuditLog::getId).containsExactly(103L, 104L);
+			assertThat(stats.blocksSkipped()).isPositive();
+
+			AuditArchiveReader.ScanStats none = reader.scan(
+					AuditLogFilter.builder().resourceType("NoSuchResource").build(), r -> { });
+			assertThat(none.rowsMatched()).isZero();
+			assertThat(none.blocksScanned()).isZero();
+		}
+	}
+
+	private Path write(List<AuditLog> rows) throws Exception {
+		Path file = directory.resolve("audit_logs_y2025m03" + AuditArchiveFormat.FILE_SUFFIX);
+		try (AuditArchiveWriter writer = AuditArchiveWriter.create(file, BLOCK_ROWS)) {
+			for (AuditLog row : rows) {
+				writer.append(row);
+			}
+			assertThat(writer.rowCount()).isEqualTo(rows.size());
+			writer.finish();
+		}
+		return file;
+	}
+
+	/** Sắp theo (userId, timestamp, id) như {@link AuditArchiveService} ghi */
+	private static List<AuditLog> rows() {
+		List<AuditLog> rows = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			rows.add(row(100L + i, "U1", BASE.plusMinutes(i), i % 3 != 0, i % 4 == 0 ? null : i));
+		}
+		for (int i = 0; i < 7; i++) {
+			rows.add(row(5_000_000L - i * 1000, "U2", BASE.plusDays(20).plusSeconds(i), i % 2 == 0, i));
+		}
+		rows.add(AuditLog.builder()
+				.id(42L)
+				.userId("U3")
+				.resourceType("Đơn thuốc")
+				.resourceId("RX-ư-1")
+				.action("export")
+				.allowed(false)
+				.denyReasons("[\"ngoài giờ\", \"khác khoa\"]")
+				.timestamp(BASE.plusDays(27))
+				.build());
+		return rows;
+	}
+
+	private static AuditLog row(long id, String userId, LocalDateTime timestamp, boolean allowed, Integer risk) {
+		return AuditLog.builder()
+				.id(id)
+				.userId(userId)
+				.resourceType(id % 2 == 0 ? "MedicalRecord" : "Prescription")
+				.resourceId("R-" + id)
+				.action(id % 3 == 0 ? "update" : "read")
+				.allowed(allowed)
+				.policyId(allowed ? "policy-" + (id % 5) : null)
+				.denyReasons(allowed ? null : "[\"outside department\"]")
+				.riskScore(risk)
+				.timestamp(timestamp)
+				.ipAddress(id % 4 == 0 ? null : "10.0.0." + (id % 250))
+				.userAgent("agent/" + (id % 2))
+				.build();
+	}
+}
@@ -0,0 +1,118 @@
+package com.auth.auth_service.audit;
+
+import com.auth.auth_service.dto.AuditLogFilter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Archive một partition đã detach: file được tạo và bảng bị drop, các lần chạy song song chỉ
+ * archive một lần, file đã có không bị ghi đè.
+ */
+@SpringBootTest(properties = "audit.journal.replay-interval-ms=3600000")
+class AuditArchiveServiceTest {
+
+	private static final String TABLE = AuditPartitionMaintenance.DETACHED_PREFIX + "y2001m01";
+	private static final String FILE = "audit_logs_y2001m01" + AuditArchiveFormat.FILE_SUFFIX;
+	private static final int ROWS = 2000;
+
+	@Autowired
+	private DataSource dataSource;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@TempDir
+	Path directory;
+
+	private AuditArchiveService archiveService;
+
+	@BeforeEach
+	void setUp() {
+		archiveService = new AuditArchiveService(dataSource, transactionManager, directory.toString(), 256, 500);
+		createDetachedPartition();
+	}
+
+	@AfterEach
+	void dropPartition() {
+		jdbcTemplate.execute("DROP TABLE IF EXISTS " + TABLE);
+	}
+
+	@Test
+	void concurrentRunsArchiveThePartitionOnce() throws Exception {
+		int threads = 4;
+		CountDownLatch start = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<List<String>>> runs = new ArrayList<>();
+			for (int i = 0; i < threads; i++) {
+				runs.add(executor.submit((Callable<List<String>>) () -> {
+					start.await();
+					return archiveService.archiveDetachedPartitions();
+				}));
+			}
+			start.countDown();
+
+			List<String> archived = new ArrayList<>();
+			for (Future<List<String>> run : runs) {
+				archived.addAll(run.get());
+			}
+			assertThat(archived).containsExactly(FILE);
+		} finally {
+			executor.shutdownNow();
+		}
+
+		assertThat(tableExists()).isFalse();
+		assertThat(archiveService.search(AuditLogFilter.builder().userId("ARCHIVE_TEST").build(), 10).totalMatched())
+				.isEqualTo(ROWS);
+	}
+
+	@Test
+	void existingArchiveIsNotOverwritten() throws Exception {
+		Path target = directory.resolve(FILE);
+		Files.writeString(target, "existing archive");
+
+		assertThatThrownBy(() -> archiveService.archivePartition(TABLE)).isInstanceOf(FileAlreadyExistsException.class);
+		assertThat(archiveService.archiveDetachedPartitions()).doesNotContain(FILE);
+
+		assertThat(Files.readString(target)).isEqualTo("existing archive");
+		assertThat(directory.resolve(FILE + ".tmp")).doesNotExist();
+		assertThat(tableExists()).isTrue();
+	}
+
+	private void createDetachedPartition() {
+		jdbcTemplate.execute("CREATE TABLE " + TABLE + " (LIKE audit_logs INCLUDING DEFAULTS)");
+		jdbcTemplate.update("INSERT INTO " + TABLE + """
+				 (user_id, resource_type, resource_id, action, allowed, timestamp)
+				SELECT 'ARCHIVE_TEST', 'MedicalRecord', 'MR-' || i, 'read', true,
+				       TIMESTAMP '2001-01-01' + i * INTERVAL '1 minute'
+				FROM generate_series(1, ?) i""", ROWS);
+	}
+
+	private boolean tableExists() {
+		return jdbcTemplate.queryForObject("SELECT to_regclass(?) IS NOT NULL", Boolean.class, TABLE);
+	}
+}
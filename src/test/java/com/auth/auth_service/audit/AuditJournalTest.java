@@ -0,0 +1,116 @@
+package com.auth.auth_service.audit;
+
+import com.auth.auth_service.entity.AuditLog;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.zip.CRC32C;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Đọc journal có segment bị cắt cụt và record không decode được: các record hỏng bị bỏ qua,
+ * vị trí đọc vẫn tiến tới cuối journal thay vì kẹt lại ở record hỏng.
+ */
+class AuditJournalTest {
+
+	private static final int SEGMENT_SIZE = 64 * 1024;
+
+	@TempDir
+	Path directory;
+
+	private AuditJournal journal;
+
+	@AfterEach
+	void close() throws IOException {
+		if (journal != null) {
+			journal.close();
+		}
+	}
+
+	@Test
+	void readSkipsShortRecordAndTruncatedSegmentTail() throws Exception {
+		byte[] shortPayload = Arrays.copyOf(AuditRecordCodec.encode(entry("R-short")), 10);
+		byte[] truncated = frame(AuditRecordCodec.encode(entry("R-cut")));
+		ByteBuffer sealed = ByteBuffer.allocate(4096);
+		sealed.put(frame(AuditRecordCodec.encode(entry("R-1"))));
+		sealed.put(frame(shortPayload));
+		sealed.put(frame(AuditRecordCodec.encode(entry("R-2"))));
+		sealed.put(truncated, 0, truncated.length / 2);
+		Files.write(segment(0), Arrays.copyOf(sealed.array(), sealed.position()));
+		Files.createFile(segment(1));
+
+		journal = new AuditJournal(directory.toString(), SEGMENT_SIZE, 1);
+		journal.open();
+		journal.append(entry("R-3"));
+
+		AuditJournal.JournalBatch batch = journal.read(new JournalPosition(0, 0), 100);
+
+		assertThat(batch.records()).extracting(AuditLog::getResourceId).containsExactly("R-1", "R-2", "R-3");
+		assertThat(batch.next()).isEqualTo(journal.writePosition());
+		assertThat(journal.read(batch.next(), 100).isEmpty()).isTrue();
+	}
+
+	@Test
+	void readAdvancesPastUndecodableRecordInSmallBatches() throws Exception {
+		journal = new AuditJournal(directory.toString(), SEGMENT_SIZE, 1);
+		journal.open();
+		journal.append(entry("R-1"));
+		JournalPosition bad = journal.writePosition();
+		journal.append(entry("R-bad"));
+		journal.append(entry("R-2"));
+		journal.close();
+
+		// Ghi đè version byte và tính lại CRC: khung hợp lệ nhưng decode ném IllegalStateException
+		byte[] bytes = Files.readAllBytes(segment(0));
+		ByteBuffer buffer = ByteBuffer.wrap(bytes);
+		int length = buffer.getInt(bad.offset());
+		bytes[bad.offset() + 8] = 99;
+		CRC32C crc = new CRC32C();
+		crc.update(bytes, bad.offset() + 8, length);
+		buffer.putInt(bad.offset() + 4, (int) crc.getValue());
+		Files.write(segment(0), bytes);
+
+		journal = new AuditJournal(directory.toString(), SEGMENT_SIZE, 1);
+		journal.open();
+
+		AuditJournal.JournalBatch first = journal.read(new JournalPosition(0, 0), 1);
+		AuditJournal.JournalBatch second = journal.read(first.next(), 1);
+
+		assertThat(first.records()).extracting(AuditLog::getResourceId).containsExactly("R-1");
+		assertThat(second.records()).extracting(AuditLog::getResourceId).containsExactly("R-2");
+		assertThat(second.next()).isEqualTo(journal.writePosition());
+	}
+
+	private Path segment(long n) {
+		return directory.resolve(String.format("segment-%020d.log", n));
+	}
+
+	private static byte[] frame(byte[] payload) {
+		CRC32C crc = new CRC32C();
+		crc.update(payload);
+		return ByteBuffer.allocate(8 + payload.length)
+				.putInt(payload.length)
+				.putInt((int) crc.getValue())
+				.put(payload)
+				.array();
+	}
+
+	private static AuditLog entry(String resourceId) {
+		return AuditLog.builder()
+				.userId("U1")
+				.resourceType("MedicalRecord")
+				.resourceId(resourceId)
+				.action("read")
+				.allowed(true)
+				.timestamp(LocalDateTime.of(2026, 1, 1, 8, 0))
+				.build();
+	}
+}
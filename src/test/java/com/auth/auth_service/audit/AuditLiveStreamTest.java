@@ -0,0 +1,138 @@
+package com.auth.auth_service.audit;
+
+import com.auth.auth_service.dto.AuditLogFilter;
+import com.auth.auth_service.entity.AuditLog;
+import com.auth.auth_service.exception.TooManySubscribersException;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.codec.ServerSentEvent;
+import reactor.core.Disposable;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Fan-out của {@link AuditLiveStream} không có lock chung: nhiều thread publish cùng lúc, mỗi
+ * subscriber nhận mỗi event đúng một lần; subscriber resume bằng Last-Event-ID giữa lúc đang publish
+ * không mất và không nhận trùng event; vượt giới hạn subscriber thì bị từ chối.
+ */
+class AuditLiveStreamTest {
+
+	private static final int PUBLISHERS = 8;
+	private static final int EVENTS_PER_PUBLISHER = 2000;
+	private static final int TOTAL = PUBLISHERS * EVENTS_PER_PUBLISHER;
+
+	@Test
+	void concurrentPublishersDeliverEveryEventOnce() throws Exception {
+		AuditLiveStream stream = new AuditLiveStream(TOTAL + 16, TOTAL, 4096, 10, 3600);
+		List<Queue<Long>> received = new ArrayList<>();
+		List<Disposable> subscriptions = new ArrayList<>();
+		for (int i = 0; i < 3; i++) {
+			Queue<Long> ids = new ConcurrentLinkedQueue<>();
+			received.add(ids);
+			subscriptions.add(collect(stream, null, ids));
+		}
+
+		publishConcurrently(stream, null);
+
+		for (Queue<Long> ids : received) {
+			assertThat(ids).hasSize(TOTAL).doesNotHaveDuplicates();
+		}
+		subscriptions.forEach(Disposable::dispose);
+		assertThat(stream.subscriberCount()).isZero();
+	}
+
+	@Test
+	void resumeDuringPublishIsGapFreeAndWithoutDuplicates() throws Exception {
+		AuditLiveStream stream = new AuditLiveStream(TOTAL + 16, TOTAL, TOTAL, 10, 3600);
+		Queue<Long> first = new ConcurrentLinkedQueue<>();
+		Disposable firstSubscription = collect(stream, null, first);
+		stream.onAuditEvent(event());
+		long lastSeen = first.peek();
+		firstSubscription.dispose();
+
+		// Kết nối lại giữa lúc các thread đang publish
+		Queue<Long> resumed = new ConcurrentLinkedQueue<>();
+		Disposable[] subscription = new Disposable[1];
+		publishConcurrently(stream, () -> subscription[0] = collect(stream, lastSeen, resumed));
+
+		assertThat(resumed).doesNotHaveDuplicates()
+				.containsExactlyInAnyOrderElementsOf(LongStream.rangeClosed(lastSeen + 1, lastSeen + TOTAL).boxed().toList());
+		subscription[0].dispose();
+	}
+
+	@Test
+	void subscriberLimitIsRejected() {
+		AuditLiveStream stream = new AuditLiveStream(16, 100, 16, 1, 3600);
+		Disposable subscription = collect(stream, null, new ConcurrentLinkedQueue<>());
+
+		assertThatThrownBy(() -> stream.subscribe(AuditLogFilter.builder().build(), null))
+				.isInstanceOf(TooManySubscribersException.class);
+
+		subscription.dispose();
+		assertThat(stream.subscribe(AuditLogFilter.builder().build(), null)).isNotNull();
+	}
+
+	private static Disposable collect(AuditLiveStream stream, Long lastEventId, Queue<Long> ids) {
+		return stream.subscribe(AuditLogFilter.builder().build(), lastEventId)
+				.map(ServerSentEvent::id)
+				.subscribe(id -> {
+					if (id != null) {
+						ids.add(Long.parseLong(id));
+					}
+				});
+	}
+
+	/**
+	 * @param midway chạy trên thread của test khi các publisher đã publish được khoảng một nửa
+	 */
+	private static void publishConcurrently(AuditLiveStream stream, Runnable midway) throws InterruptedException {
+		CountDownLatch start = new CountDownLatch(1);
+		CountDownLatch half = new CountDownLatch(PUBLISHERS);
+		List<Thread> threads = new ArrayList<>();
+		for (int p = 0; p < PUBLISHERS; p++) {
+			Thread thread = new Thread(() -> {
+				try {
+					start.await();
+				} catch (InterruptedException e) {
+					return;
+				}
+				for (int i = 0; i < EVENTS_PER_PUBLISHER; i++) {
+					if (i == EVENTS_PER_PUBLISHER / 2) {
+						half.countDown();
+					}
+					stream.onDecision(event());
+				}
+			});
+			thread.start();
+			threads.add(thread);
+		}
+		start.countDown();
+		if (midway != null) {
+			assertThat(half.await(10, TimeUnit.SECONDS)).isTrue();
+			midway.run();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+	}
+
+	private static AuditLog event() {
+		return AuditLog.builder()
+				.userId("U1")
+				.resourceType("MedicalRecord")
+				.resourceId("MR-1")
+				.action("read")
+				.allowed(true)
+				.timestamp(LocalDateTime.now())
+				.build();
+	}
+}
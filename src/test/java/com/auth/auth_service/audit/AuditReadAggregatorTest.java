@@ -0,0 +1,140 @@
+package com.auth.auth_service.audit;
+
+import com.auth.auth_service.dto.AuditLogFilter;
+import com.auth.auth_service.entity.AuditLog;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Phân tầng lần đọc: 300 GET kiểu dashboard chỉ ghi đầy đủ lần đọc đầu tiên của mỗi resource
+ * (resource nhạy cảm luôn ghi đầy đủ), phần còn lại thành aggregate; flush lỗi không làm mất số đếm.
+ */
+@SpringBootTest(properties = "audit.journal.replay-interval-ms=3600000")
+class AuditReadAggregatorTest {
+
+	private static final String USER = "TIERING_TEST";
+	private static final LocalDateTime WINDOW = LocalDateTime.of(2001, 2, 1, 10, 0);
+
+	@Autowired
+	private DataSource dataSource;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private AuditStatsRollup statsRollup;
+
+	@Autowired
+	private AuditTieringPolicy tieringPolicy;
+
+	@AfterEach
+	void cleanUp() {
+		jdbcTemplate.update("DELETE FROM audit_read_aggregates WHERE user_id = ?", USER);
+		jdbcTemplate.update("DELETE FROM audit_stats_rollup WHERE resource_type LIKE 'Tiering%'");
+	}
+
+	@Test
+	void dashboardReadsWriteOneFullRowPerResource() {
+		AuditReadAggregator aggregator = new AuditReadAggregator(jdbcTemplate, transactionManager, statsRollup, 5, 12);
+
+		int fullRows = 0;
+		for (int i = 0; i < 100; i++) {
+			LocalDateTime at = WINDOW.plusSeconds(i * 2L);
+			for (AuditLog read : List.of(read("TieringDashboard", "summary", at), read("TieringIncident", "list", at),
+					read("SystemConfig", "settings", at))) {
+				if (!tieringPolicy.isCoalescable(read, true) || !aggregator.coalesce(read)) {
+					fullRows++;
+				}
+			}
+		}
+		// 100 lần đọc SystemConfig (nhạy cảm) + lần đầu của 2 resource còn lại
+		assertThat(fullRows).as("full audit rows for 300 reads").isEqualTo(102);
+
+		aggregator.flushAll();
+		assertThat(aggregates()).extracting(AuditReadAggregator.ReadAggregate::eventCount).containsExactly(99L, 99L);
+		assertThat(rolledUp()).isEqualTo(198);
+	}
+
+	@Test
+	void failedFlushKeepsCountsForTheNextFlush() {
+		FailingJdbcTemplate failing = new FailingJdbcTemplate(dataSource);
+		AuditReadAggregator aggregator = new AuditReadAggregator(failing, transactionManager, statsRollup, 5, 12);
+		for (int i = 0; i < 50; i++) {
+			aggregator.coalesce(read("TieringDashboard", "summary", WINDOW.plusSeconds(i)));
+		}
+
+		failing.fail = true;
+		aggregator.flushClosedWindows();
+		assertThat(aggregates()).isEmpty();
+
+		// Cửa sổ đã được gộp lại: lần đọc tiếp theo vẫn được đếm vào đó
+		for (int i = 0; i < 10; i++) {
+			assertThat(aggregator.coalesce(read("TieringDashboard", "summary", WINDOW.plusMinutes(2)))).isTrue();
+		}
+		failing.fail = false;
+		aggregator.flushClosedWindows();
+
+		assertThat(aggregates()).singleElement().satisfies(aggregate -> {
+			assertThat(aggregate.eventCount()).isEqualTo(59);
+			assertThat(aggregate.firstSeen()).isEqualTo(WINDOW.plusSeconds(1));
+			assertThat(aggregate.lastSeen()).isEqualTo(WINDOW.plusMinutes(2));
+		});
+		assertThat(rolledUp()).isEqualTo(59);
+	}
+
+	private List<AuditReadAggregator.ReadAggregate> aggregates() {
+		return new AuditReadAggregator(jdbcTemplate, transactionManager, statsRollup, 5, 12)
+				.search(AuditLogFilter.builder().userId(USER).build(), 10);
+	}
+
+	/** Tổng số đếm theo giờ trong rollup cho các resource của test */
+	private long rolledUp() {
+		return jdbcTemplate.queryForObject("""
+				SELECT COALESCE(SUM(event_count), 0) FROM audit_stats_rollup
+				WHERE granularity = 'HOUR' AND resource_type LIKE 'Tiering%'""", Long.class);
+	}
+
+	private static AuditLog read(String resourceType, String resourceId, LocalDateTime timestamp) {
+		return AuditLog.builder()
+				.userId(USER)
+				.resourceType(resourceType)
+				.resourceId(resourceId)
+				.action("read")
+				.allowed(true)
+				.denyReasons("HTTP_200")
+				.riskScore(0)
+				.timestamp(timestamp)
+				.build();
+	}
+
+	/** Batch upsert lỗi khi {@code fail} bật, như khi database mất kết nối */
+	private static final class FailingJdbcTemplate extends JdbcTemplate {
+		volatile boolean fail;
+
+		FailingJdbcTemplate(DataSource dataSource) {
+			super(dataSource);
+		}
+
+		@Override
+		public int[] batchUpdate(String sql, List<Object[]> batchArgs) {
+			if (fail) {
+				throw new DataAccessResourceFailureException("connection refused");
+			}
+			return super.batchUpdate(sql, batchArgs);
+		}
+	}
+}
@@ -0,0 +1,68 @@
+package com.auth.auth_service.audit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * Độ chính xác của {@link HyperLogLog}: sai số tương đối nằm trong 3 lần sai số chuẩn
+ * (1.04 / sqrt(2^precision)) trên cả khoảng nhỏ (linear counting) và khoảng lớn.
+ */
+class HyperLogLogTest {
+
+	@ParameterizedTest
+	@CsvSource({
+			"9, 10", "9, 100", "9, 1000", "9, 10000", "9, 100000",
+			"12, 1000", "12, 100000", "4, 50"
+	})
+	void estimateIsWithinThreeStandardErrors(int precision, int distinct) {
+		HyperLogLog hll = new HyperLogLog(precision);
+		for (int i = 0; i < distinct; i++) {
+			hll.add("MedicalRecord:MR-" + i);
+		}
+
+		double standardError = 1.04 / Math.sqrt(1 << precision);
+		assertThat((double) hll.estimate())
+				.as("estimate of %d distinct values at precision %d", distinct, precision)
+				.isCloseTo(distinct, within(Math.max(1.0, 3 * standardError * distinct)));
+	}
+
+	@Test
+	void duplicatesDoNotChangeTheEstimate() {
+		HyperLogLog hll = new HyperLogLog(9);
+		for (int i = 0; i < 500; i++) {
+			hll.add("R-" + i);
+		}
+		long estimate = hll.estimate();
+
+		for (int round = 0; round < 5; round++) {
+			for (int i = 0; i < 500; i++) {
+				assertThat(hll.add("R-" + i)).isFalse();
+			}
+		}
+		assertThat(hll.estimate()).isEqualTo(estimate);
+	}
+
+	@Test
+	void clearResetsTheEstimate() {
+		HyperLogLog hll = new HyperLogLog(9);
+		for (int i = 0; i < 1000; i++) {
+			hll.add("R-" + i);
+		}
+		hll.clear();
+
+		assertThat(hll.estimate()).isZero();
+		hll.add("R-1");
+		assertThat(hll.estimate()).isEqualTo(1);
+	}
+
+	@Test
+	void precisionOutsideRangeIsRejected() {
+		assertThatThrownBy(() -> new HyperLogLog(3)).isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> new HyperLogLog(17)).isInstanceOf(IllegalArgumentException.class);
+	}
+}
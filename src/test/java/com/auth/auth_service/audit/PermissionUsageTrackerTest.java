@@ -0,0 +1,134 @@
+package com.auth.auth_service.audit;
+
+import com.auth.auth_service.entity.AuditLog;
+import com.auth.auth_service.service.PermissionCatalog;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Bộ đếm của {@link PermissionUsageTracker} khi nhiều thread ghi nhận trong lúc flush chạy liên tục:
+ * tổng hit_count đã upsert phải bằng đúng số lần dùng, kể cả khi có lần flush lỗi.
+ */
+class PermissionUsageTrackerTest {
+
+	private static final int THREADS = 8;
+	private static final int EVENTS_PER_THREAD = 20_000;
+	private static final List<String> USERS = List.of("U0001", "U0002", "U0003");
+
+	private final PermissionCatalog catalog = mock(PermissionCatalog.class);
+	private final RecordingJdbcTemplate jdbcTemplate = new RecordingJdbcTemplate();
+	private final PermissionUsageTracker tracker = new PermissionUsageTracker(jdbcTemplate, catalog);
+
+	@BeforeEach
+	void stubCatalog() {
+		when(catalog.findAll("MedicalRecord", "read")).thenReturn(List.of(
+				new PermissionCatalog.Entry(0, 10, "MedicalRecord", "read", "all", "MedicalRecord:read:all", "MedicalRecord_read"),
+				new PermissionCatalog.Entry(1, 11, "MedicalRecord", "read", "own", "MedicalRecord:read:own", "MedicalRecord_read")));
+	}
+
+	@Test
+	void concurrentFlushLosesNoIncrements() throws Exception {
+		// flush thứ 3 lỗi: số đếm phải được gộp lại cho lần sau
+		jdbcTemplate.failOnCall = 3;
+		AtomicBoolean done = new AtomicBoolean();
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS + 1);
+		CountDownLatch start = new CountDownLatch(1);
+		try {
+			Future<?> flusher = executor.submit(() -> {
+				start.await();
+				while (!done.get()) {
+					tracker.flush();
+				}
+				return null;
+			});
+			List<Future<?>> writers = new ArrayList<>();
+			for (int t = 0; t < THREADS; t++) {
+				int thread = t;
+				writers.add(executor.submit(() -> {
+					start.await();
+					for (int i = 0; i < EVENTS_PER_THREAD; i++) {
+						tracker.onDecision(allowed(USERS.get((thread + i) % USERS.size())));
+					}
+					return null;
+				}));
+			}
+			start.countDown();
+			for (Future<?> writer : writers) {
+				writer.get(30, TimeUnit.SECONDS);
+			}
+			done.set(true);
+			flusher.get(30, TimeUnit.SECONDS);
+		} finally {
+			executor.shutdownNow();
+		}
+		tracker.flush();
+
+		// mỗi quyết định khớp 2 permission (2 scope)
+		assertThat(jdbcTemplate.hits.get()).isEqualTo(2L * THREADS * EVENTS_PER_THREAD);
+		assertThat(jdbcTemplate.calls.get()).as("flush calls").isGreaterThan(3);
+	}
+
+	@Test
+	void deniedAndUnknownDecisionsAreNotCounted() {
+		AuditLog denied = allowed("U0001");
+		denied.setAllowed(false);
+		AuditLog anonymous = allowed("anonymous");
+		AuditLog unknown = allowed("U0001");
+		unknown.setAction("delete");
+
+		tracker.onDecision(denied);
+		tracker.onDecision(anonymous);
+		tracker.onAuditEvent(unknown);
+		tracker.flush();
+
+		assertThat(jdbcTemplate.calls.get()).isZero();
+	}
+
+	private static AuditLog allowed(String userId) {
+		return AuditLog.builder()
+				.userId(userId)
+				.resourceType("MedicalRecord")
+				.resourceId("MR-1")
+				.action("read")
+				.allowed(true)
+				.policyId("ALLOW_MedicalRecord_read")
+				.timestamp(LocalDateTime.now())
+				.build();
+	}
+
+	/**
+	 * Cộng hit_count (tham số thứ 2 của UPSERT_SQL) của mọi batch ghi thành công.
+	 */
+	private static final class RecordingJdbcTemplate extends JdbcTemplate {
+		final AtomicLong hits = new AtomicLong();
+		final AtomicInteger calls = new AtomicInteger();
+		volatile int failOnCall = -1;
+
+		@Override
+		public int[] batchUpdate(String sql, List<Object[]> batchArgs) {
+			if (calls.incrementAndGet() == failOnCall) {
+				throw new QueryTimeoutException("statement timeout");
+			}
+			batchArgs.forEach(row -> hits.addAndGet((Long) row[1]));
+			return new int[batchArgs.size()];
+		}
+	}
+}
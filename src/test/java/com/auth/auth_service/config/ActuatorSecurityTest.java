@@ -0,0 +1,42 @@
+package com.auth.auth_service.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Metric của actuator (tên cache, số lời gọi AI...) chỉ dành cho SecurityAdmin / ITAdmin; health
+ * vẫn public.
+ */
+@SpringBootTest(properties = "audit.journal.replay-interval-ms=3600000")
+@AutoConfigureMockMvc
+class ActuatorSecurityTest {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Test
+	void metricsRequireAuthentication() throws Exception {
+		mockMvc.perform(get("/actuator/metrics")).andExpect(status().isUnauthorized());
+		mockMvc.perform(get("/actuator/metrics/cache.gets")).andExpect(status().isUnauthorized());
+		mockMvc.perform(get("/actuator/health")).andExpect(status().isOk());
+	}
+
+	@Test
+	@WithMockUser(roles = "Doctor")
+	void metricsAreForbiddenToOtherRoles() throws Exception {
+		mockMvc.perform(get("/actuator/metrics")).andExpect(status().isForbidden());
+	}
+
+	@Test
+	@WithMockUser(roles = "ITAdmin")
+	void metricsAreAvailableToAdmins() throws Exception {
+		mockMvc.perform(get("/actuator/metrics")).andExpect(status().isOk());
+	}
+}
@@ -0,0 +1,118 @@
+package com.auth.auth_service.controller;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.not;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Tham số sai của audit API trả 400 kèm thông báo, live stream quá tải trả 503; không phải 500.
+ * Cận trên của /range bao gồm, của filter {@code to} thì không. Export dùng timeout async riêng.
+ */
+@SpringBootTest(properties = {
+		"audit.journal.replay-interval-ms=3600000",
+		// mọi subscriber live stream đều bị từ chối
+		"audit.live.max-subscribers=0",
+		"audit.export.timeout-ms=123000"
+})
+@AutoConfigureMockMvc
+@WithMockUser(roles = "SecurityAdmin")
+class AuditControllerTest {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@AfterEach
+	void cleanUp() {
+		jdbcTemplate.update("DELETE FROM audit_logs WHERE user_id = 'RANGETEST'");
+	}
+
+	@Test
+	void invalidCursorIsBadRequest() throws Exception {
+		mockMvc.perform(get("/api/audit").param("cursor", "not-a-cursor"))
+				.andExpect(status().isBadRequest())
+				.andExpect(jsonPath("$.success").value(false))
+				.andExpect(jsonPath("$.message").value("Invalid audit cursor: not-a-cursor"));
+		mockMvc.perform(get("/api/audit/denied").param("cursor", "fHw"))
+				.andExpect(status().isBadRequest());
+	}
+
+	@Test
+	void unsupportedExportFormatIsBadRequest() throws Exception {
+		mockMvc.perform(get("/api/audit/export").param("format", "xml"))
+				.andExpect(status().isBadRequest())
+				.andExpect(jsonPath("$.message").value("Unsupported export format: xml (expected csv or ndjson)"));
+	}
+
+	@Test
+	void liveStreamAtCapacityIsServiceUnavailable() throws Exception {
+		mockMvc.perform(get("/api/audit/stream").accept(MediaType.TEXT_EVENT_STREAM))
+				.andExpect(status().isServiceUnavailable())
+				.andExpect(header().exists(HttpHeaders.RETRY_AFTER));
+	}
+
+	@Test
+	void rangeUpperBoundIsInclusive() throws Exception {
+		LocalDateTime at = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+		jdbcTemplate.update("""
+				INSERT INTO audit_logs (user_id, resource_type, resource_id, action, allowed, timestamp)
+				VALUES ('RANGETEST', 'MedicalRecord', 'MR-1', 'read', true, ?)""", Timestamp.valueOf(at));
+
+		mockMvc.perform(get("/api/audit/range").param("start", at.toString()).param("end", at.toString()))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.data.items[*].userId").value(hasItem("RANGETEST")));
+		mockMvc.perform(get("/api/audit/range")
+						.param("start", at.minusMinutes(1).toString())
+						.param("end", at.minusSeconds(1).toString()))
+				.andExpect(jsonPath("$.data.items[*].userId").value(not(hasItem("RANGETEST"))));
+		// filter của /api/audit giữ [from, to)
+		mockMvc.perform(get("/api/audit").param("userId", "RANGETEST")
+						.param("from", at.toString()).param("to", at.toString()))
+				.andExpect(jsonPath("$.data.items").isEmpty());
+	}
+
+	@Test
+	void exportUsesItsOwnAsyncTimeout() throws Exception {
+		jdbcTemplate.update("""
+				INSERT INTO audit_logs (user_id, resource_type, resource_id, action, allowed, timestamp)
+				VALUES ('RANGETEST', 'MedicalRecord', 'MR-2', 'read', true, now())""");
+
+		MvcResult result = mockMvc.perform(get("/api/audit/export")
+						.param("userId", "RANGETEST").param("format", "csv").param("gzip", "false"))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+		assertThat(result.getRequest().getAsyncContext().getTimeout()).isEqualTo(123000);
+
+		mockMvc.perform(asyncDispatch(result))
+				.andExpect(status().isOk())
+				.andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, containsString(".csv\"")))
+				.andExpect(content().contentType("text/csv;charset=UTF-8"))
+				.andExpect(content().string(containsString("RANGETEST,MedicalRecord,MR-2,read,true")));
+	}
+}
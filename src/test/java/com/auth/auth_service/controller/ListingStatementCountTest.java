@@ -0,0 +1,117 @@
+package com.auth.auth_service.controller;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Số câu SQL (Hibernate statistics) của các API danh sách không được tăng theo số dòng trả về:
+ * mỗi API được gọi hai lần, lần hai sau khi thêm pending request, permission bổ sung và patient.
+ * Dữ liệu thêm vào bị rollback sau mỗi test.
+ */
+@SpringBootTest(properties = {
+		"spring.jpa.properties.hibernate.generate_statistics=true",
+		// replay audit journal chạy nền, không để lẫn vào số câu SQL đang đếm
+		"audit.journal.replay-interval-ms=3600000"
+})
+@AutoConfigureMockMvc
+@Transactional
+@WithMockUser(roles = {"SecurityAdmin", "HR"})
+class ListingStatementCountTest {
+
+	/** Giới hạn trên cho một API danh sách, kể cả các câu của audit / security */
+	private static final long MAX_STATEMENTS = 8;
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	private Statistics statistics;
+	private long userDbId;
+	private String userId;
+	private String department;
+	private int seeded;
+
+	@BeforeEach
+	void setUp() {
+		statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		var user = jdbcTemplate.queryForMap("SELECT id, user_id, department FROM users ORDER BY id LIMIT 1");
+		userDbId = ((Number) user.get("id")).longValue();
+		userId = (String) user.get("user_id");
+		department = (String) user.get("department");
+	}
+
+	@Test
+	void pendingRequestListings() throws Exception {
+		assertConstantStatements("/api/admin/permissions/pending");
+		assertConstantStatements("/api/admin/permissions/pending/type/NEW_USER");
+		assertConstantStatements("/api/admin/permissions/pending/user/" + userDbId);
+		assertConstantStatements("/api/users/" + userId + "/pending-permissions");
+	}
+
+	@Test
+	void userListings() throws Exception {
+		assertConstantStatements("/api/users");
+		assertConstantStatements("/api/users/admin/all");
+		assertConstantStatements("/api/users/admin/" + userId);
+		assertConstantStatements("/api/users/department/" + department);
+	}
+
+	private void assertConstantStatements(String url) throws Exception {
+		statements(url); // warm-up: các câu chỉ chạy lần đầu (cache, lookup của security)
+		seed(5);
+		long before = statements(url);
+		seed(20);
+		long after = statements(url);
+
+		assertThat(after).as("statements for %s after adding rows", url).isEqualTo(before);
+		assertThat(before).as("statements for %s", url).isLessThanOrEqualTo(MAX_STATEMENTS);
+	}
+
+	private long statements(String url) throws Exception {
+		statistics.clear();
+		mockMvc.perform(get(url)).andExpect(status().isOk());
+		return statistics.getPrepareStatementCount();
+	}
+
+	/**
+	 * Thêm pending request, permission bổ sung và patient cho {@code users} user đầu tiên.
+	 */
+	private void seed(int users) {
+		int offset = seeded++ * 2;
+		jdbcTemplate.update("""
+				INSERT INTO pending_permission_requests (user_id, permission_id, confidence, request_type, change_type, status, requested_at)
+				SELECT u.id, p.id, 0.9, 'NEW_USER', 'ADD', 'PENDING', now()
+				FROM (SELECT id FROM users ORDER BY id LIMIT ?) u
+				CROSS JOIN (SELECT id FROM permissions ORDER BY id OFFSET ? LIMIT 2) p
+				ON CONFLICT DO NOTHING""", users, offset);
+		jdbcTemplate.update("""
+				INSERT INTO user_additional_permissions (user_id, permission_id)
+				SELECT u.id, p.id
+				FROM (SELECT id FROM users ORDER BY id LIMIT ?) u
+				CROSS JOIN (SELECT id FROM permissions ORDER BY id DESC OFFSET ? LIMIT 2) p
+				ON CONFLICT DO NOTHING""", users, offset);
+		jdbcTemplate.update("""
+				INSERT INTO user_assigned_patients (user_id, patient_id)
+				SELECT id, 'P-TEST-' || ? FROM (SELECT id FROM users ORDER BY id LIMIT ?) u
+				ON CONFLICT DO NOTHING""", offset, users);
+	}
+}
@@ -0,0 +1,87 @@
+package com.auth.auth_service.controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Các endpoint /department, /branch, /role so khớp chính xác (phân biệt hoa thường) như trước;
+ * bộ lọc của /admin/all thì không, và cursor hỏng của /admin/all trả 400. Dữ liệu thêm vào bị rollback
+ * sau mỗi test.
+ */
+@SpringBootTest(properties = "audit.journal.replay-interval-ms=3600000")
+@AutoConfigureMockMvc
+@Transactional
+@WithMockUser(roles = {"SecurityAdmin", "HR"})
+class UserListingMatchTest {
+
+	private static final String ROLE = "MatchTestRole";
+	private static final String DEPARTMENT = "Khoa_MatchTest";
+	private static final String BRANCH = "CN_MatchTest";
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@BeforeEach
+	void seed() {
+		long roleId = jdbcTemplate.queryForObject("INSERT INTO roles (name) VALUES (?) RETURNING id", Long.class, ROLE);
+		for (int i = 0; i < 3; i++) {
+			String userId = "MATCHTEST-" + i;
+			jdbcTemplate.update("""
+					INSERT INTO users (user_id, username, password, department, branch, position, has_license,
+					                   seniority, employment_type, role_id)
+					VALUES (?, ?, 'x', ?, ?, 'Bac_si', true, 'Junior', 'FullTime', ?)""",
+					userId, userId, DEPARTMENT, BRANCH, roleId);
+		}
+	}
+
+	@Test
+	void pathEndpointsMatchExactly() throws Exception {
+		expectUsers("/api/users/department/" + DEPARTMENT, 3);
+		expectUsers("/api/users/branch/" + BRANCH, 3);
+		expectUsers("/api/users/role/" + ROLE, 3);
+
+		expectUsers("/api/users/department/" + DEPARTMENT.toLowerCase(), 0);
+		expectUsers("/api/users/branch/" + BRANCH.toUpperCase(), 0);
+		expectUsers("/api/users/role/" + ROLE.toLowerCase(), 0);
+	}
+
+	@Test
+	void adminFilterIgnoresCase() throws Exception {
+		mockMvc.perform(get("/api/users/admin/all")
+						.param("department", DEPARTMENT.toLowerCase())
+						.param("branch", BRANCH.toUpperCase())
+						.param("role", ROLE.toLowerCase()))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.data.users", hasSize(3)))
+				.andExpect(jsonPath("$.data.statistics.totalUsers").value(3));
+	}
+
+	@Test
+	void invalidAdminCursorIsBadRequest() throws Exception {
+		mockMvc.perform(get("/api/users/admin/all").param("cursor", "not-a-cursor"))
+				.andExpect(status().isBadRequest())
+				.andExpect(jsonPath("$.success").value(false))
+				.andExpect(jsonPath("$.message").value("Invalid user cursor: not-a-cursor"));
+	}
+
+	private void expectUsers(String url, int count) throws Exception {
+		mockMvc.perform(get(url))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.data", hasSize(count)));
+	}
+}
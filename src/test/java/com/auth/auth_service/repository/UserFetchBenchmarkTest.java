@@ -0,0 +1,182 @@
+package com.auth.auth_service.repository;
+
+import com.auth.auth_service.dto.JobTransferRequest;
+import com.auth.auth_service.entity.User;
+import com.auth.auth_service.security.UserPrincipal;
+import com.auth.auth_service.service.AuthService;
+import com.auth.auth_service.service.CustomUserDetailsService;
+import com.auth.auth_service.service.JobTransferService;
+import com.auth.auth_service.support.JdbcCounter;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Benchmark đọc User theo từng use case (xác thực, hồ sơ chi tiết, tra cứu theo id, danh sách,
+ * chuyển công tác) trên một khoa có bác sĩ được gán nhiều bệnh nhân: in số round trip, số dòng đọc
+ * về và thời gian ({@link JdbcCounter}), kiểm tra không có tích Descartes patients × permissions và
+ * số query không tăng theo số user. Mỗi use case chạy một lần để làm nóng cache trước khi đo.
+ * Nạp hàng nghìn dòng vào DB cấu hình nên không chạy trong {@code mvn test} mặc định:
+ * {@code mvn test -Dgroups=benchmark -DexcludedGroups= -Dtest=UserFetchBenchmarkTest}.
+ */
+@Tag("benchmark")
+@SpringBootTest(properties = "audit.journal.replay-interval-ms=3600000")
+@Import(JdbcCounter.class)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class UserFetchBenchmarkTest {
+
+	private static final String DEPARTMENT = "Bench_Khoa_Fetch";
+	private static final int DOCTORS = 20;
+	private static final int CASELOAD = 3000;
+	private static final int OTHER_CASELOAD = 100;
+	private static final int ADDITIONAL_PERMISSIONS = 20;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private CustomUserDetailsService userDetailsService;
+
+	@Autowired
+	private AuthService authService;
+
+	@Autowired
+	private JobTransferService jobTransferService;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	private String username;
+	private String userId;
+	private Long id;
+	private long rolePermissions;
+
+	@BeforeAll
+	void seed() {
+		jdbcTemplate.update("""
+				INSERT INTO users (user_id, username, password, department, branch, position, seniority, employment_type, role_id)
+				SELECT 'BENCH_FETCH_' || i, 'bench_fetch_' || i, 'x', ?, 'CN_HN', 'Doctor', 'Senior', 'FullTime', r.id
+				FROM generate_series(1, ?) i, roles r WHERE r.name = 'Doctor'""", DEPARTMENT, DOCTORS);
+		jdbcTemplate.update("""
+				INSERT INTO user_assigned_patients (user_id, patient_id)
+				SELECT u.id, 'BP' || u.id || '_' || p
+				FROM users u, generate_series(1, ?) p
+				WHERE u.department = ? AND (u.username = 'bench_fetch_1' OR p <= ?)""", CASELOAD, DEPARTMENT, OTHER_CASELOAD);
+		jdbcTemplate.update("""
+				INSERT INTO user_additional_permissions (user_id, permission_id)
+				SELECT u.id, p.id FROM users u, permissions p
+				WHERE u.department = ?
+				  AND p.id IN (SELECT p2.id FROM permissions p2
+				               WHERE NOT EXISTS (SELECT 1 FROM role_permissions rp WHERE rp.role_id = u.role_id AND rp.permission_id = p2.id)
+				               ORDER BY p2.id LIMIT ?)""", DEPARTMENT, ADDITIONAL_PERMISSIONS);
+
+		username = "bench_fetch_1";
+		userId = "BENCH_FETCH_1";
+		id = jdbcTemplate.queryForObject("SELECT id FROM users WHERE username = ?", Long.class, username);
+		rolePermissions = jdbcTemplate.queryForObject(
+				"SELECT COUNT(*) FROM role_permissions rp JOIN roles r ON r.id = rp.role_id WHERE r.name = 'Doctor'", Long.class);
+	}
+
+	@AfterAll
+	void cleanup() {
+		jdbcTemplate.update("DELETE FROM users WHERE department = ?", DEPARTMENT);
+	}
+
+	@Test
+	void authenticationLoadsPatientsAndPermissionsWithoutCartesianJoin() throws Exception {
+		JdbcCounter.Result result = measure("authentication (doctor)", () -> {
+			UserPrincipal principal = (UserPrincipal) userDetailsService.loadUserByUsername(username);
+			assertThat(principal.getAssignedPatients()).hasSize(CASELOAD);
+			return principal;
+		});
+
+		assertThat(result.rowsFetched()).isLessThanOrEqualTo(CASELOAD + ADDITIONAL_PERMISSIONS + rolePermissions + 1);
+	}
+
+	@Test
+	void detailLoadsPatientsAndPermissionsWithoutCartesianJoin() throws Exception {
+		UserPrincipal principal = (UserPrincipal) userDetailsService.loadUserByUsername(username);
+		SecurityContextHolder.getContext().setAuthentication(
+				new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+		try {
+			JdbcCounter.Result result = measure("detail /me (doctor)", () -> {
+				assertThat(authService.getCurrentUser().getAssignedPatients()).hasSize(CASELOAD);
+				return null;
+			});
+
+			assertThat(result.rowsFetched()).isLessThanOrEqualTo(CASELOAD + ADDITIONAL_PERMISSIONS + rolePermissions + 1);
+		} finally {
+			SecurityContextHolder.clearContext();
+		}
+	}
+
+	@Test
+	void lookupByIdLoadsOnlyTheUserRow() throws Exception {
+		TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+		transaction.setReadOnly(true);
+
+		// Như approve-all-for-user: chỉ cần username
+		JdbcCounter.Result result = measure("findById (doctor)",
+				() -> transaction.execute(status -> userRepository.findById(id).orElseThrow().getUsername()));
+
+		assertThat(result.roundTrips()).isEqualTo(1);
+		assertThat(result.rowsFetched()).isEqualTo(1);
+	}
+
+	@Test
+	void listingDoesNotLoadCollectionsPerUser() throws Exception {
+		TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+		transaction.setReadOnly(true);
+
+		JdbcCounter.Result result = measure("listing by department x" + DOCTORS, () -> transaction.execute(status -> {
+			List<User> users = userRepository.findByDepartment(DEPARTMENT);
+			assertThat(users).hasSize(DOCTORS);
+			users.forEach(u -> u.getRole().getName());
+			return null;
+		}));
+
+		assertThat(result.roundTrips()).isLessThanOrEqualTo(2);
+		assertThat(result.rowsFetched()).isLessThanOrEqualTo(DOCTORS + 1);
+	}
+
+	@Test
+	void transferDoesNotLoadPatientsOrPermissions() throws Exception {
+		TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+		JobTransferRequest request = JobTransferRequest.builder()
+				.newDepartment("Khoa_Ngoai")
+				.reason("benchmark")
+				.build();
+
+		// Rollback: không đổi dữ liệu và không phát outbox sau commit
+		JdbcCounter.Result result = measure("job transfer (doctor)", () -> transaction.execute(status -> {
+			jobTransferService.initiateJobTransfer(userId, request);
+			status.setRollbackOnly();
+			return null;
+		}));
+
+		assertThat(result.rowsFetched()).isLessThan(OTHER_CASELOAD);
+	}
+
+	private static JdbcCounter.Result measure(String name, Callable<?> work) throws Exception {
+		work.call();
+		return JdbcCounter.measure(name, work);
+	}
+}
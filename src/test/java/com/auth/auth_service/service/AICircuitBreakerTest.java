@@ -0,0 +1,127 @@
+package com.auth.auth_service.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Chuyển trạng thái của {@link AICircuitBreaker}: cửa sổ đếm N lời gọi gần nhất, số lời gọi thử ở
+ * HALF_OPEN, lời gọi chậm và health probe.
+ */
+class AICircuitBreakerTest {
+
+	private static final long SLOW = 2_000_000_000L;
+	private static final long OPEN = 30_000_000_000L;
+
+	/** Cửa sổ 10 lời gọi, tối thiểu 5, mở khi >= 50% lỗi hoặc >= 80% chậm, 3 lời gọi thử */
+	private final AICircuitBreaker breaker = new AICircuitBreaker(10, 5, 0.5, 0.8, SLOW, OPEN, 3);
+
+	@Test
+	void opensOnlyAfterMinimumCalls() {
+		for (int i = 0; i < 4; i++) {
+			call(true, 0);
+		}
+		assertThat(breaker.state()).isEqualTo(AICircuitBreaker.State.CLOSED);
+
+		call(true, 0);
+		assertThat(breaker.state()).isEqualTo(AICircuitBreaker.State.OPEN);
+		assertThat(breaker.tryAcquire(OPEN - 1)).isFalse();
+	}
+
+	@Test
+	void oldOutcomesLeaveTheWindow() {
+		// 6 thành công + 4 lỗi (40%), rồi 10 thành công đẩy 4 lỗi đó ra khỏi cửa sổ
+		for (int i = 0; i < 6; i++) {
+			call(false, 0);
+		}
+		for (int i = 0; i < 4; i++) {
+			call(true, 0);
+		}
+		for (int i = 0; i < 10; i++) {
+			call(false, 0);
+		}
+		// 4 lỗi mới: cửa sổ 10 có 40% lỗi, chưa đủ ngưỡng; lỗi thứ 5 thì đủ
+		for (int i = 0; i < 4; i++) {
+			call(true, 0);
+		}
+		assertThat(breaker.state()).isEqualTo(AICircuitBreaker.State.CLOSED);
+		call(true, 0);
+		assertThat(breaker.state()).isEqualTo(AICircuitBreaker.State.OPEN);
+	}
+
+	@Test
+	void slowCallsOpenTheBreaker() {
+		call(false, 0);
+		for (int i = 0; i < 3; i++) {
+			call(false, SLOW);
+		}
+		call(false, SLOW);
+		// 4 / 5 lời gọi chậm = 80%
+		assertThat(breaker.state()).isEqualTo(AICircuitBreaker.State.OPEN);
+	}
+
+	@Test
+	void halfOpenAllowsLimitedTrialsAndClosesOnSuccess() {
+		open();
+
+		long now = OPEN + 1;
+		for (int i = 0; i < 3; i++) {
+			assertThat(breaker.tryAcquire(now)).isTrue();
+		}
+		assertThat(breaker.state()).isEqualTo(AICircuitBreaker.State.HALF_OPEN);
+		assertThat(breaker.tryAcquire(now)).as("fourth trial call").isFalse();
+
+		// Lời gọi bị hủy trả lại permit
+		breaker.onCancel();
+		assertThat(breaker.tryAcquire(now)).isTrue();
+
+		for (int i = 0; i < 3; i++) {
+			breaker.onResult(false, 0, now);
+		}
+		assertThat(breaker.state()).isEqualTo(AICircuitBreaker.State.CLOSED);
+
+		// Cửa sổ được làm mới: 4 lỗi sau khi đóng chưa đủ minCalls
+		for (int i = 0; i < 4; i++) {
+			call(true, 0);
+		}
+		assertThat(breaker.state()).isEqualTo(AICircuitBreaker.State.CLOSED);
+	}
+
+	@Test
+	void failedTrialReopens() {
+		open();
+
+		long now = OPEN + 1;
+		assertThat(breaker.tryAcquire(now)).isTrue();
+		breaker.onResult(false, 0, now);
+		assertThat(breaker.tryAcquire(now)).isTrue();
+		breaker.onResult(false, SLOW, now);
+
+		assertThat(breaker.state()).isEqualTo(AICircuitBreaker.State.OPEN);
+		assertThat(breaker.tryAcquire(now + OPEN - 1)).isFalse();
+		assertThat(breaker.tryAcquire(now + OPEN)).isTrue();
+	}
+
+	@Test
+	void probeOpensAndHalfOpensWithoutUserCalls() {
+		breaker.onProbeFailure(0);
+		assertThat(breaker.state()).isEqualTo(AICircuitBreaker.State.OPEN);
+		assertThat(breaker.tryAcquire(1)).isFalse();
+
+		breaker.onProbeSuccess();
+		assertThat(breaker.state()).isEqualTo(AICircuitBreaker.State.HALF_OPEN);
+		assertThat(breaker.tryAcquire(2)).isTrue();
+	}
+
+	private void open() {
+		for (int i = 0; i < 5; i++) {
+			call(true, 0);
+		}
+		assertThat(breaker.state()).isEqualTo(AICircuitBreaker.State.OPEN);
+	}
+
+	private void call(boolean failed, long durationNanos) {
+		assertThat(breaker.tryAcquire(0)).isTrue();
+		breaker.onResult(failed, durationNanos, 0);
+	}
+}
@@ -0,0 +1,153 @@
+package com.auth.auth_service.service;
+
+import com.auth.auth_service.dto.ai.AnomalyReport;
+import com.auth.auth_service.exception.AIServiceException;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Breaker, bulkhead và hedging của {@link AIPermissionService} trên một AI service giả (HTTP server
+ * local): breaker mở thì không gửi request, vượt bulkhead bị từ chối ngay, hedge chỉ gửi thêm một
+ * lần khi lần đầu chậm.
+ */
+class AIPermissionServiceResilienceTest {
+
+	private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final AtomicInteger requests = new AtomicInteger();
+	private final ExecutorService executor = Executors.newCachedThreadPool();
+	private HttpServer server;
+	/** Nhận số thứ tự request (từ 1), chạy trước khi trả lời */
+	private volatile IntConsumer behavior = n -> { };
+	private volatile int status = 200;
+
+	@BeforeEach
+	void startServer() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/recommend/anomaly", this::handle);
+		server.setExecutor(executor);
+		server.start();
+	}
+
+	@AfterEach
+	void stopServer() {
+		server.stop(0);
+		executor.shutdownNow();
+	}
+
+	@Test
+	void openBreakerFailsFastWithoutCallingTheService() {
+		status = 500;
+		AIPermissionService service = service(20, 0);
+		for (int i = 0; i < 5; i++) {
+			assertThatThrownBy(() -> service.detectAnomalyAsync(3).block()).isInstanceOf(AIServiceException.class);
+		}
+		assertThat(service.circuitState()).isEqualTo("OPEN");
+
+		assertThatThrownBy(() -> service.detectAnomalyAsync(3).block())
+				.isInstanceOf(AIServiceException.class).hasMessage("AI service unavailable");
+		assertThat(requests).hasValue(5);
+	}
+
+	@Test
+	void bulkheadRejectsCallsAboveTheLimit() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		CountDownLatch arrived = new CountDownLatch(2);
+		behavior = n -> {
+			arrived.countDown();
+			await(release);
+		};
+		AIPermissionService service = service(2, 0);
+
+		Disposable first = service.detectAnomalyAsync(3).subscribe();
+		Disposable second = service.detectAnomalyAsync(3).subscribe();
+		assertThat(arrived.await(5, TimeUnit.SECONDS)).isTrue();
+		assertThat(meterRegistry.get("ai.bulkhead.active").gauge().value()).isEqualTo(2);
+
+		assertThatThrownBy(() -> service.detectAnomalyAsync(3).block())
+				.isInstanceOf(AIServiceException.class).hasMessage("AI service busy");
+		assertThat(requests).hasValue(2);
+
+		release.countDown();
+		while (meterRegistry.get("ai.bulkhead.active").gauge().value() > 0) {
+			Thread.sleep(10);
+		}
+		assertThat(service.detectAnomalyAsync(3).block()).isNotNull();
+		assertThat(service.circuitState()).isEqualTo("CLOSED");
+		first.dispose();
+		second.dispose();
+	}
+
+	@Test
+	void slowFirstAttemptIsHedged() {
+		CountDownLatch release = new CountDownLatch(1);
+		behavior = n -> {
+			if (n == 1) {
+				await(release);
+			}
+		};
+		AIPermissionService service = service(20, 100);
+
+		long start = System.nanoTime();
+		AnomalyReport report = service.detectAnomalyAsync(3).block();
+		long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+		release.countDown();
+
+		assertThat(report).isNotNull();
+		assertThat(requests).hasValue(2);
+		assertThat(elapsedMs).as("hedged call latency").isLessThan(2000);
+	}
+
+	@Test
+	void fastFirstAttemptIsNotHedged() throws Exception {
+		AIPermissionService service = service(20, 500);
+
+		assertThat(service.detectAnomalyAsync(3).block()).isNotNull();
+		Thread.sleep(700);
+		assertThat(requests).hasValue(1);
+	}
+
+	/**
+	 * Cửa sổ 20, tối thiểu 5 lời gọi, timeout 5 giây. Local recommender không được dùng bởi
+	 * detectAnomalyAsync nên truyền null.
+	 */
+	private AIPermissionService service(int maxConcurrentCalls, long hedgeDelayMs) {
+		return new AIPermissionService("http://127.0.0.1:" + server.getAddress().getPort(), 5000, 30, 100,
+				20, 5, 0.5, 0.8, 2000, 30000, 3, maxConcurrentCalls, hedgeDelayMs, 2, meterRegistry, null);
+	}
+
+	private void handle(HttpExchange exchange) throws IOException {
+		behavior.accept(requests.incrementAndGet());
+		byte[] body = "{\"model_version\":\"test\"}".getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().add("Content-Type", "application/json");
+		exchange.sendResponseHeaders(status, body.length);
+		exchange.getResponseBody().write(body);
+		exchange.close();
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await(10, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
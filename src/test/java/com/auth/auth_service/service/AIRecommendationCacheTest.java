@@ -0,0 +1,104 @@
+package com.auth.auth_service.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * {@link AIRecommendationCache}: entry hết hạn sau TTL, các request đồng thời dùng chung một lời gọi,
+ * lỗi không được cache, kết quả của lời gọi chạy từ trước {@code invalidateAll()} không được giữ lại.
+ */
+class AIRecommendationCacheTest {
+
+	private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final AtomicInteger loads = new AtomicInteger();
+
+	@Test
+	void entryIsReloadedAfterTtl() throws Exception {
+		AIRecommendationCache<String, String> cache = cache(Duration.ofMillis(100));
+
+		assertThat(cache.get("Doctor", () -> load("v1")).block()).isEqualTo("v1");
+		assertThat(cache.get("Doctor", () -> load("v2")).block()).isEqualTo("v1");
+		assertThat(loads).hasValue(1);
+
+		Thread.sleep(150);
+		assertThat(cache.get("Doctor", () -> load("v2")).block()).isEqualTo("v2");
+		assertThat(loads).hasValue(2);
+		assertThat(meterRegistry.get("cache.gets").tag("result", "hit").functionCounter().count()).isEqualTo(1);
+		assertThat(meterRegistry.get("cache.gets").tag("result", "miss").functionCounter().count()).isEqualTo(2);
+	}
+
+	@Test
+	void concurrentRequestsShareTheInFlightCall() {
+		AIRecommendationCache<String, String> cache = cache(Duration.ofMinutes(5));
+		Sinks.One<String> response = Sinks.one();
+
+		Mono<String> first = cache.get("Doctor", () -> load(response));
+		Mono<String> second = cache.get("Doctor", () -> load(response));
+		AtomicReference<String> firstValue = new AtomicReference<>();
+		AtomicReference<String> secondValue = new AtomicReference<>();
+		first.subscribe(firstValue::set);
+		second.subscribe(secondValue::set);
+		assertThat(loads).hasValue(1);
+
+		response.tryEmitValue("v1");
+		assertThat(firstValue).hasValue("v1");
+		assertThat(secondValue).hasValue("v1");
+		assertThat(cache.get("Doctor", () -> load("v2")).block()).isEqualTo("v1");
+		assertThat(loads).hasValue(1);
+		assertThat(meterRegistry.get("cache.coalesced").functionCounter().count()).isEqualTo(1);
+	}
+
+	@Test
+	void errorsAreNotCached() {
+		AIRecommendationCache<String, String> cache = cache(Duration.ofMinutes(5));
+
+		assertThatThrownBy(() -> cache.get("Doctor", () -> {
+			loads.incrementAndGet();
+			return Mono.<String>error(new IllegalStateException("AI service unavailable"));
+		}).block()).hasMessageContaining("AI service unavailable");
+
+		assertThat(cache.get("Doctor", () -> load("v1")).block()).isEqualTo("v1");
+		assertThat(loads).hasValue(2);
+	}
+
+	@Test
+	void resultLoadedAcrossInvalidateAllIsNotKept() {
+		AIRecommendationCache<String, String> cache = cache(Duration.ofMinutes(5));
+		Sinks.One<String> response = Sinks.one();
+		AtomicReference<String> value = new AtomicReference<>();
+		cache.get("Doctor", () -> load(response)).subscribe(value::set);
+
+		cache.invalidateAll();
+		response.tryEmitValue("stale");
+
+		// Caller đang chờ vẫn nhận kết quả, nhưng request sau gọi lại AI service
+		assertThat(value).hasValue("stale");
+		assertThat(cache.get("Doctor", () -> load("fresh")).block()).isEqualTo("fresh");
+		assertThat(loads).hasValue(2);
+		assertThat(cache.get("Doctor", () -> load("other")).block()).isEqualTo("fresh");
+	}
+
+	private AIRecommendationCache<String, String> cache(Duration ttl) {
+		return new AIRecommendationCache<>("test", ttl, 100, meterRegistry);
+	}
+
+	private Mono<String> load(String value) {
+		loads.incrementAndGet();
+		return Mono.just(value);
+	}
+
+	private Mono<String> load(Sinks.One<String> response) {
+		loads.incrementAndGet();
+		return response.asMono();
+	}
+}
@@ -0,0 +1,74 @@
+package com.auth.auth_service.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Claim của outbox trên PostgreSQL: job PROCESSING hết lease (worker chết) được nhận lại với số lần
+ * thử tăng thêm; job còn lease hoặc chưa đến hạn thì không. Mọi thứ chạy trong một transaction được
+ * rollback, nên worker nền của context không nhìn thấy dữ liệu test.
+ */
+@SpringBootTest(properties = "audit.journal.replay-interval-ms=3600000")
+class AIRecommendationOutboxTest {
+
+	@Autowired
+	private AIRecommendationOutbox outbox;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Test
+	void expiredLeaseIsClaimedAgain() {
+		inRollback(now -> {
+			long expired = insert("PROCESSING", 2, now.minusMinutes(10), now.minusSeconds(1));
+			long leased = insert("PROCESSING", 1, now.minusMinutes(10), now.plusMinutes(5));
+			long due = insert("PENDING", 1, now.minusSeconds(1), null);
+			long later = insert("PENDING", 1, now.plusMinutes(5), null);
+
+			LocalDateTime leaseUntil = now.plusMinutes(2);
+			List<AIRecommendationOutbox.OutboxJob> claimed = outbox.claim(10_000, leaseUntil).stream()
+					.filter(job -> List.of(expired, leased, due, later).contains(job.id()))
+					.toList();
+
+			assertThat(claimed).extracting(AIRecommendationOutbox.OutboxJob::id).containsExactly(expired, due);
+			assertThat(claimed).extracting(AIRecommendationOutbox.OutboxJob::attempts).containsExactly(3, 2);
+			Map<String, Object> row = jdbcTemplate.queryForMap(
+					"SELECT status, locked_until FROM ai_recommendation_outbox WHERE id = ?", expired);
+			assertThat(row.get("status")).isEqualTo("PROCESSING");
+			assertThat(((Timestamp) row.get("locked_until")).toLocalDateTime()).isEqualTo(leaseUntil);
+
+			// Vừa nhận xong: lease mới còn hạn nên lần claim sau bỏ qua
+			assertThat(outbox.claim(10_000, leaseUntil)).extracting(AIRecommendationOutbox.OutboxJob::id)
+					.doesNotContain(expired, leased, due, later);
+		});
+	}
+
+	private long insert(String status, int attempts, LocalDateTime nextAttemptAt, LocalDateTime lockedUntil) {
+		return jdbcTemplate.queryForObject("""
+				INSERT INTO ai_recommendation_outbox (user_id, request_type, payload, status, attempts, next_attempt_at, locked_until)
+				VALUES ((SELECT min(id) FROM users), 'NEW_USER', '{}', ?, ?, ?, ?)
+				RETURNING id""", Long.class, status, attempts, nextAttemptAt, lockedUntil);
+	}
+
+	private void inRollback(Consumer<LocalDateTime> body) {
+		new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+			status.setRollbackOnly();
+			body.accept(LocalDateTime.now().withNano(0));
+		});
+	}
+}
@@ -0,0 +1,133 @@
+package com.auth.auth_service.service;
+
+import com.auth.auth_service.dto.ai.NewUserRecommendation;
+import com.auth.auth_service.exception.AIServiceException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.QueryTimeoutException;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Thử lại / bỏ cuộc của {@link AIRecommendationWorker} với outbox, applier và AI service giả: lỗi
+ * tạm thời được hẹn lại với backoff lũy thừa (có trần), lỗi 4xx và lần thử cuối chuyển FAILED.
+ */
+class AIRecommendationWorkerTest {
+
+	private static final int MAX_ATTEMPTS = 5;
+	private static final long RETRY_BASE_MS = 1000;
+	private static final long RETRY_MAX_MS = 10_000;
+	private static final long WAIT_MS = 5000;
+
+	private final AIRecommendationOutbox outbox = mock(AIRecommendationOutbox.class);
+	private final AIRecommendationApplier applier = mock(AIRecommendationApplier.class);
+	private final AIPermissionService aiPermissionService = mock(AIPermissionService.class);
+	private final AIRecommendationWorker worker = worker(MAX_ATTEMPTS);
+
+	@BeforeEach
+	void stubProfile() {
+		when(outbox.readProfile(any())).thenReturn(Map.of("role", "Doctor", "department", "Cardiology"));
+	}
+
+	@Test
+	void transientErrorIsRescheduledWithExponentialBackoff() {
+		aiFails(new AIServiceException("AI service unavailable", 503, null));
+
+		// attempts 3 -> base * 2^2
+		assertThat(rescheduleDelay(worker, job(1, 3)))
+				.isCloseTo(Duration.ofMillis(4 * RETRY_BASE_MS), Duration.ofSeconds(1));
+		// attempts 4 -> base * 2^3; worker mới vì batch trước có thể chưa kết thúc hẳn
+		assertThat(rescheduleDelay(worker(MAX_ATTEMPTS), job(2, 4)))
+				.isCloseTo(Duration.ofMillis(8 * RETRY_BASE_MS), Duration.ofSeconds(1));
+	}
+
+	@Test
+	void backoffIsCappedAtRetryMax() {
+		// lần thử thứ 60: base * 2^59 vượt xa retryMax
+		aiFails(new AIServiceException("timeout", null, null));
+
+		assertThat(rescheduleDelay(worker(100), job(3, 60)))
+				.isCloseTo(Duration.ofMillis(RETRY_MAX_MS), Duration.ofSeconds(1));
+	}
+
+	@Test
+	void clientErrorFailsWithoutRetry() {
+		aiFails(new AIServiceException("Invalid profile", 422, null));
+		claimOnce(job(4, 1));
+
+		worker.poll();
+
+		verify(outbox, timeout(WAIT_MS)).markFailed(4L, "Invalid profile");
+		verify(outbox, never()).reschedule(anyLong(), any(), anyString());
+	}
+
+	@Test
+	void givesUpAfterMaxAttempts() {
+		aiFails(new AIServiceException("AI service unavailable", 503, null));
+		claimOnce(job(5, MAX_ATTEMPTS - 1), job(6, MAX_ATTEMPTS));
+
+		worker.poll();
+
+		verify(outbox, timeout(WAIT_MS)).markFailed(6L, "AI service unavailable");
+		verify(outbox, timeout(WAIT_MS)).reschedule(eq(5L), any(), eq("AI service unavailable"));
+		verify(outbox, never()).markFailed(eq(5L), any());
+	}
+
+	@Test
+	void failedApplyReschedulesTheSuccessfulJobs() {
+		when(aiPermissionService.recommendNewUserAsync(any(), any(), any(), any(), any(), any(), any()))
+				.thenReturn(Mono.just(new NewUserRecommendation()));
+		doThrow(new QueryTimeoutException("statement timeout")).when(applier).apply(any());
+		claimOnce(job(7, 1));
+
+		worker.poll();
+
+		verify(outbox, timeout(WAIT_MS)).reschedule(eq(7L), any(), eq("statement timeout"));
+		verify(outbox, never()).markFailed(anyLong(), any());
+	}
+
+	private AIRecommendationWorker worker(int maxAttempts) {
+		return new AIRecommendationWorker(outbox, applier, aiPermissionService,
+				50, 4, 120, maxAttempts, RETRY_BASE_MS, RETRY_MAX_MS, 30);
+	}
+
+	private Duration rescheduleDelay(AIRecommendationWorker worker, AIRecommendationOutbox.OutboxJob job) {
+		claimOnce(job);
+		LocalDateTime polledAt = LocalDateTime.now();
+		worker.poll();
+		ArgumentCaptor<LocalDateTime> nextAttempt = ArgumentCaptor.forClass(LocalDateTime.class);
+		verify(outbox, timeout(WAIT_MS)).reschedule(eq(job.id()), nextAttempt.capture(), any());
+		return Duration.between(polledAt, nextAttempt.getValue());
+	}
+
+	private void aiFails(Throwable error) {
+		when(aiPermissionService.recommendNewUserAsync(any(), any(), any(), any(), any(), any(), any()))
+				.thenReturn(Mono.error(error));
+	}
+
+	private void claimOnce(AIRecommendationOutbox.OutboxJob... jobs) {
+		when(outbox.claim(anyInt(), any())).thenReturn(List.of(jobs), List.of());
+	}
+
+	private static AIRecommendationOutbox.OutboxJob job(long id, int attempts) {
+		return new AIRecommendationOutbox.OutboxJob(id, 100 + id, AIRecommendationOutbox.NEW_USER, "{}", attempts);
+	}
+}
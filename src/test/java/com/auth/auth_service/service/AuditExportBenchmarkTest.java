@@ -0,0 +1,112 @@
+package com.auth.auth_service.service;
+
+import com.auth.auth_service.dto.AuditLogFilter;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.OutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Benchmark export audit log: {@value #ROWS} dòng được stream ra CSV không gzip. Kiểm tra số dòng,
+ * heap đang dùng giữa chừng export (sau GC) không tăng theo số dòng đã đọc, và thời gian nằm trong
+ * giới hạn rộng để bắt regression (vd. mất cursor, quay lại nạp entity JPA).
+ * Đo thời gian và heap nên không chạy trong {@code mvn test} mặc định:
+ * {@code mvn test -Dgroups=benchmark -DexcludedGroups= -Dtest=AuditExportBenchmarkTest}.
+ */
+@Tag("benchmark")
+@SpringBootTest(properties = "audit.journal.replay-interval-ms=3600000")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class AuditExportBenchmarkTest {
+
+	private static final Logger log = LoggerFactory.getLogger(AuditExportBenchmarkTest.class);
+
+	private static final String USER_ID = "BENCH_EXPORT";
+	private static final int ROWS = 500_000;
+	/** Nạp cả kết quả vào heap cần vài trăm MB; stream qua cursor chỉ giữ một fetch (5000 dòng) */
+	private static final long MAX_HEAP_GROWTH_BYTES = 64L * 1024 * 1024;
+	private static final long MAX_MILLIS = 30_000;
+
+	@Autowired
+	private AuditExportService exportService;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@BeforeAll
+	void seed() {
+		jdbcTemplate.update("""
+				INSERT INTO audit_logs (user_id, resource_type, resource_id, action, allowed, policy_id, risk_score,
+				                        timestamp, ip_address, user_agent)
+				SELECT ?, 'MedicalRecord', 'MR-' || i, 'read', i % 10 <> 0, 'policy-' || (i % 7), i % 10,
+				       date_trunc('month', now()) + i * INTERVAL '1 millisecond', '10.0.0.' || (i % 250), 'benchmark'
+				FROM generate_series(1, ?) i""", USER_ID, ROWS);
+	}
+
+	@AfterAll
+	void cleanup() {
+		jdbcTemplate.update("DELETE FROM audit_logs WHERE user_id = ?", USER_ID);
+	}
+
+	@Test
+	void exportStreamsRowsWithFlatHeap() throws Exception {
+		AuditLogFilter filter = AuditLogFilter.builder().userId(USER_ID).build();
+		long baseline = usedHeapAfterGc();
+		LineCounter out = new LineCounter(ROWS / 2);
+
+		long start = System.nanoTime();
+		long exported = exportService.export(filter, AuditExportService.Format.CSV, false, out);
+		long millis = (System.nanoTime() - start) / 1_000_000;
+
+		log.info("audit export x{}: {} ms, {} bytes, heap growth at midpoint {} KB",
+				ROWS, millis, out.bytes, (out.heapAtMark - baseline) / 1024);
+		assertThat(exported).isEqualTo(ROWS);
+		assertThat(out.lines).as("CSV header + rows").isEqualTo(ROWS + 1);
+		assertThat(out.heapAtMark - baseline).as("heap growth half-way through the export")
+				.isLessThan(MAX_HEAP_GROWTH_BYTES);
+		assertThat(millis).as("export time for %d rows", ROWS).isLessThan(MAX_MILLIS);
+	}
+
+	private static long usedHeapAfterGc() {
+		Runtime runtime = Runtime.getRuntime();
+		System.gc();
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	/** Đếm dòng / byte và đo heap một lần khi đã nhận {@code markLine} dòng */
+	private static final class LineCounter extends OutputStream {
+
+		private final long markLine;
+		private long lines;
+		private long bytes;
+		private long heapAtMark;
+
+		LineCounter(long markLine) {
+			this.markLine = markLine;
+		}
+
+		@Override
+		public void write(int b) {
+			write(new byte[]{(byte) b}, 0, 1);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+			for (int i = off; i < off + len; i++) {
+				if (b[i] == '\n' && ++lines == markLine) {
+					heapAtMark = usedHeapAfterGc();
+				}
+			}
+			bytes += len;
+		}
+	}
+}
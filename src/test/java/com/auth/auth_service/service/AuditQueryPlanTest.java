@@ -0,0 +1,107 @@
+package com.auth.auth_service.service;
+
+import com.auth.auth_service.dto.AuditLogFilter;
+import com.auth.auth_service.dto.AuditLogPage;
+import com.auth.auth_service.support.JdbcCounter;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Plan của trang sau (có cursor) trong {@link AuditQueryService#search}: predicate keyset phải dùng
+ * được index (timestamp DESC, id DESC) làm Index Cond, không Sort, và mỗi partition chỉ đọc tối đa
+ * LIMIT dòng. Seq / bitmap scan bị tắt để plan không phụ thuộc vào lượng dữ liệu test.
+ */
+@SpringBootTest(properties = "audit.journal.replay-interval-ms=3600000")
+@Import(JdbcCounter.class)
+class AuditQueryPlanTest {
+
+	private static final int PAGE_SIZE = 10;
+	private static final int ROWS = 50;
+
+	@Autowired
+	private AuditQueryService auditQueryService;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	@BeforeEach
+	void seed() {
+		jdbcTemplate.update("""
+				INSERT INTO audit_logs (user_id, resource_type, resource_id, action, allowed, timestamp)
+				SELECT 'PLANTEST', 'MedicalRecord', 'MR-' || i, 'read', true, now() - i * interval '1 second'
+				FROM generate_series(1, ?) i""", ROWS);
+	}
+
+	@AfterEach
+	void cleanUp() {
+		jdbcTemplate.update("DELETE FROM audit_logs WHERE user_id = 'PLANTEST'");
+	}
+
+	@Test
+	void nextPageSeeksTheIndex() throws Exception {
+		AuditLogFilter filter = AuditLogFilter.builder().userId("PLANTEST").build();
+		AuditLogPage first = auditQueryService.search(filter, null, PAGE_SIZE);
+		String cursor = first.getNextCursor();
+
+		// Cùng cursor nhưng không filter: dùng index (timestamp DESC, id DESC) trên mọi partition
+		JdbcCounter.Result result = JdbcCounter.measure("audit next page",
+				() -> auditQueryService.search(AuditLogFilter.builder().build(), cursor, PAGE_SIZE));
+		String sql = result.statements().stream().filter(s -> s.contains("audit_logs")).findFirst().orElseThrow();
+
+		String[] position = new String(Base64.getUrlDecoder().decode(cursor)).split("\\|");
+		Timestamp timestamp = Timestamp.valueOf(LocalDateTime.parse(position[0]));
+		long id = Long.parseLong(position[1]);
+		JsonNode plan = explain(sql, timestamp, timestamp, id, PAGE_SIZE + 1);
+
+		List<JsonNode> nodes = new ArrayList<>();
+		collect(plan, nodes);
+		assertThat(nodes).extracting(n -> n.path("Node Type").asText()).doesNotContain("Sort", "Seq Scan");
+		List<JsonNode> scans = nodes.stream().filter(n -> n.path("Node Type").asText().startsWith("Index")).toList();
+		assertThat(scans).isNotEmpty().allSatisfy(scan -> {
+			assertThat(scan.path("Index Cond").asText()).as("Index Cond of %s", scan.path("Relation Name"))
+					.contains("timestamp");
+			assertThat(scan.path("Actual Rows").asLong()).as("rows read from %s", scan.path("Relation Name"))
+					.isLessThanOrEqualTo(PAGE_SIZE + 1);
+		});
+	}
+
+	private JsonNode explain(String sql, Object... args) {
+		return new TransactionTemplate(transactionManager).execute(status -> {
+			jdbcTemplate.execute("SET LOCAL enable_seqscan = off");
+			jdbcTemplate.execute("SET LOCAL enable_bitmapscan = off");
+			String json = jdbcTemplate.queryForObject("EXPLAIN (ANALYZE, FORMAT JSON) " + sql, String.class, args);
+			try {
+				return objectMapper.readTree(json).get(0).get("Plan");
+			} catch (Exception e) {
+				throw new IllegalStateException(e);
+			}
+		});
+	}
+
+	private static void collect(JsonNode node, List<JsonNode> nodes) {
+		nodes.add(node);
+		node.path("Plans").forEach(child -> collect(child, nodes));
+	}
+}
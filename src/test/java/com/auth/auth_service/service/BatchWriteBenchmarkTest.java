@@ -0,0 +1,168 @@
+package com.auth.auth_service.service;
+
+import com.auth.auth_service.dto.BulkJobStatus;
+import com.auth.auth_service.dto.RegisterRequest;
+import com.auth.auth_service.entity.AuditLog;
+import com.auth.auth_service.repository.AuditLogRepository;
+import com.auth.auth_service.support.JdbcCounter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Benchmark ghi hàng loạt: đếm số round trip JDBC và số dòng gửi qua addBatch ({@link JdbcCounter}),
+ * ghi log kết quả và kiểm tra rằng số round trip không tăng theo từng dòng. Dữ liệu tạo ra được xóa sau
+ * mỗi test. Ghi vào DB cấu hình nên không chạy trong {@code mvn test} mặc định:
+ * {@code mvn test -Dgroups=benchmark -DexcludedGroups= -Dtest=BatchWriteBenchmarkTest}.
+ */
+@Tag("benchmark")
+@SpringBootTest(properties = {
+		// bộ gợi ý local refresh từng user sau commit (2 query / user), không thuộc phần được đo
+		"ai.local.enabled=false",
+		"audit.journal.replay-interval-ms=3600000",
+		// job onboarding được chạy trên thread của test thay vì poller nền (kể cả của context khác,
+		// xem onboardingIsBatched)
+		"bulk.poll-interval-ms=3600000"
+})
+@Import(JdbcCounter.class)
+class BatchWriteBenchmarkTest {
+
+	@Autowired
+	private AuditLogRepository auditLogRepository;
+
+	@Autowired
+	private BulkJobService bulkJobService;
+
+	@Autowired
+	private BulkJobRunner bulkJobRunner;
+
+	@Autowired
+	private PermissionReviewService reviewService;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	private final List<Runnable> cleanup = new ArrayList<>();
+
+	@AfterEach
+	void tearDown() {
+		cleanup.forEach(Runnable::run);
+	}
+
+	@Test
+	void auditWritesAreBatched() throws Exception {
+		int rows = 1000;
+		List<AuditLog> records = new ArrayList<>();
+		for (int i = 0; i < rows; i++) {
+			records.add(AuditLog.builder()
+					.userId("BENCH")
+					.resourceType("MedicalRecord")
+					.resourceId("MR-" + i)
+					.action("read")
+					.allowed(true)
+					.timestamp(LocalDateTime.now())
+					.build());
+		}
+		TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+
+		// Giống AuditJournalReplayer.ship, nhưng rollback để không để lại audit log giả
+		JdbcCounter.Result result = JdbcCounter.measure("audit saveAll x" + rows, () -> transaction.execute(status -> {
+			auditLogRepository.saveAll(records);
+			auditLogRepository.flush();
+			status.setRollbackOnly();
+			return null;
+		}));
+
+		assertThat(result.batchedRows()).isEqualTo(rows);
+		assertThat(result.roundTrips()).isLessThanOrEqualTo(rows / 20);
+	}
+
+	@Test
+	void onboardingIsBatched() throws Exception {
+		int rows = 100;
+		List<RegisterRequest> users = new ArrayList<>();
+		for (int i = 0; i < rows; i++) {
+			users.add(RegisterRequest.builder()
+					.username("bench_onboard_" + i)
+					.password("password" + i)
+					.department("Khoa_Noi")
+					.branch("CN_HN")
+					.role("Nurse")
+					.build());
+		}
+		// Job được giữ lease cho runner của context này ngay trong transaction tạo nó, để poller của
+		// các Spring context khác (cache của test) không bao giờ thấy job chưa có lease
+		String instanceId = (String) ReflectionTestUtils.getField(bulkJobRunner, "instanceId");
+		BulkJobStatus job = new TransactionTemplate(transactionManager).execute(status -> {
+			BulkJobStatus submitted = bulkJobService.submitOnboarding(users, "benchmark");
+			// cùng đồng hồ (JVM) với BulkJobRunner.claim
+			jdbcTemplate.update("UPDATE bulk_jobs SET locked_by = ?, locked_until = ? WHERE id = ?",
+					instanceId, Timestamp.valueOf(LocalDateTime.now().plusHours(1)), submitted.getJobId());
+			return submitted;
+		});
+		cleanup.add(() -> {
+			jdbcTemplate.update("DELETE FROM users WHERE username LIKE 'bench_onboard_%'");
+			jdbcTemplate.update("DELETE FROM bulk_jobs WHERE id = ?", job.getJobId());
+		});
+
+		JdbcCounter.Result result = JdbcCounter.measure("onboarding x" + rows, () -> {
+			while (!"COMPLETED".equals(bulkJobService.getStatus(job.getJobId()).orElseThrow().getStatus())) {
+				bulkJobRunner.poll();
+			}
+			return null;
+		});
+
+		assertThat(jdbcTemplate.queryForObject(
+				"SELECT COUNT(*) FROM users WHERE username LIKE 'bench_onboard_%'", Long.class)).isEqualTo(rows);
+		assertThat(result.roundTrips()).isLessThanOrEqualTo(rows / 5);
+	}
+
+	@Test
+	void bulkApprovalIsSetBased() throws Exception {
+		int rows = 500;
+		// Các cặp (user, permission) chưa có quyền để approve thực sự tạo grant
+		List<Long> ids = jdbcTemplate.queryForList("""
+				INSERT INTO pending_permission_requests (user_id, permission_id, confidence, request_type, change_type, status, requested_at)
+				SELECT u.id, p.id, 0.9, 'NEW_USER', 'ADD', 'PENDING', now()
+				FROM users u CROSS JOIN permissions p
+				WHERE NOT EXISTS (SELECT 1 FROM role_permissions rp WHERE rp.role_id = u.role_id AND rp.permission_id = p.id)
+				  AND NOT EXISTS (SELECT 1 FROM user_additional_permissions uap WHERE uap.user_id = u.id AND uap.permission_id = p.id)
+				  AND NOT EXISTS (SELECT 1 FROM pending_permission_requests q WHERE q.user_id = u.id AND q.permission_id = p.id)
+				ORDER BY u.id, p.id
+				LIMIT ?
+				RETURNING id""", Long.class, rows);
+		cleanup.add(() -> {
+			jdbcTemplate.update("""
+					DELETE FROM user_additional_permissions uap USING pending_permission_requests q
+					WHERE q.id = ANY(?) AND uap.user_id = q.user_id AND uap.permission_id = q.permission_id""",
+					(Object) ids.toArray(new Long[0]));
+			jdbcTemplate.update("DELETE FROM pending_permission_requests WHERE id = ANY(?)", (Object) ids.toArray(new Long[0]));
+		});
+		Long reviewerId = jdbcTemplate.queryForObject("SELECT MIN(id) FROM users", Long.class);
+
+		JdbcCounter.Result result = JdbcCounter.measure("bulk approval x" + ids.size(),
+				() -> reviewService.approve(ids, reviewerId, "benchmark"));
+
+		assertThat(jdbcTemplate.queryForObject(
+				"SELECT COUNT(*) FROM pending_permission_requests WHERE id = ANY(?) AND status = 'APPROVED'",
+				Long.class, (Object) ids.toArray(new Long[0]))).isEqualTo(ids.size());
+		assertThat(result.roundTrips()).isLessThanOrEqualTo(10);
+	}
+}
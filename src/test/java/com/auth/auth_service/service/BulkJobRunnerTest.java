@@ -0,0 +1,240 @@
+package com.auth.auth_service.service;
+
+import com.auth.auth_service.dto.BulkJobStatus;
+import com.auth.auth_service.dto.BulkTransferItem;
+import com.auth.auth_service.dto.JobTransferRequest;
+import com.auth.auth_service.dto.RegisterRequest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+/**
+ * {@link BulkJobRunner} trên PostgreSQL: chunk lỗi được xử lý lại từng item và chỉ item lỗi bị FAILED,
+ * lỗi DB tạm thời để item PENDING, job transfer bị bỏ dở (lease hết hạn) được runner khác làm tiếp.
+ * <p>
+ * Runner do test tự tạo (chunk nhỏ, không chạy theo lịch); job được giữ lease cho runner đó ngay trong
+ * transaction tạo job, để poller nền của các Spring context khác không bao giờ nhận được job.
+ */
+@SpringBootTest(properties = "audit.journal.replay-interval-ms=3600000")
+class BulkJobRunnerTest {
+
+	private static final String PREFIX = "bulk_runner_test_";
+
+	@Autowired
+	private BulkJobService bulkJobService;
+
+	@Autowired
+	private AIRecommendationOutbox outbox;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private ApplicationEventPublisher eventPublisher;
+
+	@Autowired
+	private PasswordEncoder passwordEncoder;
+
+	private final List<BulkJobRunner> runners = new ArrayList<>();
+	private final List<Runnable> cleanup = new ArrayList<>();
+
+	@AfterEach
+	void tearDown() {
+		runners.forEach(BulkJobRunner::shutdown);
+		cleanup.forEach(Runnable::run);
+	}
+
+	@Test
+	void failedChunkFallsBackToItemsAndFailsOnlyTheBadOnes() {
+		BulkJobRunner runner = runner(outbox, 10);
+		RegisterRequest longUsername = user("long_username");
+		longUsername.setUsername("x".repeat(101));
+		RegisterRequest longPassword = user("long_password");
+		longPassword.setPassword("p".repeat(80));
+		long jobId = submit(runner, () -> bulkJobService.submitOnboarding(List.of(
+				user("ok_0"), user("corrupt"), longUsername, longPassword, user("ok_4")), "test"));
+		// payload hỏng: lỗi dữ liệu của riêng item 1; item 2 vượt độ dài cột username (lỗi của INSERT
+		// batch); item 3 bị BCrypt từ chối (> 72 byte)
+		jdbcTemplate.update("UPDATE bulk_job_items SET payload = '{not json' WHERE job_id = ? AND item_index = 1", jobId);
+
+		runner.poll();
+
+		assertThat(itemStatuses(jobId)).containsExactly("DONE", "FAILED", "FAILED", "FAILED", "DONE");
+		assertThat(itemError(jobId, 1)).isEqualTo("Corrupt bulk job item");
+		assertThat(itemError(jobId, 3)).contains("72 bytes");
+		BulkJobStatus status = completed(runner, jobId);
+		assertThat(status.getProcessedItems()).isEqualTo(5);
+		assertThat(status.getFailedItems()).isEqualTo(3);
+
+		// Mật khẩu đã hash trước khi ghi, payload của item không còn giữ bản rõ
+		String hash = jdbcTemplate.queryForObject("SELECT password FROM users WHERE username = ?", String.class,
+				PREFIX + "ok_0");
+		assertThat(passwordEncoder.matches("secret-ok_0", hash)).isTrue();
+		assertThat(jdbcTemplate.queryForObject("SELECT payload FROM bulk_job_items WHERE job_id = ? AND item_index = 0",
+				String.class, jobId)).doesNotContain("secret-ok_0");
+	}
+
+	@Test
+	void transientErrorLeavesItemsPending() {
+		// Lần ghi outbox đầu tiên gặp lock timeout, sau đó ghi thật
+		AIRecommendationOutbox flakyOutbox = mock(AIRecommendationOutbox.class);
+		int[] calls = {0};
+		doAnswer(invocation -> {
+			if (calls[0]++ == 0) {
+				throw new CannotAcquireLockException("lock timeout");
+			}
+			outbox.enqueueAll(invocation.getArgument(0), invocation.getArgument(1));
+			return null;
+		}).when(flakyOutbox).enqueueAll(any(), any());
+		BulkJobRunner runner = runner(flakyOutbox, 10);
+		long jobId = submit(runner, () -> bulkJobService.submitOnboarding(List.of(user("t_0"), user("t_1")), "test"));
+
+		runner.poll();
+
+		assertThat(itemStatuses(jobId)).containsExactly("PENDING", "PENDING");
+		assertThat(bulkJobService.getStatus(jobId).orElseThrow().getProcessedItems()).isZero();
+		assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users WHERE username LIKE ?", Long.class,
+				PREFIX + "t_%")).isZero();
+
+		BulkJobStatus status = completed(runner, jobId);
+		assertThat(itemStatuses(jobId)).containsExactly("DONE", "DONE");
+		assertThat(status.getFailedItems()).isZero();
+		assertThat(recommendations(status)).isEqualTo(2);
+	}
+
+	@Test
+	void abandonedTransferIsResumedAfterTheLeaseExpires() {
+		List<String> userIds = List.of("U0000", "U0001", "U0002");
+		List<Map<String, Object>> original = jdbcTemplate.queryForList(
+				"SELECT id, department FROM users WHERE user_id = ANY(?)", (Object) userIds.toArray(String[]::new));
+		cleanup.add(() -> original.forEach(row -> jdbcTemplate.update(
+				"UPDATE users SET department = ? WHERE id = ?", row.get("department"), row.get("id"))));
+
+		List<BulkTransferItem> transfers = new ArrayList<>();
+		userIds.forEach(userId -> transfers.add(transfer(userId)));
+		transfers.add(transfer("NO_SUCH_USER"));
+		BulkJobRunner crashed = runner(outbox, 2);
+		long jobId = submit(crashed, () -> bulkJobService.submitJobTransfers(transfers, "test"));
+
+		// Runner đầu xử lý một chunk rồi "chết": lease của nó vẫn còn hạn nên runner khác không nhận job
+		crashed.poll();
+		BulkJobRunner successor = runner(outbox, 2);
+		successor.poll();
+		assertThat(itemStatuses(jobId)).containsExactly("DONE", "DONE", "PENDING", "PENDING");
+
+		// Lease hết hạn (trong cùng transaction với lần poll, poller nền không thấy job chưa có lease)
+		new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+			jdbcTemplate.update("UPDATE bulk_jobs SET locked_until = ? WHERE id = ?",
+					Timestamp.valueOf(LocalDateTime.now().minusSeconds(1)), jobId);
+			successor.poll();
+		});
+		assertThat(jdbcTemplate.queryForObject("SELECT locked_by FROM bulk_jobs WHERE id = ?", String.class, jobId))
+				.isEqualTo(instanceId(successor));
+
+		BulkJobStatus status = completed(successor, jobId);
+		assertThat(status.getProcessedItems()).isEqualTo(4);
+		assertThat(status.getFailedItems()).isEqualTo(1);
+		assertThat(itemError(jobId, 3)).isEqualTo("User not found: NO_SUCH_USER");
+		assertThat(jdbcTemplate.queryForList("SELECT department FROM users WHERE user_id = ANY(?)", String.class,
+				(Object) userIds.toArray(String[]::new))).containsOnly("Khoa_Test");
+		assertThat(recommendations(status)).isEqualTo(3);
+	}
+
+	private BulkJobRunner runner(AIRecommendationOutbox jobOutbox, int chunkSize) {
+		BulkJobRunner runner = new BulkJobRunner(jdbcTemplate, transactionManager, objectMapper, jobOutbox,
+				eventPublisher, passwordEncoder, chunkSize, 60, 2);
+		runners.add(runner);
+		return runner;
+	}
+
+	/**
+	 * Tạo job và giữ lease cho {@code owner} trong cùng transaction.
+	 */
+	private long submit(BulkJobRunner owner, Supplier<BulkJobStatus> submission) {
+		long jobId = new TransactionTemplate(transactionManager).execute(status -> {
+			long id = submission.get().getJobId();
+			jdbcTemplate.update("UPDATE bulk_jobs SET locked_by = ?, locked_until = ? WHERE id = ?",
+					instanceId(owner), Timestamp.valueOf(LocalDateTime.now().plusHours(1)), id);
+			return id;
+		});
+		cleanup.add(() -> {
+			jdbcTemplate.update("DELETE FROM ai_recommendation_outbox WHERE bulk_job_id = ?", jobId);
+			jdbcTemplate.update("DELETE FROM users WHERE username LIKE ?", PREFIX + "%");
+			jdbcTemplate.update("DELETE FROM bulk_jobs WHERE id = ?", jobId);
+		});
+		return jobId;
+	}
+
+	private BulkJobStatus completed(BulkJobRunner runner, long jobId) {
+		for (int i = 0; i < 20; i++) {
+			BulkJobStatus status = bulkJobService.getStatus(jobId).orElseThrow();
+			if ("COMPLETED".equals(status.getStatus())) {
+				return status;
+			}
+			runner.poll();
+		}
+		throw new AssertionError("Bulk job " + jobId + " did not complete");
+	}
+
+	/** Số job gợi ý trong outbox, bất kể worker nền đã xử lý tới đâu */
+	private static long recommendations(BulkJobStatus status) {
+		return status.getRecommendations().values().stream().mapToLong(Long::longValue).sum();
+	}
+
+	private List<String> itemStatuses(long jobId) {
+		return jdbcTemplate.queryForList("SELECT status FROM bulk_job_items WHERE job_id = ? ORDER BY item_index",
+				String.class, jobId);
+	}
+
+	private String itemError(long jobId, int index) {
+		return jdbcTemplate.queryForObject("SELECT error FROM bulk_job_items WHERE job_id = ? AND item_index = ?",
+				String.class, jobId, index);
+	}
+
+	private static String instanceId(BulkJobRunner runner) {
+		return (String) ReflectionTestUtils.getField(runner, "instanceId");
+	}
+
+	private static RegisterRequest user(String name) {
+		return RegisterRequest.builder()
+				.username(PREFIX + name)
+				.password("secret-" + name)
+				.department("Khoa_Noi")
+				.branch("CN_HN")
+				.role("Nurse")
+				.build();
+	}
+
+	private static BulkTransferItem transfer(String userId) {
+		JobTransferRequest request = new JobTransferRequest();
+		request.setNewDepartment("Khoa_Test");
+		return BulkTransferItem.builder().userId(userId).transfer(request).build();
+	}
+}
@@ -0,0 +1,203 @@
+package com.auth.auth_service.service;
+
+import com.auth.auth_service.dto.ai.JobTransferRecommendation;
+import com.auth.auth_service.dto.ai.NewUserRecommendation;
+import com.auth.auth_service.dto.ai.PermissionRecommendation;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+/**
+ * {@link LocalPermissionRecommender} trên một role riêng của test: nhóm quá nhỏ thì lùi về nhóm thô
+ * hơn, tỉ lệ duyệt dùng prior Laplace, fast path chỉ trả lời khi đúng profile đủ lớn, job transfer
+ * không gợi ý thu hồi quyền của role mới, và thay đổi trong lúc rebuild không bị mất.
+ */
+@SpringBootTest(properties = "audit.journal.replay-interval-ms=3600000")
+class LocalPermissionRecommenderTest {
+
+	private static final String ROLE = "RecTestRole";
+	private static final String OTHER_ROLE = "RecTestOther";
+
+	@Autowired
+	private DataSource dataSource;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private PermissionCatalog catalog;
+
+	/** Quyền của role, A, B, C, D */
+	private long roleGrant;
+	private long a;
+	private long b;
+	private long c;
+	private long d;
+	private final List<Long> groupX = new ArrayList<>();
+	private final List<Long> groupY = new ArrayList<>();
+
+	@BeforeEach
+	void seed() {
+		roleGrant = permission("role");
+		a = permission("a");
+		b = permission("b");
+		c = permission("c");
+		d = permission("d");
+		catalog.refresh();
+
+		long roleId = role(ROLE);
+		long otherRoleId = role(OTHER_ROLE);
+		jdbcTemplate.update("INSERT INTO role_permissions (role_id, permission_id) VALUES (?, ?), (?, ?), (?, ?)",
+				roleId, roleGrant, otherRoleId, roleGrant, otherRoleId, d);
+
+		// Nhóm X: 3 user (Senior) có A, B; nhóm Y: 7 user (Junior) có B, C, D. Cùng (role, khoa, chi nhánh, vị trí).
+		for (int i = 0; i < 3; i++) {
+			groupX.add(user(roleId, "Senior", i, a, b));
+		}
+		for (int i = 0; i < 7; i++) {
+			groupY.add(user(roleId, "Junior", i, b, c, d));
+		}
+		// Role khác: 5 user chỉ có quyền của role (gồm D)
+		for (int i = 0; i < 5; i++) {
+			user(otherRoleId, "Other", i);
+		}
+		// B: 1 lần duyệt, 1 lần từ chối → (1 + 2) / (2 + 2) = 0.75; C, D chưa có lịch sử → 1.0
+		review(groupX.get(0), b, "APPROVED");
+		review(groupX.get(1), b, "REJECTED");
+	}
+
+	@AfterEach
+	void cleanUp() {
+		jdbcTemplate.update("DELETE FROM users WHERE user_id LIKE 'RECTEST-%'");
+		jdbcTemplate.update("DELETE FROM roles WHERE name IN (?, ?)", ROLE, OTHER_ROLE);
+		jdbcTemplate.update("DELETE FROM permissions WHERE resource_type = 'RecTest'");
+		catalog.refresh();
+	}
+
+	@Test
+	void smallSegmentFallsBackToCoarserSegment() {
+		LocalPermissionRecommender recommender = recommender(jdbcTemplate, 0);
+
+		// X chỉ có 3 user (< min-support 5): dùng nhóm (role, khoa, chi nhánh, vị trí) 10 user,
+		// nơi A chỉ có 3/10 nên không được gợi ý
+		assertThat(recommender.recommendNewUser(profile(ROLE, "Senior")).orElseThrow().getRecommendations())
+				.extracting(PermissionRecommendation::getPermissionId, PermissionRecommendation::getConfidence)
+				.containsExactly(tuple(b, 0.75), tuple(c, 0.7), tuple(d, 0.7));
+
+		assertThat(recommender.recommendNewUser(profile("NoSuchRole", "Senior"))).isEmpty();
+	}
+
+	@Test
+	void reviewHistoryUsesLaplacePrior() {
+		LocalPermissionRecommender recommender = recommender(jdbcTemplate, 0);
+
+		// Y: B 7/7 × 0.75; C, D 7/7 × 1.0 (prior); quyền của role không bao giờ được gợi ý
+		assertThat(recommender.recommendNewUser(profile(ROLE, "Junior")).orElseThrow().getRecommendations())
+				.extracting(PermissionRecommendation::getPermissionId, PermissionRecommendation::getConfidence)
+				.containsExactly(tuple(c, 1.0), tuple(d, 1.0), tuple(b, 0.75));
+	}
+
+	@Test
+	void fastPathNeedsEnoughUsersWithTheExactProfile() {
+		assertThat(recommender(jdbcTemplate, 7).fastPathNewUser(profile(ROLE, "Junior"))).isPresent();
+		assertThat(recommender(jdbcTemplate, 8).fastPathNewUser(profile(ROLE, "Junior"))).isEmpty();
+		// Nhóm thô hơn có 10 user nhưng fast path không lùi về đó
+		assertThat(recommender(jdbcTemplate, 7).fastPathNewUser(profile(ROLE, "Senior"))).isEmpty();
+		assertThat(recommender(jdbcTemplate, 0).fastPathNewUser(profile(ROLE, "Junior"))).isEmpty();
+	}
+
+	@Test
+	void jobTransferNeverRemovesPermissionsOfTheNewRole() {
+		LocalPermissionRecommender recommender = recommender(jdbcTemplate, 0);
+
+		// D được kỳ vọng ở nhóm cũ (Y) và thuộc role mới
+		JobTransferRecommendation transfer = recommender.recommendJobTransfer(
+				profile(ROLE, "Junior"), profile(OTHER_ROLE, "Other")).orElseThrow();
+
+		assertThat(transfer.getRemovedPermissions()).extracting(PermissionRecommendation::getPermissionId)
+				.containsExactlyInAnyOrder(b, c).doesNotContain(d, roleGrant);
+		assertThat(transfer.getRetainedPermissions()).extracting(PermissionRecommendation::getPermissionId)
+				.containsExactlyInAnyOrder(roleGrant, d);
+	}
+
+	@Test
+	void changesDuringRebuildAreReappliedAfterTheSwap() {
+		LocalPermissionRecommender[] recommender = new LocalPermissionRecommender[1];
+		// Sau khi rebuild đọc xong quyền, toàn bộ nhóm Y được cấp A và event được phát
+		JdbcTemplate concurrentChange = new JdbcTemplate(dataSource) {
+			boolean changed;
+
+			@Override
+			public void query(String sql, RowCallbackHandler rch) {
+				super.query(sql, rch);
+				if (!changed && sql.contains("user_additional_permissions")) {
+					changed = true;
+					for (Long userId : groupY) {
+						jdbcTemplate.update("INSERT INTO user_additional_permissions (user_id, permission_id) VALUES (?, ?)",
+								userId, a);
+						recommender[0].onUserPermissionsChanged(new UserPermissionsChangedEvent(userId));
+					}
+				}
+			}
+		};
+		recommender[0] = new LocalPermissionRecommender(concurrentChange, catalog, true, 5, 0, 0.6);
+		recommender[0].rebuild();
+
+		NewUserRecommendation junior = recommender[0].recommendNewUser(profile(ROLE, "Junior")).orElseThrow();
+		assertThat(junior.getRecommendations()).extracting(PermissionRecommendation::getPermissionId).contains(a);
+	}
+
+	private LocalPermissionRecommender recommender(JdbcTemplate template, int fastPathMinSupport) {
+		LocalPermissionRecommender recommender =
+				new LocalPermissionRecommender(template, catalog, true, 5, fastPathMinSupport, 0.6);
+		recommender.rebuild();
+		return recommender;
+	}
+
+	private long permission(String action) {
+		return jdbcTemplate.queryForObject("""
+				INSERT INTO permissions (resource_type, action, scope, permission_key)
+				VALUES ('RecTest', ?, 'all', ?) RETURNING id""", Long.class, action, "RecTest:" + action + ":all");
+	}
+
+	private long role(String name) {
+		return jdbcTemplate.queryForObject("INSERT INTO roles (name) VALUES (?) RETURNING id", Long.class, name);
+	}
+
+	private long user(long roleId, String seniority, int index, long... permissions) {
+		String userId = "RECTEST-" + seniority + "-" + index;
+		long id = jdbcTemplate.queryForObject("""
+				INSERT INTO users (user_id, username, password, department, branch, position, has_license,
+				                   seniority, employment_type, role_id)
+				VALUES (?, ?, 'x', 'Khoa_Noi', 'CN_HN', 'Bac_si', true, ?, 'FullTime', ?) RETURNING id""",
+				Long.class, userId, userId, seniority, roleId);
+		for (long permission : permissions) {
+			jdbcTemplate.update("INSERT INTO user_additional_permissions (user_id, permission_id) VALUES (?, ?)",
+					id, permission);
+		}
+		return id;
+	}
+
+	private void review(long userId, long permissionId, String status) {
+		jdbcTemplate.update("""
+				INSERT INTO pending_permission_requests (user_id, permission_id, confidence, change_type, status)
+				VALUES (?, ?, 0.9, 'ADD', ?)""", userId, permissionId, status);
+	}
+
+	private static Map<String, String> profile(String role, String seniority) {
+		return Map.of("role", role, "department", "Khoa_Noi", "branch", "CN_HN", "license", "Yes",
+				"seniority", seniority, "position", "Bac_si", "employment_type", "FullTime");
+	}
+}
@@ -0,0 +1,140 @@
+package com.auth.auth_service.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tra cứu của {@link PermissionCatalog} trên bảng permissions giả (không DB): nhãn "ResourceType_action"
+ * khớp chính xác như split("_") cũ, và dense id giữ nguyên qua refresh.
+ */
+class PermissionCatalogTest {
+
+	private final FakePermissions permissions = new FakePermissions();
+	private final PermissionCatalog catalog = new PermissionCatalog(permissions);
+
+	@Test
+	void resolvesLabelToLowestIdOfResourceAndAction() {
+		permissions.add(7, "MedicalRecord", "read", "own");
+		permissions.add(3, "MedicalRecord", "read", "all");
+		permissions.add(5, "Billing", "create", "all");
+
+		assertThat(catalog.resolveLabel("MedicalRecord_read")).hasValueSatisfying(e -> assertThat(e.id()).isEqualTo(3));
+		assertThat(catalog.resolveLabel("Billing_create")).hasValueSatisfying(e -> assertThat(e.id()).isEqualTo(5));
+		// phần sau dấu '_' thứ hai bị bỏ qua
+		assertThat(catalog.resolveLabel("MedicalRecord_read_own")).hasValueSatisfying(e -> assertThat(e.id()).isEqualTo(3));
+	}
+
+	@Test
+	void malformedOrUnknownLabelsDoNotResolve() {
+		permissions.add(1, "MedicalRecord", "read", "all");
+
+		assertThat(catalog.resolveLabel(null)).isEmpty();
+		assertThat(catalog.resolveLabel("")).isEmpty();
+		assertThat(catalog.resolveLabel("MedicalRecord")).isEmpty();
+		assertThat(catalog.resolveLabel("_read")).isEmpty();
+		assertThat(catalog.resolveLabel("MedicalRecord_")).isEmpty();
+		assertThat(catalog.resolveLabel("MedicalRecord__read")).isEmpty();
+		assertThat(catalog.resolveLabel("Prescription_read")).isEmpty();
+		assertThat(catalog.resolveLabel("MedicalRecord_delete")).isEmpty();
+	}
+
+	@Test
+	void labelsAreMatchedExactly() {
+		permissions.add(1, "MedicalRecord", "read", "all");
+
+		// Như so sánh bằng của PostgreSQL trước đây: không trim, phân biệt hoa thường
+		assertThat(catalog.resolveLabel(" MedicalRecord_read")).isEmpty();
+		assertThat(catalog.resolveLabel("MedicalRecord_read ")).isEmpty();
+		assertThat(catalog.resolveLabel("MedicalRecord _read")).isEmpty();
+		assertThat(catalog.resolveLabel("medicalrecord_read")).isEmpty();
+		assertThat(catalog.resolveLabel("MedicalRecord_READ")).isEmpty();
+	}
+
+	@Test
+	void denseIdsRoundTripAndSurviveRefresh() {
+		for (int id = 1; id <= 50; id++) {
+			permissions.add(id * 10L, "Resource" + id % 7, "action" + id, "all");
+		}
+		assertRoundTrip();
+		int size = catalog.size();
+		int denseOf200 = catalog.denseId(200);
+
+		// Xóa một permission, thêm permission mới: dense id cũ giữ nguyên, chỗ trống không được dùng lại
+		permissions.remove(200);
+		permissions.add(5, "Resource0", "late", "all");
+		catalog.refresh();
+
+		assertRoundTrip();
+		assertThat(catalog.denseId(200)).isEqualTo(-1);
+		assertThat(catalog.byDenseId(denseOf200)).isNull();
+		assertThat(catalog.denseId(5)).isEqualTo(size);
+		assertThat(catalog.size()).isEqualTo(size + 1);
+		assertThat(catalog.entries()).hasSize(50);
+		assertThat(catalog.byDenseId(-1)).isNull();
+		assertThat(catalog.byDenseId(catalog.size())).isNull();
+	}
+
+	private void assertRoundTrip() {
+		for (FakePermissions.Row row : permissions.rows) {
+			int denseId = catalog.denseId(row.id());
+			assertThat(denseId).isBetween(0, catalog.size() - 1);
+			PermissionCatalog.Entry entry = catalog.byDenseId(denseId);
+			assertThat(entry.id()).isEqualTo(row.id());
+			assertThat(entry.denseId()).isEqualTo(denseId);
+			assertThat(catalog.byId(row.id())).containsSame(entry);
+			assertThat(catalog.byKey(row.key())).containsSame(entry);
+			assertThat(catalog.findAll(row.resourceType(), row.action())).contains(entry);
+			assertThat(entry.label()).isEqualTo(row.resourceType() + "_" + row.action());
+		}
+	}
+
+	/**
+	 * Bảng permissions trong bộ nhớ, trả về theo id tăng dần như câu SELECT của catalog.
+	 */
+	private static final class FakePermissions extends JdbcTemplate {
+		final List<Row> rows = new ArrayList<>();
+
+		void add(long id, String resourceType, String action, String scope) {
+			rows.add(new Row(id, resourceType, action, scope));
+		}
+
+		void remove(long id) {
+			rows.removeIf(row -> row.id() == id);
+		}
+
+		@Override
+		public void query(String sql, RowCallbackHandler handler) {
+			List<Row> sorted = new ArrayList<>(rows);
+			sorted.sort((a, b) -> Long.compare(a.id(), b.id()));
+			try {
+				for (Row row : sorted) {
+					ResultSet rs = mock(ResultSet.class);
+					when(rs.getLong("id")).thenReturn(row.id());
+					when(rs.getString("resource_type")).thenReturn(row.resourceType());
+					when(rs.getString("action")).thenReturn(row.action());
+					when(rs.getString("scope")).thenReturn(row.scope());
+					when(rs.getString("permission_key")).thenReturn(row.key());
+					handler.processRow(rs);
+				}
+			} catch (SQLException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+
+		record Row(long id, String resourceType, String action, String scope) {
+			String key() {
+				return resourceType + ":" + action + ":" + scope;
+			}
+		}
+	}
+}
@@ -0,0 +1,139 @@
+package com.auth.auth_service.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Work queue của {@link PermissionReviewService}: nhiều reviewer duyệt cùng lúc chỉ một người thành
+ * công, gia hạn lease của chính mình không làm version cũ mất hiệu lực, request đang được người
+ * khác giữ không duyệt được, kể cả qua duyệt hàng loạt.
+ */
+@SpringBootTest(properties = "audit.journal.replay-interval-ms=3600000")
+class PermissionReviewServiceTest {
+
+	private static final PermissionReviewService.QueueFilter ALL =
+			new PermissionReviewService.QueueFilter("REVIEW_TEST", null, null, null);
+
+	@Autowired
+	private PermissionReviewService reviewService;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	private List<Long> reviewers;
+	private long requestId;
+
+	@BeforeEach
+	void seed() {
+		reviewers = jdbcTemplate.queryForList("SELECT id FROM users ORDER BY id LIMIT 8", Long.class);
+		long permissionId = jdbcTemplate.queryForObject("""
+				INSERT INTO permissions (resource_type, action, scope, permission_key)
+				VALUES ('ReviewTest', 'read', 'all', 'ReviewTest:read:all') RETURNING id""", Long.class);
+		requestId = jdbcTemplate.queryForObject("""
+				INSERT INTO pending_permission_requests (user_id, permission_id, confidence, request_type, change_type)
+				VALUES (?, ?, 0.9, 'REVIEW_TEST', 'ADD') RETURNING id""", Long.class, reviewers.get(0), permissionId);
+	}
+
+	@AfterEach
+	void cleanUp() {
+		jdbcTemplate.update("DELETE FROM permissions WHERE resource_type = 'ReviewTest'");
+	}
+
+	@Test
+	void concurrentApprovalsCompleteOnce() throws Exception {
+		long version = version();
+		CountDownLatch start = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(reviewers.size());
+		List<PermissionReviewService.Completion> results = new ArrayList<>();
+		try {
+			List<Future<PermissionReviewService.Completion>> futures = new ArrayList<>();
+			for (Long reviewer : reviewers) {
+				futures.add(executor.submit((Callable<PermissionReviewService.Completion>) () -> {
+					start.await();
+					return reviewService.complete(requestId, version, true, reviewer, "concurrent");
+				}));
+			}
+			start.countDown();
+			for (Future<PermissionReviewService.Completion> future : futures) {
+				results.add(future.get());
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		assertThat(results).filteredOn(PermissionReviewService.Completion.DONE::equals).hasSize(1);
+		assertThat(results).filteredOn(PermissionReviewService.Completion.ALREADY_PROCESSED::equals).hasSize(7);
+		assertThat(jdbcTemplate.queryForObject(
+				"SELECT COUNT(*) FROM user_additional_permissions uap JOIN permissions p ON p.id = uap.permission_id "
+						+ "WHERE p.resource_type = 'ReviewTest'", Integer.class)).isEqualTo(1);
+	}
+
+	@Test
+	void renewingOwnLeaseKeepsTheVersion() {
+		Long reviewer = reviewers.get(1);
+		List<Map<String, Object>> first = reviewService.claimNext(reviewer, 10, ALL);
+		List<Map<String, Object>> renewed = reviewService.claimNext(reviewer, 10, ALL);
+
+		assertThat(first).singleElement().extracting(r -> r.get("id")).isEqualTo(requestId);
+		assertThat(renewed).singleElement().extracting(r -> r.get("version")).isEqualTo(first.get(0).get("version"));
+		assertThat(reviewService.complete(requestId, (Long) first.get(0).get("version"), true, reviewer, null))
+				.isEqualTo(PermissionReviewService.Completion.DONE);
+	}
+
+	@Test
+	void requestClaimedByAnotherReviewerCannotBeCompleted() {
+		Long owner = reviewers.get(1);
+		Long other = reviewers.get(2);
+		long version = (Long) reviewService.claimNext(owner, 10, ALL).get(0).get("version");
+
+		assertThat(reviewService.claimNext(other, 10, ALL)).isEmpty();
+		assertThat(reviewService.complete(requestId, version, false, other, null))
+				.isEqualTo(PermissionReviewService.Completion.CLAIMED);
+		assertThat(reviewService.complete(requestId, null, true, other, null))
+				.isEqualTo(PermissionReviewService.Completion.CLAIMED);
+
+		// Lease hết hạn thì người khác được duyệt
+		jdbcTemplate.update("UPDATE pending_permission_requests SET claimed_until = now() - interval '1 minute' WHERE id = ?",
+				requestId);
+		assertThat(reviewService.complete(requestId, version, false, other, null))
+				.isEqualTo(PermissionReviewService.Completion.DONE);
+	}
+
+	@Test
+	void bulkReviewSkipsRequestsClaimedByAnotherReviewer() {
+		Long owner = reviewers.get(1);
+		Long other = reviewers.get(2);
+		reviewService.claimNext(owner, 10, ALL);
+
+		PermissionReviewService.ReviewResult approved = reviewService.approve(List.of(requestId), other, null);
+		assertThat(approved.processed()).isZero();
+		assertThat(approved.errors()).containsExactly("Request " + requestId + " is claimed by another reviewer");
+		assertThat(reviewService.reject(List.of(requestId), other, null).errors())
+				.containsExactly("Request " + requestId + " is claimed by another reviewer");
+		assertThat(jdbcTemplate.queryForObject("SELECT status FROM pending_permission_requests WHERE id = ?",
+				String.class, requestId)).isEqualTo("PENDING");
+
+		// Người đang giữ vẫn duyệt được qua đường hàng loạt
+		assertThat(reviewService.approve(List.of(requestId), owner, null).processed()).isEqualTo(1);
+	}
+
+	private long version() {
+		return jdbcTemplate.queryForObject("SELECT version FROM pending_permission_requests WHERE id = ?", Long.class,
+				requestId);
+	}
+}
@@ -0,0 +1,113 @@
+package com.auth.auth_service.service;
+
+import com.auth.auth_service.audit.PermissionUsageTracker;
+import com.auth.auth_service.dto.ai.RightsizingReport;
+import com.auth.auth_service.entity.AuditLog;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Upsert của {@link PermissionUsageTracker} (V11) và báo cáo rightsizing (V17) trên PostgreSQL: hai
+ * lần flush cộng dồn hit_count và giữ first/last used; báo cáo chỉ gồm quyền bổ sung không dùng trong
+ * khoảng lookback. Chạy trong transaction được rollback; tracker riêng của test không bị flush nền.
+ */
+@SpringBootTest(properties = "audit.journal.replay-interval-ms=3600000")
+class PermissionRightsizingServiceTest {
+
+	private static final String USER = "U0001";
+
+	@Autowired
+	private PermissionRightsizingService rightsizingService;
+
+	@Autowired
+	private PermissionCatalog catalog;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Test
+	void upsertAccumulatesAndReportListsOnlyUnusedGrants() {
+		TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+		transaction.executeWithoutResult(status -> {
+			status.setRollbackOnly();
+			LocalDateTime now = LocalDateTime.now().withNano(0);
+			jdbcTemplate.update("UPDATE permission_usage_tracking SET started_at = ?",
+					Timestamp.valueOf(now.minusDays(60)));
+
+			long userId = jdbcTemplate.queryForObject("SELECT id FROM users WHERE user_id = ?", Long.class, USER);
+			List<PermissionCatalog.Entry> grants = catalog.entries().stream()
+					.filter(e -> catalog.findAll(e.resourceType(), e.action()).size() == 1)
+					.limit(3)
+					.toList();
+			PermissionCatalog.Entry used = grants.get(0);
+			PermissionCatalog.Entry unused = grants.get(1);
+			PermissionCatalog.Entry usedLongAgo = grants.get(2);
+			jdbcTemplate.update("DELETE FROM permission_usage WHERE user_id = ?", userId);
+			for (PermissionCatalog.Entry grant : grants) {
+				jdbcTemplate.update("INSERT INTO user_additional_permissions (user_id, permission_id) VALUES (?, ?) "
+						+ "ON CONFLICT DO NOTHING", userId, grant.id());
+			}
+
+			PermissionUsageTracker tracker = new PermissionUsageTracker(jdbcTemplate, catalog);
+			tracker.onDecision(allowed(used, now.minusDays(2)));
+			tracker.onDecision(allowed(used, now.minusDays(1)));
+			tracker.flush();
+			tracker.onDecision(allowed(used, now.minusDays(3)));
+			tracker.onDecision(allowed(usedLongAgo, now.minusDays(40)));
+			tracker.flush();
+
+			Map<String, Object> row = jdbcTemplate.queryForMap(
+					"SELECT hit_count, first_used_at, last_used_at FROM permission_usage WHERE user_id = ? AND permission_id = ?",
+					userId, used.id());
+			assertThat(row.get("hit_count")).isEqualTo(3L);
+			assertThat(((Timestamp) row.get("first_used_at")).toLocalDateTime()).isEqualTo(now.minusDays(3));
+			assertThat(((Timestamp) row.get("last_used_at")).toLocalDateTime()).isEqualTo(now.minusDays(1));
+
+			RightsizingReport report = rightsizingService.analyze(30, 100_000);
+			@SuppressWarnings("unchecked")
+			List<Map<String, Object>> unusedRows =
+					(List<Map<String, Object>>) report.getAdditionalProperties().get("unused_permissions");
+			List<Map<String, Object>> mine = unusedRows.stream().filter(r -> USER.equals(r.get("user_id"))).toList();
+			assertThat(mine).extracting(r -> r.get("permission_id"))
+					.contains(unused.id(), usedLongAgo.id())
+					.doesNotContain(used.id());
+			Map<String, Object> stale = mine.stream()
+					.filter(r -> r.get("permission_id").equals(usedLongAgo.id())).findFirst().orElseThrow();
+			assertThat(stale.get("hit_count")).isEqualTo(1L);
+			assertThat(stale.get("last_used_at")).isEqualTo(now.minusDays(40));
+			assertThat(report.getAdditionalProperties().get("total_unused")).isEqualTo((long) unusedRows.size());
+
+			// Khoảng lookback bắt đầu trước mốc đếm: không kết luận được
+			assertThatThrownBy(() -> rightsizingService.analyze(90, 10))
+					.isInstanceOf(IllegalArgumentException.class)
+					.hasMessageContaining("lookbackDays must be at most 60");
+		});
+	}
+
+	private static AuditLog allowed(PermissionCatalog.Entry permission, LocalDateTime at) {
+		return AuditLog.builder()
+				.userId(USER)
+				.resourceType(permission.resourceType())
+				.resourceId("R-1")
+				.action(permission.action())
+				.allowed(true)
+				.policyId("ALLOW_" + permission.label())
+				.timestamp(at)
+				.build();
+	}
+}
@@ -0,0 +1,127 @@
+package com.auth.auth_service.service;
+
+import com.auth.auth_service.entity.Permission;
+import com.auth.auth_service.entity.Role;
+import com.auth.auth_service.repository.PermissionRepository;
+import com.auth.auth_service.repository.RoleRepository;
+import com.auth.auth_service.support.JdbcCounter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Second-level cache JCache / Caffeine: sau warm-up role, permission và query cache trả kết quả không
+ * cần SQL (đếm bằng {@link JdbcCounter}, không cần Hibernate statistics), {@link ReferenceDataCache#evict()} xóa mọi region, và ghi qua JPA
+ * làm query cache của bảng đó hết hiệu lực.
+ */
+@SpringBootTest(properties = "audit.journal.replay-interval-ms=3600000")
+@Import(JdbcCounter.class)
+class ReferenceDataCacheTest {
+
+	private static final String RESOURCE_TYPE = "CacheTest";
+
+	@Autowired
+	private ReferenceDataCache referenceDataCache;
+
+	@Autowired
+	private RoleRepository roleRepository;
+
+	@Autowired
+	private PermissionRepository permissionRepository;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	private String roleName;
+
+	@BeforeEach
+	void setUp() {
+		roleName = roleRepository.findAll().get(0).getName();
+		referenceDataCache.evict();
+	}
+
+	@AfterEach
+	void cleanUp() {
+		// Xóa qua JPA để cache cập nhật theo
+		permissionRepository.deleteAll(permissionRepository.findByResourceType(RESOURCE_TYPE));
+	}
+
+	@Test
+	void lookupsAreServedFromCacheAfterWarmUp() throws Exception {
+		Role warm = inTransaction(this::loadRole);
+
+		// Thống kê JCache cộng dồn từ lúc khởi động: so sánh trước / sau
+		Map<String, Map<String, Object>> before = referenceDataCache.statistics();
+		Role[] cached = new Role[1];
+		JdbcCounter.Result jdbc = JdbcCounter.measure("cached role", () -> cached[0] = inTransaction(this::loadRole));
+
+		assertThat(cached[0].getPermissions()).isEqualTo(warm.getPermissions());
+		assertThat(jdbc.statements()).as("statements after warm-up").isEmpty();
+		assertThat(delta(before, ReferenceDataCache.QUERY_REGION, "hits")).isPositive();
+		assertThat(delta(before, ReferenceDataCache.QUERY_REGION, "misses")).isZero();
+		assertThat(delta(before, ReferenceDataCache.ROLE_REGION, "misses")).isZero();
+		assertThat(delta(before, ReferenceDataCache.ROLE_PERMISSIONS_REGION, "hits")).isPositive();
+		assertThat(delta(before, ReferenceDataCache.PERMISSION_REGION, "hits")).isPositive();
+		assertThat(delta(before, ReferenceDataCache.PERMISSION_REGION, "misses")).isZero();
+		assertThat(stat(ReferenceDataCache.ROLE_REGION, "size")).isPositive();
+		assertThat(stat(ReferenceDataCache.ROLE_PERMISSIONS_REGION, "size")).isPositive();
+	}
+
+	@Test
+	void evictClearsEveryRegion() throws Exception {
+		inTransaction(this::loadRole);
+		assertThat(stat(ReferenceDataCache.ROLE_REGION, "size")).isPositive();
+
+		referenceDataCache.evict();
+
+		assertThat(referenceDataCache.statistics().values())
+				.allSatisfy(region -> assertThat(((Number) region.get("size")).longValue()).isZero());
+		JdbcCounter.Result jdbc = JdbcCounter.measure("role after evict", () -> inTransaction(this::loadRole));
+		assertThat(jdbc.statements()).as("statements after evict").isNotEmpty();
+	}
+
+	@Test
+	void jpaWriteInvalidatesQueryCache() {
+		assertThat(inTransaction(() -> permissionRepository.findByResourceType(RESOURCE_TYPE))).isEmpty();
+		assertThat(inTransaction(() -> permissionRepository.findByResourceType(RESOURCE_TYPE))).isEmpty();
+
+		Permission saved = permissionRepository.save(Permission.builder()
+				.resourceType(RESOURCE_TYPE).action("read").scope("all").build());
+
+		List<Permission> found = inTransaction(() -> permissionRepository.findByResourceType(RESOURCE_TYPE));
+		assertThat(found).extracting(Permission::getId).containsExactly(saved.getId());
+	}
+
+	/**
+	 * Role theo tên cùng các permission của nó (entity, collection và query cache).
+	 */
+	private Role loadRole() {
+		Role role = roleRepository.findByName(roleName).orElseThrow();
+		role.getPermissions().size();
+		return role;
+	}
+
+	private <T> T inTransaction(Supplier<T> work) {
+		return new TransactionTemplate(transactionManager).execute(status -> work.get());
+	}
+
+	private long stat(String region, String name) {
+		Map<String, Object> stats = referenceDataCache.statistics().get(region);
+		return ((Number) stats.get(name)).longValue();
+	}
+
+	private long delta(Map<String, Map<String, Object>> before, String region, String name) {
+		return stat(region, name) - ((Number) before.get(region).get(name)).longValue();
+	}
+}
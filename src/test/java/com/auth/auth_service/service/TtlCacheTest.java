@@ -0,0 +1,101 @@
+package com.auth.auth_service.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * {@link TtlCache}: entry hết hạn sau TTL, các caller đồng thời chờ chung một lần load, lỗi không
+ * được cache, vượt giới hạn thì bỏ entry cũ nhất.
+ */
+class TtlCacheTest {
+
+	private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final AtomicInteger loads = new AtomicInteger();
+
+	@Test
+	void entryIsReloadedAfterTtl() throws Exception {
+		TtlCache<String, String> cache = cache(Duration.ofMillis(100));
+
+		assertThat(cache.get("all", () -> load("v1"))).isEqualTo("v1");
+		assertThat(cache.get("all", () -> load("v2"))).isEqualTo("v1");
+		assertThat(loads).hasValue(1);
+
+		Thread.sleep(150);
+		assertThat(cache.get("all", () -> load("v2"))).isEqualTo("v2");
+		assertThat(loads).hasValue(2);
+		assertThat(meterRegistry.get("cache.gets").tag("result", "hit").functionCounter().count()).isEqualTo(1);
+		assertThat(meterRegistry.get("cache.gets").tag("result", "miss").functionCounter().count()).isEqualTo(2);
+	}
+
+	@Test
+	void concurrentCallersShareTheLoad() throws Exception {
+		TtlCache<String, String> cache = cache(Duration.ofMinutes(5));
+		CountDownLatch loading = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+
+		CompletableFuture<String> first = CompletableFuture.supplyAsync(() -> cache.get("all", () -> {
+			loading.countDown();
+			await(release);
+			return load("v1");
+		}));
+		assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+		CompletableFuture<String> second = CompletableFuture.supplyAsync(() -> cache.get("all", () -> load("v2")));
+
+		release.countDown();
+		assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("v1");
+		assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo("v1");
+		assertThat(loads).hasValue(1);
+	}
+
+	@Test
+	void errorsAreNotCached() {
+		TtlCache<String, String> cache = cache(Duration.ofMinutes(5));
+
+		assertThatThrownBy(() -> cache.get("all", () -> {
+			loads.incrementAndGet();
+			throw new IllegalStateException("database unavailable");
+		})).isInstanceOf(IllegalStateException.class);
+
+		assertThat(cache.get("all", () -> load("v1"))).isEqualTo("v1");
+		assertThat(loads).hasValue(2);
+	}
+
+	@Test
+	void oldestEntryIsEvictedAboveMaxSize() {
+		TtlCache<String, String> cache = new TtlCache<>("test", Duration.ofMinutes(5), 2, meterRegistry);
+		cache.get("a", () -> load("a"));
+		cache.get("b", () -> load("b"));
+		cache.get("c", () -> load("c"));
+
+		assertThat(meterRegistry.get("cache.size").gauge().value()).isEqualTo(2);
+		assertThat(cache.get("a", () -> load("a2"))).isEqualTo("a2");
+		assertThat(cache.get("c", () -> load("c2"))).isEqualTo("c");
+	}
+
+	private TtlCache<String, String> cache(Duration ttl) {
+		return new TtlCache<>("test", ttl, 100, meterRegistry);
+	}
+
+	private String load(String value) {
+		loads.incrementAndGet();
+		return value;
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await(10, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,106 @@
+package com.auth.auth_service.support;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * Bọc DataSource của test để đếm lệnh gửi tới PostgreSQL từ thread đang gọi {@link #measure}:
+ * round trip (execute* / executeBatch), dòng gửi qua addBatch, dòng đọc về (ResultSet.next) và câu SQL
+ * đã prepare.
+ * Job chạy nền không bị tính. Dùng bằng {@code @Import(JdbcCounter.class)}.
+ */
+@TestConfiguration
+public class JdbcCounter {
+
+	private static final Logger log = LoggerFactory.getLogger(JdbcCounter.class);
+
+	private static volatile Thread measuredThread;
+	private static long roundTrips;
+	private static long batchedRows;
+	private static long rowsFetched;
+	private static List<String> statements = new ArrayList<>();
+
+	@Bean
+	static BeanPostProcessor countingDataSource() {
+		return new BeanPostProcessor() {
+			@Override
+			public Object postProcessAfterInitialization(Object bean, String beanName) {
+				return bean instanceof DataSource dataSource ? counting(DataSource.class, dataSource) : bean;
+			}
+		};
+	}
+
+	/**
+	 * Chạy {@code work} trên thread hiện tại, ghi log và trả về số liệu JDBC của nó.
+	 */
+	public static Result measure(String name, Callable<?> work) throws Exception {
+		roundTrips = 0;
+		batchedRows = 0;
+		rowsFetched = 0;
+		statements = new ArrayList<>();
+		measuredThread = Thread.currentThread();
+		long start = System.nanoTime();
+		try {
+			work.call();
+		} finally {
+			measuredThread = null;
+		}
+		Result result = new Result(roundTrips, batchedRows, rowsFetched, (System.nanoTime() - start) / 1_000_000,
+				List.copyOf(statements));
+		log.info("{}: roundTrips={} batchedRows={} rowsFetched={} time={}ms",
+				name, result.roundTrips(), result.batchedRows(), result.rowsFetched(), result.millis());
+		return result;
+	}
+
+	private static <T> T counting(Class<T> type, T target) {
+		return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+			Object result;
+			try {
+				result = method.invoke(target, args);
+			} catch (InvocationTargetException e) {
+				throw e.getCause();
+			}
+			if (Thread.currentThread() == measuredThread) {
+				if (method.getName().startsWith("execute")) {
+					roundTrips++;
+				} else if (method.getName().equals("addBatch")) {
+					batchedRows++;
+				} else if (method.getName().equals("next") && Boolean.TRUE.equals(result)) {
+					rowsFetched++;
+				} else if (method.getName().equals("prepareStatement")) {
+					statements.add((String) args[0]);
+				}
+			}
+			if (result instanceof Connection connection) {
+				return counting(Connection.class, connection);
+			}
+			if (result instanceof PreparedStatement statement) {
+				return counting(PreparedStatement.class, statement);
+			}
+			if (result instanceof Statement statement) {
+				return counting(Statement.class, statement);
+			}
+			if (result instanceof ResultSet resultSet) {
+				return counting(ResultSet.class, resultSet);
+			}
+			return result;
+		}));
+	}
+
+	public record Result(long roundTrips, long batchedRows, long rowsFetched, long millis, List<String> statements) {
+	}
+}